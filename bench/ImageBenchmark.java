@@ -0,0 +1,215 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import commands.AbstractImageCommand;
+import controller.ImageControllerImplExtra;
+import model.Histogram;
+import model.ImageModel;
+import model.ImageModelMap;
+import model.ImageModelMapImpl;
+import model.ImageUtil;
+import model.PackedImageModel;
+
+/**
+ * This class measures the throughput and allocation rate of every command, every image file
+ * format, rendering and histogram counting, on generated images of several sizes. Each
+ * benchmark is run repeatedly for a warmup period and then measured for a fixed period, and
+ * reports operations per second, megapixels per second and megabytes allocated per operation
+ * across all threads.
+ *
+ * <p>Results shared between identical commands are turned off, so every operation computes
+ * its result.
+ */
+public class ImageBenchmark {
+  private static final String[] COMMANDS = {
+      "red-component", "green-component", "blue-component", "maxvalue-component",
+      "luma-component", "intensity-component", "sepia-tone",
+      "color-matrix 0.5 0.3 0.2 0.2 0.5 0.3 0.3 0.2 0.5", "brighten 10",
+      "horizontal-flip", "vertical-flip", "blur", "sharpen", "box-blur 8",
+      "mosaic 100", "mosaic 1000", "mosaic 10000", "downscale 50 50"};
+  private static final String[] FORMATS = {"ppm", "raw.ppm", "pgm", "png", "jpg", "bmp"};
+  private static final Appendable DISCARD = new Appendable() {
+    @Override
+    public Appendable append(CharSequence csq) {
+      return this;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) {
+      return this;
+    }
+
+    @Override
+    public Appendable append(char c) {
+      return this;
+    }
+  };
+
+  private final long warmupMillis;
+  private final long measureMillis;
+  private final ThreadMXBean threads;
+
+  /**
+   * Constructs a benchmark that warms up and measures each operation for given periods.
+   *
+   * @param warmupMillis  the milliseconds each operation runs before it is measured
+   * @param measureMillis the milliseconds each operation is measured for
+   */
+  private ImageBenchmark(long warmupMillis, long measureMillis) {
+    this.warmupMillis = warmupMillis;
+    this.measureMillis = measureMillis;
+    this.threads = ManagementFactory.getThreadMXBean();
+  }
+
+  /**
+   * Runs the benchmarks. The arguments are the image sizes to measure, each either a single
+   * number for a square image or "heightxwidth", optionally preceded by "-warmup" and
+   * "-measure" with a number of milliseconds. Without sizes, images from 256 by 256 up to 8K
+   * are measured.
+   *
+   * @param args the sizes and periods to measure
+   * @throws IOException if a temporary file cannot be written
+   */
+  public static void main(String[] args) throws IOException {
+    long warmup = 1000;
+    long measure = 2000;
+    List<int[]> sizes = new ArrayList<>();
+    for (int k = 0; k < args.length; k++) {
+      if (args[k].equals("-warmup")) {
+        warmup = Long.parseLong(args[++k]);
+      } else if (args[k].equals("-measure")) {
+        measure = Long.parseLong(args[++k]);
+      } else {
+        String[] dimensions = args[k].split("x");
+        int height = Integer.parseInt(dimensions[0]);
+        sizes.add(new int[]{height, Integer.parseInt(dimensions[dimensions.length - 1])});
+      }
+    }
+    if (sizes.isEmpty()) {
+      sizes.add(new int[]{256, 256});
+      sizes.add(new int[]{1024, 1024});
+      sizes.add(new int[]{2160, 3840});
+      sizes.add(new int[]{4320, 7680});
+    }
+    AbstractImageCommand.setResultCacheBudget(0);
+    ImageBenchmark benchmark = new ImageBenchmark(warmup, measure);
+    System.out.printf("%-56s %12s %12s %12s%n", "benchmark", "ops/s", "Mpx/s", "MB/op");
+    for (int[] size : sizes) {
+      benchmark.run(size[0], size[1]);
+    }
+  }
+
+  /**
+   * Runs every benchmark on a generated image of a given size.
+   *
+   * @param height the height of the image
+   * @param width  the width of the image
+   * @throws IOException if a temporary file cannot be written
+   */
+  private void run(int height, int width) throws IOException {
+    ImageModelMap map = new ImageModelMapImpl(new HashMap<>());
+    ImageModel image = generate(height, width);
+    map.add("image", image, DISCARD);
+    ImageControllerImplExtra controller = new ImageControllerImplExtra(DISCARD, map);
+    String size = height + "x" + width;
+    long pixels = (long) height * width;
+
+    for (String command : COMMANDS) {
+      measure(command + " " + size, pixels,
+          () -> controller.viewActionPerformed(command + " image result"));
+    }
+
+    File directory = Files.createTempDirectory("benchmark").toFile();
+    try {
+      for (String format : FORMATS) {
+        String path = new File(directory, "image." + format).getPath();
+        String save = format.startsWith("raw") ? "save-raw" : "save";
+        measure("save " + format + " " + size, pixels,
+            () -> controller.viewActionPerformed(save + " " + path + " image"));
+        measure("load " + format + " " + size, pixels,
+            () -> controller.viewActionPerformed("load " + path + " loaded"));
+        new File(path).delete();
+      }
+    } finally {
+      directory.delete();
+    }
+
+    BufferedImage rendered = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    measure("render " + size, pixels,
+        () -> ImageUtil.renderBufferedImage(rendered, image, width, height));
+    measure("histogram " + size, pixels, () -> new Histogram(image));
+  }
+
+  /**
+   * Warms up and measures one operation, and prints its results.
+   *
+   * @param name      the name of the benchmark
+   * @param pixels    the number of pixels each operation processes
+   * @param operation the operation
+   */
+  private void measure(String name, long pixels, Runnable operation) {
+    long end = System.nanoTime() + this.warmupMillis * 1_000_000;
+    while (System.nanoTime() < end) {
+      operation.run();
+    }
+    long operations = 0;
+    long allocated = allocatedBytes();
+    long start = System.nanoTime();
+    end = start + this.measureMillis * 1_000_000;
+    long now;
+    do {
+      operation.run();
+      operations++;
+      now = System.nanoTime();
+    } while (now < end);
+    allocated = allocatedBytes() - allocated;
+    double seconds = (now - start) / 1e9;
+    System.out.printf("%-56s %12.2f %12.2f %12.2f%n", name, operations / seconds,
+            operations * pixels / seconds / 1e6, allocated / (double) operations / (1 << 20));
+  }
+
+  /**
+   * Gets the number of bytes allocated so far by every live thread, or 0 if the virtual
+   * machine does not count allocations.
+   *
+   * @return the number of bytes allocated
+   */
+  private long allocatedBytes() {
+    if (!(this.threads instanceof com.sun.management.ThreadMXBean)) {
+      return 0;
+    }
+    long total = 0;
+    for (long bytes : ((com.sun.management.ThreadMXBean) this.threads)
+            .getThreadAllocatedBytes(this.threads.getAllThreadIds())) {
+      total += Math.max(0, bytes);
+    }
+    return total;
+  }
+
+  /**
+   * Generates an image of a given size with smooth gradients and fine detail, so that no
+   * command or file format meets an unusually easy image.
+   *
+   * @param height the height of the image
+   * @param width  the width of the image
+   * @return the generated image
+   */
+  private static ImageModel generate(int height, int width) {
+    int[] pixels = new int[height * width];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        int noise = (i * 7919 + j * 104729) & 0x1F;
+        pixels[i * width + j] = PackedImageModel.pack((255 * i / height + noise) & 0xFF,
+                (255 * j / width + noise) & 0xFF, ((i ^ j) + noise) & 0xFF);
+      }
+    }
+    return new PackedImageModel(pixels, height, width);
+  }
+}
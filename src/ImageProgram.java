@@ -1,14 +1,27 @@
+import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 import commands.LoadImage;
-import controller.ImageController;
+import controller.BatchProcessor;
+import controller.CommandTrace;
 import controller.ImageControllerImpl;
+import model.BoundedImageModelMap;
+import model.ConcurrentImageModelMap;
 import model.ImageModelMap;
-import model.ImageModelMapImpl;
 import view.ImageModelView;
 import view.ImageModelViewImpl;
 
@@ -22,18 +35,39 @@ public class ImageProgram {
    * @param args the input to specify a file that inputs can be read from
    */
   public static void main(String[] args) {
-    ImageModelMap imageModelMap = new ImageModelMapImpl(new HashMap<>());
-    if (args.length > 0) {
-      switch (args[0]) {
+    List<String> options = new ArrayList<>(Arrays.asList(args));
+    long budget = memoryBudget(options);
+    ImageModelMap imageModelMap = createImageModelMap(budget);
+    int threads = scriptThreads(options);
+    Consumer<ImageControllerImpl> reportStats = statsReporter(options);
+    CommandTrace trace = createTrace(options);
+    if (options.size() > 0) {
+      switch (options.get(0)) {
         case "-text":
-          ImageController controller = new ImageControllerImpl(imageModelMap);
-          controller.run(new InputStreamReader(System.in), true);
+          ImageControllerImpl controller = new ImageControllerImpl(imageModelMap);
+          reportStats.accept(controller);
+          controller.setTrace(trace);
+          try {
+            controller.run(new InputStreamReader(System.in), true);
+          } finally {
+            controller.getMetrics().close();
+          }
           break;
         case "-file":
           try {
-            FileReader fileReader = new FileReader(args[1]);
-            controller = new ImageControllerImpl(imageModelMap);
-            controller.run(fileReader, false);
+            FileReader fileReader = new FileReader(options.get(1));
+            ImageControllerImpl fileController = new ImageControllerImpl(imageModelMap);
+            reportStats.accept(fileController);
+            fileController.setTrace(trace);
+            try {
+              if (threads > 0) {
+                fileController.runScheduled(fileReader, threads);
+              } else {
+                fileController.run(fileReader, false);
+              }
+            } finally {
+              fileController.getMetrics().close();
+            }
           } catch (FileNotFoundException e) {
             throw new IllegalArgumentException("Input must either be empty to use console " +
                     "or contain a valid filepath to read from.");
@@ -42,9 +76,16 @@ public class ImageProgram {
                     "the '-file' keyword.");
           }
           break;
+        case "-batch":
+          runBatch(options, budget, (output, map) -> {
+            ImageControllerImpl batchController = new ImageControllerImpl(output, map);
+            batchController.setTrace(trace);
+            return batchController;
+          });
+          break;
         default:
           throw new IllegalArgumentException("Additional arguments must begin with either " +
-                  "'-text' or '-file'.");
+                  "'-text', '-file' or '-batch'.");
       }
     } else {
       Scanner scanner = new Scanner(System.in);
@@ -57,7 +98,200 @@ public class ImageProgram {
               imageLoader.loadImage("StarterImages/penguins.jpg"), System.out);
 
       ImageModelView view = new ImageModelViewImpl(imageModelMap);
-      ImageController controller = new ImageControllerImpl(imageModelMap, view);
+      ImageControllerImpl controller = new ImageControllerImpl(imageModelMap, view);
+      reportStats.accept(controller);
+      controller.setTrace(trace);
+    }
+  }
+
+  /**
+   * Gets the number of bytes that images may take on the heap, given by "-memory" followed by
+   * a number of megabytes in the arguments. The option is removed from the arguments.
+   *
+   * @param args the arguments of the program, from which any memory option is removed
+   * @return the number of bytes, or -1 if images are not limited
+   * @throws IllegalArgumentException if the memory option is not followed by a non-negative
+   *                                  integer
+   */
+  protected static long memoryBudget(List<String> args) throws IllegalArgumentException {
+    int index = args.indexOf("-memory");
+    if (index < 0) {
+      return -1;
+    }
+    long megabytes;
+    try {
+      megabytes = Long.parseLong(args.get(index + 1));
+    } catch (IndexOutOfBoundsException | NumberFormatException e) {
+      throw new IllegalArgumentException("A number of megabytes must be included after the "
+              + "'-memory' keyword.");
+    }
+    if (megabytes < 0) {
+      throw new IllegalArgumentException("Memory budget must not be negative.");
+    }
+    args.subList(index, index + 2).clear();
+    return megabytes << 20;
+  }
+
+  /**
+   * Creates the map that holds the images of the program. Without a budget, the map is shared
+   * without locking by scheduled script lines and background GUI operations. Given a budget,
+   * images are kept on the heap within it and the least recently used ones are spilled to the
+   * temporary directory.
+   *
+   * @param budget the number of bytes that images may take on the heap, or -1 if they are not
+   *               limited
+   * @return the map that holds the images of the program
+   */
+  protected static ImageModelMap createImageModelMap(long budget) {
+    if (budget < 0) {
+      return new ConcurrentImageModelMap();
+    }
+    return new BoundedImageModelMap(budget, new File(System.getProperty("java.io.tmpdir")));
+  }
+
+  /**
+   * Gets the number of threads that a script file should be scheduled on, given by "-threads"
+   * followed by a number in the arguments. Commands of a scheduled script that do not depend on
+   * each other run at the same time. The option is removed from the arguments.
+   *
+   * @param args the arguments of the program, from which any threads option is removed
+   * @return the number of threads, or 0 if the script should run in order
+   * @throws IllegalArgumentException if the threads option is not followed by a positive
+   *                                  integer
+   */
+  protected static int scriptThreads(List<String> args) throws IllegalArgumentException {
+    int index = args.indexOf("-threads");
+    if (index < 0) {
+      return 0;
+    }
+    int threads;
+    try {
+      threads = Integer.parseInt(args.get(index + 1));
+    } catch (IndexOutOfBoundsException | NumberFormatException e) {
+      throw new IllegalArgumentException("A number of threads must be included after the "
+              + "'-threads' keyword.");
+    }
+    if (threads < 1) {
+      throw new IllegalArgumentException("Number of threads must be positive.");
+    }
+    args.subList(index, index + 2).clear();
+    return threads;
+  }
+
+  /**
+   * Gets what makes the metrics of a controller visible. The metrics are always registered
+   * with the platform's management server as "imageprocessor:type=CommandMetrics" with an id
+   * of their own. When the arguments contain "-stats" followed by a file and a number of
+   * seconds, a report of the metrics is also written to that file at that period; the option
+   * is removed from the arguments. Both last until the metrics are closed.
+   *
+   * @param args the arguments of the program, from which any stats option is removed
+   * @return what makes the metrics of a controller visible
+   * @throws IllegalArgumentException if the stats option is not followed by a file and a
+   *                                  positive integer
+   */
+  protected static Consumer<ImageControllerImpl> statsReporter(List<String> args)
+          throws IllegalArgumentException {
+    int index = args.indexOf("-stats");
+    File file = null;
+    long seconds = 0;
+    if (index >= 0) {
+      try {
+        file = new File(args.get(index + 1));
+        seconds = Long.parseLong(args.get(index + 2));
+      } catch (IndexOutOfBoundsException | NumberFormatException e) {
+        throw new IllegalArgumentException("A file and a number of seconds must be included "
+                + "after the '-stats' keyword.");
+      }
+      if (seconds < 1) {
+        throw new IllegalArgumentException("Number of seconds must be positive.");
+      }
+      args.subList(index, index + 3).clear();
+    }
+    File statsFile = file;
+    long period = seconds;
+    return controller -> {
+      controller.getMetrics().register();
+      if (statsFile != null) {
+        controller.getMetrics().dumpEvery(statsFile, period);
+      }
+    };
+  }
+
+  /**
+   * Creates the trace that the commands of the program are written to, given by "-trace"
+   * followed by a file in the arguments. The trace is closed when the program exits. The option
+   * is removed from the arguments.
+   *
+   * @param args the arguments of the program, from which any trace option is removed
+   * @return the trace, or null if commands are not traced
+   * @throws IllegalArgumentException if the trace option is not followed by a file that can be
+   *                                  written
+   */
+  protected static CommandTrace createTrace(List<String> args) throws IllegalArgumentException {
+    int index = args.indexOf("-trace");
+    if (index < 0) {
+      return null;
+    }
+    CommandTrace trace;
+    try {
+      trace = new CommandTrace(new BufferedWriter(new FileWriter(args.get(index + 1))));
+    } catch (IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("A file to trace to must be included after the "
+              + "'-trace' keyword.");
+    } catch (IOException | IllegalStateException e) {
+      throw new IllegalArgumentException("Trace file could not be written.");
+    }
+    args.subList(index, index + 2).clear();
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      try {
+        trace.close();
+      } catch (IOException ignored) {
+        // The events written so far are kept.
+      }
+    }));
+    return trace;
+  }
+
+  /**
+   * Runs a script template over every image in a directory, given by arguments of the form
+   * "-batch script -in directory -out directory", optionally followed by "-j" and the number
+   * of images to process at the same time, which defaults to the number of processors.
+   *
+   * @param args        the arguments of the program, starting with "-batch"
+   * @param budget      the number of bytes that images may take, or -1 to use half the heap
+   * @param controllers creates the controller of each image from its output and its map
+   * @throws IllegalArgumentException if the arguments are not of that form or the script
+   *                                  cannot be read
+   */
+  protected static void runBatch(List<String> args, long budget,
+                                 BiFunction<Appendable, ImageModelMap, ImageControllerImpl>
+                                         controllers) throws IllegalArgumentException {
+    int threads = Runtime.getRuntime().availableProcessors();
+    String template;
+    File input;
+    File output;
+    try {
+      int index = args.indexOf("-j");
+      if (index >= 0) {
+        threads = Integer.parseInt(args.get(index + 1));
+      }
+      if (args.indexOf("-in") < 0 || args.indexOf("-out") < 0) {
+        throw new IndexOutOfBoundsException();
+      }
+      input = new File(args.get(args.indexOf("-in") + 1));
+      output = new File(args.get(args.indexOf("-out") + 1));
+      template = new String(Files.readAllBytes(Paths.get(args.get(1))),
+              StandardCharsets.UTF_8);
+    } catch (IndexOutOfBoundsException | NumberFormatException e) {
+      throw new IllegalArgumentException("A script must be included after the '-batch' "
+              + "keyword, directories after '-in' and '-out', and any number of threads "
+              + "after '-j'.");
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Batch script could not be read.");
     }
+    new BatchProcessor(template, input, output, threads,
+            budget < 0 ? Runtime.getRuntime().maxMemory() / 2 : budget, controllers)
+            .run(System.out);
   }
-}
\ No newline at end of file
+}
@@ -1,17 +1,20 @@
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.InputStreamReader;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
+import java.util.function.Consumer;
 
 import commands.LoadImage;
-import controller.ImageController;
+import controller.CommandTrace;
+import controller.ImageControllerImpl;
 import controller.ImageControllerImplExtra;
 import model.IPixel;
 import model.ImageModel;
 import model.ImageModelImpl;
 import model.ImageModelMap;
-import model.ImageModelMapImpl;
 import model.Pixel;
 import view.ImageModelView;
 import view.ImageModelViewImplExtra;
@@ -26,19 +29,40 @@ public class ImageProgramExtra extends ImageProgram {
    *
    * @param args the input to specify a file that inputs can be read from
    */
-  public static void main(String[] args){
-    ImageModelMap imageModelMap = new ImageModelMapImpl(new HashMap<>());
-    if (args.length > 0) {
-      switch (args[0]) {
+  public static void main(String[] args) {
+    List<String> options = new ArrayList<>(Arrays.asList(args));
+    long budget = memoryBudget(options);
+    ImageModelMap imageModelMap = createImageModelMap(budget);
+    int threads = scriptThreads(options);
+    Consumer<ImageControllerImpl> reportStats = statsReporter(options);
+    CommandTrace trace = createTrace(options);
+    if (options.size() > 0) {
+      switch (options.get(0)) {
         case "-text":
-          ImageController controller = new ImageControllerImplExtra(imageModelMap);
-          controller.run(new InputStreamReader(System.in), true);
+          ImageControllerImplExtra controller = new ImageControllerImplExtra(imageModelMap);
+          reportStats.accept(controller);
+          controller.setTrace(trace);
+          try {
+            controller.run(new InputStreamReader(System.in), true);
+          } finally {
+            controller.getMetrics().close();
+          }
           break;
         case "-file":
           try {
-            FileReader fileReader = new FileReader(args[1]);
-            controller = new ImageControllerImplExtra(imageModelMap);
-            controller.run(fileReader, false);
+            FileReader fileReader = new FileReader(options.get(1));
+            ImageControllerImplExtra fileController = new ImageControllerImplExtra(imageModelMap);
+            reportStats.accept(fileController);
+            fileController.setTrace(trace);
+            try {
+              if (threads > 0) {
+                fileController.runScheduled(fileReader, threads);
+              } else {
+                fileController.run(fileReader, false);
+              }
+            } finally {
+              fileController.getMetrics().close();
+            }
           } catch (FileNotFoundException e) {
             throw new IllegalArgumentException("Input must either be empty to use console " +
                     "or contain a valid filepath to read from.");
@@ -47,9 +71,16 @@ public class ImageProgramExtra extends ImageProgram {
                     "the '-file' keyword.");
           }
           break;
+        case "-batch":
+          runBatch(options, budget, (output, map) -> {
+            ImageControllerImplExtra batchController = new ImageControllerImplExtra(output, map);
+            batchController.setTrace(trace);
+            return batchController;
+          });
+          break;
         default:
           throw new IllegalArgumentException("Additional arguments must begin with either " +
-                  "'-text' or '-file'.");
+                  "'-text', '-file' or '-batch'.");
       }
     } else {
       Scanner scanner = new Scanner(System.in);
@@ -58,9 +89,9 @@ public class ImageProgramExtra extends ImageProgram {
       for (int i = 0; i < 768; i++) {
         for (int j = 0; j < 1024; j++) {
           if (j <= 512) {
-            leftMaskPixels[i][j] = new Pixel(0, 0, 0);
+            leftMaskPixels[i][j] = Pixel.of(0, 0, 0);
           } else {
-            leftMaskPixels[i][j] = new Pixel(255, 255, 255);
+            leftMaskPixels[i][j] = Pixel.of(255, 255, 255);
           }
         }
       }
@@ -76,7 +107,9 @@ public class ImageProgramExtra extends ImageProgram {
       imageModelMap.add("left_mask", leftMask, System.out);
 
       ImageModelView view = new ImageModelViewImplExtra(imageModelMap);
-      ImageController controller = new ImageControllerImplExtra(imageModelMap, view);
+      ImageControllerImplExtra controller = new ImageControllerImplExtra(imageModelMap, view);
+      reportStats.accept(controller);
+      controller.setTrace(trace);
     }
   }
 }
\ No newline at end of file
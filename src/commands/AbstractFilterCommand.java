@@ -2,18 +2,23 @@ package commands;
 
 import java.util.Scanner;
 
+import model.Convolution;
 import model.Filter;
-import model.IPixel;
 import model.ImageModel;
-import model.ImageModelImpl;
 import model.ImageModelMap;
-import model.Pixel;
+import model.Kernel;
+import model.Mask;
+import model.PackedImageModel;
+import model.RowExecutor;
 
 /**
  * This class represents a generic filter command that can be performed
  * on an object of an image model.
  */
 public abstract class AbstractFilterCommand extends AbstractImageCommand {
+  private static final Convolution BLUR = new Convolution(Kernel.blur());
+  private static final Convolution SHARPEN = new Convolution(Kernel.sharpen());
+  private static final int BOX_PASSES = 3;
 
   /**
    * Constructs a generic command using a given output, map of image models, and scanner.
@@ -38,110 +43,101 @@ public abstract class AbstractFilterCommand extends AbstractImageCommand {
    * @return the resulting image model
    */
   protected ImageModel filter(ImageModel[] models, Filter type) {
-    int height = models[0].getImageHeight();
-    int width = models[0].getImageWidth();
-
-    IPixel[][] newPixels = new Pixel[height][width];
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        if (models.length == 2) {
-          if (fitsMask(models[1], i, j)) {
-            newPixels[i][j] = filterByType(models[0], i, j, type);
-          } else {
-            newPixels[i][j] = models[0].getPixelAt(i, j);
-          }
-        } else {
-          newPixels[i][j] = filterByType(models[0], i, j, type);
-        }
-      }
+    if (type == Filter.BLUR) {
+      return filter(models, BLUR);
+    } else if (type == Filter.SHARPEN) {
+      return filter(models, SHARPEN);
+    } else {
+      return models[0];
     }
-
-    return new ImageModelImpl(newPixels, height, width);
   }
 
   /**
-   * Filters a pixel based on the type of filtering that is taking place.
+   * Creates an image model that results from convolving the image model that the method is
+   * being performed on with a given convolution. When a mask is given, only the runs of
+   * pixels inside the mask are convolved.
    *
-   * @param model the model from which the pixel is being filtered
-   * @param row   the row of the pixel being filtered
-   * @param col   the column of the pixel being filtered
-   * @param type  the type of filtering taking place
-   * @return the filtered pixel
+   * @param models      the first item is the image model on which the command is performed,
+   *                    and the second, if present, is the image model used to create the mask
+   * @param convolution the convolution to filter the image model with
+   * @return the resulting image model
    */
-  private IPixel filterByType(ImageModel model, int row, int col, Filter type) {
-    if (type == Filter.BLUR) {
-      return filterPixel(model, row, col, 1, type,
-              4, 8, 16);
-    } else if (type == Filter.SHARPEN) {
-      return filterPixel(model, row, col, 2, type,
-              1, 4, -8);
-    } else {
-      return model.getPixelAt(row, col);
-    }
+  protected ImageModel filter(ImageModel[] models, Convolution convolution) {
+    ImageModel model = models[0];
+    int height = model.getImageHeight();
+    int width = model.getImageWidth();
+    int reach = convolution.getRadius();
+    Mask mask = maskOf(models);
+
+    int[] newPixels = new int[height * width];
+    RowExecutor.forEachRow(height, width, (startRow, endRow) -> {
+      int firstRow = Math.max(0, startRow - reach);
+      int lastRow = Math.min(height, endRow + reach);
+      int[] band = new int[(lastRow - firstRow) * width];
+      for (int i = firstRow; i < lastRow; i++) {
+        model.getRow(i, band, (i - firstRow) * width);
+      }
+      for (int i = startRow; i < endRow; i++) {
+        int rowStart = i * width;
+        if (mask == null) {
+          convolution.convolve(band, firstRow, height, width, i, 0, width, newPixels, rowStart);
+          continue;
+        }
+        System.arraycopy(band, (i - firstRow) * width, newPixels, rowStart, width);
+        int[] runs = mask.getRuns(i);
+        for (int k = 0; k < runs.length; k += 2) {
+          convolution.convolve(band, firstRow, height, width, i, runs[k], runs[k + 1],
+                  newPixels, rowStart + runs[k]);
+        }
+      }
+    });
+
+    return new PackedImageModel(newPixels, height, width);
   }
 
   /**
-   * Creates a pixel that results from filtering the image model that the method is being
-   * performed on.
+   * Creates an image model that results from blurring the image model that the method is
+   * being performed on with three passes of a box blur of a given radius, which approximates a
+   * Gaussian blur at a cost that does not depend on the radius.
    *
-   * @param model      the image model that is being filtered
-   * @param row        the row of the pixel that is being filtered
-   * @param col        the column of the pixel that is being filtered
-   * @param kernelSize the size of the kernel used to perform the filter
-   * @param type       the type of filtering being performed
-   * @param firstDiv   the number to divide the first set of kernel pixels by
-   * @param secondDiv  the number to divide the second set of kernel pixels by
-   * @param thirdDiv   the number to divide the third set of kernel pixels by
-   * @return the filtered pixel
+   * @param models the first item is the image model on which the command is performed,
+   *               and the second, if present, is the image model used to create the mask
+   * @param radius the radius of each box blur pass
+   * @return the resulting image model
    */
-  private IPixel filterPixel(ImageModel model, int row, int col, int kernelSize, Filter type,
-                             int firstDiv, int secondDiv, int thirdDiv) {
+  protected ImageModel boxBlur(ImageModel[] models, int radius) {
+    ImageModel model = models[0];
     int height = model.getImageHeight();
     int width = model.getImageWidth();
-    int kernelRed = 0;
-    int kernelGreen = 0;
-    int kernelBlue = 0;
-    for (int a = row - kernelSize; a <= row + kernelSize; a++) {
-      for (int b = col - kernelSize; b <= col + kernelSize; b++) {
-        if (a >= 0 && a < height && b >= 0 && b < width) {
-          if (a == row && b == col) {
-            kernelRed += model.getPixelAt(a, b).getRed() / firstDiv;
-            kernelGreen += model.getPixelAt(a, b).getGreen() / firstDiv;
-            kernelBlue += model.getPixelAt(a, b).getBlue() / firstDiv;
-          } else if (secondSetCond(a, row, b, col, type)) {
-            kernelRed += model.getPixelAt(a, b).getRed() / secondDiv;
-            kernelGreen += model.getPixelAt(a, b).getGreen() / secondDiv;
-            kernelBlue += model.getPixelAt(a, b).getBlue() / secondDiv;
-          } else {
-            kernelRed += model.getPixelAt(a, b).getRed() / thirdDiv;
-            kernelGreen += model.getPixelAt(a, b).getGreen() / thirdDiv;
-            kernelBlue += model.getPixelAt(a, b).getBlue() / thirdDiv;
+    int[] newPixels = Convolution.boxBlur(model, radius, BOX_PASSES);
+
+    Mask mask = maskOf(models);
+    if (mask != null) {
+      RowExecutor.forEachRow(height, width, (startRow, endRow) -> {
+        int[] row = new int[width];
+        for (int i = startRow; i < endRow; i++) {
+          int rowStart = i * width;
+          int[] runs = mask.getRuns(i);
+          model.getRow(i, row, 0);
+          int unmasked = 0;
+          for (int k = 0; k <= runs.length; k += 2) {
+            int end = k < runs.length ? runs[k] : width;
+            System.arraycopy(row, unmasked, newPixels, rowStart + unmasked, end - unmasked);
+            unmasked = k < runs.length ? runs[k + 1] : width;
           }
         }
-      }
+      });
     }
-    return new Pixel(Math.max(Math.min(kernelRed, 255), 0),
-            Math.max(Math.min(kernelGreen, 255), 0),
-            Math.max(Math.min(kernelBlue, 255), 0));
+    return new PackedImageModel(newPixels, height, width);
   }
 
   /**
-   * Determines whether a pixel being filtered is in the second set of a kernel.
+   * Gets how far a box blur of a given radius reaches, counting every pass.
    *
-   * @param rowTest the row of the pixel that is being checked
-   * @param row the row that the kernel is centered on
-   * @param colTest the column of the pixel that is being checked
-   * @param col the column that the kernel is centered on
-   * @param type the type of filtering being performed
-   * @return true if the pixel is in the second set, or false otherwise
+   * @param radius the radius of each box blur pass
+   * @return the distance from a pixel to the farthest pixel its blurred value depends on
    */
-  private boolean secondSetCond(int rowTest, int row, int colTest, int col, Filter type) {
-    if (type == Filter.BLUR) {
-      return rowTest == row || colTest == col;
-    } else if (type == Filter.SHARPEN) {
-      return rowTest >= row - 1 && rowTest <= row + 1 && colTest >= col - 1 && colTest <= col + 1;
-    } else {
-      return false;
-    }
+  protected int boxBlurReach(int radius) {
+    return (int) Math.min(Integer.MAX_VALUE, (long) radius * BOX_PASSES);
   }
 }
@@ -1,13 +1,14 @@
 package commands;
 
+import java.util.Arrays;
 import java.util.Scanner;
 
 import model.Flip;
-import model.IPixel;
 import model.ImageModel;
-import model.ImageModelImpl;
 import model.ImageModelMap;
-import model.Pixel;
+import model.Mask;
+import model.PackedImageModel;
+import model.RowExecutor;
 
 /**
  * This class represents a generic flip command that can be performed
@@ -40,40 +41,105 @@ public abstract class AbstractFlipCommand extends AbstractImageCommand {
   public ImageModel flip(ImageModel[] models, Flip direction) {
     int height = models[0].getImageHeight();
     int width = models[0].getImageWidth();
+    return new PackedImageModel(flipRegion(models, direction, 0, 0, height, width),
+            height, width);
+  }
+
+  /**
+   * Computes one region of the image that results from flipping the image model that the
+   * method is being performed on. Only the rows of the region and the rows mirroring onto them
+   * are read.
+   *
+   * @param models       the first item is the image model on which the command is performed,
+   *                     and the second, if present, is the image model used to create the mask
+   * @param direction    the direction that the image model is being flipped in
+   * @param regionRow    the first row of the region
+   * @param regionCol    the first column of the region
+   * @param regionHeight the number of rows in the region
+   * @param regionWidth  the number of columns in the region
+   * @return the packed color values of the region in row-major order
+   */
+  protected int[] flipRegion(ImageModel[] models, Flip direction, int regionRow, int regionCol,
+                             int regionHeight, int regionWidth) {
+    int height = models[0].getImageHeight();
+    int width = models[0].getImageWidth();
 
-    IPixel[][] newPixels = new Pixel[height][width];
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        if (models.length == 2) {
-          if (fitsMask(models[1], i, j)) {
-            flipByDirection(models[0], newPixels, i, j, direction);
-          } else {
-            newPixels[i][j] = models[0].getPixelAt(i, j);
-          }
-        } else {
-          flipByDirection(models[0], newPixels, i, j, direction);
+    Mask mask = maskOf(models);
+    int[] newPixels = new int[regionHeight * regionWidth];
+    RowExecutor.forEachRow(regionHeight, width, (startRow, endRow) -> {
+      int[] row = new int[width];
+      int[] mirrorRow = new int[width];
+      boolean[] masked = mask == null ? null : new boolean[width];
+      boolean[] mirrorMasked = mask == null ? null : new boolean[width];
+      for (int i = regionRow + startRow; i < regionRow + endRow; i++) {
+        int mirror = direction == Flip.VERTICAL ? height - 1 - i : i;
+        models[0].getRow(i, row, 0);
+        models[0].getRow(mirror, mirrorRow, 0);
+        if (mask != null) {
+          maskedColumns(mask, i, masked);
+          maskedColumns(mask, mirror, mirrorMasked);
+        }
+        int rowStart = (i - regionRow) * regionWidth - regionCol;
+        for (int j = regionCol; j < regionCol + regionWidth; j++) {
+          newPixels[rowStart + j] = flippedPixel(masked, mirrorMasked, row, mirrorRow, height,
+                  width, i, j, direction);
         }
       }
-    }
+    });
+
+    return newPixels;
+  }
 
-    return new ImageModelImpl(newPixels, height, width);
+  /**
+   * Marks which columns of a given row are masked, walking the masked runs of the row once.
+   *
+   * @param mask   the mask being used
+   * @param row    the row of the mask
+   * @param masked set to true for each masked column and false for every other column
+   */
+  private static void maskedColumns(Mask mask, int row, boolean[] masked) {
+    Arrays.fill(masked, false);
+    int[] runs = mask.getRuns(row);
+    for (int k = 0; k < runs.length; k += 2) {
+      Arrays.fill(masked, runs[k], runs[k + 1], true);
+    }
   }
 
   /**
-   * Flips a given pixel in a given direction.
+   * Finds the packed color value that ends up at a given position of a flipped image. Each
+   * masked pixel moves to its mirrored position and each unmasked pixel stays where it is, and
+   * when both land on the same position, the one that comes later in row-major order is kept.
    *
-   * @param model     the model from which the pixel is being flipped
-   * @param newPixels the list of pixels the pixel is being flipped to
-   * @param row       the row of the pixel being flipped
-   * @param col       the column of the pixel being flipped
-   * @param direction the direction that the pixel is being flipped in
+   * @param masked       the masked columns of the row at the position, or null if there is
+   *                     no mask
+   * @param mirrorMasked the masked columns of the row that mirrors onto the position, or null
+   *                     if there is no mask
+   * @param row          the row of the image at the position
+   * @param mirrorRow    the row of the image that mirrors onto the position
+   * @param height       the height of the image being flipped
+   * @param width        the width of the image being flipped
+   * @param rowIndex     the row of the position
+   * @param col          the column of the position
+   * @param direction    the direction that the image is being flipped in
+   * @return the packed color value at the position, or 0 if no pixel lands there
    */
-  private void flipByDirection(ImageModel model, IPixel[][] newPixels,
-                               int row, int col, Flip direction) {
-    if (direction == Flip.HORIZONTAL) {
-      newPixels[row][model.getImageWidth() - 1 - col] = model.getPixelAt(row, col);
-    } else if (direction == Flip.VERTICAL) {
-      newPixels[model.getImageHeight() - 1 - row][col] = model.getPixelAt(row, col);
+  private int flippedPixel(boolean[] masked, boolean[] mirrorMasked, int[] row,
+                           int[] mirrorRow, int height, int width, int rowIndex, int col,
+                           Flip direction) {
+    boolean horizontal = direction == Flip.HORIZONTAL;
+    int mirrorCol = horizontal ? width - 1 - col : col;
+    int mirrorRowIndex = horizontal ? rowIndex : height - 1 - rowIndex;
+    int order = horizontal ? col : rowIndex;
+    int mirrorOrder = horizontal ? mirrorCol : mirrorRowIndex;
+
+    boolean stays = masked != null && !masked[col];
+    boolean mirrors = mirrorMasked == null || mirrorMasked[mirrorCol];
+    if (stays && (!mirrors || order > mirrorOrder)) {
+      return row[col];
+    } else if (mirrors) {
+      return mirrorRow[mirrorCol];
+    } else {
+      return 0;
     }
   }
 }
\ No newline at end of file
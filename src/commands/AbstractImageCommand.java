@@ -3,16 +3,30 @@ package commands;
 import java.io.IOException;
 import java.util.Scanner;
 
+import model.ColorOperator;
+import model.ColorPipelineModel;
 import model.ImageModel;
 import model.ImageModelMap;
+import model.Mask;
+import model.PackedImageModel;
+import model.RegionImageModel;
+import model.RowExecutor;
 
 /**
  * This class represents a generic command that can be performed on an object of an image model.
+ *
+ * <p>When a region is set, the command computes only that region of its result: the images it
+ * reads are cropped to the region plus a halo wide enough for every pixel of the region to see
+ * the neighbors it depends on, the command runs on the crops, and the result shows the source
+ * image with the region replaced.
  */
-public abstract class AbstractImageCommand implements ImageCommand {
+public abstract class AbstractImageCommand implements RegionCommand {
+  private static final ResultCache RESULTS = new ResultCache(64L << 20);
+  private static final ThreadLocal<CommandRecord> RECORD = new ThreadLocal<>();
   protected final Appendable output;
   protected final ImageModelMap imageModelMap;
   protected final Scanner scanner;
+  private int[] region;
 
   /**
    * Constructs a generic command using a given output, map of image models, and scanner.
@@ -58,11 +72,15 @@ public abstract class AbstractImageCommand implements ImageCommand {
                       " image operated on.\n");
             }
             String newName = parameters[2];
-            this.imageModelMap.add(
-                    newName, newModel(new ImageModel[]{model, maskModel}), this.output);
+            ImageModel result = cachedCompute(new ImageModel[]{model, maskModel});
+            this.imageModelMap.add(newName, result, this.output);
+            record(new String[]{parameters[0], parameters[1]}, newName, result,
+                    RESULTS.wasHit());
           } else {
             String newName = parameters[1];
-            this.imageModelMap.add(newName, newModel(new ImageModel[]{model}), this.output);
+            ImageModel result = cachedCompute(new ImageModel[]{model});
+            this.imageModelMap.add(newName, result, this.output);
+            record(new String[]{parameters[0]}, newName, result, RESULTS.wasHit());
           }
           this.output.append("Edit completed.\n");
         } catch (IllegalArgumentException e) {
@@ -92,6 +110,268 @@ public abstract class AbstractImageCommand implements ImageCommand {
    */
   protected abstract ImageModel newModel(ImageModel[] models);
 
+  /**
+   * Sets the region of the result that the command should compute.
+   *
+   * @param row    the first row of the region
+   * @param col    the first column of the region
+   * @param height the number of rows in the region
+   * @param width  the number of columns in the region
+   * @throws IllegalArgumentException if the region has a negative position or size
+   */
+  @Override
+  public void setRegion(int row, int col, int height, int width)
+          throws IllegalArgumentException {
+    if (row < 0 || col < 0 || height < 0 || width < 0) {
+      throw new IllegalArgumentException("<html>Region must not have a<br/>" +
+              "negative position or size.</html>");
+    }
+    this.region = new int[]{row, col, height, width};
+  }
+
+  /**
+   * Gets the parameters of the command which, together with the images it is given and the
+   * region it computes, decide its result. Commands that take parameters add them, and
+   * commands whose result must never be reused return null.
+   *
+   * @return the parameters of the command, or null if its result must not be reused
+   */
+  protected String parameterKey() {
+    return "";
+  }
+
+  /**
+   * Sets the number of bytes that results shared between identical commands may cost. The
+   * budget defaults to 64 MiB, and a budget of zero turns reuse off so that every command
+   * computes its result.
+   *
+   * @param bytes the number of bytes that shared results may cost
+   * @throws IllegalArgumentException if the budget is negative
+   */
+  public static void setResultCacheBudget(long bytes) throws IllegalArgumentException {
+    if (bytes < 0) {
+      throw new IllegalArgumentException("Result cache budget must not be negative.");
+    }
+    RESULTS.setBudget(bytes);
+  }
+
+  /**
+   * Gets the number of bytes that results shared between identical commands may cost, which
+   * the shared results never exceed.
+   *
+   * @return the number of bytes that shared results may cost
+   */
+  public static long getResultCacheBudget() {
+    return RESULTS.getBudget();
+  }
+
+  /**
+   * Gets and forgets the record of the last command that completed on the calling thread.
+   *
+   * @return the record of the last command, or null if no command has completed since the
+   *         record was last taken
+   */
+  public static CommandRecord takeRecord() {
+    CommandRecord record = RECORD.get();
+    RECORD.remove();
+    return record;
+  }
+
+  /**
+   * Records what a command that completed on the calling thread did.
+   *
+   * @param inputs the names of the images or files the command read
+   * @param output the name of the image or file the command wrote
+   * @param model  the image the command created or saved
+   * @param reused true if the image was reused from an identical earlier command
+   */
+  protected static void record(String[] inputs, String output, ImageModel model,
+                               boolean reused) {
+    RECORD.set(new CommandRecord(inputs, output, model.getImageHeight(),
+            model.getImageWidth(), reused));
+  }
+
+  /**
+   * Creates the result of the command, reusing the result of an identical earlier command on
+   * images with the same content if one is still cached.
+   *
+   * <p>A command that is not a {@link ColorCommand} and computes its whole result materializes
+   * any color pipeline it is given, once for all commands that read it, rather than applying
+   * the whole chain again on every read of its pixels. A region reads the pipeline only once,
+   * when it is cropped, so it is left as it is.
+   *
+   * <p>A pipelined result is never reused, since finding a cached one would mean computing
+   * every pixel of the source, which is the work that pipelining defers.
+   *
+   * @param models the first item is the image model on which the command is performed,
+   *               and the second, if present, is the image model used to create the mask
+   * @return the resulting image model
+   */
+  private ImageModel cachedCompute(ImageModel[] models) {
+    ImageModel[] inputs = models.clone();
+    if (!(this instanceof ColorCommand) && this.region == null) {
+      for (int k = 0; k < inputs.length; k++) {
+        if (inputs[k] instanceof ColorPipelineModel) {
+          inputs[k] = ((ColorPipelineModel) inputs[k]).materialize();
+        }
+      }
+    }
+    return RESULTS.find(getClass().getName(), parameterKey(), this.region, inputs,
+        () -> compute(inputs));
+  }
+
+  /**
+   * Creates the result of the command, computing only the set region of it if there is one
+   * and the command supports it.
+   *
+   * @param models the first item is the image model on which the command is performed,
+   *               and the second, if present, is the image model used to create the mask
+   * @return the resulting image model
+   */
+  private ImageModel compute(ImageModel[] models) {
+    if (this.region == null || regionHalo() < 0) {
+      return newModel(models);
+    }
+    int row = Math.min(this.region[0], models[0].getImageHeight());
+    int col = Math.min(this.region[1], models[0].getImageWidth());
+    int height = Math.min(this.region[2], models[0].getImageHeight() - row);
+    int width = Math.min(this.region[3], models[0].getImageWidth() - col);
+    int[] pixels = height == 0 || width == 0 ? new int[0]
+            : newRegion(models, row, col, height, width);
+    return new RegionImageModel(models[0], pixels, row, col, height, width);
+  }
+
+  /**
+   * Gets how far beyond a region the pixels that the region depends on may lie. Commands that
+   * move pixels or change the size of the image cannot be computed by cropping, and return a
+   * negative halo unless they override {@link #newRegion} themselves.
+   *
+   * @return the width of the halo in pixels, or a negative number if only whole results can
+   *         be computed
+   */
+  protected int regionHalo() {
+    return 0;
+  }
+
+  /**
+   * Computes one region of the result of the command by running it on the images cropped to
+   * the region plus its halo.
+   *
+   * @param models the first item is the image model on which the command is performed,
+   *               and the second, if present, is the image model used to create the mask
+   * @param row    the first row of the region
+   * @param col    the first column of the region
+   * @param height the number of rows in the region
+   * @param width  the number of columns in the region
+   * @return the packed color values of the region in row-major order
+   */
+  protected int[] newRegion(ImageModel[] models, int row, int col, int height, int width) {
+    int halo = Math.max(0, regionHalo());
+    int top = Math.max(0, row - halo);
+    int left = Math.max(0, col - halo);
+    int bottom = (int) Math.min(models[0].getImageHeight(), (long) row + height + halo);
+    int right = (int) Math.min(models[0].getImageWidth(), (long) col + width + halo);
+    ImageModel[] cropped = new ImageModel[models.length];
+    for (int k = 0; k < models.length; k++) {
+      cropped[k] = crop(models[k], top, left, bottom - top, right - left);
+    }
+    return copyRegion(newModel(cropped), row - top, col - left, height, width);
+  }
+
+  /**
+   * Copies a rectangular region of an image model into a new image model.
+   *
+   * @param model  the image model to crop
+   * @param row    the first row of the region
+   * @param col    the first column of the region
+   * @param height the number of rows in the region
+   * @param width  the number of columns in the region
+   * @return an image model holding the region
+   */
+  protected static ImageModel crop(ImageModel model, int row, int col, int height, int width) {
+    return new PackedImageModel(copyRegion(model, row, col, height, width), height, width);
+  }
+
+  /**
+   * Copies the packed 0xRRGGBB color values of a rectangular region of an image model.
+   *
+   * @param model  the image model to copy from
+   * @param row    the first row of the region
+   * @param col    the first column of the region
+   * @param height the number of rows in the region
+   * @param width  the number of columns in the region
+   * @return the color values of the region in row-major order
+   */
+  private static int[] copyRegion(ImageModel model, int row, int col, int height, int width) {
+    int[] pixels = new int[height * width];
+    model.getRegion(row, col, height, width, pixels, 0, width);
+    for (int k = 0; k < pixels.length; k++) {
+      pixels[k] &= 0xFFFFFF;
+    }
+    return pixels;
+  }
+
+  /**
+   * Creates an image model that results from applying a per-pixel color operation to a given
+   * image model, either as a pipeline that is computed when its pixels are read or by computing
+   * every pixel immediately.
+   *
+   * @param models    the first item is the image model on which the command is performed,
+   *                  and the second, if present, is the image model used to create the mask
+   * @param operator  the color operation to apply to each pixel
+   * @param pipelined true if an unmasked result should be stored as a pipeline
+   * @return the resulting image model
+   */
+  protected ImageModel applyColorOperator(ImageModel[] models, ColorOperator operator,
+                                          boolean pipelined) {
+    if (pipelined && models.length == 1) {
+      return new ColorPipelineModel(models[0], operator);
+    }
+
+    int height = models[0].getImageHeight();
+    int width = models[0].getImageWidth();
+
+    Mask mask = maskOf(models);
+    int[] newPixels = new int[height * width];
+    RowExecutor.forEachRow(height, width, (startRow, endRow) -> {
+      for (int i = startRow; i < endRow; i++) {
+        int rowStart = i * width;
+        models[0].getRow(i, newPixels, rowStart);
+        if (mask != null) {
+          int[] runs = mask.getRuns(i);
+          for (int k = 0; k < runs.length; k += 2) {
+            operator.apply(newPixels, rowStart + runs[k], runs[k + 1] - runs[k]);
+          }
+        } else {
+          operator.apply(newPixels, rowStart, width);
+        }
+      }
+    });
+
+    return new PackedImageModel(newPixels, height, width);
+  }
+
+  /**
+   * Gets the mask derived from the mask image of a command, if it has one.
+   *
+   * @param models the first item is the image model on which the command is performed,
+   *               and the second, if present, is the image model used to create the mask
+   * @return the mask, or null if no mask image is given
+   * @throws IllegalArgumentException if the mask is not the same size as the image
+   */
+  protected Mask maskOf(ImageModel[] models) throws IllegalArgumentException {
+    if (models.length != 2) {
+      return null;
+    }
+    Mask mask = Mask.of(models[1]);
+    if (mask.getHeight() != models[0].getImageHeight()
+            || mask.getWidth() != models[0].getImageWidth()) {
+      throw new IllegalArgumentException("<html>Mask must be the same<br/>" +
+              "size as the image.</html>");
+    }
+    return mask;
+  }
+
   /**
    * Checks whether a given pixel should be masked when masking an image.
    *
@@ -101,8 +381,6 @@ public abstract class AbstractImageCommand implements ImageCommand {
    * @return true if the pixel should be masked, false otherwise
    */
   protected boolean fitsMask(ImageModel maskModel, int row, int col) {
-    return (maskModel.getPixelAt(row, col).getRed() == 0 &&
-            maskModel.getPixelAt(row, col).getGreen() == 0 &&
-            maskModel.getPixelAt(row, col).getBlue() == 0);
+    return maskModel.getRGBAt(row, col) == 0;
   }
 }
\ No newline at end of file
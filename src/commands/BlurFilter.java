@@ -35,4 +35,15 @@ public class BlurFilter extends AbstractFilterCommand {
   protected ImageModel newModel(ImageModel[] models) {
     return filter(models, Filter.BLUR);
   }
+
+  /**
+   * Gets how far beyond a region the pixels that the region depends on may lie, which is the
+   * radius of the blur kernel.
+   *
+   * @return the width of the halo in pixels
+   */
+  @Override
+  protected int regionHalo() {
+    return 1;
+  }
 }
\ No newline at end of file
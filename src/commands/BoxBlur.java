@@ -0,0 +1,84 @@
+package commands;
+
+import java.util.Scanner;
+
+import model.ImageModel;
+import model.ImageModelMap;
+
+/**
+ * This class represents a Box Blur command that can be performed on an object of an image
+ * model, approximating a Gaussian blur of any radius with repeated box blurs.
+ */
+public class BoxBlur extends AbstractFilterCommand {
+  private final String radius;
+
+  /**
+   * Constructs a Box Blur command using a given output, map of image models, and scanner.
+   *
+   * @param output        the output that any prompts or error messages will be written to
+   * @param imageModelMap the map from which to choose an image to run the command on
+   * @param scanner       takes input from the user to perform the command as intended
+   * @throws IllegalArgumentException if any given parameters are null
+   */
+  public BoxBlur(Appendable output, ImageModelMap imageModelMap,
+                 Scanner scanner) throws IllegalArgumentException {
+    super(output, imageModelMap, scanner);
+    this.radius = scanner.next();
+  }
+
+  /**
+   * Creates a new image model by performing a Box Blur command on a given image model.
+   *
+   * @param models the first item is the image model on which the command is performed,
+   *               and the second, if present, is the image model used to create the mask
+   * @throws IllegalArgumentException if the radius is not a non-negative integer
+   * @return a new image model based on the method performed
+   */
+  @Override
+  protected ImageModel newModel(ImageModel[] models) throws IllegalArgumentException {
+    return boxBlur(models, radius());
+  }
+
+  /**
+   * Gets the parameters of the command which decide its result.
+   *
+   * @return the radius of the box blur
+   */
+  @Override
+  protected String parameterKey() {
+    return this.radius;
+  }
+
+  /**
+   * Gets how far beyond a region the pixels that the region depends on may lie, which is the
+   * combined reach of every box blur pass.
+   *
+   * @throws IllegalArgumentException if the radius is not a non-negative integer
+   * @return the width of the halo in pixels
+   */
+  @Override
+  protected int regionHalo() throws IllegalArgumentException {
+    return boxBlurReach(radius());
+  }
+
+  /**
+   * Parses the radius of the box blur.
+   *
+   * @throws IllegalArgumentException if the radius is not a non-negative integer
+   * @return the radius
+   */
+  private int radius() throws IllegalArgumentException {
+    int radius;
+    try {
+      radius = Integer.parseInt(this.radius);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("<html>First parameter must be<br/>" +
+              "an integer.</html>");
+    }
+    if (radius < 0) {
+      throw new IllegalArgumentException("<html>Radius must not be<br/>" +
+              "negative.</html>");
+    }
+    return radius;
+  }
+}
@@ -2,17 +2,16 @@ package commands;
 
 import java.util.Scanner;
 
-import model.IPixel;
+import model.ColorOperator;
 import model.ImageModel;
-import model.ImageModelImpl;
 import model.ImageModelMap;
-import model.Pixel;
 
 /**
  * This class represents a Brighten command that can be performed on an object of an image model.
  */
-public class Brighten extends AbstractImageCommand {
+public class Brighten extends AbstractImageCommand implements ColorCommand {
   private final String constant;
+  private boolean pipelined;
 
   /**
    * Constructs a Brighten command using a given output, map of image models, and scanner.
@@ -47,6 +46,17 @@ public class Brighten extends AbstractImageCommand {
     }
   }
 
+  /**
+   * Gets the parameters of the command which decide its result.
+   *
+   * @return the parameters of the command, or null if it is pipelined
+   * @see AbstractImageCommand#cachedCompute
+   */
+  @Override
+  protected String parameterKey() {
+    return this.pipelined ? null : this.constant;
+  }
+
   /**
    * Creates an image model that results from brightening the image model that the method
    * is being performed on by a given constant.
@@ -57,50 +67,18 @@ public class Brighten extends AbstractImageCommand {
    * @return the resulting image model
    */
   private ImageModel brighten(ImageModel[] models, int constant) {
-    int height = models[0].getImageHeight();
-    int width = models[0].getImageWidth();
-
-    IPixel[][] newPixels = new Pixel[height][width];
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        if (models.length == 2) {
-          if (fitsMask(models[1], i, j)) {
-            newPixels[i][j] = brightenPixel(models[0], i, j, constant);
-          } else {
-            newPixels[i][j] = models[0].getPixelAt(i, j);
-          }
-        } else {
-          newPixels[i][j] = brightenPixel(models[0], i, j, constant);
-        }
-      }
-    }
-
-    return new ImageModelImpl(newPixels, height, width);
+    return applyColorOperator(models, ColorOperator.brighten(constant), this.pipelined);
   }
 
   /**
-   * Brightens a pixel based on a constant by which to shift its color values.
+   * Sets whether the command should store its result as a pipeline over its source image
+   * rather than computing every pixel immediately. Masked edits are always computed
+   * immediately.
    *
-   * @param model the model from which the pixel is being brightened
-   * @param row the row of the pixel being brightened
-   * @param col the column of the pixel being brightened
-   * @param constant the constant to shift the color values by
-   * @return the brightened pixel
+   * @param pipelined true if the result should be stored as a pipeline, false otherwise
    */
-  private IPixel brightenPixel(ImageModel model, int row, int col, int constant) {
-    int red;
-    int green;
-    int blue;
-    if (constant >= 0) {
-      red = Math.min(model.getPixelAt(row, col).getRed() + constant, 255);
-      green = Math.min(model.getPixelAt(row, col).getGreen() + constant, 255);
-      blue = Math.min(model.getPixelAt(row, col).getBlue() + constant, 255);
-    }
-    else {
-      red = Math.max(model.getPixelAt(row, col).getRed() + constant, 0);
-      green = Math.max(model.getPixelAt(row, col).getGreen() + constant, 0);
-      blue = Math.max(model.getPixelAt(row, col).getBlue() + constant, 0);
-    }
-    return new Pixel(red, green, blue);
+  @Override
+  public void setPipelined(boolean pipelined) {
+    this.pipelined = pipelined;
   }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package commands;
+
+/**
+ * This interface represents a command that changes each pixel's color independently of every
+ * other pixel, and so can defer its work to be fused with other such commands.
+ */
+public interface ColorCommand extends ImageCommand {
+  /**
+   * Sets whether the command should store its result as a pipeline over its source image
+   * rather than computing every pixel immediately. Masked edits are always computed
+   * immediately.
+   *
+   * @param pipelined true if the result should be stored as a pipeline, false otherwise
+   */
+  void setPipelined(boolean pipelined);
+}
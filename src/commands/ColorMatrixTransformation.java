@@ -0,0 +1,67 @@
+package commands;
+
+import java.util.Scanner;
+
+import model.ColorMatrices;
+import model.ImageModel;
+import model.ImageModelMap;
+
+/**
+ * This class represents a color transformation command using a user-defined 3x3 color matrix
+ * that can be performed on an object of an image model.
+ */
+public class ColorMatrixTransformation extends AbstractTransformationCommand {
+  private final String[] values;
+
+  /**
+   * Constructs a color matrix transformation command using a given output, map of image models,
+   * and scanner, reading the nine values of the matrix in row-major order from the scanner.
+   *
+   * @param output        the output that any prompts or error messages will be written to
+   * @param imageModelMap the map from which to choose an image to run the command on
+   * @param scanner       takes input from the user to perform the command as intended
+   * @throws IllegalArgumentException if any given parameters are null
+   */
+  public ColorMatrixTransformation(Appendable output, ImageModelMap imageModelMap,
+                                   Scanner scanner) throws IllegalArgumentException {
+    super(output, imageModelMap, scanner);
+    this.values = new String[9];
+    for (int i = 0; i < 9; i++) {
+      this.values[i] = scanner.next();
+    }
+  }
+
+  /**
+   * Creates a new image model by performing a color matrix transformation command on a given
+   * image model.
+   *
+   * @param models the first item is the image model on which the command is performed,
+   *               and the second, if present, is the image model used to create the mask
+   * @throws IllegalArgumentException if any matrix value is not a number
+   * @return a new image model based on the method performed
+   */
+  @Override
+  protected ImageModel newModel(ImageModel[] models) throws IllegalArgumentException {
+    double[][] matrix = new double[3][3];
+    try {
+      for (int i = 0; i < 9; i++) {
+        matrix[i / 3][i % 3] = Double.parseDouble(this.values[i]);
+      }
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("<html>Matrix values must be<br/>" +
+              "numbers.</html>");
+    }
+    return transform(models, ColorMatrices.get(matrix));
+  }
+
+  /**
+   * Gets the parameters of the command which decide its result.
+   *
+   * @return the values of the matrix, or null if the command is pipelined
+   */
+  @Override
+  protected String parameterKey() {
+    String key = super.parameterKey();
+    return key == null ? null : String.join(" ", this.values);
+  }
+}
@@ -0,0 +1,85 @@
+package commands;
+
+/**
+ * This class represents what one command did: the images or files it read, the image or file
+ * it wrote, the size of the image it created or saved, and whether that image was reused from
+ * an identical earlier command rather than computed.
+ */
+public class CommandRecord {
+  private final String[] inputs;
+  private final String output;
+  private final int height;
+  private final int width;
+  private final boolean reused;
+
+  /**
+   * Constructs a record of a command.
+   *
+   * @param inputs the names of the images or files the command read
+   * @param output the name of the image or file the command wrote
+   * @param height the height of the image the command created or saved
+   * @param width  the width of the image the command created or saved
+   * @param reused true if the image was reused from an identical earlier command
+   */
+  public CommandRecord(String[] inputs, String output, int height, int width, boolean reused) {
+    this.inputs = inputs.clone();
+    this.output = output;
+    this.height = height;
+    this.width = width;
+    this.reused = reused;
+  }
+
+  /**
+   * Gets the names of the images or files that the command read.
+   *
+   * @return the names of the inputs
+   */
+  public String[] getInputs() {
+    return this.inputs.clone();
+  }
+
+  /**
+   * Gets the name of the image or file that the command wrote.
+   *
+   * @return the name of the output
+   */
+  public String getOutput() {
+    return this.output;
+  }
+
+  /**
+   * Gets the height of the image that the command created or saved.
+   *
+   * @return the height in pixels
+   */
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Gets the width of the image that the command created or saved.
+   *
+   * @return the width in pixels
+   */
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Gets the number of pixels in the image that the command created or saved.
+   *
+   * @return the number of pixels
+   */
+  public long getPixels() {
+    return (long) this.height * this.width;
+  }
+
+  /**
+   * Determines whether the image was reused from an identical earlier command.
+   *
+   * @return true if the image was reused, false if it was computed
+   */
+  public boolean isReused() {
+    return this.reused;
+  }
+}
@@ -1,14 +1,11 @@
 package commands;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Scanner;
 
-import model.IPixel;
 import model.ImageModel;
-import model.ImageModelImpl;
 import model.ImageModelMap;
-import model.Pixel;
+import model.PackedImageModel;
+import model.RowExecutor;
 
 /**
  * This class represents a Downscale command that can be performed on an object of an image
@@ -55,6 +52,27 @@ public class Downscale extends AbstractImageCommand {
     }
   }
 
+  /**
+   * Gets the parameters of the command which decide its result.
+   *
+   * @return the height and width percentages
+   */
+  @Override
+  protected String parameterKey() {
+    return this.heightPercentage + " " + this.widthPercentage;
+  }
+
+  /**
+   * Gets how far beyond a region the pixels that the region depends on may lie. A downscaled
+   * image has a different size than its source, so only whole results are computed.
+   *
+   * @return a negative number, as regions are not supported
+   */
+  @Override
+  protected int regionHalo() {
+    return -1;
+  }
+
   /**
    * Creates an image model that results from downscaling the image model that the method is
    * being performed on using a given number of seeds.
@@ -75,51 +93,55 @@ public class Downscale extends AbstractImageCommand {
               "1 and 100, inclusive.</html>");
     }
 
-    IPixel[][] newPixels = new Pixel[downscaleHeight][downscaleWidth];
-    for (int i = 0; i < downscaleHeight; i++) {
-      for (int j = 0; j < downscaleWidth; j++) {
-        double rowToMap = i / ((double) heightPercentage / 100);
-        double colToMap = j / ((double) widthPercentage / 100);
+    int[] newPixels = new int[downscaleHeight * downscaleWidth];
+    RowExecutor.forEachRow(downscaleHeight, downscaleWidth, (startRow, endRow) -> {
+      for (int i = startRow; i < endRow; i++) {
+        for (int j = 0; j < downscaleWidth; j++) {
+          double rowToMap = i / ((double) heightPercentage / 100);
+          double colToMap = j / ((double) widthPercentage / 100);
 
-        if (rowToMap == Math.floor(rowToMap) && colToMap == Math.floor(colToMap)) {
-          newPixels[i][j] = model.getPixelAt((int) rowToMap, (int) colToMap);
-        } else {
-          ArrayList<Integer> mappedValues = mappedValues(model, rowToMap, colToMap);
-          newPixels[i][j] = new Pixel(
-                  mappedValues.get(0), mappedValues.get(1), mappedValues.get(2));
+          if (rowToMap == Math.floor(rowToMap) && colToMap == Math.floor(colToMap)) {
+            newPixels[i * downscaleWidth + j] =
+                    model.getRGBAt((int) rowToMap, (int) colToMap);
+          } else {
+            newPixels[i * downscaleWidth + j] = mappedValue(model, rowToMap, colToMap);
+          }
         }
       }
-    }
+    });
 
-    return new ImageModelImpl(newPixels, downscaleHeight, downscaleWidth);
+    return new PackedImageModel(newPixels, downscaleHeight, downscaleWidth);
   }
 
   /**
-   * Returns a list of the red, green, and blue color values resulting from the average values
+   * Returns the packed red, green, and blue color values resulting from the average values
    * of the four pixels surrounding a floating point pixel location.
    *
    * @param model the image model to get the pixels from
    * @param rowToMap the row of the floating point pixel location
    * @param colToMap the column of the floating point pixel location
-   * @return the list of red, green, and blue color values
+   * @return the packed red, green, and blue color values
    */
-  private ArrayList<Integer> mappedValues(ImageModel model, double rowToMap, double colToMap) {
-    IPixel topLeft = model.getPixelAt((int) Math.floor(rowToMap),
+  private int mappedValue(ImageModel model, double rowToMap, double colToMap) {
+    int topLeft = model.getRGBAt((int) Math.floor(rowToMap),
             (int) Math.floor(colToMap));
-    IPixel topRight = model.getPixelAt((int) Math.floor(rowToMap),
+    int topRight = model.getRGBAt((int) Math.floor(rowToMap),
             (int) Math.ceil(colToMap));
-    IPixel bottomLeft = model.getPixelAt((int) Math.ceil(rowToMap),
+    int bottomLeft = model.getRGBAt((int) Math.ceil(rowToMap),
             (int) Math.floor(colToMap));
-    IPixel bottomRight = model.getPixelAt((int) Math.ceil(rowToMap),
+    int bottomRight = model.getRGBAt((int) Math.ceil(rowToMap),
             (int) Math.ceil(colToMap));
 
-    return new ArrayList<>(Arrays.asList(
-            averageValue(rowToMap, colToMap, topLeft.getRed(),
-                    topRight.getRed(), bottomLeft.getRed(), bottomRight.getRed()),
-            averageValue(rowToMap, colToMap, topLeft.getGreen(),
-                    topRight.getGreen(), bottomLeft.getGreen(), bottomRight.getGreen()),
-            averageValue(rowToMap, colToMap, topLeft.getGreen(),
-                    topRight.getGreen(), bottomLeft.getGreen(), bottomRight.getGreen())));
+    return PackedImageModel.pack(
+            averageValue(rowToMap, colToMap, PackedImageModel.red(topLeft),
+                    PackedImageModel.red(topRight), PackedImageModel.red(bottomLeft),
+                    PackedImageModel.red(bottomRight)),
+            averageValue(rowToMap, colToMap, PackedImageModel.green(topLeft),
+                    PackedImageModel.green(topRight), PackedImageModel.green(bottomLeft),
+                    PackedImageModel.green(bottomRight)),
+            averageValue(rowToMap, colToMap, PackedImageModel.green(topLeft),
+                    PackedImageModel.green(topRight), PackedImageModel.green(bottomLeft),
+                    PackedImageModel.green(bottomRight)));
   }
 
   /**
@@ -0,0 +1,93 @@
+package commands;
+
+import java.util.Scanner;
+
+import model.Convolution;
+import model.ImageModel;
+import model.ImageModelMap;
+import model.Kernel;
+
+/**
+ * This class represents a Kernel Filter command that can be performed on an object of an image
+ * model, convolving it with a user-defined kernel loaded from a file.
+ */
+public class KernelFilter extends AbstractFilterCommand {
+  private final String filepath;
+  private Kernel kernel;
+
+  /**
+   * Constructs a Kernel Filter command using a given output, map of image models, and scanner.
+   *
+   * @param output        the output that any prompts or error messages will be written to
+   * @param imageModelMap the map from which to choose an image to run the command on
+   * @param scanner       takes input from the user to perform the command as intended
+   * @throws IllegalArgumentException if any given parameters are null
+   */
+  public KernelFilter(Appendable output, ImageModelMap imageModelMap,
+                      Scanner scanner) throws IllegalArgumentException {
+    super(output, imageModelMap, scanner);
+    this.filepath = scanner.next();
+  }
+
+  /**
+   * Creates a new image model by performing a Kernel Filter command on a given image model.
+   *
+   * @param models the first item is the image model on which the command is performed,
+   *               and the second, if present, is the image model used to create the mask
+   * @throws IllegalArgumentException if the kernel file cannot be loaded
+   * @return a new image model based on the method performed
+   */
+  @Override
+  protected ImageModel newModel(ImageModel[] models) throws IllegalArgumentException {
+    return filter(models, new Convolution(kernel()));
+  }
+
+  /**
+   * Gets the parameters of the command which decide its result, which are the weights of the
+   * kernel as loaded, so an edited kernel file is never mistaken for the old one.
+   *
+   * @throws IllegalArgumentException if the kernel file cannot be loaded
+   * @return the weights of the kernel and whether each tap is truncated
+   */
+  @Override
+  protected String parameterKey() throws IllegalArgumentException {
+    Kernel kernel = kernel();
+    StringBuilder key = new StringBuilder().append(kernel.truncatesEachTap());
+    for (int i = 0; i < kernel.getSize(); i++) {
+      for (int j = 0; j < kernel.getSize(); j++) {
+        key.append(' ').append(kernel.getWeight(i, j));
+      }
+    }
+    return key.toString();
+  }
+
+  /**
+   * Gets how far beyond a region the pixels that the region depends on may lie, which is the
+   * radius of the kernel.
+   *
+   * @throws IllegalArgumentException if the kernel file cannot be loaded
+   * @return the width of the halo in pixels
+   */
+  @Override
+  protected int regionHalo() throws IllegalArgumentException {
+    return kernel().getSize() / 2;
+  }
+
+  /**
+   * Loads the kernel from the kernel file the first time it is needed.
+   *
+   * @throws IllegalArgumentException if the kernel file cannot be loaded
+   * @return the kernel
+   */
+  private Kernel kernel() throws IllegalArgumentException {
+    if (this.kernel == null) {
+      try {
+        this.kernel = Kernel.load(this.filepath);
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("<html>First parameter must be<br/>" +
+                "a valid kernel file.</html>");
+      }
+    }
+    return this.kernel;
+  }
+}
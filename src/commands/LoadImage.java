@@ -1,24 +1,29 @@
 package commands;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Scanner;
 
 import javax.imageio.ImageIO;
 
 import model.ImageModel;
-import model.ImageModelImpl;
 import model.ImageModelMap;
-import model.Pixel;
+import model.ImageUtil;
+import model.MappedImageModel;
+import model.PPMFormat;
+import model.PackedImageModel;
 
 /**
  * This class represents a Load command that can be performed on an object of an image model.
  */
 public class LoadImage extends AbstractImageCommand {
+  private static long mappingThreshold = Long.getLong("imageprocessor.mmapThreshold",
+          256L << 20);
+
   /**
    * Constructs a Load command using a given output and scanner.
    *
@@ -46,7 +51,9 @@ public class LoadImage extends AbstractImageCommand {
       String newName = scanner.next();
 
       try {
-        this.imageModelMap.add(newName, loadImage(filepath), this.output);
+        ImageModel model = loadImage(filepath);
+        this.imageModelMap.add(newName, model, this.output);
+        record(new String[]{filepath}, newName, model, false);
         this.output.append("Loading completed.\n");
       } catch (IllegalArgumentException e) {
         this.output.append(e.getMessage() + "\n");
@@ -59,6 +66,22 @@ public class LoadImage extends AbstractImageCommand {
     }
   }
 
+  /**
+   * Sets the size in bytes from which raw PPM and PGM files are mapped into memory instead of
+   * being read onto the heap. The threshold defaults to 256 MiB and can also be set through
+   * the "imageprocessor.mmapThreshold" system property.
+   *
+   * @param bytes the smallest file size that is mapped into memory
+   * @throws IllegalArgumentException if the size is negative
+   */
+  public static synchronized void setMappingThreshold(long bytes)
+          throws IllegalArgumentException {
+    if (bytes < 0) {
+      throw new IllegalArgumentException("Mapping threshold must not be negative.");
+    }
+    mappingThreshold = bytes;
+  }
+
   /**
    * Creates a new image model by performing a Load command on a given image model.
    *
@@ -81,7 +104,7 @@ public class LoadImage extends AbstractImageCommand {
    */
   public ImageModel loadImage(String filepath)
           throws IllegalArgumentException, IllegalStateException {
-    if (filepath.endsWith(".ppm")) {
+    if (filepath.endsWith(".ppm") || filepath.endsWith(".pgm")) {
       return loadPPM(filepath);
     } else {
       return loadOther(filepath);
@@ -89,52 +112,43 @@ public class LoadImage extends AbstractImageCommand {
   }
 
   /**
-   * Loads a PPM image from a given filepath to an image model.
+   * Loads a PPM or PGM image, in either plain or raw form, from a given filepath to an image
+   * model. Raw files at least as large as the mapping threshold are mapped into memory rather
+   * than copied onto the heap.
    *
    * @param filepath the filepath from which the image is loaded from
    * @return the resulting image model
    * @throws IllegalArgumentException if the filepath input is invalid
+   * @throws IllegalStateException if reading the image from the file fails
    */
   private ImageModel loadPPM(String filepath)
           throws IllegalArgumentException, IllegalStateException {
-    Scanner scanner;
+    long threshold;
+    synchronized (LoadImage.class) {
+      threshold = mappingThreshold;
+    }
+    if (new File(filepath).length() >= threshold && MappedImageModel.canMap(filepath)) {
+      return new MappedImageModel(filepath);
+    }
+
+    InputStream in;
     try {
-      scanner = new Scanner(new FileInputStream(filepath));
+      in = new FileInputStream(filepath);
     } catch (FileNotFoundException e) {
       throw new IllegalArgumentException("File not found: " + filepath + ".");
     }
 
-    StringBuilder builder = new StringBuilder();
-    while (scanner.hasNextLine()) {
-      String s = scanner.nextLine();
-      if (s.charAt(0) != '#') {
-        builder.append(s + System.lineSeparator());
-      }
-    }
-
-    scanner = new Scanner(builder.toString());
-    String token;
-    token = scanner.next();
-    if (!token.equals("P3")) {
-      throw new IllegalArgumentException("Invalid PPM file:" +
-              "plain RAW file should begin with P3.");
-    }
+    try {
+      return PPMFormat.read(in);
+    } catch (IOException e) {
+      throw new IllegalStateException("Reading image from file failed.");
+    } finally {
+      try {
+        in.close();
+      } catch (IOException ignored) {
 
-    int width = scanner.nextInt();
-    int height = scanner.nextInt();
-    int maxValue = scanner.nextInt();
-
-    Pixel[][] pixels = new Pixel[height][width];
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        int red = scanner.nextInt();
-        int green = scanner.nextInt();
-        int blue = scanner.nextInt();
-        pixels[i][j] = new Pixel(red, green, blue, maxValue);
       }
     }
-
-    return new ImageModelImpl(pixels, height, width);
   }
 
   /**
@@ -165,17 +179,6 @@ public class LoadImage extends AbstractImageCommand {
       throw new IllegalArgumentException("Invalid image file type to load from.");
     }
 
-    Pixel[][] pixels = new Pixel[height][width];
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        Color color = new Color(image.getRGB(j, i));
-        int red = color.getRed();
-        int green = color.getGreen();
-        int blue = color.getBlue();
-        pixels[i][j] = new Pixel(red, green, blue, 255);
-      }
-    }
-
-    return new ImageModelImpl(pixels, height, width);
+    return new PackedImageModel(ImageUtil.readBufferedImage(image), height, width);
   }
 }
@@ -1,15 +1,15 @@
 package commands;
 
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Random;
 import java.util.Scanner;
 
-import model.IPixel;
 import model.ImageModel;
-import model.ImageModelImpl;
 import model.ImageModelMap;
-import model.Pixel;
+import model.Mask;
+import model.PackedImageModel;
+import model.RowExecutor;
 
 /**
  * This class represents a Mosaic command that can be performed on an object of an image
@@ -63,8 +63,40 @@ public class Mosaic extends AbstractImageCommand {
    */
   @Override
   protected ImageModel newModel(ImageModel[] models) {
+    int height = models[0].getImageHeight();
+    int width = models[0].getImageWidth();
+    return new PackedImageModel(newRegion(models, 0, 0, height, width), height, width);
+  }
+
+  /**
+   * Gets the parameters of the command which decide its result, including the random seed
+   * that places the seeds of the mosaic.
+   *
+   * @return the number of seeds and the random seed
+   */
+  @Override
+  protected String parameterKey() {
+    return this.seeds + " " + this.randomSeed;
+  }
+
+  /**
+   * Computes one region of the image that results from performing a Mosaic command. The seeds
+   * are placed over the whole image, so the region matches the same part of the whole result.
+   *
+   * @param models the first item is the image model on which the command is performed,
+   *               and the second, if present, is the image model used to create the mask
+   * @param row    the first row of the region
+   * @param col    the first column of the region
+   * @param height the number of rows in the region
+   * @param width  the number of columns in the region
+   * @throws IllegalArgumentException if the seed amount number is not an integer or if it
+   *                                  is not between 1 and the pixel count of the image
+   * @return the packed color values of the region in row-major order
+   */
+  @Override
+  protected int[] newRegion(ImageModel[] models, int row, int col, int height, int width) {
     try {
-      return mosaic(models, Integer.parseInt(this.seeds));
+      return mosaic(models, Integer.parseInt(this.seeds), row, col, height, width);
     } catch (NumberFormatException e) {
       throw new IllegalArgumentException("<html>First parameter must be<br/>" +
               "an integer.</html>");
@@ -74,17 +106,22 @@ public class Mosaic extends AbstractImageCommand {
   }
 
   /**
-   * Creates an image model that results from a mosaic effect over the image model that the
-   * method is being performed on using a given number of seeds.
+   * Computes one region of the mosaic effect over the image model that the method is being
+   * performed on using a given number of seeds.
    *
-   * @param models the first item is the image model on which the command is performed,
-   *               and the second, if present, is the image model used to create the mask
-   * @param seeds the number of seeds with which to create the mosaic effect
+   * @param models       the first item is the image model on which the command is performed,
+   *                     and the second, if present, is the image model used to create the mask
+   * @param seeds        the number of seeds with which to create the mosaic effect
+   * @param regionRow    the first row of the region
+   * @param regionCol    the first column of the region
+   * @param regionHeight the number of rows in the region
+   * @param regionWidth  the number of columns in the region
    * @throws IllegalArgumentException if the seed count is not between one and the pixel count
    *                                  of the image
-   * @return the resulting image model
+   * @return the packed color values of the region in row-major order
    */
-  private ImageModel mosaic(ImageModel[] models, int seeds) {
+  private int[] mosaic(ImageModel[] models, int seeds, int regionRow, int regionCol,
+                       int regionHeight, int regionWidth) {
     int height = models[0].getImageHeight();
     int width = models[0].getImageWidth();
     if (seeds < 1 || seeds > height * width) {
@@ -92,76 +129,78 @@ public class Mosaic extends AbstractImageCommand {
               "1 and the image's pixel count.</html>");
     }
 
-    ArrayList<int[]> seedList = generateSeedList(height, width, seeds);
-    IPixel[][] newPixels = new Pixel[height][width];
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        if (models.length == 2) {
-          if (fitsMask(models[1], i, j)) {
-            newPixels[i][j] = mosaicPixel(i, j, models[0], seedList);
-          } else {
-            newPixels[i][j] = models[0].getPixelAt(i, j);
+    Mask mask = maskOf(models);
+    int[] seedList = generateSeedList(height, width, seeds);
+    SeedGrid grid = new SeedGrid(seedList, models[0]);
+    int[] newPixels = new int[regionHeight * regionWidth];
+    int regionEnd = regionCol + regionWidth;
+    RowExecutor.forEachRow(regionHeight, regionWidth, (startRow, endRow) -> {
+      int[] row = new int[width];
+      int[] allRuns = new int[]{regionCol, regionEnd};
+      for (int i = regionRow + startRow; i < regionRow + endRow; i++) {
+        int rowStart = (i - regionRow) * regionWidth - regionCol;
+        int[] runs = allRuns;
+        if (mask != null) {
+          models[0].getRow(i, row, 0);
+          System.arraycopy(row, regionCol, newPixels, rowStart + regionCol, regionWidth);
+          runs = mask.getRuns(i);
+        }
+        for (int k = 0; k < runs.length; k += 2) {
+          for (int j = Math.max(regionCol, runs[k]); j < Math.min(regionEnd, runs[k + 1]); j++) {
+            newPixels[rowStart + j] = grid.nearestColor(i, j);
           }
-        } else {
-          newPixels[i][j] = mosaicPixel(i, j, models[0], seedList);
         }
       }
-    }
+    });
 
-    return new ImageModelImpl(newPixels, height, width);
+    return newPixels;
   }
 
   /**
-   * Changes the color of a pixel to that of the seed nearest to it when creating a mosaic image.
+   * Creates and returns the positions of a specified number of distinct seeds with which to
+   * create a mosaic effect for an image, as row-major pixel indices. The same Random seed always
+   * produces the same positions.
    *
-   * @param row      the row of the pixel being transformed
-   * @param col      the column of the pixel being transformed
-   * @param model    the image model being used to create a mosaic image
-   * @param seedList the list of seeds coordinates from which to find the nearest one
-   */
-  private Pixel mosaicPixel(int row, int col, ImageModel model, ArrayList<int[]> seedList) {
-    IPixel closestSeed = model.getPixelAt(seedList.get(0)[0], seedList.get(0)[1]);
-    double shortestDistance = Math.max(model.getImageHeight(), model.getImageWidth());
-
-    for (int[] seed : seedList) {
-      int currentSeedRow = seed[0];
-      int currentSeedCol = seed[1];
-      if (row == currentSeedRow && col == currentSeedCol) {
-        closestSeed = model.getPixelAt(currentSeedRow, currentSeedCol);
-        break;
-      }
-      double distance = Math.sqrt(Math.pow(Math.abs(row - currentSeedRow), 2)
-              + Math.pow(Math.abs(col - currentSeedCol), 2));
-      if (distance < shortestDistance) {
-        shortestDistance = distance;
-        closestSeed = model.getPixelAt(currentSeedRow, currentSeedCol);
-      }
-    }
-
-    return new Pixel(closestSeed.getRed(), closestSeed.getGreen(), closestSeed.getBlue());
-  }
-
-  /**
-   * Creates and returns a list of x or y coordinates for a specified number of seeds with which
-   * to create a mosaic effect for an image.
+   * <p>When the seeds cover at most half of the image, positions are drawn at random and drawn
+   * again whenever they repeat, with repeats detected in constant time by a bit set. Above that
+   * density, where repeats would become frequent, the positions are chosen by a partial
+   * Fisher-Yates shuffle of the pixel indices, which never repeats.
    *
    * @param imageHeight the height that the coordinate generation is constrained to
    * @param imageWidth  the width that the coordinate generation is constrained to
    * @param seeds       the number of seeds to generate coordinates for
-   * @return the list of x or y coordinates for the specified number of seeds
+   * @return the row-major pixel indices of the seeds, in the order they were generated
    */
-  private ArrayList<int[]> generateSeedList(int imageHeight, int imageWidth, int seeds) {
-    ArrayList<int[]> seedList = new ArrayList<>();
+  private int[] generateSeedList(int imageHeight, int imageWidth, int seeds) {
+    int[] seedList = new int[seeds];
     Random random = new Random(this.randomSeed);
+    int pixelCount = imageHeight * imageWidth;
 
+    if (seeds > pixelCount / 2) {
+      int[] indices = new int[pixelCount];
+      for (int i = 0; i < pixelCount; i++) {
+        indices[i] = i;
+      }
+      for (int i = 0; i < seeds; i++) {
+        int j = i + random.nextInt(pixelCount - i);
+        int swap = indices[i];
+        indices[i] = indices[j];
+        indices[j] = swap;
+        seedList[i] = indices[i];
+      }
+      return seedList;
+    }
+
+    BitSet taken = new BitSet(pixelCount);
     for (int i = 0; i < seeds; i++) {
       boolean moveToNext = false;
       while (!moveToNext) {
         int seedRow = random.nextInt(imageHeight);
         int seedCol = random.nextInt(imageWidth);
-        int[] seed = new int[]{seedRow, seedCol};
-        if (!containsSeed(seed, seedList)) {
-          seedList.add(seed);
+        int seed = seedRow * imageWidth + seedCol;
+        if (!taken.get(seed)) {
+          taken.set(seed);
+          seedList[i] = seed;
           moveToNext = true;
         }
       }
@@ -171,17 +210,128 @@ public class Mosaic extends AbstractImageCommand {
   }
 
   /**
-   * Checks to see if a list of seeds already contains a certain seed
+   * This class represents the seeds of a mosaic sorted into a uniform grid of square cells, so
+   * that the seed nearest to a pixel is found by searching the cells around it in rings of
+   * growing size instead of measuring the distance to every seed. Distances are compared as
+   * squared integers.
    *
-   * @param seed     the seed that is being looked for
-   * @param seedList the list of seeds that is being looked in
-   * @return true if the list of seeds contains the seed, false otherwise
+   * <p>The result is the same as scanning the seeds in order: a pixel takes the color of the
+   * earliest seed at the shortest distance, unless no seed is closer than the larger dimension
+   * of the image, in which case it takes the color of the first seed.
    */
-  private boolean containsSeed(int[] seed, ArrayList<int[]> seedList) {
-    boolean result = false;
-    for (int[] testSeed : seedList) {
-      result = result || Arrays.equals(seed, testSeed);
+  private static class SeedGrid {
+    private final int[] seedRows;
+    private final int[] seedCols;
+    private final int[] seedColors;
+    private final int cellSize;
+    private final int gridRows;
+    private final int gridCols;
+    private final int[] cellStarts;
+    private final int[] cellSeeds;
+    private final long maxDistance;
+
+    /**
+     * Constructs a grid holding a given list of seeds and the colors they have in a given
+     * image model.
+     *
+     * @param seedList the row-major pixel indices of the seeds, in the order they were
+     *                 generated
+     * @param model    the image model from which the colors of the seeds are taken
+     */
+    private SeedGrid(int[] seedList, ImageModel model) {
+      int height = model.getImageHeight();
+      int width = model.getImageWidth();
+      int seeds = seedList.length;
+      this.seedRows = new int[seeds];
+      this.seedCols = new int[seeds];
+      this.seedColors = new int[seeds];
+      for (int k = 0; k < seeds; k++) {
+        this.seedRows[k] = seedList[k] / width;
+        this.seedCols[k] = seedList[k] % width;
+        this.seedColors[k] = model.getRGBAt(this.seedRows[k], this.seedCols[k]);
+      }
+      long limit = Math.max(height, width);
+      this.maxDistance = limit * limit;
+
+      this.cellSize = Math.max(1, (int) Math.sqrt((double) height * width / seeds));
+      this.gridRows = (height + this.cellSize - 1) / this.cellSize;
+      this.gridCols = (width + this.cellSize - 1) / this.cellSize;
+      this.cellStarts = new int[this.gridRows * this.gridCols + 1];
+      for (int k = 0; k < seeds; k++) {
+        this.cellStarts[cellOf(k) + 1]++;
+      }
+      for (int c = 0; c < this.gridRows * this.gridCols; c++) {
+        this.cellStarts[c + 1] += this.cellStarts[c];
+      }
+      int[] next = Arrays.copyOf(this.cellStarts, this.cellStarts.length - 1);
+      this.cellSeeds = new int[seeds];
+      for (int k = 0; k < seeds; k++) {
+        this.cellSeeds[next[cellOf(k)]++] = k;
+      }
+    }
+
+    /**
+     * Gets the index of the grid cell containing a given seed.
+     *
+     * @param seed the index of the seed
+     * @return the index of the cell containing the seed
+     */
+    private int cellOf(int seed) {
+      return (this.seedRows[seed] / this.cellSize) * this.gridCols
+              + this.seedCols[seed] / this.cellSize;
+    }
+
+    /**
+     * Finds the color of the seed nearest to a given pixel. Rings of cells are searched until
+     * the closest any seed in the next ring could be is farther than the nearest seed found.
+     *
+     * @param row the row of the pixel
+     * @param col the column of the pixel
+     * @return the packed color value of the nearest seed
+     */
+    private int nearestColor(int row, int col) {
+      int cellRow = row / this.cellSize;
+      int cellCol = col / this.cellSize;
+      int best = -1;
+      long bestDistance = Long.MAX_VALUE;
+      int rings = Math.max(Math.max(cellRow, this.gridRows - 1 - cellRow),
+              Math.max(cellCol, this.gridCols - 1 - cellCol));
+
+      for (int ring = 0; ring <= rings; ring++) {
+        if (ring > 0) {
+          long gap = (long) (ring - 1) * this.cellSize + 1;
+          long bound = gap * gap;
+          if (bound > bestDistance || bound >= this.maxDistance) {
+            break;
+          }
+        }
+        int top = cellRow - ring;
+        int bottom = cellRow + ring;
+        for (int r = Math.max(0, top); r <= Math.min(this.gridRows - 1, bottom); r++) {
+          int step = (r == top || r == bottom || ring == 0) ? 1 : 2 * ring;
+          for (int c = cellCol - ring; c <= cellCol + ring; c += step) {
+            if (c < 0 || c >= this.gridCols) {
+              continue;
+            }
+            int cell = r * this.gridCols + c;
+            for (int k = this.cellStarts[cell]; k < this.cellStarts[cell + 1]; k++) {
+              int seed = this.cellSeeds[k];
+              long dr = row - this.seedRows[seed];
+              long dc = col - this.seedCols[seed];
+              long distance = dr * dr + dc * dc;
+              if (distance < bestDistance || (distance == bestDistance && seed < best)) {
+                bestDistance = distance;
+                best = seed;
+              }
+            }
+          }
+        }
+      }
+
+      if (best < 0 || bestDistance >= this.maxDistance) {
+        return this.seedColors[0];
+      }
+      return this.seedColors[best];
     }
-    return result;
   }
-}
\ No newline at end of file
+}
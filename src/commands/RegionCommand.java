@@ -0,0 +1,21 @@
+package commands;
+
+/**
+ * This interface represents a command that can compute only a rectangular region of its
+ * result, such as the part of an image visible in a preview, leaving every pixel outside the
+ * region as it is in the source image.
+ */
+public interface RegionCommand extends ImageCommand {
+  /**
+   * Sets the region of the result that the command should compute. The region is clipped to
+   * the bounds of the image the command is performed on. Commands whose results cannot be
+   * computed one region at a time compute the whole result instead.
+   *
+   * @param row    the first row of the region
+   * @param col    the first column of the region
+   * @param height the number of rows in the region
+   * @param width  the number of columns in the region
+   * @throws IllegalArgumentException if the region has a negative position or size
+   */
+  void setRegion(int row, int col, int height, int width) throws IllegalArgumentException;
+}
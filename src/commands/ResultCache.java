@@ -0,0 +1,357 @@
+package commands;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+
+import model.ImageModel;
+import model.PackedImageModel;
+
+/**
+ * This class represents a cache of the images that commands create, keyed by the command, its
+ * parameters, the region it computes and the images it is given. A result is found again when
+ * the command is given the very same images, or images whose pixels are equal to them, so the
+ * same image loaded twice still finds the results made from it.
+ *
+ * <p>The cache holds its inputs only weakly: once no one else holds an image, the results made
+ * from it are dropped rather than keeping the image alive. Pixels are only hashed when another
+ * result of the same command could be reused, that is when one with the same parameters and
+ * region was made from live images of the same sizes; a 64-bit hash per image then narrows the
+ * candidates, and a candidate is only used once its inputs are found to hold equal pixels.
+ *
+ * <p>Only results that own all of their pixels are kept, since a lazy or region-backed result
+ * still holds the images it shows and would keep them alive through the cache. Kept results
+ * are charged the four bytes per pixel they own, and the least recently used ones are dropped
+ * once they cost more than the cache's budget, so the cache never holds more than its budget.
+ * A result larger than the whole budget is never kept, and a budget of zero turns the cache
+ * off.
+ */
+class ResultCache {
+  private volatile long budget;
+  private final Map<Key, List<Result>> results;
+  private final LinkedHashMap<Result, Key> recency;
+  private final Map<ImageModel, Long> hashes;
+  private final ThreadLocal<Boolean> lastHit;
+  private long cachedBytes;
+
+  /**
+   * Constructs an empty cache with a given budget.
+   *
+   * @param budget the number of bytes that cached results may cost
+   */
+  ResultCache(long budget) {
+    this.budget = budget;
+    this.results = new HashMap<>();
+    this.recency = new LinkedHashMap<>(16, 0.75f, true);
+    this.hashes = new WeakHashMap<>();
+    this.lastHit = ThreadLocal.withInitial(() -> false);
+  }
+
+  /**
+   * Gets the result of a command from the cache, or computes and caches it if there is none.
+   * The result is computed without holding the cache's lock, so commands on other threads are
+   * never kept waiting.
+   *
+   * @param command    the name of the command
+   * @param parameters the parameters of the command, or null if its result must not be reused
+   * @param region     the region that the command computes, or null for the whole result
+   * @param models     the images the command is given
+   * @param compute    computes the result
+   * @return the result, shared with every earlier identical command if it was cached
+   */
+  ImageModel find(String command, String parameters, int[] region, ImageModel[] models,
+                  Supplier<ImageModel> compute) {
+    this.lastHit.set(false);
+    if (parameters == null || this.budget == 0) {
+      return compute.get();
+    }
+    Key key = new Key(command, parameters, region);
+    List<Result> candidates = new ArrayList<>();
+    synchronized (this) {
+      List<Result> cached = this.results.get(key);
+      if (cached != null) {
+        for (Iterator<Result> iterator = cached.iterator(); iterator.hasNext(); ) {
+          Result result = iterator.next();
+          ImageModel[] inputs = result.inputs();
+          if (inputs == null) {
+            iterator.remove();
+            this.recency.remove(result);
+            this.cachedBytes -= result.cost;
+          } else if (Arrays.equals(inputs, models)) {
+            this.recency.get(result);
+            this.lastHit.set(true);
+            return result.model;
+          } else if (sameSizes(inputs, models)) {
+            candidates.add(result);
+          }
+        }
+        if (cached.isEmpty()) {
+          this.results.remove(key);
+        }
+      }
+    }
+
+    for (Result candidate : candidates) {
+      ImageModel[] inputs = candidate.inputs();
+      if (inputs != null && Arrays.equals(hashes(inputs), hashes(models))
+              && sameContent(inputs, models)) {
+        synchronized (this) {
+          this.recency.get(candidate);
+        }
+        this.lastHit.set(true);
+        return candidate.model;
+      }
+    }
+
+    ImageModel model = compute.get();
+    if (!ownsPixels(model, models)) {
+      return model;
+    }
+    Result result = new Result(models, model);
+    if (result.cost > this.budget) {
+      return model;
+    }
+    synchronized (this) {
+      this.results.computeIfAbsent(key, k -> new ArrayList<>()).add(result);
+      this.recency.put(result, key);
+      this.cachedBytes += result.cost;
+      evict(1);
+    }
+    return model;
+  }
+
+  /**
+   * Sets the number of bytes that cached results may cost, dropping the least recently used
+   * results that no longer fit.
+   *
+   * @param budget the number of bytes that cached results may cost
+   */
+  synchronized void setBudget(long budget) {
+    this.budget = budget;
+    evict(0);
+  }
+
+  /**
+   * Drops the least recently used results until the rest fit the budget.
+   *
+   * @param keep the number of most recently used results that are kept even if they do not fit
+   */
+  private void evict(int keep) {
+    Iterator<Map.Entry<Result, Key>> iterator = this.recency.entrySet().iterator();
+    while (this.cachedBytes > this.budget && this.recency.size() > keep) {
+      Map.Entry<Result, Key> entry = iterator.next();
+      List<Result> cached = this.results.get(entry.getValue());
+      cached.remove(entry.getKey());
+      if (cached.isEmpty()) {
+        this.results.remove(entry.getValue());
+      }
+      this.cachedBytes -= entry.getKey().cost;
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Gets the number of bytes that cached results may cost.
+   *
+   * @return the budget of the cache
+   */
+  long getBudget() {
+    return this.budget;
+  }
+
+  /**
+   * Determines whether the last result found on the calling thread came from the cache.
+   *
+   * @return true if the last result was cached, false if it was computed
+   */
+  boolean wasHit() {
+    return this.lastHit.get();
+  }
+
+  /**
+   * Gets the hashes of the contents of a list of image models.
+   *
+   * @param models the image models
+   * @return the hash of each model
+   */
+  private long[] hashes(ImageModel[] models) {
+    long[] contents = new long[models.length];
+    for (int k = 0; k < models.length; k++) {
+      contents[k] = hash(models[k]);
+    }
+    return contents;
+  }
+
+  /**
+   * Gets the hash of the content of an image model, computing it the first time the model
+   * is seen.
+   *
+   * @param model the image model
+   * @return the hash of its dimensions and pixels
+   */
+  private long hash(ImageModel model) {
+    synchronized (this) {
+      Long hash = this.hashes.get(model);
+      if (hash != null) {
+        return hash;
+      }
+    }
+    int height = model.getImageHeight();
+    int width = model.getImageWidth();
+    long hash = 31L * height + width;
+    int[] row = new int[width];
+    for (int i = 0; i < height; i++) {
+      model.getRow(i, row, 0);
+      for (int j = 0; j < width; j++) {
+        hash = (hash ^ row[j]) * 0x100000001B3L;
+        hash ^= hash >>> 29;
+      }
+    }
+    synchronized (this) {
+      this.hashes.put(model, hash);
+    }
+    return hash;
+  }
+
+  /**
+   * Determines whether a result holds all of its pixels itself rather than reading them from
+   * other images, so that caching it keeps nothing else alive.
+   *
+   * @param model  the result
+   * @param models the images the result was made from
+   * @return true if the result is a packed image of its own, false otherwise
+   */
+  private static boolean ownsPixels(ImageModel model, ImageModel[] models) {
+    if (!(model instanceof PackedImageModel)) {
+      return false;
+    }
+    for (ImageModel input : models) {
+      if (input == model) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Determines whether two lists of image models hold images of the same sizes.
+   *
+   * @param cached the images a cached result was made from
+   * @param models the images a command is given
+   * @return true if there are as many images and each has the same height and width, false
+   *         otherwise
+   */
+  private static boolean sameSizes(ImageModel[] cached, ImageModel[] models) {
+    if (cached.length != models.length) {
+      return false;
+    }
+    for (int k = 0; k < models.length; k++) {
+      if (cached[k].getImageHeight() != models[k].getImageHeight()
+              || cached[k].getImageWidth() != models[k].getImageWidth()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Determines whether two lists of image models of the same sizes hold the same images,
+   * which is certain when they are the same models and otherwise checked pixel by pixel.
+   *
+   * @param cached the images a cached result was made from
+   * @param models the images a command is given
+   * @return true if every image has the same pixels, false otherwise
+   */
+  private static boolean sameContent(ImageModel[] cached, ImageModel[] models) {
+    for (int k = 0; k < models.length; k++) {
+      if (cached[k] == models[k]) {
+        continue;
+      }
+      int height = models[k].getImageHeight();
+      int width = models[k].getImageWidth();
+      int[] cachedRow = new int[width];
+      int[] row = new int[width];
+      for (int i = 0; i < height; i++) {
+        cached[k].getRow(i, cachedRow, 0);
+        models[k].getRow(i, row, 0);
+        if (!Arrays.equals(cachedRow, row)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * This class represents what identifies the results of a command apart from its images.
+   */
+  private static class Key {
+    private final String command;
+    private final String parameters;
+    private final int[] region;
+
+    private Key(String command, String parameters, int[] region) {
+      this.command = command;
+      this.parameters = parameters;
+      this.region = region == null ? null : region.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return this.command.equals(that.command) && this.parameters.equals(that.parameters)
+              && Arrays.equals(this.region, that.region);
+    }
+
+    @Override
+    public int hashCode() {
+      return (this.command.hashCode() * 31 + this.parameters.hashCode()) * 31
+              + Arrays.hashCode(this.region);
+    }
+  }
+
+  /**
+   * This class represents a cached result, together with weak references to the images it was
+   * made from.
+   */
+  private static class Result {
+    private final List<WeakReference<ImageModel>> inputs;
+    private final ImageModel model;
+    private final long cost;
+
+    private Result(ImageModel[] models, ImageModel model) {
+      this.inputs = new ArrayList<>(models.length);
+      for (ImageModel input : models) {
+        this.inputs.add(new WeakReference<>(input));
+      }
+      this.model = model;
+      this.cost = 4L * model.getImageHeight() * model.getImageWidth();
+    }
+
+    /**
+     * Gets the images the result was made from, if they are all still held elsewhere.
+     *
+     * @return the images, or null if any of them has been collected
+     */
+    private ImageModel[] inputs() {
+      ImageModel[] models = new ImageModel[this.inputs.size()];
+      for (int k = 0; k < models.length; k++) {
+        models[k] = this.inputs.get(k).get();
+        if (models[k] == null) {
+          return null;
+        }
+      }
+      return models;
+    }
+  }
+}
@@ -3,8 +3,14 @@ package commands;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
 import java.util.Scanner;
 
 import javax.imageio.ImageIO;
@@ -12,11 +18,14 @@ import javax.imageio.ImageIO;
 import model.ImageModel;
 import model.ImageModelMap;
 import model.ImageUtil;
+import model.PPMFormat;
 
 /**
  * This class represents a Save command that can be performed on an object of an image model.
  */
 public class SaveImage extends AbstractImageCommand {
+  private final boolean binary;
+
   /**
    * Constructs a generic command using a given output, map of image models, and scanner.
    *
@@ -27,7 +36,23 @@ public class SaveImage extends AbstractImageCommand {
    */
   public SaveImage(Appendable output, ImageModelMap imageModelMap,
                    Scanner scanner) throws IllegalArgumentException {
+    this(output, imageModelMap, scanner, false);
+  }
+
+  /**
+   * Constructs a Save command using a given output, map of image models, and scanner, choosing
+   * whether PPM files are written in raw binary (P6) or plain text (P3) form.
+   *
+   * @param output        the output that any prompts or error messages will be written to
+   * @param imageModelMap the map from which to choose an image to run the command on
+   * @param scanner       takes input from the user to perform the command as intended
+   * @param binary        true if PPM files are written in raw binary form
+   * @throws IllegalArgumentException if any given parameters are null
+   */
+  public SaveImage(Appendable output, ImageModelMap imageModelMap,
+                   Scanner scanner, boolean binary) throws IllegalArgumentException {
     super(output, imageModelMap, scanner);
+    this.binary = binary;
   }
 
   /**
@@ -47,6 +72,7 @@ public class SaveImage extends AbstractImageCommand {
         ImageModel model = this.imageModelMap.find(modelName);
         try {
           saveImage(model, this.output, newFilepath);
+          record(new String[]{modelName}, newFilepath, model, false);
           this.output.append("Saving completed.\n");
         } catch (IllegalArgumentException e) {
           output.append(e.getMessage() + "\n");
@@ -87,7 +113,7 @@ public class SaveImage extends AbstractImageCommand {
     if (output == null || filepath == null) {
       throw new IllegalArgumentException("No parameters may contain null values.");
     }
-    if (filepath.endsWith(".ppm")) {
+    if (filepath.endsWith(".ppm") || filepath.endsWith(".pgm")) {
       savePPM(model, output, filepath);
     } else {
       saveOther(model, output, filepath);
@@ -95,8 +121,10 @@ public class SaveImage extends AbstractImageCommand {
   }
 
   /**
-   * Saves an image model as a PPM image file to a given filepath while writing messages to a
-   * given output stream.
+   * Saves an image model as a PPM or PGM image file to a given filepath while writing messages
+   * to a given output stream. PGM files and raw PPM files are written in binary, and plain PPM
+   * files as text. The image is written to a file beside the target and then moved over it, so
+   * an image mapped from the target file is still whole while it is being written.
    *
    * @param model    the image model that is being saved
    * @param output   the output stream that the messages are written to
@@ -106,34 +134,56 @@ public class SaveImage extends AbstractImageCommand {
    */
   private void savePPM(ImageModel model, Appendable output, String filepath)
           throws IllegalStateException, IllegalArgumentException {
-    int height = model.getImageHeight();
-    int width = model.getImageWidth();
+    Objects.requireNonNull(model);
+    String magic;
+    if (filepath.endsWith(".pgm")) {
+      magic = "P5";
+    } else {
+      magic = this.binary ? "P6" : "P3";
+    }
 
+    File target = new File(filepath).getAbsoluteFile();
+    File partial = new File(target.getParentFile(), target.getName() + ".part");
+    OutputStream file;
     try {
-      PrintWriter file;
-      try {
-        file = new PrintWriter(filepath);
-      } catch (FileNotFoundException e) {
-        throw new IllegalArgumentException("Filepath cannot be created.");
-      }
+      file = new FileOutputStream(partial);
+    } catch (FileNotFoundException e) {
+      throw new IllegalArgumentException("Filepath cannot be created.");
+    }
 
+    try {
       output.append("Writing to new file: " + filepath + ".\n");
+    } catch (IOException e) {
+      partial.delete();
+      throw new IllegalStateException("Writing to output stream failed.");
+    }
 
-      file.println("P3");
-      file.println("# PPM Image Output");
-      file.println(width + " " + height);
-      file.println(255);
-
-      for (int i = 0; i < height; i++) {
-        for (int j = 0; j < width; j++) {
-          file.println(model.getPixelAt(i, j).getRed());
-          file.println(model.getPixelAt(i, j).getGreen());
-          file.println(model.getPixelAt(i, j).getBlue());
-        }
+    try {
+      try {
+        PPMFormat.write(model, file, magic);
+      } finally {
+        file.close();
       }
-      file.close();
+      replace(partial, target);
     } catch (IOException e) {
-      throw new IllegalStateException("Writing to output stream failed.");
+      partial.delete();
+      throw new IllegalArgumentException("Writing to new file failed.");
+    }
+  }
+
+  /**
+   * Moves a fully written file over a target file in one step where the file system allows it.
+   *
+   * @param partial the fully written file
+   * @param target  the file that it replaces
+   * @throws IOException if the file cannot be moved
+   */
+  private static void replace(File partial, File target) throws IOException {
+    try {
+      Files.move(partial.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+              StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(partial.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
     }
   }
 
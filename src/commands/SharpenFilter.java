@@ -35,4 +35,15 @@ public class SharpenFilter extends AbstractFilterCommand {
   protected ImageModel newModel(ImageModel[] models) {
     return filter(models, Filter.SHARPEN);
   }
+
+  /**
+   * Gets how far beyond a region the pixels that the region depends on may lie, which is the
+   * radius of the sharpen kernel.
+   *
+   * @return the width of the halo in pixels
+   */
+  @Override
+  protected int regionHalo() {
+    return 2;
+  }
 }
\ No newline at end of file
@@ -35,4 +35,20 @@ public class VerticalFlip extends AbstractFlipCommand {
   protected ImageModel newModel(ImageModel[] models) {
     return flip(models, Flip.VERTICAL);
   }
-}
\ No newline at end of file
+
+  /**
+   * Computes one region of the image that results from performing a Vertical Flip command.
+   *
+   * @param models the first item is the image model on which the command is performed,
+   *               and the second, if present, is the image model used to create the mask
+   * @param row    the first row of the region
+   * @param col    the first column of the region
+   * @param height the number of rows in the region
+   * @param width  the number of columns in the region
+   * @return the packed color values of the region in row-major order
+   */
+  @Override
+  protected int[] newRegion(ImageModel[] models, int row, int col, int height, int width) {
+    return flipRegion(models, Flip.VERTICAL, row, col, height, width);
+  }
+}
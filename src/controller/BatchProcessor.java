@@ -0,0 +1,261 @@
+package controller;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiFunction;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import commands.AbstractImageCommand;
+import model.ConcurrentImageModelMap;
+import model.ImageModelMap;
+import model.PPMFormat;
+
+/**
+ * This class represents a run of one script template over every image in a directory. The
+ * template is an ordinary script in which "{in}" stands for the path of an input image,
+ * "{name}" for its file name without the extension, "{ext}" for its extension and "{out}" for
+ * the output directory, so that, for example, "save {out}/{name}-blur.png blurred" saves each
+ * result next to the others under its own name.
+ *
+ * <p>Images are processed on a fixed number of threads, each by its own controller on its own
+ * map, so the names in the template never collide between images. Before an image is loaded,
+ * the memory its script may need is estimated from the image's dimensions and taken from a
+ * shared budget, so large images wait for others to finish rather than run out of heap
+ * together. Results reach the disk through the template's own save commands, and every image
+ * of a file is dropped as soon as its script ends.
+ *
+ * <p>Results shared between identical commands outlive the file that made them, so their cache
+ * is taken out of the budget first. For the length of the run, the cache is held to at most
+ * half of the budget, and the images share what is left.
+ */
+public class BatchProcessor {
+  private static final List<String> EXTENSIONS
+          = Arrays.asList("ppm", "pgm", "png", "jpg", "jpeg", "bmp");
+  private final String template;
+  private final File inputDirectory;
+  private final File outputDirectory;
+  private final int threads;
+  private final int budgetKilobytes;
+  private final BiFunction<Appendable, ImageModelMap, ImageControllerImpl> controllers;
+
+  /**
+   * Constructs a batch that runs a template over a directory of images.
+   *
+   * @param template        the script template run for every image
+   * @param inputDirectory  the directory holding the images
+   * @param outputDirectory the directory that results are saved to, created if it is missing
+   * @param threads         the number of images processed at the same time
+   * @param budget          the number of bytes that the images being processed may take
+   * @param controllers     creates the controller of each image from its output and its map
+   * @throws IllegalArgumentException if any parameter is null, the input is not a directory,
+   *                                  the output directory cannot be created, or the number of
+   *                                  threads or the budget is not positive
+   */
+  public BatchProcessor(String template, File inputDirectory, File outputDirectory, int threads,
+                        long budget,
+                        BiFunction<Appendable, ImageModelMap, ImageControllerImpl> controllers)
+          throws IllegalArgumentException {
+    if (template == null || inputDirectory == null || outputDirectory == null
+            || controllers == null) {
+      throw new IllegalArgumentException("No parameters may contain a null value.");
+    }
+    if (!inputDirectory.isDirectory()) {
+      throw new IllegalArgumentException("Input must be a directory: " + inputDirectory + ".");
+    }
+    if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+      throw new IllegalArgumentException("Output directory could not be created: "
+              + outputDirectory + ".");
+    }
+    if (threads < 1) {
+      throw new IllegalArgumentException("Number of threads must be positive.");
+    }
+    if (budget < 1) {
+      throw new IllegalArgumentException("Memory budget must be positive.");
+    }
+    this.template = template;
+    this.inputDirectory = inputDirectory;
+    this.outputDirectory = outputDirectory;
+    this.threads = threads;
+    this.budgetKilobytes = (int) Math.max(1, Math.min(Integer.MAX_VALUE, budget >> 10));
+    this.controllers = controllers;
+  }
+
+  /**
+   * Runs the template over every image in the input directory, in order of file name. The
+   * messages of each image are written to the output together, as soon as its script ends.
+   *
+   * @param output the output that messages are written to
+   * @return the number of images processed
+   * @throws IllegalArgumentException if the output is null
+   * @throws IllegalStateException    if writing to the output fails
+   */
+  public int run(Appendable output) throws IllegalArgumentException, IllegalStateException {
+    if (output == null) {
+      throw new IllegalArgumentException("No parameters may contain a null value.");
+    }
+    List<File> files = new ArrayList<>();
+    File[] listed = this.inputDirectory.listFiles();
+    for (File file : listed == null ? new File[0] : listed) {
+      if (file.isFile() && EXTENSIONS.contains(extension(file.getName()))) {
+        files.add(file);
+      }
+    }
+    files.sort(null);
+
+    long cacheBudget = AbstractImageCommand.getResultCacheBudget();
+    int cacheKilobytes = (int) Math.min(cacheBudget >> 10, this.budgetKilobytes / 2);
+    AbstractImageCommand.setResultCacheBudget((long) cacheKilobytes << 10);
+    int imageKilobytes = this.budgetKilobytes - cacheKilobytes;
+    Semaphore memory = new Semaphore(imageKilobytes);
+    ExecutorService pool = Executors.newFixedThreadPool(this.threads, runnable -> {
+      Thread thread = new Thread(runnable, "image-batch");
+      thread.setDaemon(true);
+      return thread;
+    });
+    List<Future<?>> results = new ArrayList<>();
+    try {
+      for (File file : files) {
+        results.add(pool.submit(() -> {
+          process(file, memory, imageKilobytes, output);
+          return null;
+        }));
+      }
+      for (Future<?> result : results) {
+        result.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Batch was interrupted.");
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause().getMessage());
+    } finally {
+      pool.shutdownNow();
+      AbstractImageCommand.setResultCacheBudget(cacheBudget);
+    }
+    return files.size();
+  }
+
+  /**
+   * Runs the template over one image once the memory it may need is available, and writes its
+   * messages to the output.
+   *
+   * @param file           the image
+   * @param memory         the kilobytes of the budget that are not taken
+   * @param imageKilobytes the kilobytes of the budget that images may take in all
+   * @param output         the output that messages are written to
+   * @throws InterruptedException  if the thread is interrupted while waiting for memory
+   * @throws IllegalStateException if writing to the output fails
+   */
+  private void process(File file, Semaphore memory, int imageKilobytes, Appendable output)
+          throws InterruptedException, IllegalStateException {
+    String name = file.getName();
+    String script = this.template
+            .replace("{in}", file.getPath())
+            .replace("{name}", name.substring(0, name.length() - extension(name).length() - 1))
+            .replace("{ext}", extension(name))
+            .replace("{out}", this.outputDirectory.getPath());
+    int kilobytes = (int) Math.min(imageKilobytes,
+            estimateBytes(file) * Math.max(1, imagesCreated(script)) >> 10);
+    StringBuilder messages = new StringBuilder("== " + name + " ==\n");
+    memory.acquire(kilobytes);
+    try {
+      this.controllers.apply(messages, new ConcurrentImageModelMap())
+              .run(new StringReader(script), false);
+    } catch (IllegalStateException e) {
+      messages.append(e.getMessage()).append('\n');
+    } finally {
+      memory.release(kilobytes);
+    }
+    synchronized (output) {
+      try {
+        output.append(messages);
+      } catch (IOException e) {
+        throw new IllegalStateException("Writing to output stream failed.");
+      }
+    }
+  }
+
+  /**
+   * Counts the commands of a script that create an image, each of which may hold an image as
+   * large as the input until the script ends.
+   *
+   * @param script the script
+   * @return the number of commands that create an image
+   */
+  private static int imagesCreated(String script) {
+    int count = 0;
+    Iterator<String> lines = script.lines().iterator();
+    while (lines.hasNext()) {
+      Scanner line = new Scanner(lines.next());
+      if (line.hasNext()) {
+        String command = line.next().toLowerCase(Locale.ROOT);
+        if (!Arrays.asList("save", "save-raw", "pipeline", "region", "stats", "q")
+                .contains(command)) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Estimates the bytes that one copy of an image takes once loaded, at four bytes per pixel,
+   * from the dimensions in its header. Files whose header cannot be read are charged their
+   * size on disk.
+   *
+   * @param file the image file
+   * @return the estimated number of bytes
+   */
+  private static long estimateBytes(File file) {
+    String extension = extension(file.getName());
+    try (InputStream in = new FileInputStream(file)) {
+      if (extension.equals("ppm") || extension.equals("pgm")) {
+        int[] dimensions = PPMFormat.readDimensions(in);
+        return 4L * dimensions[0] * dimensions[1];
+      }
+      try (ImageInputStream stream = ImageIO.createImageInputStream(in)) {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+        if (readers.hasNext()) {
+          ImageReader reader = readers.next();
+          try {
+            reader.setInput(stream);
+            return 4L * reader.getHeight(0) * reader.getWidth(0);
+          } finally {
+            reader.dispose();
+          }
+        }
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      // Charged its size on disk below.
+    }
+    return file.length();
+  }
+
+  /**
+   * Gets the extension of a file name, in lower case.
+   *
+   * @param name the file name
+   * @return the text after the last dot, or an empty string if there is none
+   */
+  private static String extension(String name) {
+    int dot = name.lastIndexOf('.');
+    return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+  }
+}
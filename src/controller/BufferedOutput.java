@@ -0,0 +1,70 @@
+package controller;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * This class represents the output that a controller's commands write to. It passes everything
+ * through to the real output, except while a thread is running a step of a scheduled script:
+ * what that step writes is then held in a buffer of its own, so that the outputs of steps
+ * running at the same time can be written in script order once they are done.
+ */
+class BufferedOutput implements Appendable {
+  private final Appendable output;
+  private final ThreadLocal<StringBuilder> buffer;
+
+  /**
+   * Constructs a buffered output in front of a given output.
+   *
+   * @param output the output that everything is finally written to
+   */
+  BufferedOutput(Appendable output) {
+    this.output = Objects.requireNonNull(output);
+    this.buffer = new ThreadLocal<>();
+  }
+
+  /**
+   * Runs some work on the calling thread with everything it writes held in a new buffer.
+   *
+   * @param work the work to run
+   * @return what the work wrote
+   */
+  String buffer(Runnable work) {
+    StringBuilder written = new StringBuilder();
+    this.buffer.set(written);
+    try {
+      work.run();
+    } finally {
+      this.buffer.remove();
+    }
+    return written.toString();
+  }
+
+  @Override
+  public Appendable append(CharSequence csq) throws IOException {
+    target().append(csq);
+    return this;
+  }
+
+  @Override
+  public Appendable append(CharSequence csq, int start, int end) throws IOException {
+    target().append(csq, start, end);
+    return this;
+  }
+
+  @Override
+  public Appendable append(char c) throws IOException {
+    target().append(c);
+    return this;
+  }
+
+  /**
+   * Gets where the calling thread's writes go.
+   *
+   * @return the buffer of the calling thread if it has one, and the real output otherwise
+   */
+  private Appendable target() {
+    StringBuilder written = this.buffer.get();
+    return written == null ? this.output : written;
+  }
+}
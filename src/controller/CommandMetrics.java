@@ -0,0 +1,262 @@
+package controller;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import model.ImageModelMap;
+import model.RowExecutor;
+
+/**
+ * This class represents the metrics of the commands that a controller runs. For every command
+ * it keeps the number of runs, a histogram of latencies, the pixels processed and the bytes
+ * allocated. Latencies are counted in buckets that grow with the latency, so that every
+ * latency is kept to within about three percent in a fixed amount of memory.
+ *
+ * <p>Allocation is counted on the thread that runs a command and in the bands of rows that it
+ * hands to worker threads, as measured by {@link RowExecutor#allocatedBytes(Runnable)}, so
+ * commands that run at the same time are each charged only what they allocate themselves.
+ *
+ * <p>Metrics that are registered for JMX or written to a file periodically should be closed
+ * once their controller finishes, which writes the last report and releases both.
+ */
+public class CommandMetrics implements CommandMetricsMBean {
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS;
+  private static final AtomicInteger REGISTRATIONS = new AtomicInteger();
+  private final ImageModelMap imageModelMap;
+  private final Map<String, Timings> timings;
+  private ObjectName registeredName;
+  private ScheduledExecutorService dumper;
+  private File dumpFile;
+
+  /**
+   * Constructs empty metrics for the commands run on a given map of images.
+   *
+   * @param imageModelMap the map of images that the commands run on
+   */
+  CommandMetrics(ImageModelMap imageModelMap) {
+    this.imageModelMap = imageModelMap;
+    this.timings = new TreeMap<>();
+  }
+
+  /**
+   * Records one run of a command.
+   *
+   * @param command   the name of the command
+   * @param nanos     how long the command took in nanoseconds
+   * @param pixels    the number of pixels in the image the command created or saved
+   * @param allocated the number of bytes allocated while the command ran
+   */
+  synchronized void record(String command, long nanos, long pixels, long allocated) {
+    Timings timing = this.timings.computeIfAbsent(command, key -> new Timings());
+    timing.counts[bucket(Math.max(0, nanos))]++;
+    timing.count++;
+    timing.totalNanos += nanos;
+    timing.maxNanos = Math.max(timing.maxNanos, nanos);
+    timing.pixels += pixels;
+    timing.allocated += Math.max(0, allocated);
+  }
+
+  @Override
+  public synchronized long getCommandCount() {
+    long count = 0;
+    for (Timings timing : this.timings.values()) {
+      count += timing.count;
+    }
+    return count;
+  }
+
+  @Override
+  public int getImageCount() {
+    return this.imageModelMap.size();
+  }
+
+  @Override
+  public synchronized String getReport() {
+    StringBuilder report = new StringBuilder(String.format(
+            "%-20s %8s %10s %10s %10s %10s %12s %12s%n", "command", "runs", "p50 ms",
+            "p90 ms", "p99 ms", "max ms", "Mpx/s", "MB/run"));
+    for (Map.Entry<String, Timings> entry : this.timings.entrySet()) {
+      Timings timing = entry.getValue();
+      double seconds = timing.totalNanos / 1e9;
+      report.append(String.format("%-20s %8d %10.2f %10.2f %10.2f %10.2f %12.2f %12.2f%n",
+              entry.getKey(), timing.count, percentile(timing, 50) / 1e6,
+              percentile(timing, 90) / 1e6, percentile(timing, 99) / 1e6,
+              timing.maxNanos / 1e6, seconds == 0 ? 0 : timing.pixels / seconds / 1e6,
+              timing.allocated / (double) timing.count / (1 << 20)));
+    }
+    report.append("images: ").append(getImageCount()).append('\n');
+    return report.toString();
+  }
+
+  @Override
+  public synchronized double latencyMillis(String command, double percentile) {
+    Timings timing = this.timings.get(command);
+    return timing == null ? 0 : percentile(timing, percentile) / 1e6;
+  }
+
+  @Override
+  public synchronized void reset() {
+    this.timings.clear();
+  }
+
+  /**
+   * Registers the metrics with the platform's management server under
+   * "imageprocessor:type=CommandMetrics,id=" followed by a number of their own, so that the
+   * metrics of several controllers in one program never clash. The metrics are unregistered
+   * when they are closed.
+   *
+   * @return the name the metrics are registered under
+   * @throws IllegalStateException if the metrics are already registered or cannot be
+   *                               registered
+   */
+  public synchronized ObjectName register() throws IllegalStateException {
+    if (this.registeredName != null) {
+      throw new IllegalStateException("Metrics are already registered.");
+    }
+    try {
+      ObjectName name = new ObjectName("imageprocessor:type=CommandMetrics,id="
+              + REGISTRATIONS.incrementAndGet());
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+      this.registeredName = name;
+      return name;
+    } catch (JMException e) {
+      throw new IllegalStateException("Metrics could not be registered.");
+    }
+  }
+
+  /**
+   * Writes the report to a given file every given number of seconds, on a daemon thread, until
+   * the metrics are closed. Each report replaces the last one, and any earlier periodic report
+   * is stopped.
+   *
+   * @param file    the file to write the report to
+   * @param seconds the number of seconds between reports
+   * @throws IllegalArgumentException if the file is null or the period is not positive
+   */
+  public synchronized void dumpEvery(File file, long seconds) throws IllegalArgumentException {
+    if (file == null || seconds <= 0) {
+      throw new IllegalArgumentException("Metrics must be written to a file at a positive "
+              + "period.");
+    }
+    if (this.dumper != null) {
+      this.dumper.shutdownNow();
+    }
+    this.dumpFile = file;
+    this.dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "command-metrics");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.dumper.scheduleAtFixedRate(() -> writeReport(file), seconds, seconds,
+            TimeUnit.SECONDS);
+  }
+
+  /**
+   * Stops writing the report periodically, after writing it one last time, and unregisters
+   * the metrics from the management server. The metrics can still be recorded and read.
+   */
+  public synchronized void close() {
+    if (this.dumper != null) {
+      this.dumper.shutdownNow();
+      this.dumper = null;
+      writeReport(this.dumpFile);
+    }
+    if (this.registeredName != null) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.registeredName);
+      } catch (JMException ignored) {
+        // Already gone from the server.
+      }
+      this.registeredName = null;
+    }
+  }
+
+  /**
+   * Writes the report to a given file, replacing what it held.
+   *
+   * @param file the file to write the report to
+   */
+  private synchronized void writeReport(File file) {
+    try (Writer writer = new FileWriter(file)) {
+      writer.write(getReport());
+    } catch (IOException ignored) {
+      // A periodic report tries again at the next period.
+    }
+  }
+
+  /**
+   * Gets the bucket that a latency is counted in. Latencies below the number of sub-buckets
+   * have a bucket each, and every doubling above that is split into that many buckets.
+   *
+   * @param nanos the latency in nanoseconds
+   * @return the index of the bucket
+   */
+  private static int bucket(long nanos) {
+    if (nanos < SUB_BUCKETS) {
+      return (int) nanos;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+    int shift = exponent - SUB_BUCKET_BITS;
+    return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+  }
+
+  /**
+   * Gets the smallest latency that is counted in a given bucket.
+   *
+   * @param bucket the index of the bucket
+   * @return the latency in nanoseconds
+   */
+  private static long lowestLatency(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+    return (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << shift;
+  }
+
+  /**
+   * Gets the latency of a command at a given percentile, as the highest latency of the bucket
+   * it falls in but never more than the command's longest latency.
+   *
+   * @param timing     the timings of the command
+   * @param percentile the percentile, from 0 to 100
+   * @return the latency in nanoseconds
+   */
+  private static long percentile(Timings timing, double percentile) {
+    long rank = Math.max(1, (long) Math.ceil(timing.count * percentile / 100));
+    long seen = 0;
+    for (int k = 0; k < BUCKETS; k++) {
+      seen += timing.counts[k];
+      if (seen >= rank) {
+        return Math.min(timing.maxNanos, lowestLatency(k + 1) - 1);
+      }
+    }
+    return timing.maxNanos;
+  }
+
+  /**
+   * This class represents everything recorded about one command.
+   */
+  private static class Timings {
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+    private long pixels;
+    private long allocated;
+  }
+}
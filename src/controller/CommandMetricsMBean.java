@@ -0,0 +1,41 @@
+package controller;
+
+/**
+ * This interface represents what the command metrics of a controller expose through JMX.
+ */
+public interface CommandMetricsMBean {
+  /**
+   * Gets the number of commands that have been run.
+   *
+   * @return the number of commands run
+   */
+  long getCommandCount();
+
+  /**
+   * Gets the number of images in the controller's map.
+   *
+   * @return the number of images
+   */
+  int getImageCount();
+
+  /**
+   * Gets a table of the metrics of every command that has been run.
+   *
+   * @return the table, one line per command
+   */
+  String getReport();
+
+  /**
+   * Gets the latency of a given command at a given percentile.
+   *
+   * @param command    the name of the command
+   * @param percentile the percentile, from 0 to 100
+   * @return the latency in milliseconds, or 0 if the command has not been run
+   */
+  double latencyMillis(String command, double percentile);
+
+  /**
+   * Forgets every metric recorded so far.
+   */
+  void reset();
+}
@@ -0,0 +1,147 @@
+package controller;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+
+import commands.CommandRecord;
+
+/**
+ * This class represents a trace of the commands that a controller runs, written as Chrome
+ * trace events that timeline and flame graph viewers can load. Every command becomes one
+ * complete event on the thread that ran it, with its start and duration in microseconds since
+ * the trace began, the images or files it read and wrote, the size of its result and whether
+ * that result was reused from an identical earlier command.
+ *
+ * <p>Events are written and flushed as soon as their command ends, so a trace of a program that
+ * is stopped early holds every command that finished; viewers accept the event list without its
+ * closing bracket, which is only written when the trace is closed.
+ */
+public class CommandTrace implements Closeable {
+  private final Writer writer;
+  private final long origin;
+  private final Set<Long> namedThreads;
+  private boolean first;
+
+  /**
+   * Constructs a trace that writes its events to a given writer, starting now.
+   *
+   * @param writer the writer that the events are written to
+   * @throws IllegalArgumentException if the writer is null
+   * @throws IllegalStateException    if writing to the writer fails
+   */
+  public CommandTrace(Writer writer) throws IllegalArgumentException, IllegalStateException {
+    if (writer == null) {
+      throw new IllegalArgumentException("No parameters may contain a null value.");
+    }
+    this.writer = writer;
+    this.origin = System.nanoTime();
+    this.namedThreads = new HashSet<>();
+    this.first = true;
+    try {
+      this.writer.write("[");
+    } catch (IOException e) {
+      throw new IllegalStateException("Writing to trace failed.");
+    }
+  }
+
+  /**
+   * Writes the event of a command that ended on the calling thread.
+   *
+   * @param command    the name of the command
+   * @param startNanos when the command started, as given by {@link System#nanoTime()}
+   * @param endNanos   when the command ended, as given by {@link System#nanoTime()}
+   * @param record     what the command did, or null if it created or saved nothing
+   * @throws IllegalStateException if writing to the trace fails
+   */
+  synchronized void record(String command, long startNanos, long endNanos, CommandRecord record)
+          throws IllegalStateException {
+    Thread thread = Thread.currentThread();
+    long id = thread.getId();
+    StringBuilder events = new StringBuilder();
+    if (this.namedThreads.add(id)) {
+      appendEvent(events).append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":")
+              .append(id).append(",\"args\":{\"name\":");
+      quote(events, thread.getName()).append("}}");
+    }
+    appendEvent(events).append("{\"name\":");
+    quote(events, command).append(",\"cat\":\"command\",\"ph\":\"X\",\"ts\":")
+            .append(micros(startNanos)).append(",\"dur\":")
+            .append(micros(endNanos) - micros(startNanos)).append(",\"pid\":1,\"tid\":")
+            .append(id).append(",\"args\":{");
+    if (record != null) {
+      events.append("\"inputs\":[");
+      String[] inputs = record.getInputs();
+      for (int k = 0; k < inputs.length; k++) {
+        quote(events.append(k == 0 ? "" : ","), inputs[k]);
+      }
+      quote(events.append("],\"output\":"), record.getOutput()).append(",\"height\":")
+              .append(record.getHeight()).append(",\"width\":").append(record.getWidth())
+              .append(",\"cache\":\"").append(record.isReused() ? "hit" : "miss").append('"');
+    }
+    events.append("}}");
+    try {
+      this.writer.write(events.toString());
+      this.writer.flush();
+    } catch (IOException e) {
+      throw new IllegalStateException("Writing to trace failed.");
+    }
+  }
+
+  /**
+   * Ends the list of events and closes the writer.
+   *
+   * @throws IOException if writing to or closing the writer fails
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    this.writer.write("\n]\n");
+    this.writer.close();
+  }
+
+  /**
+   * Starts a new event in a list of events, after a separator unless it is the first.
+   *
+   * @param events the list of events
+   * @return the list of events
+   */
+  private StringBuilder appendEvent(StringBuilder events) {
+    events.append(this.first ? "\n" : ",\n");
+    this.first = false;
+    return events;
+  }
+
+  /**
+   * Gets the number of microseconds between the start of the trace and a given time.
+   *
+   * @param nanos the time, as given by {@link System#nanoTime()}
+   * @return the number of microseconds since the trace started
+   */
+  private long micros(long nanos) {
+    return (nanos - this.origin) / 1000;
+  }
+
+  /**
+   * Appends a string as a quoted JSON string.
+   *
+   * @param builder the builder to append to
+   * @param text    the string to quote
+   * @return the builder
+   */
+  private static StringBuilder quote(StringBuilder builder, String text) {
+    builder.append('"');
+    for (int k = 0; k < text.length(); k++) {
+      char c = text.charAt(k);
+      if (c == '"' || c == '\\') {
+        builder.append('\\').append(c);
+      } else if (c < 0x20) {
+        builder.append(String.format("\\u%04x", (int) c));
+      } else {
+        builder.append(c);
+      }
+    }
+    return builder.append('"');
+  }
+}
@@ -3,37 +3,84 @@ package controller;
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
+import javax.swing.SwingUtilities;
+
+import commands.AbstractImageCommand;
 import commands.BlueGreyscale;
 import commands.BlurFilter;
+import commands.BoxBlur;
 import commands.Brighten;
+import commands.ColorCommand;
+import commands.ColorMatrixTransformation;
+import commands.CommandRecord;
 import commands.GreenGreyscale;
 import commands.HorizontalFlip;
 import commands.ImageCommand;
 import commands.IntensityGreyscale;
+import commands.KernelFilter;
 import commands.LoadImage;
 import commands.LumaGreyscale;
 import commands.Mosaic;
 import commands.RedGreyscale;
 import commands.SaveImage;
 import commands.MaxValueGreyscale;
+import commands.RegionCommand;
 import commands.SepiaTone;
 import commands.SharpenFilter;
 import commands.VerticalFlip;
+import model.ImageModel;
 import model.ImageModelMap;
+import model.Progress;
+import model.RowExecutor;
 import view.ImageModelView;
 
 /**
  * This class represents an object of an image controller which can take in and perform
  * operations on multiple different objects of image models.
+ *
+ * <p>Operations submitted by a GUI view run in the background on a pool of worker threads.
+ * Their commands work on a staging map, so the images they create are only added to the real
+ * map, on the thread that results are published on, once the whole operation completes. A
+ * cancelled or failed operation leaves the real map unchanged.
+ *
+ * <p>A "region row col height width" command makes the next command compute only that region
+ * of its result, which is how previews avoid computing whole images. The region applies only
+ * to commands given on the same thread.
+ *
+ * <p>A script can also be scheduled as a whole, in which case commands that do not depend on
+ * each other run at the same time while the output stays in script order.
+ *
+ * <p>Every command that runs is timed and counted in the controller's metrics, which a "stats"
+ * command writes to the output. Commands can also be traced, one event each, to be viewed on a
+ * timeline.
  */
 public class ImageControllerImpl implements ImageController, ViewListener {
   protected final Appendable output;
   protected final Map<String, Function<Scanner, ImageCommand>> commandMap;
+  protected final ImageModelMap imageModelMap;
+  protected volatile boolean pipelined;
+  private final BufferedOutput bufferedOutput;
+  private final StagingImageModelMap stagingMap;
+  private final Set<Progress> runningOperations;
+  private final ThreadLocal<int[]> region;
+  private final CommandMetrics metrics;
+  private volatile CommandTrace trace;
+  private Executor publisher;
+  private ExecutorService workers;
 
   /**
    * Constructs a default image controller that writes to System.out as the output.
@@ -56,6 +103,7 @@ public class ImageControllerImpl implements ImageController, ViewListener {
     if (view == null) {
       throw new IllegalArgumentException("No parameters may contain a null value.");
     }
+    this.publisher = SwingUtilities::invokeLater;
     view.registerViewListener(this);
   }
 
@@ -72,38 +120,96 @@ public class ImageControllerImpl implements ImageController, ViewListener {
     if (output == null || imageModelMap == null) {
       throw new IllegalArgumentException("No parameters may contain a null value.");
     }
-    this.output = output;
+    this.bufferedOutput = new BufferedOutput(output);
+    this.output = this.bufferedOutput;
+    this.stagingMap = new StagingImageModelMap(imageModelMap);
+    this.imageModelMap = this.stagingMap;
+    this.runningOperations = ConcurrentHashMap.newKeySet();
+    this.region = new ThreadLocal<>();
+    this.metrics = new CommandMetrics(imageModelMap);
+    this.publisher = Runnable::run;
     this.commandMap = new HashMap<>();
     this.commandMap.putIfAbsent("load",
-        s -> (new LoadImage(this.output, imageModelMap, s)));
+        s -> (new LoadImage(this.output, this.imageModelMap, s)));
     this.commandMap.putIfAbsent("red-component",
-        s -> (new RedGreyscale(this.output, imageModelMap, s)));
+        s -> (new RedGreyscale(this.output, this.imageModelMap, s)));
     this.commandMap.putIfAbsent("green-component",
-        s -> (new GreenGreyscale(this.output, imageModelMap, s)));
+        s -> (new GreenGreyscale(this.output, this.imageModelMap, s)));
     this.commandMap.putIfAbsent("blue-component",
-        s -> (new BlueGreyscale(this.output, imageModelMap, s)));
+        s -> (new BlueGreyscale(this.output, this.imageModelMap, s)));
     this.commandMap.putIfAbsent("maxvalue-component",
-        s -> (new MaxValueGreyscale(this.output, imageModelMap, s)));
+        s -> (new MaxValueGreyscale(this.output, this.imageModelMap, s)));
     this.commandMap.putIfAbsent("luma-component",
-        s -> (new LumaGreyscale(this.output, imageModelMap, s)));
+        s -> (new LumaGreyscale(this.output, this.imageModelMap, s)));
     this.commandMap.putIfAbsent("intensity-component",
-        s -> (new IntensityGreyscale(this.output, imageModelMap, s)));
+        s -> (new IntensityGreyscale(this.output, this.imageModelMap, s)));
     this.commandMap.putIfAbsent("sepia-tone",
-        s -> (new SepiaTone(this.output, imageModelMap, s)));
+        s -> (new SepiaTone(this.output, this.imageModelMap, s)));
+    this.commandMap.putIfAbsent("color-matrix",
+        s -> (new ColorMatrixTransformation(this.output, this.imageModelMap, s)));
     this.commandMap.putIfAbsent("horizontal-flip",
-        s -> (new HorizontalFlip(this.output, imageModelMap, s)));
+        s -> (new HorizontalFlip(this.output, this.imageModelMap, s)));
     this.commandMap.putIfAbsent("vertical-flip",
-        s -> (new VerticalFlip(this.output, imageModelMap, s)));
+        s -> (new VerticalFlip(this.output, this.imageModelMap, s)));
     this.commandMap.putIfAbsent("brighten",
-        s -> (new Brighten(this.output, imageModelMap, s)));
+        s -> (new Brighten(this.output, this.imageModelMap, s)));
     this.commandMap.putIfAbsent("blur",
-        s -> (new BlurFilter(this.output, imageModelMap, s)));
+        s -> (new BlurFilter(this.output, this.imageModelMap, s)));
     this.commandMap.putIfAbsent("sharpen",
-        s -> (new SharpenFilter(this.output, imageModelMap, s)));
+        s -> (new SharpenFilter(this.output, this.imageModelMap, s)));
+    this.commandMap.putIfAbsent("box-blur",
+        s -> (new BoxBlur(this.output, this.imageModelMap, s)));
+    this.commandMap.putIfAbsent("kernel",
+        s -> (new KernelFilter(this.output, this.imageModelMap, s)));
     this.commandMap.putIfAbsent("mosaic-effect",
-        s -> (new Mosaic(this.output, imageModelMap, s)));
+        s -> (new Mosaic(this.output, this.imageModelMap, s)));
     this.commandMap.putIfAbsent("save",
-        s -> (new SaveImage(this.output, imageModelMap, s)));
+        s -> (new SaveImage(this.output, this.imageModelMap, s)));
+    this.commandMap.putIfAbsent("save-raw",
+        s -> (new SaveImage(this.output, this.imageModelMap, s, true)));
+    this.commandMap.putIfAbsent("pipeline", s -> {
+      this.pipelined = s.next().equalsIgnoreCase("on");
+      return null;
+    });
+    this.commandMap.putIfAbsent("region", s -> {
+      int[] bounds = new int[4];
+      try {
+        for (int k = 0; k < bounds.length; k++) {
+          bounds[k] = Integer.parseInt(s.next());
+        }
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("<html>Region must be given<br/>" +
+                "as four integers.</html>");
+      }
+      this.region.set(bounds);
+      return null;
+    });
+    this.commandMap.putIfAbsent("stats", s -> {
+      try {
+        this.output.append(this.metrics.getReport());
+      } catch (IOException e) {
+        throw new IllegalStateException("Writing to output stream failed.");
+      }
+      return null;
+    });
+  }
+
+  /**
+   * Gets the metrics of the commands that this controller has run.
+   *
+   * @return the metrics of this controller's commands
+   */
+  public CommandMetrics getMetrics() {
+    return this.metrics;
+  }
+
+  /**
+   * Sets the trace that every command this controller runs from now on is written to.
+   *
+   * @param trace the trace to write commands to, or null to stop tracing
+   */
+  public void setTrace(CommandTrace trace) {
+    this.trace = trace;
   }
 
   /**
@@ -127,11 +233,19 @@ public class ImageControllerImpl implements ImageController, ViewListener {
                 "2. Color Transformations (operation name new-name)\n" +
                 "   These operations include red-component, green-component, blue-component,\n" +
                 "   maxvalue-component, luma-component, intensity-component, and sepia-tone.\n" +
+                "   Other 3x3 color matrices use (color-matrix nine-values name new-name).\n" +
                 "3. Image Flipping (operation name new-name)\n" +
                 "   These operations include horizontal-flip and vertical-flip.\n" +
                 "4. Image Filtering (operation name new-name)\n" +
                 "   These operations include blur-filter and sharpen-filter.\n" +
-                "5. Image Saving (save to-filepath name)\n");
+                "   Box blurs use (box-blur radius name new-name), and kernels read from\n" +
+                "   a file use (kernel kernel-filepath name new-name).\n" +
+                "5. Image Saving (save to-filepath name)\n" +
+                "   PPM files are written in raw binary form with (save-raw to-filepath name).\n" +
+                "6. Settings\n" +
+                "   (pipeline on) defers chains of color transformations until they are read,\n" +
+                "   (region row col height width) makes the next command compute only a region,\n" +
+                "   and (stats) prints the latency and throughput of every command run so far.\n");
       }
 
       while (scanner.hasNext()) {
@@ -154,6 +268,40 @@ public class ImageControllerImpl implements ImageController, ViewListener {
     }
   }
 
+  /**
+   * Runs a whole script, running commands that do not depend on each other at the same time
+   * on a given number of threads. Commands read and write images and files exactly as they
+   * would running in order, and their output is written in script order.
+   *
+   * @param input   the script to run
+   * @param threads the number of threads to run commands on
+   * @throws IllegalArgumentException if the input is null or the number of threads is not
+   *                                  positive
+   * @throws IllegalStateException    if writing to the output stream fails
+   */
+  public void runScheduled(Readable input, int threads)
+          throws IllegalArgumentException, IllegalStateException {
+    if (input == null) {
+      throw new IllegalArgumentException("No parameters may contain a null value.");
+    }
+    if (threads < 1) {
+      throw new IllegalArgumentException("Number of threads must be positive.");
+    }
+    Set<String> imageCommands = new HashSet<>(this.commandMap.keySet());
+    imageCommands.remove("pipeline");
+    imageCommands.remove("region");
+    imageCommands.remove("stats");
+    ScriptScheduler script = new ScriptScheduler(input, imageCommands);
+    try {
+      script.run(threads, this::runStep, this.output);
+      if (script.isQuit()) {
+        this.output.append("Thank you for using the Image Processor!");
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Writing to output stream failed.");
+    }
+  }
+
   /**
    * Executes the command for an interaction with the GUI view that triggered an action event.
    *
@@ -166,14 +314,145 @@ public class ImageControllerImpl implements ImageController, ViewListener {
     Readable commandParameters = new StringReader(Objects.requireNonNull(parameters));
     Scanner scanner = new Scanner(commandParameters);
 
-    while (scanner.hasNext()) {
-      String stringCommand = scanner.next();
+    try {
+      while (scanner.hasNext()) {
+        String stringCommand = scanner.next();
+        try {
+          executeCommand(scanner, stringCommand);
+        } catch (IllegalArgumentException e) {
+          throw new IllegalArgumentException(e.getMessage());
+        }
+      }
+    } finally {
+      this.region.remove();
+    }
+  }
+
+  /**
+   * Executes the command for an interaction with the GUI view on a worker thread. Progress is
+   * reported whenever another percent of the rows started so far is completed, and every
+   * report, like the final result, is published on the controller's publishing thread.
+   *
+   * @param parameters the parameters to be scanned by the command function object when
+   *                   performing the operation on an image model
+   * @param listener   the listener told how the operation progresses and ends
+   */
+  @Override
+  public void viewActionSubmitted(String parameters, OperationListener listener) {
+    Objects.requireNonNull(parameters);
+    Objects.requireNonNull(listener);
+    AtomicInteger reportedPercent = new AtomicInteger(-1);
+    Progress progress = new Progress((completedRows, totalRows) -> {
+      int percent = (int) (100 * completedRows / Math.max(1, totalRows));
+      if (reportedPercent.getAndSet(percent) != percent) {
+        this.publisher.execute(() -> listener.operationProgressed(completedRows, totalRows));
+      }
+    });
+    this.runningOperations.add(progress);
+    workers().execute(() -> {
+      Map<String, ImageModel> created = new LinkedHashMap<>();
       try {
-        executeCommand(scanner, stringCommand);
-      } catch (IllegalArgumentException e) {
-        throw new IllegalArgumentException(e.getMessage());
+        this.stagingMap.stage(created, () -> progress.run(() -> viewActionPerformed(parameters)));
+        this.publisher.execute(() -> complete(progress, created, listener));
+      } catch (CancellationException e) {
+        this.publisher.execute(listener::operationCancelled);
+      } catch (RuntimeException e) {
+        if (progress.isCancelled()) {
+          this.publisher.execute(listener::operationCancelled);
+        } else {
+          this.publisher.execute(() -> listener.operationFailed(e.getMessage()));
+        }
+      } finally {
+        this.runningOperations.remove(progress);
       }
+    });
+  }
+
+  /**
+   * Cancels every operation that is running in the background, so that none of their results
+   * are added.
+   */
+  @Override
+  public void cancelOperations() {
+    for (Progress progress : this.runningOperations) {
+      progress.cancel();
+    }
+  }
+
+  /**
+   * Sets the executor that progress and results of background operations are published
+   * through.
+   *
+   * @param publisher the executor that runs every report and adds every result
+   * @throws IllegalArgumentException if the executor is null
+   */
+  public void setPublisher(Executor publisher) throws IllegalArgumentException {
+    if (publisher == null) {
+      throw new IllegalArgumentException("No parameters may contain a null value.");
+    }
+    this.publisher = publisher;
+  }
+
+  /**
+   * Adds the images created by a background operation to the image models, unless it was
+   * cancelled while it finished, and tells its listener how it ended.
+   *
+   * @param progress the progress of the operation
+   * @param created  the images created by the operation, in the order they were created
+   * @param listener the listener told how the operation ended
+   */
+  private void complete(Progress progress, Map<String, ImageModel> created,
+                        OperationListener listener) {
+    if (progress.isCancelled()) {
+      listener.operationCancelled();
+      return;
     }
+    this.stagingMap.publish(created);
+    listener.operationCompleted();
+  }
+
+  /**
+   * Gets the pool of worker threads that background operations run on, creating it the first
+   * time it is needed. The threads are daemons, so they never keep the program running.
+   *
+   * @return the pool of worker threads
+   */
+  private synchronized ExecutorService workers() {
+    if (this.workers == null) {
+      this.workers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "image-operation");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return this.workers;
+  }
+
+  /**
+   * Runs one step of a scheduled script on the calling thread, handling illegal parameters the
+   * same way as running commands in order does.
+   *
+   * @param text the text of the step
+   * @return what the step wrote to the output
+   */
+  private String runStep(String text) {
+    return this.bufferedOutput.buffer(() -> {
+      Scanner scanner = new Scanner(text);
+      try {
+        while (scanner.hasNext()) {
+          try {
+            executeCommand(scanner, scanner.next());
+          } catch (IllegalArgumentException e) {
+            this.output.append("Please ensure that integer parameters are inputted in integer"
+                    + " form and within their designated boundaries.\n");
+          }
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("Writing to output stream failed.");
+      } finally {
+        this.region.remove();
+      }
+    });
   }
 
   /**
@@ -189,10 +468,28 @@ public class ImageControllerImpl implements ImageController, ViewListener {
             = this.commandMap.getOrDefault(stringCommand.toLowerCase(), null);
     if (function != null) {
       ImageCommand command = function.apply(scanner);
+      if (command instanceof ColorCommand) {
+        ((ColorCommand) command).setPipelined(this.pipelined);
+      }
       if (command != null) {
+        int[] bounds = this.region.get();
+        this.region.remove();
         try {
-          command.edit();
+          if (bounds != null && command instanceof RegionCommand) {
+            ((RegionCommand) command).setRegion(bounds[0], bounds[1], bounds[2], bounds[3]);
+          }
+          long start = System.nanoTime();
+          long allocated = RowExecutor.allocatedBytes(command::edit);
+          long end = System.nanoTime();
+          CommandRecord record = AbstractImageCommand.takeRecord();
+          this.metrics.record(stringCommand.toLowerCase(), end - start,
+                  record == null ? 0 : record.getPixels(), allocated);
+          CommandTrace commandTrace = this.trace;
+          if (commandTrace != null) {
+            commandTrace.record(stringCommand.toLowerCase(), start, end, record);
+          }
         } catch (IllegalArgumentException e) {
+          AbstractImageCommand.takeRecord();
           throw new IllegalArgumentException(e.getMessage());
         }
       }
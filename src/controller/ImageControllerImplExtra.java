@@ -46,8 +46,8 @@ public class ImageControllerImplExtra extends ImageControllerImpl {
           throws IllegalArgumentException {
     super(output, imageModelMap);
     this.commandMap.putIfAbsent("mosaic",
-            s -> (new Mosaic(this.output, imageModelMap, s)));
+            s -> (new Mosaic(this.output, this.imageModelMap, s)));
     this.commandMap.putIfAbsent("downscale",
-            s -> (new Downscale(this.output, imageModelMap, s)));
+            s -> (new Downscale(this.output, this.imageModelMap, s)));
   }
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package controller;
+
+/**
+ * This interface represents a listener told how an operation submitted to run in the
+ * background is progressing and how it ends. Every method is called on the thread that the
+ * controller publishes its results on, which for a GUI view is the event dispatch thread.
+ */
+public interface OperationListener {
+  /**
+   * Reports the rows completed so far out of the rows the operation has started.
+   *
+   * @param completedRows the number of rows completed
+   * @param totalRows     the number of rows started so far
+   */
+  void operationProgressed(long completedRows, long totalRows);
+
+  /**
+   * Reports that the operation finished and its results have been added to the image models.
+   */
+  void operationCompleted();
+
+  /**
+   * Reports that the operation failed and none of its results were added to the image models.
+   *
+   * @param message the message describing why the operation failed
+   */
+  void operationFailed(String message);
+
+  /**
+   * Reports that the operation was cancelled and none of its results were added to the image
+   * models.
+   */
+  void operationCancelled();
+}
@@ -0,0 +1,212 @@
+package controller;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * This class represents a whole script split into steps, each one command, together with the
+ * order the steps must keep. Every step writes one resource, which is the image it creates or,
+ * for a save, the file it saves to, and reads every other name it is given. A step waits for
+ * the last earlier step that wrote any of its resources, and a step that writes a resource
+ * also waits for every earlier step that read it since, so overwrites and saves see exactly
+ * the images they would see if the script ran in order. Any other command, such as turning
+ * pipelining on, waits for every earlier step and is waited for by every later one.
+ *
+ * <p>Steps then run on a pool of threads as soon as the steps they wait for are done, and the
+ * output of each step is written in script order, so the output matches running in order.
+ */
+class ScriptScheduler {
+  private final List<Step> steps;
+  private final Map<String, Resource> resources;
+  private int lastApart;
+  private boolean quit;
+
+  /**
+   * Reads a whole script into steps. Loading and saving take two parameters, pipelining one,
+   * a region four, and every other command the rest of its line. A region is run in the same
+   * step as the command after it, and "q" ends the script.
+   *
+   * @param script        the script to read
+   * @param imageCommands the commands that create or save images
+   */
+  ScriptScheduler(Readable script, Set<String> imageCommands) {
+    this.steps = new ArrayList<>();
+    this.resources = new HashMap<>();
+    Scanner lines = new Scanner(script);
+    StringBuilder region = new StringBuilder();
+    while (lines.hasNextLine() && !this.quit) {
+      List<String> tokens = Arrays.asList(lines.nextLine().trim().split("\\s+"));
+      int k = 0;
+      while (k < tokens.size() && !tokens.get(k).isEmpty()) {
+        String command = tokens.get(k).toLowerCase();
+        int end;
+        if (command.equals("q")) {
+          this.quit = true;
+          break;
+        } else if (command.equals("load") || command.startsWith("save")) {
+          end = k + 3;
+        } else if (command.equals("pipeline")) {
+          end = k + 2;
+        } else if (command.equals("region")) {
+          end = k + 5;
+        } else {
+          end = tokens.size();
+        }
+        end = Math.min(end, tokens.size());
+        List<String> parameters = tokens.subList(k + 1, end);
+        String text = String.join(" ", tokens.subList(k, end));
+        if (command.equals("region")) {
+          region.append(text).append(' ');
+        } else {
+          add(region + text, command, parameters, imageCommands.contains(command));
+          region.setLength(0);
+        }
+        k = end;
+      }
+    }
+  }
+
+  /**
+   * Determines whether the script ended with a "q" command.
+   *
+   * @return true if the script asked to quit, false if it simply ended
+   */
+  boolean isQuit() {
+    return this.quit;
+  }
+
+  /**
+   * Runs every step of the script on a pool of threads and writes the output of each step in
+   * script order. If a step fails with anything but an illegal argument, no further steps are
+   * started, the output of the steps before it is written, and the failure is thrown.
+   *
+   * @param threads the number of threads to run steps on
+   * @param runner  runs the text of one step and returns what it wrote to the output
+   * @param output  the output that the output of the steps is written to
+   * @throws IOException if writing to the output fails
+   */
+  void run(int threads, Function<String, String> runner, Appendable output)
+          throws IOException {
+    ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+      Thread thread = new Thread(runnable, "image-script");
+      thread.setDaemon(true);
+      return thread;
+    });
+    AtomicBoolean failed = new AtomicBoolean();
+    try {
+      for (Step step : this.steps) {
+        CompletableFuture<?>[] waits = new CompletableFuture<?>[step.waits.size()];
+        for (int k = 0; k < waits.length; k++) {
+          waits[k] = step.waits.get(k).result;
+        }
+        step.result = CompletableFuture.allOf(waits).thenApplyAsync(ignored -> {
+          if (failed.get()) {
+            throw new IllegalStateException("An earlier command failed.");
+          }
+          try {
+            return runner.apply(step.text);
+          } catch (RuntimeException e) {
+            failed.set(true);
+            throw e;
+          }
+        }, pool);
+      }
+      for (Step step : this.steps) {
+        try {
+          output.append(step.result.join());
+        } catch (CompletionException e) {
+          failed.set(true);
+          if (e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
+          }
+          throw e;
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Adds a step to the script and works out which earlier steps it must wait for. A step run
+   * apart waits only back to the last such step, since that one already waited for the rest.
+   *
+   * @param text       the text of the step
+   * @param command    the command that the step runs
+   * @param parameters the parameters given to the command
+   * @param image      true if the command creates or saves an image, false if it is run
+   *                   apart from every other step
+   */
+  private void add(String text, String command, List<String> parameters, boolean image) {
+    Step step = new Step(text);
+    if (!image || parameters.isEmpty()) {
+      step.waits.addAll(this.steps.subList(Math.max(0, this.lastApart - 1), this.steps.size()));
+      this.lastApart = this.steps.size() + 1;
+    } else {
+      String written = command.startsWith("save")
+              ? parameters.get(0) : parameters.get(parameters.size() - 1);
+      for (String name : parameters) {
+        Resource resource = resource(name);
+        if (resource.writer != null) {
+          step.waits.add(resource.writer);
+        }
+        if (!name.equals(written)) {
+          resource.readers.add(step);
+        }
+      }
+      Resource resource = resource(written);
+      step.waits.addAll(resource.readers);
+      resource.readers.clear();
+      resource.writer = step;
+      if (this.lastApart > 0) {
+        step.waits.add(this.steps.get(this.lastApart - 1));
+      }
+    }
+    this.steps.add(step);
+  }
+
+  /**
+   * Gets the record of which steps last wrote and since read a given resource.
+   *
+   * @param name the name of the resource
+   * @return the record of the resource
+   */
+  private Resource resource(String name) {
+    return this.resources.computeIfAbsent(name, key -> new Resource());
+  }
+
+  /**
+   * This class represents one command of the script, the steps it waits for and its result.
+   */
+  private static class Step {
+    private final String text;
+    private final List<Step> waits;
+    private CompletableFuture<String> result;
+
+    private Step(String text) {
+      this.text = text;
+      this.waits = new ArrayList<>();
+    }
+  }
+
+  /**
+   * This class represents an image or file named in the script, with the step that last wrote
+   * it and the steps that read it since.
+   */
+  private static class Resource {
+    private Step writer;
+    private final List<Step> readers = new ArrayList<>();
+  }
+}
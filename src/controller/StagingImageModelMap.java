@@ -0,0 +1,141 @@
+package controller;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import model.ConcurrentImageModelMap;
+import model.ImageModel;
+import model.ImageModelMap;
+
+/**
+ * This class represents the map of image models that a controller's commands work on. It
+ * passes everything through to the controller's map, except while a thread is running an
+ * operation in the background: the images that operation adds are then held in a staging map
+ * of its own, where its later commands can find them, until the controller adds them to the
+ * real map once the operation completes.
+ *
+ * <p>A {@link ConcurrentImageModelMap} is used directly, so lookups from many threads never
+ * wait on each other. Any other real map is only used while holding its lock, so commands of
+ * a scheduled script may share a real map that is not itself safe to use from many threads.
+ */
+class StagingImageModelMap implements ImageModelMap {
+  private final ImageModelMap imageModelMap;
+  private final Object lock;
+  private final ThreadLocal<Map<String, ImageModel>> staged;
+
+  /**
+   * Constructs a staging map in front of a given map of image models.
+   *
+   * @param imageModelMap the map that images are found in and finally added to
+   */
+  StagingImageModelMap(ImageModelMap imageModelMap) {
+    this.imageModelMap = Objects.requireNonNull(imageModelMap);
+    this.lock = imageModelMap instanceof ConcurrentImageModelMap ? null : imageModelMap;
+    this.staged = new ThreadLocal<>();
+  }
+
+  /**
+   * Runs some work on the calling thread with every image it adds held in a given staging map
+   * instead of being added to the real map.
+   *
+   * @param stagedModels the map that holds the added images
+   * @param work         the work to run
+   */
+  void stage(Map<String, ImageModel> stagedModels, Runnable work) {
+    this.staged.set(Objects.requireNonNull(stagedModels));
+    try {
+      work.run();
+    } finally {
+      this.staged.remove();
+    }
+  }
+
+  /**
+   * Adds every image that an operation staged to the real map. A real map that needs its lock
+   * is changed all at once under it, so commands reading it from other threads never see it
+   * half changed; a concurrent map takes each image atomically on its own.
+   *
+   * @param stagedModels the images that the operation staged
+   */
+  void publish(Map<String, ImageModel> stagedModels) {
+    Appendable ignored = new StringBuilder();
+    withMap(() -> {
+      for (Map.Entry<String, ImageModel> entry : stagedModels.entrySet()) {
+        this.imageModelMap.add(entry.getKey(), entry.getValue(), ignored);
+      }
+      return null;
+    });
+  }
+
+  /**
+   * Finds and returns an image model which corresponds to the given name, looking first among
+   * the images staged by the calling thread.
+   *
+   * @param modelName the name of the model to find
+   * @return the model that was found
+   */
+  @Override
+  public ImageModel find(String modelName) {
+    Map<String, ImageModel> stagedModels = this.staged.get();
+    if (stagedModels != null && stagedModels.containsKey(modelName)) {
+      return stagedModels.get(modelName);
+    }
+    return withMap(() -> this.imageModelMap.find(modelName));
+  }
+
+  /**
+   * Adds a new key value pair of an image model and its corresponding name, to the staging map
+   * of the calling thread if it has one and to the real map otherwise.
+   *
+   * @param newName  the name of the new image model added to the map
+   * @param newModel the new model added to the map
+   * @param output   the output to write progress messages to
+   */
+  @Override
+  public void add(String newName, ImageModel newModel, Appendable output) {
+    Map<String, ImageModel> stagedModels = this.staged.get();
+    if (stagedModels == null) {
+      withMap(() -> {
+        this.imageModelMap.add(newName, newModel, output);
+        return null;
+      });
+      return;
+    }
+    if (find(newName) != null) {
+      try {
+        output.append("Overwriting image.\n");
+      } catch (IOException e) {
+        throw new IllegalStateException("Writing to output stream failed.");
+      }
+    }
+    stagedModels.put(newName, newModel);
+  }
+
+  /**
+   * Gets the number of image models in the real map, not counting any that are staged.
+   *
+   * @return the number of names that an image model is stored under in the real map
+   */
+  @Override
+  public int size() {
+    return withMap(this.imageModelMap::size);
+  }
+
+  /**
+   * Uses the real map, holding its lock unless it is safe to use from many threads.
+   *
+   * @param use what is done with the real map
+   * @param <T> the type of what the use returns
+   * @return what the use returns
+   */
+  private <T> T withMap(Supplier<T> use) {
+    if (this.lock == null) {
+      return use.get();
+    }
+    synchronized (this.lock) {
+      return use.get();
+    }
+  }
+}
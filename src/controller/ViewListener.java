@@ -12,4 +12,21 @@ public interface ViewListener {
    *                   performing the operation on an image model.
    */
   void viewActionPerformed(String parameters);
-}
\ No newline at end of file
+
+  /**
+   * Executes the command for an interaction with the GUI view in the background, so that the
+   * view stays responsive while it runs. The images the command creates are only added once it
+   * completes, and the listener is told how it progresses and how it ends.
+   *
+   * @param parameters the parameters to be scanned by the command function object when
+   *                   performing the operation on an image model.
+   * @param listener   the listener told how the operation progresses and ends
+   */
+  void viewActionSubmitted(String parameters, OperationListener listener);
+
+  /**
+   * Cancels every operation that is running in the background, so that none of their results
+   * are added.
+   */
+  void cancelOperations();
+}
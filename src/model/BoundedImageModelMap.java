@@ -0,0 +1,251 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class represents a map of named image models that keeps the images on the heap within
+ * a memory budget. Each image is charged four bytes per pixel, and when the images on the heap
+ * cost more than the budget, the least recently used ones are written to raw PPM (P6) spill
+ * files and dropped from the heap. A spilled image is read back the next time it is found,
+ * which may in turn spill others.
+ *
+ * <p>The image that was most recently added or found is never spilled, so a single image
+ * larger than the budget still works. Images mapped from a file are not charged. A spilled
+ * image comes back as it would be saved, so channels above 255 are read back clamped to 255.
+ *
+ * <p>Images that compute their pixels from other images, such as color pipelines and region
+ * previews, are copied into images of their own when they are added. Their cost is then what
+ * they hold, they keep no other image alive, and spilling one frees its pixels.
+ */
+public class BoundedImageModelMap implements ImageModelMap {
+  private final long budget;
+  private final File spillDirectory;
+  private final Map<String, Entry> entries;
+  private long residentBytes;
+
+  /**
+   * Constructs an empty map with a given memory budget and directory for spill files.
+   *
+   * @param budget         the number of bytes that images on the heap may cost
+   * @param spillDirectory the directory in which spill files are created
+   * @throws IllegalArgumentException if the budget is negative or the directory is null
+   */
+  public BoundedImageModelMap(long budget, File spillDirectory)
+          throws IllegalArgumentException {
+    if (budget < 0) {
+      throw new IllegalArgumentException("Memory budget must not be negative.");
+    }
+    if (spillDirectory == null) {
+      throw new IllegalArgumentException("Spill directory must not be null.");
+    }
+    this.budget = budget;
+    this.spillDirectory = spillDirectory;
+    this.entries = new LinkedHashMap<>();
+  }
+
+  /**
+   * Finds and returns an image model from the map which corresponds to the given name,
+   * reading it back from its spill file if it was spilled.
+   *
+   * @param modelName the name of the model to find
+   * @return the model that was found, or null if there is none
+   * @throws IllegalStateException if reading a spilled image fails
+   */
+  @Override
+  public synchronized ImageModel find(String modelName) throws IllegalStateException {
+    Entry entry = this.entries.get(modelName);
+    if (entry == null) {
+      return null;
+    }
+    this.entries.remove(modelName);
+    this.entries.put(modelName, entry);
+    if (entry.model == null) {
+      entry.model = unspill(entry.spill);
+      this.residentBytes += entry.cost;
+      evict(entry);
+    }
+    return entry.model;
+  }
+
+  /**
+   * Adds a new key value pair of an image model and its corresponding name into the map,
+   * spilling the least recently used images if the budget is exceeded.
+   *
+   * @param newName  the name of the new image model added to the map
+   * @param newModel the new model added to the map
+   * @param output   the output to write progress messages to
+   * @throws IllegalStateException if writing to the output or a spill file fails
+   */
+  @Override
+  public synchronized void add(String newName, ImageModel newModel, Appendable output)
+          throws IllegalStateException {
+    Entry old = this.entries.remove(newName);
+    if (old != null) {
+      try {
+        output.append("Overwriting image.\n");
+      } catch (IOException e) {
+        throw new IllegalStateException("Writing to output stream failed.");
+      }
+      release(old);
+    }
+    ImageModel model = owned(newModel);
+    Entry entry = new Entry(model, cost(model));
+    this.entries.put(newName, entry);
+    this.residentBytes += entry.cost;
+    evict(entry);
+  }
+
+  /**
+   * Gets the number of image models in the map, whether on the heap or spilled.
+   *
+   * @return the number of names that an image model is stored under
+   */
+  @Override
+  public synchronized int size() {
+    return this.entries.size();
+  }
+
+  /**
+   * Gets the number of bytes that the images on the heap are charged.
+   *
+   * @return the cost of the images that are not spilled
+   */
+  public synchronized long getResidentBytes() {
+    return this.residentBytes;
+  }
+
+  /**
+   * Determines whether the image with a given name is currently spilled to disk, without
+   * counting as a use of the image.
+   *
+   * @param modelName the name of the image
+   * @return true if the image exists and is spilled, false otherwise
+   */
+  public synchronized boolean isSpilled(String modelName) {
+    Entry entry = this.entries.get(modelName);
+    return entry != null && entry.model == null;
+  }
+
+  /**
+   * Spills the least recently used images until the images on the heap fit the budget.
+   *
+   * @param keep the entry that must stay on the heap
+   * @throws IllegalStateException if writing a spill file fails
+   */
+  private void evict(Entry keep) throws IllegalStateException {
+    Iterator<Entry> iterator = this.entries.values().iterator();
+    while (this.residentBytes > this.budget && iterator.hasNext()) {
+      Entry entry = iterator.next();
+      if (entry == keep || entry.model == null || entry.cost == 0) {
+        continue;
+      }
+      if (entry.spill == null) {
+        entry.spill = spill(entry.model);
+      }
+      entry.model = null;
+      this.residentBytes -= entry.cost;
+    }
+  }
+
+  /**
+   * Releases the heap cost and spill file of an entry that is no longer in the map.
+   *
+   * @param entry the entry being released
+   */
+  private void release(Entry entry) {
+    if (entry.model != null) {
+      this.residentBytes -= entry.cost;
+    }
+    if (entry.spill != null && !entry.spill.delete()) {
+      entry.spill.deleteOnExit();
+    }
+  }
+
+  /**
+   * Writes an image model to a new spill file.
+   *
+   * @param model the image model to write
+   * @return the spill file
+   * @throws IllegalStateException if writing the spill file fails
+   */
+  private File spill(ImageModel model) throws IllegalStateException {
+    try {
+      File file = File.createTempFile("spill", ".ppm", this.spillDirectory);
+      file.deleteOnExit();
+      try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+        PPMFormat.write(model, out, "P6");
+      }
+      return file;
+    } catch (IOException e) {
+      throw new IllegalStateException("Writing image to spill file failed.");
+    }
+  }
+
+  /**
+   * Reads an image model back from its spill file onto the heap.
+   *
+   * @param file the spill file
+   * @return the image model read from the file
+   * @throws IllegalStateException if reading the spill file fails
+   */
+  private ImageModel unspill(File file) throws IllegalStateException {
+    try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+      return PPMFormat.read(in);
+    } catch (IOException e) {
+      throw new IllegalStateException("Reading image from spill file failed.");
+    }
+  }
+
+  /**
+   * Gets an image model holding its pixels itself, copying those of a model that computes
+   * them from other models.
+   *
+   * @param model the image model being added
+   * @return the model itself, or a copy of its pixels if it reads them from other models
+   */
+  private static ImageModel owned(ImageModel model) {
+    if (model instanceof ColorPipelineModel || model instanceof RegionImageModel) {
+      return PackedImageModel.copyOf(model);
+    }
+    return model;
+  }
+
+  /**
+   * Gets the number of bytes that an image model on the heap is charged.
+   *
+   * @param model the image model
+   * @return four bytes per pixel, or nothing if the model is mapped from a file
+   */
+  private static long cost(ImageModel model) {
+    if (model == null || model instanceof MappedImageModel) {
+      return 0;
+    }
+    return 4L * model.getImageHeight() * model.getImageWidth();
+  }
+
+  /**
+   * This class represents a named image in the map, which is either on the heap or spilled.
+   * Once written, a spill file is kept until the name is overwritten, so an image that is read
+   * back and spilled again is not written twice.
+   */
+  private static class Entry {
+    private final long cost;
+    private ImageModel model;
+    private File spill;
+
+    private Entry(ImageModel model, long cost) {
+      this.model = model;
+      this.cost = cost;
+    }
+  }
+}
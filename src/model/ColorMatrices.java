@@ -0,0 +1,76 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class represents the registry of color operations used to transform images, holding one
+ * precomputed operation for each type of color transformation and for each user-defined color
+ * matrix that has been used.
+ */
+public class ColorMatrices {
+  private static final int MAX_CACHED_MATRICES = 256;
+  private static final Map<Transformation, ColorOperator> TRANSFORMATIONS;
+  private static final Map<String, ColorOperator> USER_MATRICES = new ConcurrentHashMap<>();
+
+  static {
+    Map<Transformation, ColorOperator> transformations = new EnumMap<>(Transformation.class);
+    transformations.put(Transformation.RED, ColorOperator.matrix(new double[][]{
+        {1.0, 0.0, 0.0}, {1.0, 0.0, 0.0}, {1.0, 0.0, 0.0}}));
+    transformations.put(Transformation.GREEN, ColorOperator.matrix(new double[][]{
+        {0.0, 1.0, 0.0}, {0.0, 1.0, 0.0}, {0.0, 1.0, 0.0}}));
+    transformations.put(Transformation.BLUE, ColorOperator.matrix(new double[][]{
+        {0.0, 0.0, 1.0}, {0.0, 0.0, 1.0}, {0.0, 0.0, 1.0}}));
+    transformations.put(Transformation.MAXVALUE, ColorOperator.maxValue());
+    transformations.put(Transformation.LUMA, ColorOperator.matrix(new double[][]{
+        {0.2126, 0.7152, 0.0722}, {0.2126, 0.7152, 0.0722}, {0.2126, 0.7152, 0.0722}}));
+    transformations.put(Transformation.INTENSITY, ColorOperator.matrix(new double[][]{
+        {1.0 / 3, 1.0 / 3, 1.0 / 3}, {1.0 / 3, 1.0 / 3, 1.0 / 3}, {1.0 / 3, 1.0 / 3, 1.0 / 3}}));
+    transformations.put(Transformation.SEPIA, ColorOperator.matrix(new double[][]{
+        {0.393, 0.769, 0.189}, {0.349, 0.686, 0.168}, {0.272, 0.534, 0.131}}));
+    TRANSFORMATIONS = Collections.unmodifiableMap(transformations);
+  }
+
+  /**
+   * Gets the precomputed color operation for a given type of color transformation.
+   *
+   * @param type the type of color transformation
+   * @return the color operation performing the transformation
+   * @throws IllegalArgumentException if the type is null
+   */
+  public static ColorOperator get(Transformation type) throws IllegalArgumentException {
+    if (type == null) {
+      throw new IllegalArgumentException("Transformation type must not be null.");
+    }
+    return TRANSFORMATIONS.get(type);
+  }
+
+  /**
+   * Gets the color operation for a given user-defined 3x3 color matrix, precomputing it the
+   * first time the matrix is used and sharing it with every later use of an equal matrix.
+   *
+   * @param matrix the color matrix
+   * @return the color operation multiplying by the matrix
+   * @throws IllegalArgumentException if the matrix is not 3x3
+   */
+  public static ColorOperator get(double[][] matrix) throws IllegalArgumentException {
+    if (matrix == null) {
+      throw new IllegalArgumentException("Color matrix must be 3x3.");
+    }
+    String key = Arrays.deepToString(matrix);
+    ColorOperator operator = USER_MATRICES.get(key);
+    if (operator == null) {
+      operator = ColorOperator.matrix(matrix);
+      if (USER_MATRICES.size() < MAX_CACHED_MATRICES) {
+        ColorOperator existing = USER_MATRICES.putIfAbsent(key, operator);
+        if (existing != null) {
+          operator = existing;
+        }
+      }
+    }
+    return operator;
+  }
+}
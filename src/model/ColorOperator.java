@@ -0,0 +1,396 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class represents a per-pixel color operation that maps the packed 0xRRGGBB color value
+ * of one pixel to a new packed color value without looking at any other pixel. Operations can
+ * be composed with one another so that a chain of them is applied in a single pass over an
+ * image.
+ *
+ * <p>Composition keeps the exact result of applying each operation one after another. Every
+ * operation that works on each channel independently, such as brightening, is folded into a
+ * 256-entry lookup table, and those tables are merged into the neighbouring matrix stages so
+ * that a chain only keeps one stage per color matrix it contains.
+ *
+ * <p>Each color matrix is compiled once into the cheapest kernel that gives the same result as
+ * multiplying in floating point: matrices that only copy channels become channel copies,
+ * matrices whose rows are equal compute one row, and the remaining rows use 16.16 fixed-point
+ * weights. A fixed-point sum that lands too close to a whole number to be sure of how it
+ * truncates is recomputed in floating point, so the kernels never change a result.
+ */
+public class ColorOperator {
+  private static final int FIXED_SHIFT = 16;
+  private static final int FIXED_ONE = 1 << FIXED_SHIFT;
+  private static final int FIXED_GUARD = 1024;
+  private static final double MAX_FIXED_ROW_WEIGHT = 64;
+
+  private final Stage[] stages;
+
+  /**
+   * Constructs a color operation from the stages that it applies in order.
+   *
+   * @param stages the stages that the operation applies in order
+   */
+  private ColorOperator(Stage[] stages) {
+    this.stages = stages;
+  }
+
+  /**
+   * Creates a color operation that multiplies each pixel's red, green, and blue values by a
+   * given 3x3 matrix, truncating and clamping each result to between 0 and 255.
+   *
+   * @param matrix the matrix that the color values are multiplied by
+   * @return the color operation
+   * @throws IllegalArgumentException if the matrix is not 3x3
+   */
+  public static ColorOperator matrix(double[][] matrix) throws IllegalArgumentException {
+    if (matrix == null || matrix.length != 3) {
+      throw new IllegalArgumentException("Color matrix must be 3x3.");
+    }
+    double[][] copy = new double[3][];
+    for (int i = 0; i < 3; i++) {
+      if (matrix[i] == null || matrix[i].length != 3) {
+        throw new IllegalArgumentException("Color matrix must be 3x3.");
+      }
+      copy[i] = Arrays.copyOf(matrix[i], 3);
+    }
+    return new ColorOperator(new Stage[]{new Stage(copy, false, null, null)});
+  }
+
+  /**
+   * Creates a color operation that sets each of a pixel's color values to the largest of its
+   * red, green, and blue values.
+   *
+   * @return the color operation
+   */
+  public static ColorOperator maxValue() {
+    return new ColorOperator(new Stage[]{new Stage(null, true, null, null)});
+  }
+
+  /**
+   * Creates a color operation that shifts each of a pixel's color values by a given constant,
+   * clamping each result to between 0 and 255.
+   *
+   * @param constant the constant to shift the color values by
+   * @return the color operation
+   */
+  public static ColorOperator brighten(int constant) {
+    int[] table = new int[256];
+    for (int v = 0; v < 256; v++) {
+      table[v] = Math.max(Math.min(v + constant, 255), 0);
+    }
+    return lookup(new int[][]{table, table, table});
+  }
+
+  /**
+   * Creates a color operation that replaces each of a pixel's red, green, and blue values using
+   * a 256-entry lookup table for that channel.
+   *
+   * @param tables the red, green, and blue lookup tables
+   * @return the color operation
+   * @throws IllegalArgumentException if there are not three tables of 256 values between 0
+   *                                  and 255
+   */
+  public static ColorOperator lookup(int[][] tables) throws IllegalArgumentException {
+    if (tables == null || tables.length != 3) {
+      throw new IllegalArgumentException("Lookup tables must have three channels.");
+    }
+    int[][] copy = new int[3][];
+    for (int i = 0; i < 3; i++) {
+      if (tables[i] == null || tables[i].length != 256) {
+        throw new IllegalArgumentException("Lookup tables must have 256 entries.");
+      }
+      for (int value : tables[i]) {
+        if (value < 0 || value > 255) {
+          throw new IllegalArgumentException("Must be valid pixel color measurements.");
+        }
+      }
+      copy[i] = Arrays.copyOf(tables[i], 256);
+    }
+    return new ColorOperator(new Stage[]{new Stage(null, false, copy, null)});
+  }
+
+  /**
+   * Creates a color operation that applies this operation and then a given operation, giving
+   * the same result as applying the two one after another.
+   *
+   * @param next the operation to apply after this one
+   * @return the composed color operation
+   * @throws IllegalArgumentException if the given operation is null
+   */
+  public ColorOperator andThen(ColorOperator next) throws IllegalArgumentException {
+    if (next == null) {
+      throw new IllegalArgumentException("Color operation must not be null.");
+    }
+    List<Stage> composed = new ArrayList<>(Arrays.asList(this.stages));
+    for (Stage stage : next.stages) {
+      Stage last = composed.get(composed.size() - 1);
+      if (stage.isLookup()) {
+        composed.set(composed.size() - 1, last.withOutputTable(stage.inputTable));
+      } else if (last.isLookup()) {
+        composed.set(composed.size() - 1, stage.withInputTable(last.inputTable));
+      } else {
+        composed.add(stage);
+      }
+    }
+    return new ColorOperator(composed.toArray(new Stage[0]));
+  }
+
+  /**
+   * Applies the color operation to one packed 0xRRGGBB color value.
+   *
+   * @param rgb the packed color value
+   * @return the packed color value after the operation is applied
+   */
+  public int apply(int rgb) {
+    for (Stage stage : this.stages) {
+      rgb = stage.apply(rgb);
+    }
+    return rgb;
+  }
+
+  /**
+   * Applies the color operation in place to a range of packed 0xRRGGBB color values.
+   *
+   * @param pixels the packed color values
+   * @param offset the index of the first value to apply the operation to
+   * @param length the number of values to apply the operation to
+   */
+  public void apply(int[] pixels, int offset, int length) {
+    for (int i = offset; i < offset + length; i++) {
+      pixels[i] = apply(pixels[i]);
+    }
+  }
+
+  /**
+   * This class represents one stage of a color operation: an optional lookup table on each
+   * input channel, then an optional color matrix or max-value step that is clamped to between
+   * 0 and 255, then an optional lookup table on each output channel.
+   */
+  private static class Stage {
+    private final double[][] matrix;
+    private final boolean maxValue;
+    private final int[][] inputTable;
+    private final int[][] outputTable;
+    private final int[] channels;
+    private final boolean grey;
+    private final int[] weights;
+
+    /**
+     * Constructs a stage of a color operation.
+     *
+     * @param matrix      the color matrix, or null if the stage has none
+     * @param maxValue    true if the stage takes the largest of the color values
+     * @param inputTable  the lookup tables applied before the matrix, or null if none
+     * @param outputTable the lookup tables applied after the matrix, or null if none
+     */
+    private Stage(double[][] matrix, boolean maxValue, int[][] inputTable,
+                  int[][] outputTable) {
+      this.matrix = matrix;
+      this.maxValue = maxValue;
+      this.inputTable = inputTable;
+      this.outputTable = outputTable;
+      this.channels = matrix == null ? null : copiedChannels(matrix);
+      this.grey = matrix != null && Arrays.equals(matrix[0], matrix[1])
+              && Arrays.equals(matrix[0], matrix[2]);
+      this.weights = matrix == null ? null : fixedWeights(matrix);
+    }
+
+    /**
+     * Finds, for a matrix whose rows each copy exactly one input channel, the channel copied
+     * by each row.
+     *
+     * @param matrix the color matrix
+     * @return the input channel copied by each row, or null if any row does more than copy
+     */
+    private static int[] copiedChannels(double[][] matrix) {
+      int[] channels = new int[3];
+      for (int i = 0; i < 3; i++) {
+        channels[i] = -1;
+        for (int j = 0; j < 3; j++) {
+          if (matrix[i][j] == 1.0 && channels[i] == -1) {
+            channels[i] = j;
+          } else if (matrix[i][j] != 0.0) {
+            return null;
+          }
+        }
+        if (channels[i] == -1) {
+          return null;
+        }
+      }
+      return channels;
+    }
+
+    /**
+     * Converts a matrix to 16.16 fixed-point weights.
+     *
+     * @param matrix the color matrix
+     * @return the nine fixed-point weights in row-major order, or null if a row's weights are
+     *         too large for its sums to fit in an integer
+     */
+    private static int[] fixedWeights(double[][] matrix) {
+      int[] weights = new int[9];
+      for (int i = 0; i < 3; i++) {
+        double rowWeight = 0;
+        for (int j = 0; j < 3; j++) {
+          rowWeight += Math.abs(matrix[i][j]);
+          weights[i * 3 + j] = (int) Math.round(matrix[i][j] * FIXED_ONE);
+        }
+        if (!(rowWeight <= MAX_FIXED_ROW_WEIGHT)) {
+          return null;
+        }
+      }
+      return weights;
+    }
+
+    /**
+     * Determines whether the stage is made up of only lookup tables.
+     *
+     * @return true if the stage has no matrix or max-value step, false otherwise
+     */
+    private boolean isLookup() {
+      return this.matrix == null && !this.maxValue;
+    }
+
+    /**
+     * Creates a stage that applies this stage and then given lookup tables.
+     *
+     * @param tables the lookup tables to apply after this stage
+     * @return the combined stage
+     */
+    private Stage withOutputTable(int[][] tables) {
+      if (isLookup()) {
+        return new Stage(null, false, compose(this.inputTable, tables), null);
+      }
+      return new Stage(this.matrix, this.maxValue, this.inputTable,
+              compose(this.outputTable, tables));
+    }
+
+    /**
+     * Creates a stage that applies given lookup tables and then this stage.
+     *
+     * @param tables the lookup tables to apply before this stage
+     * @return the combined stage
+     */
+    private Stage withInputTable(int[][] tables) {
+      return new Stage(this.matrix, this.maxValue, compose(tables, this.inputTable),
+              this.outputTable);
+    }
+
+    /**
+     * Composes two sets of lookup tables, either of which may be null to mean no lookup.
+     *
+     * @param first  the tables applied first
+     * @param second the tables applied second
+     * @return the tables giving the result of applying both
+     */
+    private static int[][] compose(int[][] first, int[][] second) {
+      if (first == null) {
+        return second;
+      } else if (second == null) {
+        return first;
+      }
+      int[][] composed = new int[3][256];
+      for (int c = 0; c < 3; c++) {
+        for (int v = 0; v < 256; v++) {
+          composed[c][v] = second[c][first[c][v]];
+        }
+      }
+      return composed;
+    }
+
+    /**
+     * Applies the stage to one packed 0xRRGGBB color value.
+     *
+     * @param rgb the packed color value
+     * @return the packed color value after the stage is applied
+     */
+    private int apply(int rgb) {
+      int red = PackedImageModel.red(rgb);
+      int green = PackedImageModel.green(rgb);
+      int blue = PackedImageModel.blue(rgb);
+      if (this.inputTable != null) {
+        red = this.inputTable[0][red];
+        green = this.inputTable[1][green];
+        blue = this.inputTable[2][blue];
+      }
+      if (this.maxValue) {
+        int max = Math.max(red, Math.max(green, blue));
+        red = max;
+        green = max;
+        blue = max;
+      } else if (this.channels != null) {
+        int newRed = channel(this.channels[0], red, green, blue);
+        int newGreen = channel(this.channels[1], red, green, blue);
+        int newBlue = channel(this.channels[2], red, green, blue);
+        red = newRed;
+        green = newGreen;
+        blue = newBlue;
+      } else if (this.grey) {
+        red = multiplyRow(0, red, green, blue);
+        green = red;
+        blue = red;
+      } else if (this.matrix != null) {
+        int newRed = multiplyRow(0, red, green, blue);
+        int newGreen = multiplyRow(1, red, green, blue);
+        int newBlue = multiplyRow(2, red, green, blue);
+        red = newRed;
+        green = newGreen;
+        blue = newBlue;
+      }
+      if (this.outputTable != null) {
+        red = this.outputTable[0][red];
+        green = this.outputTable[1][green];
+        blue = this.outputTable[2][blue];
+      }
+      return PackedImageModel.pack(red, green, blue);
+    }
+
+    /**
+     * Selects one of given color values by its channel index.
+     *
+     * @param index the channel index, where 0 is red, 1 is green, and 2 is blue
+     * @param red   the red component value
+     * @param green the green component value
+     * @param blue  the blue component value
+     * @return the selected color value
+     */
+    private static int channel(int index, int red, int green, int blue) {
+      if (index == 0) {
+        return red;
+      } else if (index == 1) {
+        return green;
+      } else {
+        return blue;
+      }
+    }
+
+    /**
+     * Multiplies given color values by one row of the matrix, truncating and clamping the
+     * result to between 0 and 255.
+     *
+     * @param row   the row of the matrix
+     * @param red   the red component value
+     * @param green the green component value
+     * @param blue  the blue component value
+     * @return the resulting color value
+     */
+    private int multiplyRow(int row, int red, int green, int blue) {
+      if (this.weights != null) {
+        int sum = red * this.weights[row * 3] + green * this.weights[row * 3 + 1]
+                + blue * this.weights[row * 3 + 2];
+        int fraction = sum & (FIXED_ONE - 1);
+        if (fraction >= FIXED_GUARD && fraction <= FIXED_ONE - FIXED_GUARD) {
+          return Math.max(Math.min(255, sum >> FIXED_SHIFT), 0);
+        }
+      }
+      int value = (int) ((red * this.matrix[row][0])
+              + ((green * this.matrix[row][1]))
+              + ((blue * this.matrix[row][2])));
+      return Math.max(Math.min(255, value), 0);
+    }
+  }
+}
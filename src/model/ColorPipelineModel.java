@@ -0,0 +1,174 @@
+package model;
+
+/**
+ * This class represents an image model whose pixels are computed on demand by applying a color
+ * operation to the pixels of another image model. It lets a chain of per-pixel color commands
+ * be stored without creating any intermediate pixel data; the chain is applied in one pass
+ * whenever the pixels are read.
+ *
+ * <p>Reading that would apply the chain many times, such as a filter reading each row for every
+ * neighbor, can {@link #materialize()} the pipeline first. Its pixels are then computed once,
+ * and every later read of the pipeline uses them.
+ */
+public class ColorPipelineModel implements ImageModel {
+  private final ImageModel source;
+  private final ColorOperator operator;
+  private volatile PackedImageModel materialized;
+
+  /**
+   * Constructs an image model that applies a given color operation to a given image model.
+   * If the given image model is itself a pipeline, the two operations are composed so that
+   * the result still reads straight from the original pixels.
+   *
+   * @param source   the image model whose pixels the operation is applied to
+   * @param operator the color operation to apply
+   * @throws IllegalArgumentException if any given parameters are null
+   */
+  public ColorPipelineModel(ImageModel source, ColorOperator operator)
+          throws IllegalArgumentException {
+    if (source == null || operator == null) {
+      throw new IllegalArgumentException("No given parameters may contain null values.");
+    }
+    if (source instanceof ColorPipelineModel
+            && ((ColorPipelineModel) source).materialized == null) {
+      ColorPipelineModel pipeline = (ColorPipelineModel) source;
+      this.source = pipeline.source;
+      this.operator = pipeline.operator.andThen(operator);
+    } else if (source instanceof ColorPipelineModel) {
+      this.source = ((ColorPipelineModel) source).materialized;
+      this.operator = operator;
+    } else {
+      this.source = source;
+      this.operator = operator;
+    }
+  }
+
+  /**
+   * Gets an image model holding the computed pixels of the pipeline. They are computed the
+   * first time this is called, and from then on every read of the pipeline uses them instead
+   * of applying the color operation again.
+   *
+   * @return an image model with the same pixels as the pipeline
+   */
+  public PackedImageModel materialize() {
+    PackedImageModel flat = this.materialized;
+    if (flat == null) {
+      synchronized (this) {
+        flat = this.materialized;
+        if (flat == null) {
+          flat = PackedImageModel.copyOf(this);
+          this.materialized = flat;
+        }
+      }
+    }
+    return flat;
+  }
+
+  /**
+   * Gets the height of the image model that the method is being performed on.
+   *
+   * @return the height of the image model
+   */
+  @Override
+  public int getImageHeight() {
+    return this.source.getImageHeight();
+  }
+
+  /**
+   * Gets the width of the image model that the method is being performed on.
+   *
+   * @return the width of the image model
+   */
+  @Override
+  public int getImageWidth() {
+    return this.source.getImageWidth();
+  }
+
+  /**
+   * Gets the pixel at a given row and column of the image model that the method is being
+   * performed on.
+   *
+   * @param row the row from which to get the pixel
+   * @param col the column from which to get the pixel
+   * @return the pixel at the given row and column
+   * @throws IllegalArgumentException if the given position is beyond the dimensions of the
+   *                                  image model
+   */
+  @Override
+  public IPixel getPixelAt(int row, int col) throws IllegalArgumentException {
+    int rgb = getRGBAt(row, col);
+    return Pixel.of(PackedImageModel.red(rgb), PackedImageModel.green(rgb),
+            PackedImageModel.blue(rgb));
+  }
+
+  /**
+   * Gets the packed 0xRRGGBB color value of the pixel at a given row and column of the image
+   * model that the method is being performed on.
+   *
+   * @param row the row from which to get the pixel
+   * @param col the column from which to get the pixel
+   * @return the packed color value of the pixel at the given row and column
+   * @throws IllegalArgumentException if the given position is beyond the dimensions of the
+   *                                  image model
+   */
+  @Override
+  public int getRGBAt(int row, int col) throws IllegalArgumentException {
+    PackedImageModel flat = this.materialized;
+    if (flat != null) {
+      return flat.getRGBAt(row, col);
+    }
+    return this.operator.apply(this.source.getRGBAt(row, col));
+  }
+
+  /**
+   * Copies the packed 0xRRGGBB color values of one row of the image model into a given buffer.
+   *
+   * @param row    the row to copy
+   * @param buffer the buffer that the row is copied into
+   * @param offset the index in the buffer at which to start writing
+   * @throws IllegalArgumentException if the row is beyond the dimensions of the image model or
+   *                                  the buffer is too small to hold the row
+   */
+  @Override
+  public void getRow(int row, int[] buffer, int offset) throws IllegalArgumentException {
+    PackedImageModel flat = this.materialized;
+    if (flat != null) {
+      flat.getRow(row, buffer, offset);
+      return;
+    }
+    this.source.getRow(row, buffer, offset);
+    this.operator.apply(buffer, offset, getImageWidth());
+  }
+
+  /**
+   * Copies a rectangular region of the image model into a given buffer as opaque packed
+   * 0xAARRGGBB color values.
+   *
+   * @param row      the first row of the region
+   * @param col      the first column of the region
+   * @param height   the number of rows in the region
+   * @param width    the number of columns in the region
+   * @param buffer   the buffer that the region is copied into
+   * @param offset   the index in the buffer at which the first pixel of the region is written
+   * @param scansize the distance in the buffer from the start of one row to the next
+   * @throws IllegalArgumentException if the region is beyond the dimensions of the image model
+   *                                  or the buffer is too small to hold it
+   */
+  @Override
+  public void getRegion(int row, int col, int height, int width, int[] buffer, int offset,
+                        int scansize) throws IllegalArgumentException {
+    ImageUtil.checkRegion(this, row, col, height, width, buffer, offset, scansize);
+    PackedImageModel flat = this.materialized;
+    if (flat != null) {
+      flat.getRegion(row, col, height, width, buffer, offset, scansize);
+      return;
+    }
+    this.source.getRegion(row, col, height, width, buffer, offset, scansize);
+    for (int i = 0; i < height; i++) {
+      int target = offset + i * scansize;
+      for (int j = target; j < target + width; j++) {
+        buffer[j] = 0xFF000000 | this.operator.apply(buffer[j] & 0xFFFFFF);
+      }
+    }
+  }
+}
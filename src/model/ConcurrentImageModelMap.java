@@ -0,0 +1,160 @@
+package model;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * This class represents a map of named image models that many controllers may share across
+ * threads. Finding an image never blocks, and every change to a name happens atomically under
+ * the lock of that name's bin alone, so writers to different names do not contend.
+ *
+ * <p>Each name carries a version that starts at 1 when the name is first added and increases
+ * by one every time its image is replaced, so a controller can replace an image only if no one
+ * else has replaced it since it was read.
+ */
+public class ConcurrentImageModelMap implements ImageModelMap {
+  private final ConcurrentMap<String, Versioned> imageModelMap;
+
+  /**
+   * Constructs an empty map.
+   */
+  public ConcurrentImageModelMap() {
+    this.imageModelMap = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Finds and returns an image model from the map which corresponds to the given name.
+   *
+   * @param modelName the name of the model to find
+   * @return the model that was found, or null if there is none
+   */
+  @Override
+  public ImageModel find(String modelName) {
+    Versioned versioned = this.imageModelMap.get(modelName);
+    return versioned == null ? null : versioned.model;
+  }
+
+  /**
+   * Adds a new key value pair of an image model and its corresponding name into the map,
+   * replacing any image that already has the name.
+   *
+   * @param newName  the name of the new image model added to the map
+   * @param newModel the new model added to the map
+   * @param output   the output to write progress messages to
+   * @throws IllegalStateException if writing to the output fails
+   */
+  @Override
+  public void add(String newName, ImageModel newModel, Appendable output)
+          throws IllegalStateException {
+    boolean[] overwritten = new boolean[1];
+    this.imageModelMap.compute(newName, (name, old) -> {
+      overwritten[0] = old != null;
+      return new Versioned(newModel, old == null ? 1 : old.version + 1);
+    });
+    if (overwritten[0]) {
+      try {
+        output.append("Overwriting image.\n");
+      } catch (IOException e) {
+        throw new IllegalStateException("Writing to output stream failed.");
+      }
+    }
+  }
+
+  /**
+   * Gets the number of image models in the map without blocking.
+   *
+   * @return the number of names that an image model is stored under
+   */
+  @Override
+  public int size() {
+    return this.imageModelMap.size();
+  }
+
+  /**
+   * Adds an image model under a given name only if no image has that name yet.
+   *
+   * @param newName  the name of the new image model
+   * @param newModel the new image model
+   * @return true if the image model was added, false if the name was already taken
+   */
+  public boolean addIfAbsent(String newName, ImageModel newModel) {
+    return this.imageModelMap.putIfAbsent(newName, new Versioned(newModel, 1)) == null;
+  }
+
+  /**
+   * Replaces the image model with a given name only if the name is still at a given version.
+   *
+   * @param name     the name of the image model to replace
+   * @param version  the version that the name must still be at
+   * @param newModel the image model to replace it with
+   * @return true if the image model was replaced, false if the name is absent or has been
+   *         changed since that version
+   */
+  public boolean replace(String name, long version, ImageModel newModel) {
+    boolean[] replaced = new boolean[1];
+    this.imageModelMap.computeIfPresent(name, (key, old) -> {
+      if (old.version != version) {
+        return old;
+      }
+      replaced[0] = true;
+      return new Versioned(newModel, version + 1);
+    });
+    return replaced[0];
+  }
+
+  /**
+   * Gets the version of a given name without blocking.
+   *
+   * @param name the name of the image model
+   * @return the version of the name, or 0 if no image has the name
+   */
+  public long getVersion(String name) {
+    Versioned versioned = this.imageModelMap.get(name);
+    return versioned == null ? 0 : versioned.version;
+  }
+
+  /**
+   * Finds the image model with a given name together with the version of the name, read in
+   * one step without blocking. An image derived from the model can then be stored with
+   * {@link #replace(String, long, ImageModel)} at exactly that version.
+   *
+   * @param name the name of the image model
+   * @return the image model and its version, or null if no image has the name
+   */
+  public Versioned findVersioned(String name) {
+    return this.imageModelMap.get(name);
+  }
+
+  /**
+   * This class represents an image model together with the version of its name, which are
+   * always read and replaced together.
+   */
+  public static final class Versioned {
+    private final ImageModel model;
+    private final long version;
+
+    private Versioned(ImageModel model, long version) {
+      this.model = model;
+      this.version = version;
+    }
+
+    /**
+     * Gets the image model.
+     *
+     * @return the image model
+     */
+    public ImageModel getModel() {
+      return this.model;
+    }
+
+    /**
+     * Gets the version that the name was at when it held the image model.
+     *
+     * @return the version of the name
+     */
+    public long getVersion() {
+      return this.version;
+    }
+  }
+}
@@ -0,0 +1,525 @@
+package model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class represents a convolution of packed 0xRRGGBB pixels with a kernel. Everything that
+ * depends only on the kernel is computed once when the convolution is constructed: kernels that
+ * truncate each weighted value get one lookup table per distinct weight, so filtering a pixel
+ * takes only table lookups and additions, and kernels that can be split into a column and a row
+ * vector are applied as two one-dimensional passes.
+ *
+ * <p>Taps that fall outside the image are skipped, and pixels whose whole neighborhood lies
+ * inside the image are filtered by a loop without any bounds checks.
+ */
+public class Convolution {
+  private final int radius;
+  private final int size;
+  private final int[][] tables;
+  private final double[] weights;
+  private final double[] columnWeights;
+  private final double[] rowWeights;
+
+  /**
+   * Constructs a convolution with a given kernel.
+   *
+   * @param kernel the kernel to convolve with
+   * @throws IllegalArgumentException if the kernel is null
+   */
+  public Convolution(Kernel kernel) throws IllegalArgumentException {
+    if (kernel == null) {
+      throw new IllegalArgumentException("Kernel must not be null.");
+    }
+    this.size = kernel.getSize();
+    this.radius = this.size / 2;
+
+    int taps = this.size * this.size;
+    if (kernel.truncatesEachTap()) {
+      Map<Double, int[]> shared = new HashMap<>();
+      this.tables = new int[taps][];
+      for (int t = 0; t < taps; t++) {
+        double weight = kernel.getWeight(t / this.size, t % this.size);
+        int[] table = shared.get(weight);
+        if (table == null) {
+          table = new int[256];
+          for (int v = 0; v < 256; v++) {
+            table[v] = (int) (v * weight);
+          }
+          shared.put(weight, table);
+        }
+        this.tables[t] = table;
+      }
+      this.weights = null;
+      this.columnWeights = null;
+      this.rowWeights = null;
+    } else {
+      this.tables = null;
+      double[][] vectors = kernel.separate();
+      if (vectors != null) {
+        this.weights = null;
+        this.columnWeights = vectors[0];
+        this.rowWeights = vectors[1];
+      } else {
+        this.weights = new double[taps];
+        for (int t = 0; t < taps; t++) {
+          this.weights[t] = kernel.getWeight(t / this.size, t % this.size);
+        }
+        this.columnWeights = null;
+        this.rowWeights = null;
+      }
+    }
+  }
+
+  /**
+   * Gets the distance from a pixel to the farthest pixel that its filtered value depends on.
+   *
+   * @return the radius of the kernel
+   */
+  public int getRadius() {
+    return this.radius;
+  }
+
+  /**
+   * Filters a run of pixels in one row of an image and writes the packed results into a given
+   * buffer. Runs in different rows may be filtered at the same time.
+   *
+   * @param pixels   the packed pixels of the image in row-major order
+   * @param height   the height of the image
+   * @param width    the width of the image
+   * @param row      the row of the pixels to filter
+   * @param startCol the first column to filter
+   * @param endCol   the column after the last column to filter
+   * @param out      the buffer that the filtered pixels are written to
+   * @param offset   the index in the buffer at which the pixel at the first column is written
+   */
+  public void convolve(int[] pixels, int height, int width, int row, int startCol, int endCol,
+                       int[] out, int offset) {
+    convolve(pixels, 0, height, width, row, startCol, endCol, out, offset);
+  }
+
+  /**
+   * Filters a run of pixels in one row of an image, given only a band of consecutive rows of
+   * the image, and writes the packed results into a given buffer. The band must hold every row
+   * within the kernel's radius of the filtered row that lies inside the image.
+   *
+   * @param band     the packed pixels of the rows of the band in row-major order
+   * @param firstRow the row of the image that the band starts at
+   * @param height   the height of the image
+   * @param width    the width of the image
+   * @param row      the row of the pixels to filter
+   * @param startCol the first column to filter
+   * @param endCol   the column after the last column to filter
+   * @param out      the buffer that the filtered pixels are written to
+   * @param offset   the index in the buffer at which the pixel at the first column is written
+   */
+  public void convolve(int[] band, int firstRow, int height, int width, int row, int startCol,
+                       int endCol, int[] out, int offset) {
+    if (startCol >= endCol) {
+      return;
+    }
+    if (this.tables != null) {
+      convolveTables(band, firstRow, height, width, row, startCol, endCol, out, offset);
+    } else if (this.weights != null) {
+      convolveWeights(band, firstRow, height, width, row, startCol, endCol, out, offset);
+    } else {
+      convolveSeparable(band, firstRow, height, width, row, startCol, endCol, out, offset);
+    }
+  }
+
+  /**
+   * Filters a run of pixels with a kernel that truncates each weighted value.
+   *
+   * @param pixels   the packed pixels of a band of rows of the image in row-major order
+   * @param firstRow the row of the image that the band starts at
+   * @param height   the height of the image
+   * @param width    the width of the image
+   * @param row      the row of the pixels to filter
+   * @param startCol the first column to filter
+   * @param endCol   the column after the last column to filter
+   * @param out      the buffer that the filtered pixels are written to
+   * @param offset   the index in the buffer at which the pixel at the first column is written
+   */
+  private void convolveTables(int[] pixels, int firstRow, int height, int width, int row,
+                              int startCol, int endCol, int[] out, int offset) {
+    int interiorStart = Math.max(startCol, this.radius);
+    int interiorEnd = Math.min(endCol, width - this.radius);
+    boolean interiorRow = row >= this.radius && row < height - this.radius;
+    if (!interiorRow || interiorStart >= interiorEnd) {
+      for (int j = startCol; j < endCol; j++) {
+        out[offset + j - startCol] = tablePixelChecked(pixels, firstRow, height, width, row, j);
+      }
+      return;
+    }
+
+    for (int j = startCol; j < interiorStart; j++) {
+      out[offset + j - startCol] = tablePixelChecked(pixels, firstRow, height, width, row, j);
+    }
+    int[] offsets = tapOffsets(width);
+    int[][] tapTables = this.tables;
+    int taps = offsets.length;
+    for (int j = interiorStart; j < interiorEnd; j++) {
+      int center = (row - firstRow) * width + j;
+      int red = 0;
+      int green = 0;
+      int blue = 0;
+      for (int t = 0; t < taps; t++) {
+        int rgb = pixels[center + offsets[t]];
+        int[] table = tapTables[t];
+        red += table[(rgb >> 16) & 0xFF];
+        green += table[(rgb >> 8) & 0xFF];
+        blue += table[rgb & 0xFF];
+      }
+      out[offset + j - startCol] = clampPack(red, green, blue);
+    }
+    for (int j = interiorEnd; j < endCol; j++) {
+      out[offset + j - startCol] = tablePixelChecked(pixels, firstRow, height, width, row, j);
+    }
+  }
+
+  /**
+   * Filters a single pixel near the border with a kernel that truncates each weighted value,
+   * skipping the taps that fall outside the image.
+   *
+   * @param pixels   the packed pixels of a band of rows of the image in row-major order
+   * @param firstRow the row of the image that the band starts at
+   * @param height   the height of the image
+   * @param width    the width of the image
+   * @param row      the row of the pixel to filter
+   * @param col      the column of the pixel to filter
+   * @return the packed color value of the filtered pixel
+   */
+  private int tablePixelChecked(int[] pixels, int firstRow, int height, int width, int row,
+                                int col) {
+    int red = 0;
+    int green = 0;
+    int blue = 0;
+    for (int a = 0; a < this.size; a++) {
+      int i = row + a - this.radius;
+      if (i < 0 || i >= height) {
+        continue;
+      }
+      for (int b = 0; b < this.size; b++) {
+        int j = col + b - this.radius;
+        if (j < 0 || j >= width) {
+          continue;
+        }
+        int rgb = pixels[(i - firstRow) * width + j];
+        int[] table = this.tables[a * this.size + b];
+        red += table[(rgb >> 16) & 0xFF];
+        green += table[(rgb >> 8) & 0xFF];
+        blue += table[rgb & 0xFF];
+      }
+    }
+    return clampPack(red, green, blue);
+  }
+
+  /**
+   * Filters a run of pixels with a kernel that cannot be split, truncating only the sums.
+   *
+   * @param pixels   the packed pixels of a band of rows of the image in row-major order
+   * @param firstRow the row of the image that the band starts at
+   * @param height   the height of the image
+   * @param width    the width of the image
+   * @param row      the row of the pixels to filter
+   * @param startCol the first column to filter
+   * @param endCol   the column after the last column to filter
+   * @param out      the buffer that the filtered pixels are written to
+   * @param offset   the index in the buffer at which the pixel at the first column is written
+   */
+  private void convolveWeights(int[] pixels, int firstRow, int height, int width, int row,
+                               int startCol, int endCol, int[] out, int offset) {
+    int interiorStart = Math.max(startCol, this.radius);
+    int interiorEnd = Math.min(endCol, width - this.radius);
+    if (row < this.radius || row >= height - this.radius || interiorStart >= interiorEnd) {
+      interiorStart = endCol;
+      interiorEnd = endCol;
+    }
+
+    for (int j = startCol; j < interiorStart; j++) {
+      out[offset + j - startCol] = weightPixelChecked(pixels, firstRow, height, width, row, j);
+    }
+    int[] offsets = tapOffsets(width);
+    double[] tapWeights = this.weights;
+    int taps = offsets.length;
+    for (int j = interiorStart; j < interiorEnd; j++) {
+      int center = (row - firstRow) * width + j;
+      double red = 0;
+      double green = 0;
+      double blue = 0;
+      for (int t = 0; t < taps; t++) {
+        int rgb = pixels[center + offsets[t]];
+        double weight = tapWeights[t];
+        red += weight * ((rgb >> 16) & 0xFF);
+        green += weight * ((rgb >> 8) & 0xFF);
+        blue += weight * (rgb & 0xFF);
+      }
+      out[offset + j - startCol] = clampPack((int) red, (int) green, (int) blue);
+    }
+    for (int j = interiorEnd; j < endCol; j++) {
+      out[offset + j - startCol] = weightPixelChecked(pixels, firstRow, height, width, row, j);
+    }
+  }
+
+  /**
+   * Filters a single pixel near the border with a kernel that cannot be split, skipping the
+   * taps that fall outside the image.
+   *
+   * @param pixels   the packed pixels of a band of rows of the image in row-major order
+   * @param firstRow the row of the image that the band starts at
+   * @param height   the height of the image
+   * @param width    the width of the image
+   * @param row      the row of the pixel to filter
+   * @param col      the column of the pixel to filter
+   * @return the packed color value of the filtered pixel
+   */
+  private int weightPixelChecked(int[] pixels, int firstRow, int height, int width, int row,
+                                 int col) {
+    double red = 0;
+    double green = 0;
+    double blue = 0;
+    for (int a = 0; a < this.size; a++) {
+      int i = row + a - this.radius;
+      if (i < 0 || i >= height) {
+        continue;
+      }
+      for (int b = 0; b < this.size; b++) {
+        int j = col + b - this.radius;
+        if (j < 0 || j >= width) {
+          continue;
+        }
+        int rgb = pixels[(i - firstRow) * width + j];
+        double weight = this.weights[a * this.size + b];
+        red += weight * ((rgb >> 16) & 0xFF);
+        green += weight * ((rgb >> 8) & 0xFF);
+        blue += weight * (rgb & 0xFF);
+      }
+    }
+    return clampPack((int) red, (int) green, (int) blue);
+  }
+
+  /**
+   * Filters a run of pixels with a kernel that is split into a column and a row vector. The
+   * column vector is applied first to every column the run needs, and the row vector is then
+   * applied to those column sums, so each pixel costs two passes of the kernel's side length
+   * rather than one pass of its area.
+   *
+   * @param pixels   the packed pixels of a band of rows of the image in row-major order
+   * @param firstRow the row of the image that the band starts at
+   * @param height   the height of the image
+   * @param width    the width of the image
+   * @param row      the row of the pixels to filter
+   * @param startCol the first column to filter
+   * @param endCol   the column after the last column to filter
+   * @param out      the buffer that the filtered pixels are written to
+   * @param offset   the index in the buffer at which the pixel at the first column is written
+   */
+  private void convolveSeparable(int[] pixels, int firstRow, int height, int width, int row,
+                                 int startCol, int endCol, int[] out, int offset) {
+    int first = Math.max(0, startCol - this.radius);
+    int last = Math.min(width, endCol + this.radius);
+    int span = last - first;
+    double[] reds = new double[span];
+    double[] greens = new double[span];
+    double[] blues = new double[span];
+
+    int startTap = Math.max(0, this.radius - row);
+    int endTap = Math.min(this.size, height - row + this.radius);
+    for (int a = startTap; a < endTap; a++) {
+      double weight = this.columnWeights[a];
+      int rowStart = (row + a - this.radius - firstRow) * width + first;
+      for (int k = 0; k < span; k++) {
+        int rgb = pixels[rowStart + k];
+        reds[k] += weight * ((rgb >> 16) & 0xFF);
+        greens[k] += weight * ((rgb >> 8) & 0xFF);
+        blues[k] += weight * (rgb & 0xFF);
+      }
+    }
+
+    for (int j = startCol; j < endCol; j++) {
+      int startWeight = Math.max(0, this.radius - j);
+      int endWeight = Math.min(this.size, width - j + this.radius);
+      int base = j - this.radius - first;
+      double red = 0;
+      double green = 0;
+      double blue = 0;
+      for (int b = startWeight; b < endWeight; b++) {
+        double weight = this.rowWeights[b];
+        red += weight * reds[base + b];
+        green += weight * greens[base + b];
+        blue += weight * blues[base + b];
+      }
+      out[offset + j - startCol] = clampPack((int) red, (int) green, (int) blue);
+    }
+  }
+
+  /**
+   * Computes the offset of every tap of the kernel from its center in an image of a given
+   * width, in the same order as the kernel's weights.
+   *
+   * @param width the width of the image
+   * @return the offsets of the taps
+   */
+  private int[] tapOffsets(int width) {
+    int[] offsets = new int[this.size * this.size];
+    for (int a = 0; a < this.size; a++) {
+      for (int b = 0; b < this.size; b++) {
+        offsets[a * this.size + b] = (a - this.radius) * width + (b - this.radius);
+      }
+    }
+    return offsets;
+  }
+
+  /**
+   * Blurs an image by repeatedly averaging each pixel with the pixels in a square around it.
+   * Each pass is computed with running sums along the rows and then along the columns, so the
+   * cost per pixel does not depend on the radius; three passes closely approximate a Gaussian
+   * blur. Near the border, only the pixels inside the image are averaged.
+   *
+   * @param pixels the packed pixels of the image in row-major order
+   * @param height the height of the image
+   * @param width  the width of the image
+   * @param radius the distance from each pixel to the edge of the square it is averaged over
+   * @param passes the number of times the image is averaged
+   * @return the packed pixels of the blurred image
+   * @throws IllegalArgumentException if the radius is negative, the number of passes is less
+   *                                  than 1, or the pixels do not match the dimensions
+   */
+  public static int[] boxBlur(int[] pixels, int height, int width, int radius, int passes)
+          throws IllegalArgumentException {
+    if (radius < 0 || passes < 1) {
+      throw new IllegalArgumentException("Radius must not be negative and passes must be"
+              + " positive.");
+    }
+    if (pixels == null || pixels.length != height * width) {
+      throw new IllegalArgumentException("Pixels must match the dimensions of the image.");
+    }
+    return boxBlurInPlace(pixels.clone(), height, width, radius, passes);
+  }
+
+  /**
+   * Blurs an image model like {@link #boxBlur(int[], int, int, int, int)}, reading its rows
+   * straight into the buffer that becomes the blurred image, so the model's pixels are never
+   * copied anywhere else.
+   *
+   * @param model  the image model to blur
+   * @param radius the distance from each pixel to the edge of the square it is averaged over
+   * @param passes the number of times the image is averaged
+   * @return the packed pixels of the blurred image
+   * @throws IllegalArgumentException if the model is null, the radius is negative or the
+   *                                  number of passes is less than 1
+   */
+  public static int[] boxBlur(ImageModel model, int radius, int passes)
+          throws IllegalArgumentException {
+    if (model == null) {
+      throw new IllegalArgumentException("Image model must not be null.");
+    }
+    if (radius < 0 || passes < 1) {
+      throw new IllegalArgumentException("Radius must not be negative and passes must be"
+              + " positive.");
+    }
+    int height = model.getImageHeight();
+    int width = model.getImageWidth();
+    int[] pixels = new int[height * width];
+    RowExecutor.forEachRow(height, width, (startRow, endRow) -> {
+      for (int i = startRow; i < endRow; i++) {
+        model.getRow(i, pixels, i * width);
+      }
+    });
+    return boxBlurInPlace(pixels, height, width, radius, passes);
+  }
+
+  /**
+   * Blurs packed pixels in place with a number of box blur passes.
+   *
+   * @param current the packed pixels of the image, which are replaced by the blurred pixels
+   * @param height  the height of the image
+   * @param width   the width of the image
+   * @param radius  the distance from each pixel to the edge of the square it is averaged over
+   * @param passes  the number of times the image is averaged
+   * @return the packed pixels of the blurred image
+   */
+  private static int[] boxBlurInPlace(int[] current, int height, int width, int radius,
+                                      int passes) {
+    // A window reaching past both ends of every line averages the same pixels as one that
+    // just covers the line, and keeps the running sums' indices from overflowing
+    int reach = Math.min(radius, Math.max(height, width));
+    int[] scratch = new int[current.length];
+    for (int p = 0; p < passes; p++) {
+      int[] source = current;
+      int[] target = scratch;
+      RowExecutor.forEachRow(height, width, (startRow, endRow) -> {
+        for (int i = startRow; i < endRow; i++) {
+          boxLine(source, target, i * width, 1, width, reach);
+        }
+      });
+      RowExecutor.forEachRow(width, height, (startCol, endCol) -> {
+        for (int j = startCol; j < endCol; j++) {
+          boxLine(target, source, j, width, height, reach);
+        }
+      });
+    }
+    return current;
+  }
+
+  /**
+   * Averages every pixel of a line of pixels with the pixels within a given radius of it on
+   * the same line, keeping a running sum that gains one pixel and loses one pixel per step.
+   *
+   * @param source the packed pixels that are averaged
+   * @param target the buffer that the averaged pixels are written to
+   * @param start  the index of the first pixel of the line
+   * @param stride the distance between consecutive pixels of the line
+   * @param length the number of pixels on the line
+   * @param radius the distance from each pixel to the edge of the window it is averaged over
+   */
+  private static void boxLine(int[] source, int[] target, int start, int stride, int length,
+                              int radius) {
+    int red = 0;
+    int green = 0;
+    int blue = 0;
+    int count = 0;
+    int ahead = Math.min(radius, length - 1);
+    for (int k = 0; k <= ahead; k++) {
+      int rgb = source[start + k * stride];
+      red += (rgb >> 16) & 0xFF;
+      green += (rgb >> 8) & 0xFF;
+      blue += rgb & 0xFF;
+      count++;
+    }
+    for (int k = 0; k < length; k++) {
+      int half = count >> 1;
+      target[start + k * stride] = PackedImageModel.pack((red + half) / count,
+              (green + half) / count, (blue + half) / count);
+      int entering = k + radius + 1;
+      if (entering < length) {
+        int rgb = source[start + entering * stride];
+        red += (rgb >> 16) & 0xFF;
+        green += (rgb >> 8) & 0xFF;
+        blue += rgb & 0xFF;
+        count++;
+      }
+      int leaving = k - radius;
+      if (leaving >= 0) {
+        int rgb = source[start + leaving * stride];
+        red -= (rgb >> 16) & 0xFF;
+        green -= (rgb >> 8) & 0xFF;
+        blue -= rgb & 0xFF;
+        count--;
+      }
+    }
+  }
+
+  /**
+   * Clamps each channel sum to the range 0 to 255 and packs the channels into one value.
+   *
+   * @param red   the red channel sum
+   * @param green the green channel sum
+   * @param blue  the blue channel sum
+   * @return the packed 0xRRGGBB color value
+   */
+  private static int clampPack(int red, int green, int blue) {
+    return PackedImageModel.pack(Math.max(Math.min(red, 255), 0),
+            Math.max(Math.min(green, 255), 0), Math.max(Math.min(blue, 255), 0));
+  }
+}
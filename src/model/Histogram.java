@@ -0,0 +1,87 @@
+package model;
+
+/**
+ * This class represents the histograms of an image model: for each of the red, green, blue and
+ * intensity components, the number of pixels having each value from 0 to 255. The intensity of
+ * a pixel is the average of its three components, rounded down.
+ *
+ * <p>All four histograms are counted in a single pass over the rows of the image, with bands of
+ * rows counted in parallel into their own tables and then added together.
+ */
+public class Histogram {
+  private final int[] red;
+  private final int[] green;
+  private final int[] blue;
+  private final int[] intensity;
+
+  /**
+   * Constructs the histograms of a given image model.
+   *
+   * @param model the image model whose pixels are counted
+   * @throws IllegalArgumentException if the image model is null
+   */
+  public Histogram(ImageModel model) throws IllegalArgumentException {
+    if (model == null) {
+      throw new IllegalArgumentException("Image model cannot be null.");
+    }
+    this.red = new int[256];
+    this.green = new int[256];
+    this.blue = new int[256];
+    this.intensity = new int[256];
+    int width = model.getImageWidth();
+    RowExecutor.forEachRow(model.getImageHeight(), width, (startRow, endRow) -> {
+      int[][] counts = new int[4][256];
+      int[] row = new int[width];
+      for (int i = startRow; i < endRow; i++) {
+        model.getRow(i, row, 0);
+        for (int j = 0; j < width; j++) {
+          int rgb = row[j];
+          int r = PackedImageModel.red(rgb);
+          int g = PackedImageModel.green(rgb);
+          int b = PackedImageModel.blue(rgb);
+          counts[0][r]++;
+          counts[1][g]++;
+          counts[2][b]++;
+          counts[3][(r + g + b) / 3]++;
+        }
+      }
+      merge(counts);
+    });
+  }
+
+  /**
+   * Adds the counts of one band of rows to the histograms.
+   *
+   * @param counts the red, green, blue and intensity counts of the band
+   */
+  private synchronized void merge(int[][] counts) {
+    for (int v = 0; v < 256; v++) {
+      this.red[v] += counts[0][v];
+      this.green[v] += counts[1][v];
+      this.blue[v] += counts[2][v];
+      this.intensity[v] += counts[3][v];
+    }
+  }
+
+  /**
+   * Gets the histogram of a given component of the image model.
+   *
+   * @param component the component, one of "red", "green", "blue" or "intensity"
+   * @return the number of pixels having each value of the component, indexed by value
+   * @throws IllegalArgumentException if the component is not one of the four components
+   */
+  public int[] getCounts(String component) throws IllegalArgumentException {
+    switch (component) {
+      case "red":
+        return this.red.clone();
+      case "green":
+        return this.green.clone();
+      case "blue":
+        return this.blue.clone();
+      case "intensity":
+        return this.intensity.clone();
+      default:
+        throw new IllegalArgumentException("Invalid histogram component: " + component + ".");
+    }
+  }
+}
@@ -29,4 +29,45 @@ public interface ImageModel {
    *                                  image model
    */
   IPixel getPixelAt(int row, int col) throws IllegalArgumentException;
+
+  /**
+   * Gets the packed 0xRRGGBB color value of the pixel at a given row and column of the image
+   * model that the method is being performed on.
+   *
+   * @param row the row from which to get the pixel
+   * @param col the column from which to get the pixel
+   * @return the packed color value of the pixel at the given row and column
+   * @throws IllegalArgumentException if the given position is beyond the dimensions of the
+   *                                  image model
+   */
+  int getRGBAt(int row, int col) throws IllegalArgumentException;
+
+  /**
+   * Copies the packed 0xRRGGBB color values of one row of the image model into a given buffer.
+   *
+   * @param row    the row to copy
+   * @param buffer the buffer that the row is copied into
+   * @param offset the index in the buffer at which to start writing
+   * @throws IllegalArgumentException if the row is beyond the dimensions of the image model or
+   *                                  the buffer is too small to hold the row
+   */
+  void getRow(int row, int[] buffer, int offset) throws IllegalArgumentException;
+
+  /**
+   * Copies a rectangular region of the image model into a given buffer as opaque packed
+   * 0xAARRGGBB color values, laid out like the buffer of
+   * {@link java.awt.image.BufferedImage#getRGB(int, int, int, int, int[], int, int)}.
+   *
+   * @param row      the first row of the region
+   * @param col      the first column of the region
+   * @param height   the number of rows in the region
+   * @param width    the number of columns in the region
+   * @param buffer   the buffer that the region is copied into
+   * @param offset   the index in the buffer at which the first pixel of the region is written
+   * @param scansize the distance in the buffer from the start of one row to the next
+   * @throws IllegalArgumentException if the region is beyond the dimensions of the image model
+   *                                  or the buffer is too small to hold it
+   */
+  void getRegion(int row, int col, int height, int width, int[] buffer, int offset,
+                 int scansize) throws IllegalArgumentException;
 }
\ No newline at end of file
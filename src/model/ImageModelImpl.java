@@ -61,4 +61,70 @@ public class ImageModelImpl implements ImageModel {
     }
     return this.pixels[row][col];
   }
-}
\ No newline at end of file
+
+  /**
+   * Gets the packed 0xRRGGBB color value of the pixel at a given row and column of the PPM
+   * image model that the method is being performed on. A packed value holds eight bits per
+   * channel, so channels above 255, as read from a PPM file with a larger maximum value, are
+   * clamped to 255; {@link #getPixelAt} still gives the values as they were read.
+   *
+   * @param row the row from which to get the pixel
+   * @param col the column from which to get the pixel
+   * @return the packed color value of the pixel at the given row and column, with each channel
+   *         clamped to 255
+   * @throws IllegalArgumentException if the given position is beyond the dimensions of the
+   *                                  image model
+   */
+  @Override
+  public int getRGBAt(int row, int col) throws IllegalArgumentException {
+    IPixel pixel = getPixelAt(row, col);
+    return PackedImageModel.pack(Math.min(pixel.getRed(), 255),
+            Math.min(pixel.getGreen(), 255), Math.min(pixel.getBlue(), 255));
+  }
+
+  /**
+   * Copies the packed 0xRRGGBB color values of one row of the PPM image model into a given
+   * buffer, with each channel clamped to 255 as in {@link #getRGBAt}.
+   *
+   * @param row    the row to copy
+   * @param buffer the buffer that the row is copied into
+   * @param offset the index in the buffer at which to start writing
+   * @throws IllegalArgumentException if the row is beyond the dimensions of the image model or
+   *                                  the buffer is too small to hold the row
+   */
+  @Override
+  public void getRow(int row, int[] buffer, int offset) throws IllegalArgumentException {
+    if (buffer == null || offset < 0 || offset + this.width > buffer.length) {
+      throw new IllegalArgumentException("Buffer is too small to hold the row.");
+    }
+    for (int j = 0; j < this.width; j++) {
+      buffer[offset + j] = getRGBAt(row, j);
+    }
+  }
+
+  /**
+   * Copies a rectangular region of the image model into a given buffer as opaque packed
+   * 0xAARRGGBB color values.
+   *
+   * @param row      the first row of the region
+   * @param col      the first column of the region
+   * @param height   the number of rows in the region
+   * @param width    the number of columns in the region
+   * @param buffer   the buffer that the region is copied into
+   * @param offset   the index in the buffer at which the first pixel of the region is written
+   * @param scansize the distance in the buffer from the start of one row to the next
+   * @throws IllegalArgumentException if the region is beyond the dimensions of the image model
+   *                                  or the buffer is too small to hold it
+   */
+  @Override
+  public void getRegion(int row, int col, int height, int width, int[] buffer, int offset,
+                        int scansize) throws IllegalArgumentException {
+    ImageUtil.checkRegion(this, row, col, height, width, buffer, offset, scansize);
+    for (int i = 0; i < height; i++) {
+      int target = offset + i * scansize;
+      for (int j = 0; j < width; j++) {
+        buffer[target + j] = 0xFF000000 | getRGBAt(row + i, col + j);
+      }
+    }
+  }
+}
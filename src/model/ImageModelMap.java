@@ -21,4 +21,11 @@ public interface ImageModelMap {
    * @param output   the output to write progress messages to
    */
   void add(String newName, ImageModel newModel, Appendable output);
+
+  /**
+   * Gets the number of image models in the map.
+   *
+   * @return the number of names that an image model is stored under
+   */
+  int size();
 }
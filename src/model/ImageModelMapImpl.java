@@ -46,4 +46,14 @@ public class ImageModelMapImpl implements ImageModelMap {
       this.imageModelMap.put(newName, newModel);
     }
   }
+
+  /**
+   * Gets the number of image models in the map.
+   *
+   * @return the number of names that an image model is stored under
+   */
+  @Override
+  public int size() {
+    return this.imageModelMap.size();
+  }
 }
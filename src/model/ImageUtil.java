@@ -1,16 +1,29 @@
 package model;
 
-import java.awt.Color;
+import java.awt.color.ColorSpace;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
 import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 
 /**
  * This class represents general purpose methods that would need to be performed on an image
  * by different classes.
  */
 public class ImageUtil {
+  private static final int ROW_BATCH_PIXELS = 16384;
+
   /**
-   * Renders pixel data from a given ImageModel to a BufferedImage.
+   * Renders pixel data from a given ImageModel to a BufferedImage. The BufferedImage must store
+   * its pixels as packed integers, and the part of it covered by the ImageModel is filled in
+   * bands of rows straight from the model without creating any objects per pixel.
    *
    * @param image the BufferedImage being rendered to
    * @param model the ImageModel being rendered
@@ -20,15 +33,194 @@ public class ImageUtil {
   static public void renderBufferedImage(BufferedImage image, ImageModel model,
                                          int width, int height) {
     int[] rgbPixelData = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    int rows = Math.min(height, model.getImageHeight());
+    int cols = Math.min(width, model.getImageWidth());
+    RowExecutor.forEachRow(rows, cols, (startRow, endRow) ->
+            model.getRegion(startRow, 0, endRow - startRow, cols, rgbPixelData,
+                    startRow * width, width));
+  }
+
+  /**
+   * Renders one rectangular region of a given ImageModel onto the same region of a
+   * BufferedImage that already holds a rendering of an image of the same size, leaving the
+   * rest of the BufferedImage unchanged. The BufferedImage must store its pixels as packed
+   * integers.
+   *
+   * @param image  the BufferedImage being rendered to
+   * @param model  the ImageModel being rendered
+   * @param row    the first row of the region
+   * @param col    the first column of the region
+   * @param height the number of rows in the region
+   * @param width  the number of columns in the region
+   * @throws IllegalArgumentException if the region is beyond the dimensions of the image model
+   *                                  or the BufferedImage
+   */
+  public static void renderRegion(BufferedImage image, ImageModel model, int row, int col,
+                                  int height, int width) throws IllegalArgumentException {
+    if (row + height > image.getHeight() || col + width > image.getWidth()) {
+      throw new IllegalArgumentException("Region is beyond the dimensions of the image.");
+    }
+    int[] rgbPixelData = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    int scansize = image.getWidth();
+    model.getRegion(row, col, height, width, rgbPixelData, row * scansize + col, scansize);
+  }
 
-    for (int i = 0, position1D = 0; i < height ; i++) {
-      for (int j = 0; j < width; j++, position1D++) {
-        int red = model.getPixelAt(i, j).getRed();
-        int green = model.getPixelAt(i, j).getGreen();
-        int blue = model.getPixelAt(i, j).getBlue();
-        Color color = new Color(red, green, blue);
-        rgbPixelData[position1D] = color.getRGB();
+  /**
+   * Checks that a rectangular region lies within an image model and fits in a given buffer.
+   *
+   * @param model    the image model the region is copied from
+   * @param row      the first row of the region
+   * @param col      the first column of the region
+   * @param height   the number of rows in the region
+   * @param width    the number of columns in the region
+   * @param buffer   the buffer that the region is copied into
+   * @param offset   the index in the buffer at which the first pixel of the region is written
+   * @param scansize the distance in the buffer from the start of one row to the next
+   * @throws IllegalArgumentException if the region is beyond the dimensions of the image model
+   *                                  or the buffer is too small to hold it
+   */
+  static void checkRegion(ImageModel model, int row, int col, int height, int width,
+                          int[] buffer, int offset, int scansize)
+          throws IllegalArgumentException {
+    if (row < 0 || col < 0 || height < 0 || width < 0
+            || row + height > model.getImageHeight() || col + width > model.getImageWidth()) {
+      throw new IllegalArgumentException("Region is beyond the dimensions of the image.");
+    }
+    if (buffer == null || offset < 0 || (height > 1 && scansize < width)
+            || (height > 0 && offset + (long) (height - 1) * scansize + width > buffer.length)) {
+      throw new IllegalArgumentException("Buffer is too small to hold the region.");
+    }
+  }
+
+  /**
+   * Decodes the pixels of a BufferedImage into packed 0xRRGGBB color values in row-major
+   * order, ignoring any alpha. Images with 8-bit RGB, packed integer RGB, 8-bit greyscale or
+   * indexed pixels are decoded straight from their raster's data buffer; greyscale and indexed
+   * pixels go through a table built from the image's color model, so every image gives exactly
+   * the colors that {@link BufferedImage#getRGB(int, int)} would. Other images are decoded in
+   * batches of rows through {@link BufferedImage#getRGB(int, int, int, int, int[], int, int)}.
+   *
+   * @param image the BufferedImage being decoded
+   * @return the packed color values of the image
+   */
+  public static int[] readBufferedImage(BufferedImage image) {
+    int height = image.getHeight();
+    int width = image.getWidth();
+    int[] pixels = new int[height * width];
+    WritableRaster raster = image.getRaster();
+    ColorModel colorModel = image.getColorModel();
+    SampleModel sampleModel = raster.getSampleModel();
+    boolean untranslated = raster.getSampleModelTranslateX() == 0
+            && raster.getSampleModelTranslateY() == 0;
+
+    if (untranslated && sampleModel instanceof SinglePixelPackedSampleModel
+            && raster.getDataBuffer() instanceof DataBufferInt
+            && (image.getType() == BufferedImage.TYPE_INT_RGB
+            || image.getType() == BufferedImage.TYPE_INT_ARGB)) {
+      int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+      int base = raster.getDataBuffer().getOffset();
+      int stride = ((SinglePixelPackedSampleModel) sampleModel).getScanlineStride();
+      RowExecutor.forEachRow(height, width, (startRow, endRow) -> {
+        for (int i = startRow; i < endRow; i++) {
+          int start = base + i * stride;
+          for (int j = 0; j < width; j++) {
+            pixels[i * width + j] = data[start + j] & 0xFFFFFF;
+          }
+        }
+      });
+    } else if (untranslated && sampleModel instanceof PixelInterleavedSampleModel
+            && raster.getDataBuffer() instanceof DataBufferByte
+            && isDirectComponentModel(colorModel)) {
+      byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+      PixelInterleavedSampleModel interleaved = (PixelInterleavedSampleModel) sampleModel;
+      int base = raster.getDataBuffer().getOffset();
+      int stride = interleaved.getScanlineStride();
+      int pixelStride = interleaved.getPixelStride();
+      int[] offsets = interleaved.getBandOffsets();
+      int[] table = colorModel.getNumColorComponents() == 1 ? greyTable(colorModel) : null;
+      RowExecutor.forEachRow(height, width, (startRow, endRow) -> {
+        for (int i = startRow; i < endRow; i++) {
+          int index = base + i * stride;
+          for (int j = 0; j < width; j++, index += pixelStride) {
+            if (table != null) {
+              pixels[i * width + j] = table[data[index + offsets[0]] & 0xFF];
+            } else {
+              pixels[i * width + j] = ((data[index + offsets[0]] & 0xFF) << 16)
+                      | ((data[index + offsets[1]] & 0xFF) << 8)
+                      | (data[index + offsets[2]] & 0xFF);
+            }
+          }
+        }
+      });
+    } else if (colorModel instanceof IndexColorModel && raster.getNumBands() == 1) {
+      IndexColorModel indexed = (IndexColorModel) colorModel;
+      int[] table = new int[1 << indexed.getPixelSize()];
+      int[] colors = new int[indexed.getMapSize()];
+      indexed.getRGBs(colors);
+      for (int k = 0; k < table.length; k++) {
+        table[k] = k < colors.length ? colors[k] & 0xFFFFFF : 0;
+      }
+      RowExecutor.forEachRow(height, width, (startRow, endRow) -> {
+        int[] samples = new int[width];
+        for (int i = startRow; i < endRow; i++) {
+          raster.getSamples(0, i, width, 1, 0, samples);
+          for (int j = 0; j < width; j++) {
+            pixels[i * width + j] = table[samples[j]];
+          }
+        }
+      });
+    } else {
+      int rowsPerBatch = Math.max(1, ROW_BATCH_PIXELS / width);
+      for (int i = 0; i < height; i += rowsPerBatch) {
+        int rows = Math.min(rowsPerBatch, height - i);
+        image.getRGB(0, i, width, rows, pixels, i * width, width);
+      }
+      for (int k = 0; k < pixels.length; k++) {
+        pixels[k] &= 0xFFFFFF;
+      }
+    }
+    return pixels;
+  }
+
+  /**
+   * Determines whether a color model stores 8-bit sRGB or greyscale components whose values
+   * can be read straight from the raster.
+   *
+   * @param colorModel the color model of an image
+   * @return true if the components can be read directly, false otherwise
+   */
+  private static boolean isDirectComponentModel(ColorModel colorModel) {
+    if (!(colorModel instanceof ComponentColorModel) || colorModel.isAlphaPremultiplied()
+            || colorModel.getTransferType() != DataBuffer.TYPE_BYTE) {
+      return false;
+    }
+    for (int size : colorModel.getComponentSize()) {
+      if (size != 8) {
+        return false;
+      }
+    }
+    int components = colorModel.getNumColorComponents();
+    return (components == 3 && colorModel.getColorSpace().isCS_sRGB())
+            || (components == 1 && colorModel.getColorSpace().getType() == ColorSpace.TYPE_GRAY);
+  }
+
+  /**
+   * Builds a table giving the packed color value of every 8-bit grey sample, as converted by
+   * the image's color model.
+   *
+   * @param colorModel the color model of a greyscale image
+   * @return the packed color value of each grey sample
+   */
+  private static int[] greyTable(ColorModel colorModel) {
+    int[] table = new int[256];
+    byte[] element = new byte[colorModel.getNumComponents()];
+    for (int v = 0; v < 256; v++) {
+      element[0] = (byte) v;
+      if (element.length > 1) {
+        element[1] = (byte) 0xFF;
       }
+      table[v] = colorModel.getRGB(element) & 0xFFFFFF;
     }
+    return table;
   }
 }
@@ -0,0 +1,240 @@
+package model;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+/**
+ * This class represents a square convolution kernel with an odd side length, used to filter an
+ * image by replacing each pixel with a weighted sum of the pixels around it.
+ *
+ * <p>A kernel either truncates the weighted value of each pixel before adding it to the sum,
+ * which is how the built-in blur and sharpen filters have always been computed, or truncates
+ * only the final sum, which is how user-defined kernels are computed.
+ */
+public class Kernel {
+  private final int size;
+  private final double[] weights;
+  private final boolean truncateEachTap;
+
+  /**
+   * Constructs a kernel from its side length and its weights in row-major order.
+   *
+   * @param size            the side length of the kernel
+   * @param weights         the weights of the kernel in row-major order
+   * @param truncateEachTap true if each weighted pixel value is truncated before it is summed
+   * @throws IllegalArgumentException if the size is not a positive odd number or the number of
+   *                                  weights does not match it
+   */
+  private Kernel(int size, double[] weights, boolean truncateEachTap)
+          throws IllegalArgumentException {
+    if (size < 1 || size % 2 == 0) {
+      throw new IllegalArgumentException("Kernel size must be a positive odd number.");
+    }
+    if (weights == null || weights.length != size * size) {
+      throw new IllegalArgumentException("Kernel must contain size * size weights.");
+    }
+    for (double weight : weights) {
+      if (Double.isNaN(weight) || Double.isInfinite(weight)) {
+        throw new IllegalArgumentException("Kernel weights must be finite numbers.");
+      }
+    }
+    this.size = size;
+    this.weights = weights;
+    this.truncateEachTap = truncateEachTap;
+  }
+
+  /**
+   * Creates the 3x3 kernel used by the blur filter.
+   *
+   * @return the blur kernel
+   */
+  public static Kernel blur() {
+    return new Kernel(3, new double[]{
+        1.0 / 16, 1.0 / 8, 1.0 / 16,
+        1.0 / 8, 1.0 / 4, 1.0 / 8,
+        1.0 / 16, 1.0 / 8, 1.0 / 16}, true);
+  }
+
+  /**
+   * Creates the 5x5 kernel used by the sharpen filter.
+   *
+   * @return the sharpen kernel
+   */
+  public static Kernel sharpen() {
+    double[] weights = new double[25];
+    for (int i = 0; i < 5; i++) {
+      for (int j = 0; j < 5; j++) {
+        if (i == 2 && j == 2) {
+          weights[i * 5 + j] = 1.0;
+        } else if (i >= 1 && i <= 3 && j >= 1 && j <= 3) {
+          weights[i * 5 + j] = 1.0 / 4;
+        } else {
+          weights[i * 5 + j] = -1.0 / 8;
+        }
+      }
+    }
+    return new Kernel(5, weights, true);
+  }
+
+  /**
+   * Creates a user-defined kernel from a square 2D array of weights.
+   *
+   * @param weights the weights of the kernel
+   * @return the kernel
+   * @throws IllegalArgumentException if the weights are not a square with an odd side length
+   */
+  public static Kernel of(double[][] weights) throws IllegalArgumentException {
+    if (weights == null) {
+      throw new IllegalArgumentException("Kernel weights must not be null.");
+    }
+    int size = weights.length;
+    double[] flat = new double[size * size];
+    for (int i = 0; i < size; i++) {
+      if (weights[i] == null || weights[i].length != size) {
+        throw new IllegalArgumentException("Kernel must be square.");
+      }
+      System.arraycopy(weights[i], 0, flat, i * size, size);
+    }
+    return new Kernel(size, flat, false);
+  }
+
+  /**
+   * Loads a user-defined kernel from a text file containing the side length of the kernel
+   * followed by its weights in row-major order, separated by whitespace. Lines beginning with
+   * '#' are ignored.
+   *
+   * @param filepath the filepath from which the kernel is loaded
+   * @return the kernel
+   * @throws IllegalArgumentException if the file cannot be found or does not describe a kernel
+   */
+  public static Kernel load(String filepath) throws IllegalArgumentException {
+    Scanner scanner;
+    try {
+      scanner = new Scanner(new FileInputStream(filepath));
+    } catch (FileNotFoundException e) {
+      throw new IllegalArgumentException("File not found: " + filepath + ".");
+    }
+
+    StringBuilder builder = new StringBuilder();
+    while (scanner.hasNextLine()) {
+      String line = scanner.nextLine();
+      if (!line.startsWith("#")) {
+        builder.append(line).append(System.lineSeparator());
+      }
+    }
+    scanner.close();
+
+    scanner = new Scanner(builder.toString());
+    try {
+      int size = scanner.nextInt();
+      if (size < 1 || size % 2 == 0) {
+        throw new IllegalArgumentException("Kernel size must be a positive odd number.");
+      }
+      double[] weights = new double[size * size];
+      for (int i = 0; i < weights.length; i++) {
+        weights[i] = Double.parseDouble(scanner.next());
+      }
+      if (scanner.hasNext()) {
+        throw new IllegalArgumentException("Kernel file contains too many weights.");
+      }
+      return new Kernel(size, weights, false);
+    } catch (NoSuchElementException | NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid kernel file: " + filepath + ".");
+    }
+  }
+
+  /**
+   * Gets the side length of the kernel.
+   *
+   * @return the side length of the kernel
+   */
+  public int getSize() {
+    return this.size;
+  }
+
+  /**
+   * Gets the weight at a given row and column of the kernel.
+   *
+   * @param row the row of the weight
+   * @param col the column of the weight
+   * @return the weight at the given row and column
+   */
+  public double getWeight(int row, int col) {
+    return this.weights[row * this.size + col];
+  }
+
+  /**
+   * Determines whether each weighted pixel value is truncated before it is added to the sum.
+   *
+   * @return true if each weighted value is truncated, false if only the sum is
+   */
+  public boolean truncatesEachTap() {
+    return this.truncateEachTap;
+  }
+
+  /**
+   * Splits the kernel into a column vector and a row vector whose product is the kernel, so that
+   * it can be applied as two one-dimensional passes.
+   *
+   * @return the column vector followed by the row vector, or null if the kernel cannot be split
+   */
+  public double[][] separate() {
+    int pivot = 0;
+    for (int i = 1; i < this.weights.length; i++) {
+      if (Math.abs(this.weights[i]) > Math.abs(this.weights[pivot])) {
+        pivot = i;
+      }
+    }
+    if (this.weights[pivot] == 0) {
+      return null;
+    }
+    int pivotRow = pivot / this.size;
+    int pivotCol = pivot % this.size;
+    double[] column = new double[this.size];
+    double[] row = new double[this.size];
+    for (int i = 0; i < this.size; i++) {
+      column[i] = getWeight(i, pivotCol);
+      row[i] = getWeight(pivotRow, i) / this.weights[pivot];
+    }
+    double tolerance = Math.abs(this.weights[pivot]) * 1e-12;
+    for (int i = 0; i < this.size; i++) {
+      for (int j = 0; j < this.size; j++) {
+        if (Math.abs(column[i] * row[j] - getWeight(i, j)) > tolerance) {
+          return null;
+        }
+      }
+    }
+    return new double[][]{column, row};
+  }
+
+  /**
+   * Determines and returns whether one kernel is equal to another kernel.
+   *
+   * @param o the object to which the kernel is being compared to for equality
+   * @return true if the kernels are equal to each other, and false otherwise
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    } else if (!(o instanceof Kernel)) {
+      return false;
+    }
+    Kernel that = (Kernel) o;
+    return this.size == that.size && this.truncateEachTap == that.truncateEachTap
+            && Arrays.equals(this.weights, that.weights);
+  }
+
+  /**
+   * Assigns a hashcode to the kernel that the method is being performed on.
+   *
+   * @return the hashcode assigned to the kernel
+   */
+  @Override
+  public int hashCode() {
+    return 31 * Arrays.hashCode(this.weights) + (this.truncateEachTap ? 1 : 0);
+  }
+}
@@ -0,0 +1,248 @@
+package model;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class represents an image model whose pixels stay in a raw color (P6) or greyscale (P5)
+ * file with a maximum value of 255. The file is mapped into memory rather than read onto the
+ * heap, so images larger than the heap can be opened, and pixels are decoded from the mapped
+ * bytes whenever they are read. Files of any size are mapped in chunks of whole rows.
+ *
+ * <p>The model is read-only; commands that derive a new image from it read its rows like any
+ * other image model.
+ */
+public class MappedImageModel implements ImageModel {
+  private static final long MAX_CHUNK_BYTES = 1L << 30;
+  private final int height;
+  private final int width;
+  private final int channels;
+  private final int rowBytes;
+  private final int rowsPerChunk;
+  private final MappedByteBuffer[] chunks;
+
+  /**
+   * Constructs an image model by mapping a raw PPM or PGM file into memory.
+   *
+   * @param filepath the filepath of the file to map
+   * @throws IllegalArgumentException if the file cannot be found or is not a raw file with a
+   *                                  maximum value of 255
+   * @throws IllegalStateException    if reading or mapping the file fails
+   */
+  public MappedImageModel(String filepath)
+          throws IllegalArgumentException, IllegalStateException {
+    int[] header;
+    long offset;
+    try (InputStream in = open(filepath)) {
+      PPMFormat.Tokenizer tokenizer = new PPMFormat.Tokenizer(in);
+      header = PPMFormat.readHeader(tokenizer);
+      offset = tokenizer.getOffset();
+    } catch (IOException e) {
+      throw new IllegalStateException("Reading image from file failed.");
+    }
+    if (!isMappable(header)) {
+      throw new IllegalArgumentException("Only raw PPM and PGM files with a maximum value of"
+              + " 255 can be mapped.");
+    }
+    this.width = header[1];
+    this.height = header[2];
+    this.channels = header[0] == 6 ? 3 : 1;
+    long bytesPerRow = (long) this.width * this.channels;
+    if (bytesPerRow > MAX_CHUNK_BYTES) {
+      throw new IllegalArgumentException("Image is too wide to be mapped.");
+    }
+    this.rowBytes = (int) bytesPerRow;
+    this.rowsPerChunk = (int) Math.min(this.height, MAX_CHUNK_BYTES / this.rowBytes);
+    this.chunks = new MappedByteBuffer[(this.height + this.rowsPerChunk - 1)
+            / this.rowsPerChunk];
+
+    try (RandomAccessFile file = new RandomAccessFile(filepath, "r");
+         FileChannel channel = file.getChannel()) {
+      if (channel.size() < offset + bytesPerRow * this.height) {
+        throw new IllegalArgumentException("Invalid PPM file: not enough pixel data.");
+      }
+      for (int c = 0; c < this.chunks.length; c++) {
+        int rows = Math.min(this.rowsPerChunk, this.height - c * this.rowsPerChunk);
+        this.chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY,
+                offset + (long) c * this.rowsPerChunk * this.rowBytes,
+                (long) rows * this.rowBytes);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Reading image from file failed.");
+    }
+  }
+
+  /**
+   * Determines whether a file is a raw PPM or PGM file that can be mapped into memory.
+   *
+   * @param filepath the filepath of the file
+   * @return true if the file can be mapped, false otherwise
+   */
+  public static boolean canMap(String filepath) {
+    try (InputStream in = open(filepath)) {
+      return isMappable(PPMFormat.readHeader(new PPMFormat.Tokenizer(in)));
+    } catch (IOException | IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Determines whether a PPM header describes a file that can be mapped into memory.
+   *
+   * @param header the type, width, height and maximum value of the file
+   * @return true if the file is raw and its maximum value is 255, false otherwise
+   */
+  private static boolean isMappable(int[] header) {
+    return (header[0] == 5 || header[0] == 6) && header[3] == 255;
+  }
+
+  /**
+   * Opens a file for reading its header.
+   *
+   * @param filepath the filepath of the file
+   * @return a stream reading the file
+   * @throws IllegalArgumentException if the file cannot be found
+   */
+  private static InputStream open(String filepath) throws IllegalArgumentException {
+    try {
+      return new FileInputStream(filepath);
+    } catch (FileNotFoundException e) {
+      throw new IllegalArgumentException("File not found: " + filepath + ".");
+    }
+  }
+
+  /**
+   * Gets the height of the image model that the method is being performed on.
+   *
+   * @return the height of the image model
+   */
+  @Override
+  public int getImageHeight() {
+    return this.height;
+  }
+
+  /**
+   * Gets the width of the image model that the method is being performed on.
+   *
+   * @return the width of the image model
+   */
+  @Override
+  public int getImageWidth() {
+    return this.width;
+  }
+
+  /**
+   * Gets the pixel at a given row and column of the image model that the method is being
+   * performed on.
+   *
+   * @param row the row from which to get the pixel
+   * @param col the column from which to get the pixel
+   * @return the pixel at the given row and column
+   * @throws IllegalArgumentException if the given position is beyond the dimensions of the
+   *                                  image model
+   */
+  @Override
+  public IPixel getPixelAt(int row, int col) throws IllegalArgumentException {
+    int rgb = getRGBAt(row, col);
+    return Pixel.of(PackedImageModel.red(rgb), PackedImageModel.green(rgb),
+            PackedImageModel.blue(rgb));
+  }
+
+  /**
+   * Gets the packed 0xRRGGBB color value of the pixel at a given row and column of the image
+   * model that the method is being performed on.
+   *
+   * @param row the row from which to get the pixel
+   * @param col the column from which to get the pixel
+   * @return the packed color value of the pixel at the given row and column
+   * @throws IllegalArgumentException if the given position is beyond the dimensions of the
+   *                                  image model
+   */
+  @Override
+  public int getRGBAt(int row, int col) throws IllegalArgumentException {
+    if (row >= this.height || row < 0 || col >= this.width || col < 0) {
+      throw new IllegalArgumentException("Pixel position is beyond the dimensions of the image.");
+    }
+    MappedByteBuffer chunk = this.chunks[row / this.rowsPerChunk];
+    int index = (row % this.rowsPerChunk) * this.rowBytes + col * this.channels;
+    if (this.channels == 1) {
+      int grey = chunk.get(index) & 0xFF;
+      return (grey << 16) | (grey << 8) | grey;
+    }
+    return ((chunk.get(index) & 0xFF) << 16) | ((chunk.get(index + 1) & 0xFF) << 8)
+            | (chunk.get(index + 2) & 0xFF);
+  }
+
+  /**
+   * Copies the packed 0xRRGGBB color values of one row of the image model into a given buffer.
+   *
+   * @param row    the row to copy
+   * @param buffer the buffer that the row is copied into
+   * @param offset the index in the buffer at which to start writing
+   * @throws IllegalArgumentException if the row is beyond the dimensions of the image model or
+   *                                  the buffer is too small to hold the row
+   */
+  @Override
+  public void getRow(int row, int[] buffer, int offset) throws IllegalArgumentException {
+    if (row >= this.height || row < 0) {
+      throw new IllegalArgumentException("Row is beyond the dimensions of the image.");
+    }
+    if (buffer == null || offset < 0 || offset + this.width > buffer.length) {
+      throw new IllegalArgumentException("Buffer is too small to hold the row.");
+    }
+    MappedByteBuffer chunk = this.chunks[row / this.rowsPerChunk];
+    int index = (row % this.rowsPerChunk) * this.rowBytes;
+    if (this.channels == 1) {
+      for (int j = 0; j < this.width; j++) {
+        int grey = chunk.get(index + j) & 0xFF;
+        buffer[offset + j] = (grey << 16) | (grey << 8) | grey;
+      }
+    } else {
+      for (int j = 0; j < this.width; j++, index += 3) {
+        buffer[offset + j] = ((chunk.get(index) & 0xFF) << 16)
+                | ((chunk.get(index + 1) & 0xFF) << 8) | (chunk.get(index + 2) & 0xFF);
+      }
+    }
+  }
+
+  /**
+   * Copies a rectangular region of the image model into a given buffer as opaque packed
+   * 0xAARRGGBB color values.
+   *
+   * @param row      the first row of the region
+   * @param col      the first column of the region
+   * @param height   the number of rows in the region
+   * @param width    the number of columns in the region
+   * @param buffer   the buffer that the region is copied into
+   * @param offset   the index in the buffer at which the first pixel of the region is written
+   * @param scansize the distance in the buffer from the start of one row to the next
+   * @throws IllegalArgumentException if the region is beyond the dimensions of the image model
+   *                                  or the buffer is too small to hold it
+   */
+  @Override
+  public void getRegion(int row, int col, int height, int width, int[] buffer, int offset,
+                        int scansize) throws IllegalArgumentException {
+    ImageUtil.checkRegion(this, row, col, height, width, buffer, offset, scansize);
+    for (int i = 0; i < height; i++) {
+      MappedByteBuffer chunk = this.chunks[(row + i) / this.rowsPerChunk];
+      int index = ((row + i) % this.rowsPerChunk) * this.rowBytes + col * this.channels;
+      int target = offset + i * scansize;
+      if (this.channels == 1) {
+        for (int j = 0; j < width; j++) {
+          int grey = chunk.get(index + j) & 0xFF;
+          buffer[target + j] = 0xFF000000 | (grey << 16) | (grey << 8) | grey;
+        }
+      } else {
+        for (int j = 0; j < width; j++, index += 3) {
+          buffer[target + j] = 0xFF000000 | ((chunk.get(index) & 0xFF) << 16)
+                  | ((chunk.get(index + 1) & 0xFF) << 8) | (chunk.get(index + 2) & 0xFF);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,227 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * This class represents a mask derived from a mask image, recording for every pixel whether an
+ * operation applies to it: a pixel is masked, and so edited, where the mask image is black.
+ *
+ * <p>Each row is stored in whichever form is smaller: as a list of masked runs, which suits
+ * rows made of a few large uniform regions, or as a packed bit set with one bit per pixel.
+ * Rows that are entirely masked or unmasked share a single list. Commands read a row as its
+ * masked runs, so they can skip every unmasked run without looking at its pixels.
+ *
+ * <p>Masks are derived once per mask image and kept for as long as the image is in use.
+ */
+public class Mask {
+  private static final int[] NO_RUNS = new int[0];
+  private static final Map<ImageModel, Mask> DERIVED =
+          Collections.synchronizedMap(new WeakHashMap<>());
+  private final int height;
+  private final int width;
+  private final int wordsPerRow;
+  private final int[][] runs;
+  private final int[] bitOffsets;
+  private final long[] bits;
+  private final int[] fullRow;
+
+  /**
+   * Constructs a mask by reading every row of a mask image once.
+   *
+   * @param maskImage the mask image, which is black wherever the mask applies
+   */
+  private Mask(ImageModel maskImage) {
+    this.height = maskImage.getImageHeight();
+    this.width = maskImage.getImageWidth();
+    this.wordsPerRow = (this.width + 63) >>> 6;
+    this.runs = new int[this.height][];
+    this.bitOffsets = new int[this.height];
+    this.fullRow = new int[]{0, this.width};
+
+    long[] packed = new long[0];
+    int packedRows = 0;
+    int[] row = new int[this.width];
+    int[] rowRuns = new int[this.width + 1];
+    for (int i = 0; i < this.height; i++) {
+      maskImage.getRow(i, row, 0);
+      int count = 0;
+      int j = 0;
+      while (j < this.width) {
+        while (j < this.width && row[j] != 0) {
+          j++;
+        }
+        if (j == this.width) {
+          break;
+        }
+        rowRuns[count++] = j;
+        while (j < this.width && row[j] == 0) {
+          j++;
+        }
+        rowRuns[count++] = j;
+      }
+
+      this.bitOffsets[i] = -1;
+      if (count == 0) {
+        this.runs[i] = NO_RUNS;
+      } else if (count == 2 && rowRuns[0] == 0 && rowRuns[1] == this.width) {
+        this.runs[i] = this.fullRow;
+      } else if ((long) count * Integer.SIZE <= (long) this.wordsPerRow * Long.SIZE) {
+        this.runs[i] = Arrays.copyOf(rowRuns, count);
+      } else {
+        if ((packedRows + 1) * this.wordsPerRow > packed.length) {
+          packed = Arrays.copyOf(packed, Math.max(2 * packed.length,
+                  (packedRows + 1) * this.wordsPerRow));
+        }
+        int offset = packedRows * this.wordsPerRow;
+        for (int k = 0; k < count; k += 2) {
+          for (int col = rowRuns[k]; col < rowRuns[k + 1]; col++) {
+            packed[offset + (col >>> 6)] |= 1L << col;
+          }
+        }
+        this.bitOffsets[i] = offset;
+        packedRows++;
+      }
+    }
+    this.bits = Arrays.copyOf(packed, packedRows * this.wordsPerRow);
+  }
+
+  /**
+   * Gets the mask derived from a given mask image, deriving it the first time the image is
+   * used as a mask.
+   *
+   * @param maskImage the mask image, which is black wherever the mask applies
+   * @return the mask derived from the image
+   * @throws IllegalArgumentException if the mask image is null
+   */
+  public static Mask of(ImageModel maskImage) throws IllegalArgumentException {
+    if (maskImage == null) {
+      throw new IllegalArgumentException("Mask image cannot be null.");
+    }
+    Mask mask = DERIVED.get(maskImage);
+    if (mask == null) {
+      mask = new Mask(maskImage);
+      DERIVED.put(maskImage, mask);
+    }
+    return mask;
+  }
+
+  /**
+   * Gets the height of the mask.
+   *
+   * @return the number of rows in the mask
+   */
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Gets the width of the mask.
+   *
+   * @return the number of columns in the mask
+   */
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Determines whether the pixel at a given row and column is masked.
+   *
+   * @param row the row of the pixel
+   * @param col the column of the pixel
+   * @return true if the operation applies to the pixel, false otherwise
+   * @throws IllegalArgumentException if the given position is beyond the dimensions of the
+   *                                  mask
+   */
+  public boolean isMasked(int row, int col) throws IllegalArgumentException {
+    if (row >= this.height || row < 0 || col >= this.width || col < 0) {
+      throw new IllegalArgumentException("Pixel position is beyond the dimensions of the mask.");
+    }
+    if (this.bitOffsets[row] >= 0) {
+      return (this.bits[this.bitOffsets[row] + (col >>> 6)] & (1L << col)) != 0;
+    }
+    int[] rowRuns = this.runs[row];
+    for (int k = 0; k < rowRuns.length && rowRuns[k] <= col; k += 2) {
+      if (col < rowRuns[k + 1]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Gets the masked runs of a given row, in order, as pairs of the first column of each run
+   * and the column after its last.
+   *
+   * @param row the row whose runs are returned
+   * @return the start and end columns of each masked run
+   * @throws IllegalArgumentException if the row is beyond the dimensions of the mask
+   */
+  public int[] getRuns(int row) throws IllegalArgumentException {
+    if (row >= this.height || row < 0) {
+      throw new IllegalArgumentException("Row is beyond the dimensions of the mask.");
+    }
+    if (this.bitOffsets[row] < 0) {
+      return this.runs[row].clone();
+    }
+    int[] rowRuns = new int[this.width + 1];
+    int count = 0;
+    int offset = this.bitOffsets[row];
+    int col = nextBit(offset, 0, true);
+    while (col < this.width) {
+      int end = nextBit(offset, col, false);
+      rowRuns[count++] = col;
+      rowRuns[count++] = end;
+      col = nextBit(offset, end, true);
+    }
+    return Arrays.copyOf(rowRuns, count);
+  }
+
+  /**
+   * Counts the masked pixels.
+   *
+   * @return the number of pixels the operation applies to
+   */
+  public long countMasked() {
+    long count = 0;
+    for (int i = 0; i < this.height; i++) {
+      if (this.bitOffsets[i] >= 0) {
+        for (int k = 0; k < this.wordsPerRow; k++) {
+          count += Long.bitCount(this.bits[this.bitOffsets[i] + k]);
+        }
+      } else {
+        for (int k = 0; k < this.runs[i].length; k += 2) {
+          count += this.runs[i][k + 1] - this.runs[i][k];
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Finds the first column at or after a given column whose bit is set or clear in a row
+   * stored as a bit set.
+   *
+   * @param offset the index of the row's first word
+   * @param from   the column to start searching at
+   * @param set    true to find a set bit, false to find a clear bit
+   * @return the column found, or the width of the mask if there is none
+   */
+  private int nextBit(int offset, int from, boolean set) {
+    int word = from >>> 6;
+    if (word >= this.wordsPerRow) {
+      return this.width;
+    }
+    long value = (set ? this.bits[offset + word] : ~this.bits[offset + word]) & (-1L << from);
+    while (value == 0) {
+      word++;
+      if (word == this.wordsPerRow) {
+        return this.width;
+      }
+      value = set ? this.bits[offset + word] : ~this.bits[offset + word];
+    }
+    return Math.min(this.width, (word << 6) + Long.numberOfTrailingZeros(value));
+  }
+}
@@ -0,0 +1,444 @@
+package model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class represents the reader and writer for the PPM family of image files: plain (P3)
+ * and raw (P6) color images and plain (P2) and raw (P5) greyscale images. Files are read
+ * through a byte-level tokenizer over a buffered stream and written through a bulk byte
+ * buffer, so no text is ever decoded into strings.
+ */
+public class PPMFormat {
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final byte[][] DECIMALS = new byte[256][];
+
+  static {
+    byte[] separator = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    for (int i = 0; i < 256; i++) {
+      byte[] digits = Integer.toString(i).getBytes(StandardCharsets.US_ASCII);
+      byte[] line = new byte[digits.length + separator.length];
+      System.arraycopy(digits, 0, line, 0, digits.length);
+      System.arraycopy(separator, 0, line, digits.length, separator.length);
+      DECIMALS[i] = line;
+    }
+  }
+
+  /**
+   * Reads an image model from a stream containing a P2, P3, P5 or P6 image. Images whose
+   * maximum value is above 255 are read into an {@link ImageModelImpl} holding the original
+   * values, and all others into a {@link PackedImageModel}.
+   *
+   * @param in the stream to read from, which is not closed
+   * @return the image model read from the stream
+   * @throws IllegalArgumentException if the stream does not contain a valid image
+   * @throws IOException              if reading from the stream fails
+   */
+  public static ImageModel read(InputStream in) throws IllegalArgumentException, IOException {
+    if (in == null) {
+      throw new IllegalArgumentException("Input stream must not be null.");
+    }
+    Tokenizer tokenizer = new Tokenizer(in);
+    int[] header = readHeader(tokenizer);
+    int type = header[0];
+    int width = header[1];
+    int height = header[2];
+    int maxValue = header[3];
+    boolean color = type == 3 || type == 6;
+    boolean raw = type == 5 || type == 6;
+
+    if (maxValue > 255) {
+      Pixel[][] pixels = new Pixel[height][width];
+      for (int i = 0; i < height; i++) {
+        for (int j = 0; j < width; j++) {
+          int red = raw ? tokenizer.nextShort() : tokenizer.nextInt();
+          int green = red;
+          int blue = red;
+          if (color) {
+            green = raw ? tokenizer.nextShort() : tokenizer.nextInt();
+            blue = raw ? tokenizer.nextShort() : tokenizer.nextInt();
+          }
+          pixels[i][j] = new Pixel(red, green, blue, maxValue);
+        }
+      }
+      return new ImageModelImpl(pixels, height, width);
+    }
+
+    int[] pixels = new int[height * width];
+    if (raw) {
+      int channels = color ? 3 : 1;
+      byte[] row = new byte[width * channels];
+      for (int i = 0; i < height; i++) {
+        tokenizer.readFully(row, row.length);
+        unpackRow(row, color, maxValue, pixels, i * width, width);
+      }
+    } else {
+      for (int i = 0; i < pixels.length; i++) {
+        int red = tokenizer.nextInt();
+        int green = red;
+        int blue = red;
+        if (color) {
+          green = tokenizer.nextInt();
+          blue = tokenizer.nextInt();
+        }
+        if (red < 0 || red > maxValue || green < 0 || green > maxValue
+                || blue < 0 || blue > maxValue) {
+          throw new IllegalArgumentException("Must be valid pixel color measurements.");
+        }
+        pixels[i] = PackedImageModel.pack(red, green, blue);
+      }
+    }
+    return new PackedImageModel(pixels, height, width);
+  }
+
+  /**
+   * Unpacks one row of raw 8-bit samples into packed color values.
+   *
+   * @param row      the raw samples of the row
+   * @param color    true if each pixel has three samples, false if it has one
+   * @param maxValue the largest value a sample may have
+   * @param pixels   the buffer that the packed color values are written to
+   * @param offset   the index in the buffer at which to start writing
+   * @param width    the number of pixels in the row
+   * @throws IllegalArgumentException if a sample is above the maximum value
+   */
+  private static void unpackRow(byte[] row, boolean color, int maxValue, int[] pixels,
+                                int offset, int width) throws IllegalArgumentException {
+    int largest = 0;
+    if (color) {
+      for (int j = 0, k = 0; j < width; j++, k += 3) {
+        int red = row[k] & 0xFF;
+        int green = row[k + 1] & 0xFF;
+        int blue = row[k + 2] & 0xFF;
+        largest |= red | green | blue;
+        pixels[offset + j] = (red << 16) | (green << 8) | blue;
+      }
+    } else {
+      for (int j = 0; j < width; j++) {
+        int grey = row[j] & 0xFF;
+        largest |= grey;
+        pixels[offset + j] = (grey << 16) | (grey << 8) | grey;
+      }
+    }
+    if (largest > maxValue) {
+      for (int k = 0; k < (color ? 3 * width : width); k++) {
+        if ((row[k] & 0xFF) > maxValue) {
+          throw new IllegalArgumentException("Must be valid pixel color measurements.");
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads only the dimensions of a P2, P3, P5 or P6 image from a stream, without reading its
+   * pixels.
+   *
+   * @param in the stream to read from, which is not closed
+   * @return the height and width of the image
+   * @throws IllegalArgumentException if the stream does not start with a valid header
+   * @throws IOException              if reading from the stream fails
+   */
+  public static int[] readDimensions(InputStream in) throws IllegalArgumentException, IOException {
+    if (in == null) {
+      throw new IllegalArgumentException("Input stream must not be null.");
+    }
+    int[] header = readHeader(new Tokenizer(in));
+    return new int[]{header[2], header[1]};
+  }
+
+  /**
+   * Reads the header of a PPM file, leaving the tokenizer at the first byte of pixel data.
+   *
+   * @param tokenizer the tokenizer reading the file
+   * @return the type of the file (2, 3, 5 or 6), its width, its height and its maximum value
+   * @throws IllegalArgumentException if the header is not valid
+   * @throws IOException              if reading from the stream fails
+   */
+  static int[] readHeader(Tokenizer tokenizer) throws IllegalArgumentException, IOException {
+    int type = readMagic(tokenizer);
+    int width = tokenizer.nextInt();
+    int height = tokenizer.nextInt();
+    int maxValue = tokenizer.nextInt();
+    if (width < 1 || height < 1 || (long) width * height > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid PPM file: dimensions must be positive.");
+    }
+    if (maxValue < 1 || maxValue > 65535) {
+      throw new IllegalArgumentException("Invalid PPM file: maximum value must be between"
+              + " 1 and 65535.");
+    }
+    return new int[]{type, width, height, maxValue};
+  }
+
+  /**
+   * Reads the magic number at the start of a PPM file.
+   *
+   * @param tokenizer the tokenizer reading the file
+   * @return 2, 3, 5 or 6 for a P2, P3, P5 or P6 file
+   * @throws IllegalArgumentException if the file does not start with a supported magic number
+   * @throws IOException              if reading from the stream fails
+   */
+  private static int readMagic(Tokenizer tokenizer)
+          throws IllegalArgumentException, IOException {
+    int first = tokenizer.skipSeparators();
+    int second = tokenizer.read();
+    if (first != 'P' || (second != '2' && second != '3' && second != '5' && second != '6')) {
+      throw new IllegalArgumentException("Invalid PPM file: file should begin with P2, P3,"
+              + " P5 or P6.");
+    }
+    return second - '0';
+  }
+
+  /**
+   * Writes an image model to a stream as a PPM image. Plain (P3) images are written with
+   * one value per line, raw images have a header ending in a single newline as the format
+   * requires, and greyscale (P5) images hold the luma of each pixel.
+   *
+   * @param model the image model to write
+   * @param out   the stream to write to, which is flushed but not closed
+   * @param magic "P3", "P5" or "P6"
+   * @throws IllegalArgumentException if any parameter is null or the magic number is not
+   *                                  supported
+   * @throws IOException              if writing to the stream fails
+   */
+  public static void write(ImageModel model, OutputStream out, String magic)
+          throws IllegalArgumentException, IOException {
+    if (model == null || out == null || magic == null) {
+      throw new IllegalArgumentException("No parameters may contain null values.");
+    }
+    if (!magic.equals("P3") && !magic.equals("P5") && !magic.equals("P6")) {
+      throw new IllegalArgumentException("PPM type must be P3, P5 or P6.");
+    }
+    int height = model.getImageHeight();
+    int width = model.getImageWidth();
+    String separator = magic.equals("P3") ? System.lineSeparator() : "\n";
+    String header = magic + separator + "# PPM Image Output" + separator
+            + width + " " + height + separator + 255 + separator;
+    out.write(header.getBytes(StandardCharsets.US_ASCII));
+
+    int[] row = new int[width];
+    byte[] buffer = new byte[Math.max(BUFFER_SIZE, 3 * width)];
+    int length = 0;
+    for (int i = 0; i < height; i++) {
+      model.getRow(i, row, 0);
+      if (magic.equals("P3")) {
+        for (int j = 0; j < width; j++) {
+          if (length > buffer.length - 3 * 8) {
+            out.write(buffer, 0, length);
+            length = 0;
+          }
+          length = appendDecimal(buffer, length, PackedImageModel.red(row[j]));
+          length = appendDecimal(buffer, length, PackedImageModel.green(row[j]));
+          length = appendDecimal(buffer, length, PackedImageModel.blue(row[j]));
+        }
+      } else {
+        int needed = magic.equals("P6") ? 3 * width : width;
+        if (length > buffer.length - needed) {
+          out.write(buffer, 0, length);
+          length = 0;
+        }
+        for (int j = 0; j < width; j++) {
+          int rgb = row[j];
+          if (magic.equals("P6")) {
+            buffer[length++] = (byte) (rgb >> 16);
+            buffer[length++] = (byte) (rgb >> 8);
+            buffer[length++] = (byte) rgb;
+          } else {
+            buffer[length++] = (byte) luma(rgb);
+          }
+        }
+      }
+    }
+    out.write(buffer, 0, length);
+    out.flush();
+  }
+
+  /**
+   * Appends a value between 0 and 255 and a line separator to a buffer.
+   *
+   * @param buffer the buffer to append to
+   * @param length the number of bytes already in the buffer
+   * @param value  the value to append
+   * @return the number of bytes in the buffer after appending
+   */
+  private static int appendDecimal(byte[] buffer, int length, int value) {
+    byte[] digits = DECIMALS[value];
+    System.arraycopy(digits, 0, buffer, length, digits.length);
+    return length + digits.length;
+  }
+
+  /**
+   * Computes the luma of a packed color value, rounded to the nearest integer.
+   *
+   * @param rgb the packed 0xRRGGBB color value
+   * @return the luma of the color
+   */
+  private static int luma(int rgb) {
+    return (2126 * PackedImageModel.red(rgb) + 7152 * PackedImageModel.green(rgb)
+            + 722 * PackedImageModel.blue(rgb) + 5000) / 10000;
+  }
+
+  /**
+   * This class represents a tokenizer that reads the whitespace-separated decimal values and
+   * raw bytes of a PPM file from a stream through its own buffer, skipping comments that
+   * begin with '#' and run to the end of the line.
+   */
+  static class Tokenizer {
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private long filled;
+
+    /**
+     * Constructs a tokenizer reading from a given stream.
+     *
+     * @param in the stream to read from
+     */
+    Tokenizer(InputStream in) {
+      this.in = in;
+    }
+
+    /**
+     * Gets the number of bytes of the stream that have been consumed so far.
+     *
+     * @return the number of bytes consumed
+     */
+    long getOffset() {
+      return this.filled - (this.limit - this.position);
+    }
+
+    /**
+     * Reads the next byte of the stream.
+     *
+     * @return the next byte, or -1 at the end of the stream
+     * @throws IOException if reading from the stream fails
+     */
+    int read() throws IOException {
+      if (this.position == this.limit && !fill()) {
+        return -1;
+      }
+      return this.buffer[this.position++] & 0xFF;
+    }
+
+    /**
+     * Refills the buffer from the stream.
+     *
+     * @return true if any bytes were read, false at the end of the stream
+     * @throws IOException if reading from the stream fails
+     */
+    private boolean fill() throws IOException {
+      int count = this.in.read(this.buffer, 0, this.buffer.length);
+      if (count <= 0) {
+        return false;
+      }
+      this.position = 0;
+      this.limit = count;
+      this.filled += count;
+      return true;
+    }
+
+    /**
+     * Skips any whitespace and comments and reads the first byte after them.
+     *
+     * @return the first byte that is not whitespace or part of a comment, or -1 at the end of
+     *         the stream
+     * @throws IOException if reading from the stream fails
+     */
+    int skipSeparators() throws IOException {
+      int c = read();
+      while (c == '#' || isWhitespace(c)) {
+        if (c == '#') {
+          while (c != '\n' && c != '\r' && c != -1) {
+            c = read();
+          }
+        }
+        c = read();
+      }
+      return c;
+    }
+
+    /**
+     * Reads the next decimal value, skipping any whitespace and comments before it. The
+     * single character ending the value is consumed.
+     *
+     * @return the value
+     * @throws IllegalArgumentException if the next token is not a decimal value
+     * @throws IOException              if reading from the stream fails
+     */
+    int nextInt() throws IllegalArgumentException, IOException {
+      int c = skipSeparators();
+      boolean negative = c == '-';
+      if (negative) {
+        c = read();
+      }
+      if (c < '0' || c > '9') {
+        throw new IllegalArgumentException("Invalid PPM file: expected a number.");
+      }
+      long value = 0;
+      while (c >= '0' && c <= '9') {
+        value = value * 10 + (c - '0');
+        if (value > Integer.MAX_VALUE) {
+          throw new IllegalArgumentException("Invalid PPM file: number is too large.");
+        }
+        c = read();
+      }
+      if (c == '#') {
+        while (c != '\n' && c != '\r' && c != -1) {
+          c = read();
+        }
+      } else if (c != -1 && !isWhitespace(c)) {
+        throw new IllegalArgumentException("Invalid PPM file: expected a number.");
+      }
+      return (int) (negative ? -value : value);
+    }
+
+    /**
+     * Reads the next raw 16-bit big-endian value.
+     *
+     * @return the value
+     * @throws IllegalArgumentException if the stream ends before the value
+     * @throws IOException              if reading from the stream fails
+     */
+    int nextShort() throws IllegalArgumentException, IOException {
+      int high = read();
+      int low = read();
+      if (low < 0) {
+        throw new IllegalArgumentException("Invalid PPM file: not enough pixel data.");
+      }
+      return (high << 8) | low;
+    }
+
+    /**
+     * Reads a given number of raw bytes into a buffer.
+     *
+     * @param target the buffer to read into
+     * @param length the number of bytes to read
+     * @throws IllegalArgumentException if the stream ends before enough bytes are read
+     * @throws IOException              if reading from the stream fails
+     */
+    void readFully(byte[] target, int length) throws IllegalArgumentException, IOException {
+      int copied = 0;
+      while (copied < length) {
+        if (this.position == this.limit && !fill()) {
+          throw new IllegalArgumentException("Invalid PPM file: not enough pixel data.");
+        }
+        int count = Math.min(length - copied, this.limit - this.position);
+        System.arraycopy(this.buffer, this.position, target, copied, count);
+        this.position += count;
+        copied += count;
+      }
+    }
+
+    /**
+     * Determines whether a character is whitespace in a PPM file.
+     *
+     * @param c the character
+     * @return true if the character is whitespace, false otherwise
+     */
+    private static boolean isWhitespace(int c) {
+      return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f' || c == 0x0B;
+    }
+  }
+}
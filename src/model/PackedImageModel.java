@@ -0,0 +1,199 @@
+package model;
+
+/**
+ * This class represents an object of an image model whose pixels are stored in a single flat
+ * array, with each pixel's color values packed into one integer as 0xRRGGBB.
+ */
+public class PackedImageModel implements ImageModel {
+  private final int[] pixels;
+  private final int height;
+  private final int width;
+
+  /**
+   * Constructs an image model from a given flat array of packed pixels, height, and width. The
+   * pixels are stored in row-major order, so the pixel at a given row and column is found at
+   * index row * width + col.
+   *
+   * @param pixels the flat array of packed pixels from which to create the image model
+   * @param height the height in pixels of the image model
+   * @param width  the width in pixels of the image model
+   * @throws IllegalArgumentException if the pixels are null or do not match the given dimensions
+   */
+  public PackedImageModel(int[] pixels, int height, int width) throws IllegalArgumentException {
+    if (pixels == null) {
+      throw new IllegalArgumentException("Pixels must not contain a null value.");
+    }
+    if (height < 0 || width < 0 || pixels.length != height * width) {
+      throw new IllegalArgumentException("Pixels must match the dimensions of the image.");
+    }
+    this.pixels = pixels;
+    this.height = height;
+    this.width = width;
+  }
+
+  /**
+   * Creates an image model holding its own copy of the pixels of a given image model, so that
+   * reading them no longer depends on the given model or anything it reads from.
+   *
+   * @param model the image model to copy
+   * @return a packed image model with the same pixels
+   * @throws IllegalArgumentException if the model is null
+   */
+  public static PackedImageModel copyOf(ImageModel model) throws IllegalArgumentException {
+    if (model == null) {
+      throw new IllegalArgumentException("Image model must not be null.");
+    }
+    int height = model.getImageHeight();
+    int width = model.getImageWidth();
+    int[] pixels = new int[height * width];
+    RowExecutor.forEachRow(height, width, (startRow, endRow) -> {
+      for (int i = startRow; i < endRow; i++) {
+        model.getRow(i, pixels, i * width);
+      }
+    });
+    return new PackedImageModel(pixels, height, width);
+  }
+
+  /**
+   * Packs given red, green, and blue color values into a single integer as 0xRRGGBB.
+   *
+   * @param red   the red component value
+   * @param green the green component value
+   * @param blue  the blue component value
+   * @return the packed color value
+   */
+  public static int pack(int red, int green, int blue) {
+    return (red << 16) | (green << 8) | blue;
+  }
+
+  /**
+   * Gets the red component value of a packed color value.
+   *
+   * @param rgb the packed color value
+   * @return the red component value
+   */
+  public static int red(int rgb) {
+    return (rgb >> 16) & 0xFF;
+  }
+
+  /**
+   * Gets the green component value of a packed color value.
+   *
+   * @param rgb the packed color value
+   * @return the green component value
+   */
+  public static int green(int rgb) {
+    return (rgb >> 8) & 0xFF;
+  }
+
+  /**
+   * Gets the blue component value of a packed color value.
+   *
+   * @param rgb the packed color value
+   * @return the blue component value
+   */
+  public static int blue(int rgb) {
+    return rgb & 0xFF;
+  }
+
+  /**
+   * Gets the height of the image model that the method is being performed on.
+   *
+   * @return the height of the image model
+   */
+  @Override
+  public int getImageHeight() {
+    return this.height;
+  }
+
+  /**
+   * Gets the width of the image model that the method is being performed on.
+   *
+   * @return the width of the image model
+   */
+  @Override
+  public int getImageWidth() {
+    return this.width;
+  }
+
+  /**
+   * Gets the pixel at a given row and column of the image model that the method is being
+   * performed on.
+   *
+   * @param row the row from which to get the pixel
+   * @param col the column from which to get the pixel
+   * @return the pixel at the given row and column
+   * @throws IllegalArgumentException if the given position is beyond the dimensions of the
+   *                                  image model
+   */
+  @Override
+  public IPixel getPixelAt(int row, int col) throws IllegalArgumentException {
+    int rgb = getRGBAt(row, col);
+    return Pixel.of(red(rgb), green(rgb), blue(rgb));
+  }
+
+  /**
+   * Gets the packed 0xRRGGBB color value of the pixel at a given row and column of the image
+   * model that the method is being performed on.
+   *
+   * @param row the row from which to get the pixel
+   * @param col the column from which to get the pixel
+   * @return the packed color value of the pixel at the given row and column
+   * @throws IllegalArgumentException if the given position is beyond the dimensions of the
+   *                                  image model
+   */
+  @Override
+  public int getRGBAt(int row, int col) throws IllegalArgumentException {
+    if (row >= this.height || row < 0 || col >= this.width || col < 0) {
+      throw new IllegalArgumentException("Pixel position is beyond the dimensions of the image.");
+    }
+    return this.pixels[row * this.width + col];
+  }
+
+  /**
+   * Copies the packed 0xRRGGBB color values of one row of the image model into a given buffer.
+   *
+   * @param row    the row to copy
+   * @param buffer the buffer that the row is copied into
+   * @param offset the index in the buffer at which to start writing
+   * @throws IllegalArgumentException if the row is beyond the dimensions of the image model or
+   *                                  the buffer is too small to hold the row
+   */
+  @Override
+  public void getRow(int row, int[] buffer, int offset) throws IllegalArgumentException {
+    if (row >= this.height || row < 0) {
+      throw new IllegalArgumentException("Row is beyond the dimensions of the image.");
+    }
+    if (buffer == null || offset < 0 || offset + this.width > buffer.length) {
+      throw new IllegalArgumentException("Buffer is too small to hold the row.");
+    }
+    System.arraycopy(this.pixels, row * this.width, buffer, offset, this.width);
+  }
+
+  /**
+   * Copies a rectangular region of the image model into a given buffer as opaque packed
+   * 0xAARRGGBB color values.
+   *
+   * @param row      the first row of the region
+   * @param col      the first column of the region
+   * @param height   the number of rows in the region
+   * @param width    the number of columns in the region
+   * @param buffer   the buffer that the region is copied into
+   * @param offset   the index in the buffer at which the first pixel of the region is written
+   * @param scansize the distance in the buffer from the start of one row to the next
+   * @throws IllegalArgumentException if the region is beyond the dimensions of the image model
+   *                                  or the buffer is too small to hold it
+   */
+  @Override
+  public void getRegion(int row, int col, int height, int width, int[] buffer, int offset,
+                        int scansize) throws IllegalArgumentException {
+    ImageUtil.checkRegion(this, row, col, height, width, buffer, offset, scansize);
+    for (int i = 0; i < height; i++) {
+      int source = (row + i) * this.width + col;
+      int target = offset + i * scansize;
+      for (int j = 0; j < width; j++) {
+        buffer[target + j] = 0xFF000000 | this.pixels[source + j];
+      }
+    }
+  }
+}
@@ -1,11 +1,23 @@
 package model;
 
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class represents an object of a pixel.
  */
 public class Pixel implements IPixel {
+  private static final int MAX_CACHED_COLORS = 1 << 16;
+  private static final Pixel[] GREYS = new Pixel[256];
+  private static final Map<Integer, Pixel> COLORS = new ConcurrentHashMap<>();
+
+  static {
+    for (int i = 0; i < 256; i++) {
+      GREYS[i] = new Pixel(i, i, i);
+    }
+  }
+
   private final int red;
   private final int green;
   private final int blue;
@@ -41,6 +53,38 @@ public class Pixel implements IPixel {
     this.blue = blue;
   }
 
+  /**
+   * Returns a pixel with given pixel color values, sharing a single instance between all calls
+   * that ask for the same color. Every grey is always shared, while other colors are shared
+   * until a bounded number of distinct colors have been cached.
+   *
+   * @param red   the red component value of the pixel
+   * @param green the green component value of the pixel
+   * @param blue  the blue component value of the pixel
+   * @return a pixel with the given color values
+   * @throws IllegalArgumentException if any of the given pixel color values are invalid
+   */
+  public static Pixel of(int red, int green, int blue) throws IllegalArgumentException {
+    if (red < 0 || red > 255 || green < 0 || green > 255 || blue < 0 || blue > 255) {
+      throw new IllegalArgumentException("Must be valid pixel color measurements.");
+    }
+    if (red == green && green == blue) {
+      return GREYS[red];
+    }
+    int key = (red << 16) | (green << 8) | blue;
+    Pixel pixel = COLORS.get(key);
+    if (pixel == null) {
+      pixel = new Pixel(red, green, blue);
+      if (COLORS.size() < MAX_CACHED_COLORS) {
+        Pixel existing = COLORS.putIfAbsent(key, pixel);
+        if (existing != null) {
+          pixel = existing;
+        }
+      }
+    }
+    return pixel;
+  }
+
   /**
    * Determines and returns whether one pixel is equal to another pixel.
    *
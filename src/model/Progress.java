@@ -0,0 +1,156 @@
+package model;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class represents the progress of one image operation, measured in rows processed by
+ * {@link RowExecutor}, together with a flag through which the operation can be cancelled.
+ *
+ * <p>Work is tracked by running it through {@link #run(Runnable)}. While it runs, every call to
+ * {@link RowExecutor#forEachRow(int, int, RowExecutor.RowTask)} made on the same thread counts
+ * its rows towards the total and each band of rows towards the completed rows, and checks the
+ * flag before starting a band. Once the operation is cancelled, the next band throws a
+ * {@link CancellationException} instead of running, so the operation stops without producing a
+ * result.
+ */
+public class Progress {
+  private static final ThreadLocal<Progress> CURRENT = new ThreadLocal<>();
+  private final Listener listener;
+  private final AtomicLong completedRows;
+  private final AtomicLong totalRows;
+  private volatile boolean cancelled;
+
+  /**
+   * This interface represents a listener told whenever more rows of an operation are
+   * completed.
+   */
+  public interface Listener {
+    /**
+     * Reports the rows completed so far out of the rows the operation has started.
+     *
+     * @param completedRows the number of rows completed
+     * @param totalRows     the number of rows started, which grows as the operation makes
+     *                      further passes over its images
+     */
+    void progressed(long completedRows, long totalRows);
+  }
+
+  /**
+   * Constructs the progress of an operation with no listener.
+   */
+  public Progress() {
+    this((completedRows, totalRows) -> { });
+  }
+
+  /**
+   * Constructs the progress of an operation that reports to a given listener. The listener is
+   * called on whichever thread completes a band of rows.
+   *
+   * @param listener the listener told whenever more rows are completed
+   * @throws IllegalArgumentException if the listener is null
+   */
+  public Progress(Listener listener) throws IllegalArgumentException {
+    if (listener == null) {
+      throw new IllegalArgumentException("Progress listener cannot be null.");
+    }
+    this.listener = listener;
+    this.completedRows = new AtomicLong();
+    this.totalRows = new AtomicLong();
+  }
+
+  /**
+   * Runs some work on the calling thread, tracking the rows it processes and stopping it once
+   * the operation is cancelled.
+   *
+   * @param work the work to run
+   * @throws CancellationException if the operation is cancelled while the work runs
+   */
+  public void run(Runnable work) throws CancellationException {
+    Progress previous = CURRENT.get();
+    CURRENT.set(this);
+    try {
+      checkCancelled();
+      work.run();
+    } finally {
+      if (previous == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    }
+  }
+
+  /**
+   * Cancels the operation, so that it stops before starting its next band of rows.
+   */
+  public void cancel() {
+    this.cancelled = true;
+  }
+
+  /**
+   * Determines whether the operation has been cancelled.
+   *
+   * @return true if the operation has been cancelled, false otherwise
+   */
+  public boolean isCancelled() {
+    return this.cancelled;
+  }
+
+  /**
+   * Gets the number of rows completed so far.
+   *
+   * @return the number of rows completed
+   */
+  public long getCompletedRows() {
+    return this.completedRows.get();
+  }
+
+  /**
+   * Gets the number of rows started so far.
+   *
+   * @return the number of rows started
+   */
+  public long getTotalRows() {
+    return this.totalRows.get();
+  }
+
+  /**
+   * Gets the progress tracking the work running on the calling thread.
+   *
+   * @return the progress of the calling thread, or null if its work is not being tracked
+   */
+  static Progress current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Counts the rows of a new pass over an image towards the total.
+   *
+   * @param rows the number of rows in the pass
+   */
+  void started(int rows) {
+    this.totalRows.addAndGet(rows);
+  }
+
+  /**
+   * Counts a band of rows towards the completed rows and tells the listener.
+   *
+   * @param rows the number of rows in the band
+   */
+  void completed(int rows) {
+    long completed = this.completedRows.addAndGet(rows);
+    this.listener.progressed(completed, this.totalRows.get());
+  }
+
+  /**
+   * Stops the operation if it has been cancelled.
+   *
+   * @throws CancellationException if the operation has been cancelled
+   */
+  void checkCancelled() throws CancellationException {
+    if (this.cancelled) {
+      throw new CancellationException("Operation cancelled.\n");
+    }
+  }
+}
@@ -0,0 +1,172 @@
+package model;
+
+/**
+ * This class represents an image model that shows a source image with one rectangular region
+ * replaced by separately computed pixels. Only the pixels of the region are stored, so a
+ * command can produce a full-size result while computing just the part of it that is being
+ * looked at.
+ */
+public class RegionImageModel implements ImageModel {
+  private final ImageModel source;
+  private final int[] pixels;
+  private final int row;
+  private final int col;
+  private final int height;
+  private final int width;
+
+  /**
+   * Constructs an image model showing a source image with a region replaced by given pixels.
+   *
+   * @param source the image model shown outside the region
+   * @param pixels the packed 0xRRGGBB color values of the region in row-major order
+   * @param row    the first row of the region
+   * @param col    the first column of the region
+   * @param height the number of rows in the region
+   * @param width  the number of columns in the region
+   * @throws IllegalArgumentException if the source or pixels are null, the region is beyond
+   *                                  the dimensions of the source, or the number of pixels
+   *                                  does not match the size of the region
+   */
+  public RegionImageModel(ImageModel source, int[] pixels, int row, int col, int height,
+                          int width) throws IllegalArgumentException {
+    if (source == null || pixels == null) {
+      throw new IllegalArgumentException("Source and pixels cannot be null.");
+    }
+    if (row < 0 || col < 0 || height < 0 || width < 0
+            || row + height > source.getImageHeight() || col + width > source.getImageWidth()) {
+      throw new IllegalArgumentException("Region is beyond the dimensions of the image.");
+    }
+    if (pixels.length != height * width) {
+      throw new IllegalArgumentException("Pixel count must match the size of the region.");
+    }
+    this.source = source;
+    this.pixels = pixels;
+    this.row = row;
+    this.col = col;
+    this.height = height;
+    this.width = width;
+  }
+
+  /**
+   * Gets the image model shown outside the region.
+   *
+   * @return the source image model
+   */
+  public ImageModel getSource() {
+    return this.source;
+  }
+
+  /**
+   * Gets the position and size of the replaced region.
+   *
+   * @return the first row, first column, number of rows and number of columns of the region
+   */
+  public int[] getRegionBounds() {
+    return new int[]{this.row, this.col, this.height, this.width};
+  }
+
+  /**
+   * Gets the height of the image model that the method is being performed on.
+   *
+   * @return the height of the image model
+   */
+  @Override
+  public int getImageHeight() {
+    return this.source.getImageHeight();
+  }
+
+  /**
+   * Gets the width of the image model that the method is being performed on.
+   *
+   * @return the width of the image model
+   */
+  @Override
+  public int getImageWidth() {
+    return this.source.getImageWidth();
+  }
+
+  /**
+   * Gets the pixel at a given row and column of the image model that the method is being
+   * performed on.
+   *
+   * @param row the row from which to get the pixel
+   * @param col the column from which to get the pixel
+   * @return the pixel at the given row and column
+   * @throws IllegalArgumentException if the given position is beyond the dimensions of the
+   *                                  image model
+   */
+  @Override
+  public IPixel getPixelAt(int row, int col) throws IllegalArgumentException {
+    int rgb = getRGBAt(row, col);
+    return Pixel.of(PackedImageModel.red(rgb), PackedImageModel.green(rgb),
+            PackedImageModel.blue(rgb));
+  }
+
+  /**
+   * Gets the packed 0xRRGGBB color value of the pixel at a given row and column of the image
+   * model that the method is being performed on.
+   *
+   * @param row the row from which to get the pixel
+   * @param col the column from which to get the pixel
+   * @return the packed color value of the pixel at the given row and column
+   * @throws IllegalArgumentException if the given position is beyond the dimensions of the
+   *                                  image model
+   */
+  @Override
+  public int getRGBAt(int row, int col) throws IllegalArgumentException {
+    if (row >= this.row && row < this.row + this.height
+            && col >= this.col && col < this.col + this.width) {
+      return this.pixels[(row - this.row) * this.width + col - this.col];
+    }
+    return this.source.getRGBAt(row, col);
+  }
+
+  /**
+   * Copies the packed 0xRRGGBB color values of one row of the image model into a given buffer.
+   *
+   * @param row    the row to copy
+   * @param buffer the buffer that the row is copied into
+   * @param offset the index in the buffer at which to start writing
+   * @throws IllegalArgumentException if the row is beyond the dimensions of the image model or
+   *                                  the buffer is too small to hold the row
+   */
+  @Override
+  public void getRow(int row, int[] buffer, int offset) throws IllegalArgumentException {
+    this.source.getRow(row, buffer, offset);
+    if (row >= this.row && row < this.row + this.height) {
+      System.arraycopy(this.pixels, (row - this.row) * this.width, buffer, offset + this.col,
+              this.width);
+    }
+  }
+
+  /**
+   * Copies a rectangular region of the image model into a given buffer as opaque packed
+   * 0xAARRGGBB color values.
+   *
+   * @param row      the first row of the region
+   * @param col      the first column of the region
+   * @param height   the number of rows in the region
+   * @param width    the number of columns in the region
+   * @param buffer   the buffer that the region is copied into
+   * @param offset   the index in the buffer at which the first pixel of the region is written
+   * @param scansize the distance in the buffer from the start of one row to the next
+   * @throws IllegalArgumentException if the region is beyond the dimensions of the image model
+   *                                  or the buffer is too small to hold it
+   */
+  @Override
+  public void getRegion(int row, int col, int height, int width, int[] buffer, int offset,
+                        int scansize) throws IllegalArgumentException {
+    this.source.getRegion(row, col, height, width, buffer, offset, scansize);
+    int top = Math.max(row, this.row);
+    int bottom = Math.min(row + height, this.row + this.height);
+    int left = Math.max(col, this.col);
+    int right = Math.min(col + width, this.col + this.width);
+    for (int i = top; i < bottom; i++) {
+      int from = (i - this.row) * this.width + left - this.col;
+      int to = offset + (i - row) * scansize + left - col;
+      for (int j = 0; j < right - left; j++) {
+        buffer[to + j] = 0xFF000000 | this.pixels[from + j];
+      }
+    }
+  }
+}
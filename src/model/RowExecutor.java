@@ -0,0 +1,271 @@
+package model;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class represents the engine that image operations run their per-row work through. The
+ * rows of an image are split into bands that are processed in parallel on a shared fork/join
+ * pool, where every band writes only its own rows of the result so that the output is
+ * identical to processing the rows one after another.
+ *
+ * <p>The number of threads and the smallest number of pixels worth handing to a separate task
+ * default to the number of available processors and 16384, and can be set through the
+ * "imageprocessor.threads" and "imageprocessor.grain" system properties or by calling
+ * {@link #configure(int, int)}.
+ *
+ * <p>The bytes that some work allocates can be measured with {@link #allocatedBytes(Runnable)},
+ * which counts the calling thread and the bands of rows that the work hands to the pool, but
+ * nothing that other work allocates on the pool at the same time.
+ */
+public class RowExecutor {
+  private static final int DEFAULT_GRAIN = 16384;
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+  private static final ThreadLocal<LongAdder> POOL_ALLOCATED = new ThreadLocal<>();
+  private static int threads = Integer.getInteger("imageprocessor.threads",
+          Runtime.getRuntime().availableProcessors());
+  private static int grain = Integer.getInteger("imageprocessor.grain", DEFAULT_GRAIN);
+  private static ForkJoinPool pool;
+
+  /**
+   * This interface represents the work done on a band of consecutive rows of an image.
+   */
+  public interface RowTask {
+    /**
+     * Processes the rows from a given start row up to but not including a given end row.
+     *
+     * @param startRow the first row to process
+     * @param endRow   the row after the last row to process
+     */
+    void run(int startRow, int endRow);
+  }
+
+  /**
+   * Sets the number of threads used to process rows in parallel and the smallest number of
+   * pixels worth handing to a separate task. Changing the number of threads shuts the old pool
+   * down once its work is done; rows that were about to be handed to it are processed on the
+   * calling thread instead.
+   *
+   * @param threadCount the number of threads, where 1 processes every row on the calling thread
+   * @param grainSize   the smallest number of pixels in a band handed to a separate task
+   * @throws IllegalArgumentException if either value is less than 1
+   */
+  public static synchronized void configure(int threadCount, int grainSize)
+          throws IllegalArgumentException {
+    if (threadCount < 1 || grainSize < 1) {
+      throw new IllegalArgumentException("Thread count and grain size must be positive.");
+    }
+    if (threadCount != threads && pool != null) {
+      pool.shutdown();
+      pool = null;
+    }
+    threads = threadCount;
+    grain = grainSize;
+  }
+
+  /**
+   * Gets the number of threads used to process rows in parallel.
+   *
+   * @return the number of threads
+   */
+  public static synchronized int getThreadCount() {
+    return threads;
+  }
+
+  /**
+   * Processes every row of an image with a given task, splitting the rows into bands that
+   * are run in parallel when the image is large enough. Returns once every row is processed.
+   * When called from work tracked by a {@link Progress}, the bands are counted towards it and
+   * the rows are split into bands even when they run on the calling thread, so that a
+   * cancelled operation stops between bands.
+   *
+   * @param height the number of rows in the image
+   * @param width  the number of pixels in each row
+   * @param task   the work done on each band of rows
+   * @throws IllegalArgumentException if the task is null
+   * @throws java.util.concurrent.CancellationException if the tracked operation is cancelled
+   */
+  public static void forEachRow(int height, int width, RowTask task)
+          throws IllegalArgumentException {
+    if (task == null) {
+      throw new IllegalArgumentException("Row task must not be null.");
+    }
+    Progress progress = Progress.current();
+    if (progress != null) {
+      progress.started(height);
+      RowTask untracked = task;
+      task = (startRow, endRow) -> {
+        progress.checkCancelled();
+        untracked.run(startRow, endRow);
+        progress.completed(endRow - startRow);
+      };
+    }
+    LongAdder poolAllocated = POOL_ALLOCATED.get();
+    if (poolAllocated != null) {
+      Thread caller = Thread.currentThread();
+      RowTask unmeasured = task;
+      task = (startRow, endRow) -> {
+        if (Thread.currentThread() == caller) {
+          unmeasured.run(startRow, endRow);
+          return;
+        }
+        long before = threadAllocatedBytes();
+        try {
+          unmeasured.run(startRow, endRow);
+        } finally {
+          poolAllocated.add(threadAllocatedBytes() - before);
+        }
+      };
+    }
+    ForkJoinPool currentPool;
+    int rowsPerBand;
+    synchronized (RowExecutor.class) {
+      rowsPerBand = Math.max(1, grain / Math.max(1, width));
+      if (threads == 1 || height <= rowsPerBand) {
+        currentPool = null;
+      } else {
+        if (pool == null) {
+          pool = new ForkJoinPool(threads);
+        }
+        currentPool = pool;
+      }
+    }
+
+    if (currentPool == null) {
+      runOnCaller(height, rowsPerBand, task, progress != null);
+      return;
+    }
+    AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    try {
+      currentPool.invoke(new Band(task, 0, height, rowsPerBand, failure));
+    } catch (RejectedExecutionException e) {
+      // the pool was shut down by configure after it was taken, so nothing of it ran
+      runOnCaller(height, rowsPerBand, task, progress != null);
+      return;
+    }
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+  }
+
+  /**
+   * Runs some work on the calling thread and measures the bytes it allocates, both on the
+   * calling thread and in the bands of rows it hands to worker threads.
+   *
+   * @param work the work to run
+   * @return the number of bytes allocated, or 0 if the virtual machine does not count
+   *         allocations
+   * @throws IllegalArgumentException if the work is null
+   */
+  public static long allocatedBytes(Runnable work) throws IllegalArgumentException {
+    if (work == null) {
+      throw new IllegalArgumentException("Work must not be null.");
+    }
+    LongAdder outer = POOL_ALLOCATED.get();
+    LongAdder poolAllocated = new LongAdder();
+    POOL_ALLOCATED.set(poolAllocated);
+    long before = threadAllocatedBytes();
+    long allocated;
+    try {
+      work.run();
+    } finally {
+      allocated = threadAllocatedBytes() - before + poolAllocated.sum();
+      if (outer == null) {
+        POOL_ALLOCATED.remove();
+      } else {
+        outer.add(poolAllocated.sum());
+        POOL_ALLOCATED.set(outer);
+      }
+    }
+    return Math.max(0, allocated);
+  }
+
+  /**
+   * Gets the number of bytes allocated so far by the calling thread.
+   *
+   * @return the number of bytes allocated, or 0 if the virtual machine does not count
+   *         allocations
+   */
+  private static long threadAllocatedBytes() {
+    if (!(THREADS instanceof com.sun.management.ThreadMXBean)) {
+      return 0;
+    }
+    return Math.max(0, ((com.sun.management.ThreadMXBean) THREADS)
+            .getThreadAllocatedBytes(Thread.currentThread().getId()));
+  }
+
+  /**
+   * Processes every row of an image with a given task on the calling thread.
+   *
+   * @param height      the number of rows in the image
+   * @param rowsPerBand the largest number of rows in a band
+   * @param task        the work done on each band of rows
+   * @param banded      true if the rows are run band by band, false if they are run at once
+   */
+  private static void runOnCaller(int height, int rowsPerBand, RowTask task, boolean banded) {
+    if (!banded) {
+      task.run(0, height);
+      return;
+    }
+    for (int startRow = 0; startRow < height; startRow += rowsPerBand) {
+      task.run(startRow, Math.min(height, startRow + rowsPerBand));
+    }
+  }
+
+  /**
+   * This class represents a band of rows that splits itself in half until it is small enough
+   * to process directly.
+   */
+  private static class Band extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final transient RowTask task;
+    private final int startRow;
+    private final int endRow;
+    private final int rowsPerBand;
+    private final AtomicReference<RuntimeException> failure;
+
+    /**
+     * Constructs a band of rows to process.
+     *
+     * @param task        the work done on each band of rows
+     * @param startRow    the first row of the band
+     * @param endRow      the row after the last row of the band
+     * @param rowsPerBand the largest number of rows processed without splitting
+     * @param failure     holds the first exception thrown by any band
+     */
+    private Band(RowTask task, int startRow, int endRow, int rowsPerBand,
+                 AtomicReference<RuntimeException> failure) {
+      this.task = task;
+      this.startRow = startRow;
+      this.endRow = endRow;
+      this.rowsPerBand = rowsPerBand;
+      this.failure = failure;
+    }
+
+    /**
+     * Processes the band directly or splits it in half and processes both halves in parallel.
+     */
+    @Override
+    protected void compute() {
+      if (this.failure.get() != null) {
+        return;
+      }
+      if (this.endRow - this.startRow <= this.rowsPerBand) {
+        try {
+          this.task.run(this.startRow, this.endRow);
+        } catch (RuntimeException e) {
+          this.failure.compareAndSet(null, e);
+        }
+      } else {
+        int middle = (this.startRow + this.endRow) >>> 1;
+        invokeAll(new Band(this.task, this.startRow, middle, this.rowsPerBand, this.failure),
+                new Band(this.task, middle, this.endRow, this.rowsPerBand, this.failure));
+      }
+    }
+  }
+}
@@ -2,7 +2,10 @@ package view;
 
 import java.awt.Graphics;
 import java.awt.Dimension;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 
 import javax.swing.JPanel;
@@ -10,13 +13,22 @@ import javax.swing.JPanel;
 import model.ImageModel;
 import model.ImageModelMap;
 import model.ImageUtil;
+import model.RegionImageModel;
 
 /**
  * This class represents an object of an DisplayPanel that displays the image currently selected
  * by the user in the GUI view.
+ *
+ * <p>Each image is rendered to a BufferedImage once and kept in a small cache of recently shown
+ * images, keyed by name. A cached rendering is reused for as long as the name still maps to the
+ * same image model, and painting copies only the part of it inside the clip, so scrolling never
+ * renders the image again. When a name moves from one region of a source image to another, as
+ * a preview does while it is scrolled, only the two regions are rendered again.
  */
 public class DisplayPanel extends JPanel implements ImagePanel {
+  private static final int CACHED_IMAGES = 4;
   private final ImageModelMap imageModelMap;
+  private final Map<String, RenderedImage> renderCache;
   private String imageToPaint;
 
   /**
@@ -31,6 +43,12 @@ public class DisplayPanel extends JPanel implements ImagePanel {
     super();
     this.imageModelMap = Objects.requireNonNull(imageModelMap);
     this.imageToPaint = Objects.requireNonNull(defaultImageToPaint);
+    this.renderCache = new LinkedHashMap<>(CACHED_IMAGES + 1, 1f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, RenderedImage> eldest) {
+        return this.size() > CACHED_IMAGES;
+      }
+    };
     int height = imageModelMap.find(defaultImageToPaint).getImageHeight();
     int width = imageModelMap.find(defaultImageToPaint).getImageWidth();
     this.setPreferredSize(new Dimension(width, height));
@@ -50,27 +68,78 @@ public class DisplayPanel extends JPanel implements ImagePanel {
   }
 
   /**
-   * Renders the ImageModel to the panel.
+   * Renders the ImageModel to the panel, copying only the part of its cached rendering that
+   * lies inside the clip.
    *
    * @param g the graphics object being drawn on
    */
   @Override
   protected void paintComponent(Graphics g) {
     super.paintComponent(g);
-    g.drawImage(modelToImage(), 0, 0, null);
+    BufferedImage image = modelToImage();
+    Rectangle area = new Rectangle(0, 0, image.getWidth(), image.getHeight());
+    Rectangle clip = g.getClipBounds();
+    if (clip != null) {
+      area = area.intersection(clip);
+    }
+    if (!area.isEmpty()) {
+      int right = area.x + area.width;
+      int bottom = area.y + area.height;
+      g.drawImage(image, area.x, area.y, right, bottom, area.x, area.y, right, bottom, null);
+    }
   }
 
   /**
-   * Converts an ImageModel to a BufferedImage that can be painted onto the panel.
+   * Gets a BufferedImage that can be painted onto the panel for the ImageModel being displayed,
+   * rendering it only if the cache holds no rendering of the model currently stored under its
+   * name, and rendering only the changed regions if the cache holds a rendering of another
+   * region of the same source image.
    *
    * @return the BufferedImage to be painted onto the panel
    */
   private BufferedImage modelToImage() {
     ImageModel modelToPaint = this.imageModelMap.find(imageToPaint);
+    RenderedImage cached = this.renderCache.get(imageToPaint);
+    if (cached != null && cached.model == modelToPaint) {
+      return cached.image;
+    }
+    if (cached != null && modelToPaint instanceof RegionImageModel
+            && cached.model instanceof RegionImageModel
+            && ((RegionImageModel) cached.model).getSource()
+            == ((RegionImageModel) modelToPaint).getSource()) {
+      int[] previous = ((RegionImageModel) cached.model).getRegionBounds();
+      int[] next = ((RegionImageModel) modelToPaint).getRegionBounds();
+      ImageUtil.renderRegion(cached.image, modelToPaint, previous[0], previous[1], previous[2],
+              previous[3]);
+      ImageUtil.renderRegion(cached.image, modelToPaint, next[0], next[1], next[2], next[3]);
+      this.renderCache.put(imageToPaint, new RenderedImage(modelToPaint, cached.image));
+      return cached.image;
+    }
     int height = modelToPaint.getImageHeight();
     int width = modelToPaint.getImageWidth();
-    BufferedImage image = new BufferedImage(width, height, 1);
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
     ImageUtil.renderBufferedImage(image, modelToPaint, width, height);
+    this.renderCache.put(imageToPaint, new RenderedImage(modelToPaint, image));
     return image;
   }
+
+  /**
+   * This class represents the rendering of an image model, together with the model it was
+   * rendered from.
+   */
+  private static class RenderedImage {
+    private final ImageModel model;
+    private final BufferedImage image;
+
+    /**
+     * Constructs a rendering of a given image model.
+     *
+     * @param model the image model that was rendered
+     * @param image the BufferedImage the model was rendered to
+     */
+    private RenderedImage(ImageModel model, BufferedImage image) {
+      this.model = model;
+      this.image = image;
+    }
+  }
 }
@@ -2,12 +2,10 @@ package view;
 
 import java.awt.Color;
 import java.awt.Graphics;
-import java.util.ArrayList;
 import java.util.Objects;
 
 import javax.swing.JPanel;
 
-import model.ImageModel;
 import model.ImageModelMap;
 
 /**
@@ -15,7 +13,7 @@ import model.ImageModelMap;
  * for visualizing one component of the current image's pixel values.
  */
 public class HistogramPanel extends JPanel implements ImagePanel {
-  private final ImageModelMap imageModelMap;
+  private final HistogramService histograms;
   private String imageToPaint;
   private final String greyscaleType;
 
@@ -31,8 +29,22 @@ public class HistogramPanel extends JPanel implements ImagePanel {
    */
   public HistogramPanel(ImageModelMap imageModelMap, String defaultImageToPaint,
                         String greyscaleType) {
+    this(defaultImageToPaint, greyscaleType, new HistogramService(imageModelMap));
+  }
+
+  /**
+   * Constructs one object of a HistogramPanel which visualizes an image's greyscale component
+   * using a given HistogramService shared with other panels, and a String corresponding to a
+   * default image that should be painted when the GUI view is first opened.
+   *
+   * @param defaultImageToPaint the image painted when the GUI view is first opened
+   * @param greyscaleType the greyscale component that the histogram should visualize
+   * @param histograms the HistogramService from which the image's histograms are taken
+   */
+  public HistogramPanel(String defaultImageToPaint, String greyscaleType,
+                        HistogramService histograms) {
     super();
-    this.imageModelMap = Objects.requireNonNull(imageModelMap);
+    this.histograms = Objects.requireNonNull(histograms);
     this.imageToPaint = Objects.requireNonNull(defaultImageToPaint);
     this.greyscaleType = Objects.requireNonNull(greyscaleType);
   }
@@ -72,40 +84,12 @@ public class HistogramPanel extends JPanel implements ImagePanel {
     g.drawLine(prevX, 5, prevX, this.getHeight() - 5);
 
     if (this.greyscaleType.equals("rgb")) {
-      float maxY = getMaxY(getYCoords("red"));
-      float prevY = getYCoords("red").get(0);
-      for (int y : getYCoords("red")) {
-        g.setColor(Color.RED);
-        drawLine(g, prevX, prevY, maxY, x, y);
-        prevX = x;
-        prevY = y;
-        x = x + 1;
+      Color[] colors = new Color[]{Color.RED, Color.GREEN, Color.BLUE};
+      String[] components = new String[]{"red", "green", "blue"};
+      for (int i = 0; i < 3; i++) {
+        g.setColor(colors[i]);
+        drawCounts(g, getYCoords(components[i]));
       }
-
-      x = 5;
-      prevX = x;
-      maxY = getMaxY(getYCoords("green"));
-      prevY = getYCoords("green").get(0);
-      for (int y : getYCoords("green")) {
-        g.setColor(Color.GREEN);
-        drawLine(g, prevX, prevY, maxY, x, y);
-        prevX = x;
-        prevY = y;
-        x = x + 1;
-      }
-
-      x = 5;
-      prevX = x;
-      maxY = getMaxY(getYCoords("blue"));
-      prevY = getYCoords("blue").get(0);
-      for (int y : getYCoords("blue")) {
-        g.setColor(Color.BLUE);
-        drawLine(g, prevX, prevY, maxY, x, y);
-        prevX = x;
-        prevY = y;
-        x = x + 1;
-      }
-
     } else {
       switch (this.greyscaleType) {
         case "red":
@@ -123,15 +107,26 @@ public class HistogramPanel extends JPanel implements ImagePanel {
         default:
           break;
       }
+      drawCounts(g, getYCoords(this.greyscaleType));
+    }
+  }
 
-      float maxY = getMaxY(getYCoords(this.greyscaleType));
-      float prevY = getYCoords(this.greyscaleType).get(0);
-      for (int y : getYCoords(this.greyscaleType)) {
-        drawLine(g, prevX, prevY, maxY, x, y);
-        prevX = x;
-        prevY = y;
-        x = x + 1;
-      }
+  /**
+   * Draws the line chart of one component's counts in the current color of the graphics object.
+   *
+   * @param g the graphics object being drawn on
+   * @param yCoords the y-coordinates of the line chart
+   */
+  private void drawCounts(Graphics g, int[] yCoords) {
+    float maxY = getMaxY(yCoords);
+    int prevX = 5;
+    float prevY = yCoords[0];
+    int x = 5;
+    for (int y : yCoords) {
+      drawLine(g, prevX, prevY, maxY, x, y);
+      prevX = x;
+      prevY = y;
+      x = x + 1;
     }
   }
 
@@ -151,47 +146,14 @@ public class HistogramPanel extends JPanel implements ImagePanel {
   }
 
   /**
-   * Gets a list of 256 y-coordinates corresponding to the number of pixels containing a red,
+   * Gets the 256 y-coordinates corresponding to the number of pixels containing each red,
    * green, blue, or intensity value in the image being displayed.
    *
-   * @return the list of y-coordinates
+   * @param greyscaleType the component whose counts are returned
+   * @return the y-coordinates
    */
-  private ArrayList<Integer> getYCoords(String greyscaleType) {
-    ImageModel model = this.imageModelMap.find(this.imageToPaint);
-
-    ArrayList<Integer> yCoords = new ArrayList<>();
-    for (int i = 0; i < 256; i++) {
-      yCoords.add(0);
-    }
-
-    for (int i = 0; i < model.getImageHeight(); i++) {
-      for (int j = 0; j < model.getImageWidth(); j++) {
-        switch (greyscaleType) {
-          case "red":
-            int currentValue = yCoords.get(model.getPixelAt(i, j).getRed());
-            yCoords.set(model.getPixelAt(i, j).getRed(), currentValue + 1);
-            break;
-          case "green":
-            currentValue = yCoords.get(model.getPixelAt(i, j).getGreen());
-            yCoords.set(model.getPixelAt(i, j).getGreen(), currentValue + 1);
-            break;
-          case "blue":
-            currentValue = yCoords.get(model.getPixelAt(i, j).getBlue());
-            yCoords.set(model.getPixelAt(i, j).getBlue(), currentValue + 1);
-            break;
-          case "intensity":
-            int intensityValue = (model.getPixelAt(i, j).getRed()
-                    + model.getPixelAt(i, j).getGreen()
-                    + model.getPixelAt(i, j).getBlue()) / 3;
-            currentValue = yCoords.get(intensityValue);
-            yCoords.set(intensityValue, currentValue + 1);
-            break;
-          default:
-            break;
-        }
-      }
-    }
-    return yCoords;
+  private int[] getYCoords(String greyscaleType) {
+    return this.histograms.find(this.imageToPaint).getCounts(greyscaleType);
   }
 
   /**
@@ -200,7 +162,7 @@ public class HistogramPanel extends JPanel implements ImagePanel {
    * @param yCoords the y-coordinates used to make the line chart
    * @return the highest y-value among the coordinates
    */
-  private int getMaxY(ArrayList<Integer> yCoords) {
+  private int getMaxY(int[] yCoords) {
     int maxValue = 0;
     for (int yCoord : yCoords) {
       if (yCoord > maxValue) {
@@ -0,0 +1,74 @@
+package view;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import model.Histogram;
+import model.ImageModel;
+import model.ImageModelMap;
+
+/**
+ * This class represents the source of histograms for the histogram panels of a GUI view. The
+ * histograms of an image are counted once and shared by every panel showing that image, and
+ * are kept for a few recently shown images, keyed by name. A cached histogram is reused for as
+ * long as the name still maps to the same image model.
+ */
+public class HistogramService {
+  private static final int CACHED_IMAGES = 4;
+  private final ImageModelMap imageModelMap;
+  private final Map<String, CachedHistogram> cache;
+
+  /**
+   * Constructs a HistogramService for the images stored in a given ImageModelMap.
+   *
+   * @param imageModelMap the ImageModelMap used to store the added images
+   */
+  public HistogramService(ImageModelMap imageModelMap) {
+    this.imageModelMap = Objects.requireNonNull(imageModelMap);
+    this.cache = new LinkedHashMap<>(CACHED_IMAGES + 1, 1f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CachedHistogram> eldest) {
+        return this.size() > CACHED_IMAGES;
+      }
+    };
+  }
+
+  /**
+   * Gets the histograms of the image model stored under a given name, counting them only if
+   * the cache holds none for the model currently stored under that name.
+   *
+   * @param modelName the name of the image model
+   * @return the histograms of the image model
+   */
+  public synchronized Histogram find(String modelName) {
+    ImageModel model = this.imageModelMap.find(modelName);
+    CachedHistogram cached = this.cache.get(modelName);
+    if (cached != null && cached.model == model) {
+      return cached.histogram;
+    }
+    Histogram histogram = new Histogram(model);
+    this.cache.put(modelName, new CachedHistogram(model, histogram));
+    return histogram;
+  }
+
+  /**
+   * This class represents the histograms of an image model, together with the model they
+   * were counted from.
+   */
+  private static class CachedHistogram {
+    private final ImageModel model;
+    private final Histogram histogram;
+
+    /**
+     * Constructs a cache entry for the histograms of a given image model.
+     *
+     * @param model     the image model that was counted
+     * @param histogram the histograms of the model
+     */
+    private CachedHistogram(ImageModel model, Histogram histogram) {
+      this.model = model;
+      this.histogram = histogram;
+    }
+  }
+}
@@ -24,6 +24,7 @@ import javax.swing.Box;
 import javax.swing.BoxLayout;
 import javax.swing.filechooser.FileSystemView;
 
+import controller.OperationListener;
 import controller.ViewListener;
 import model.ImageModelMap;
 
@@ -33,6 +34,7 @@ import model.ImageModelMap;
  */
 public class ImageModelViewImpl extends JFrame implements ImageModelView, ActionListener {
   protected final ImageModelMap imageModelMap;
+  protected final HistogramService histogramService;
   private final ImagePanel imageDisplay;
   private final JScrollPane imageScrollPane;
   protected final JPanel searchPanel;
@@ -46,6 +48,9 @@ public class ImageModelViewImpl extends JFrame implements ImageModelView, Action
   private final ImagePanel greenHistogramPanel;
   private final ImagePanel blueHistogramPanel;
   private final ImagePanel intensityHistogramPanel;
+  private final JButton confirmAction;
+  private final JButton cancelAction;
+  private boolean operationRunning;
   protected String displayModelName;
   protected final List<String> displayModelList;
   protected final List<String> parameterList;
@@ -63,6 +68,7 @@ public class ImageModelViewImpl extends JFrame implements ImageModelView, Action
   public ImageModelViewImpl(ImageModelMap imageModelMap) {
     super();
     this.imageModelMap = Objects.requireNonNull(imageModelMap);
+    this.histogramService = new HistogramService(this.imageModelMap);
     this.displayModelName = "koala";
     this.displayModelList = new ArrayList<>(Arrays.asList("koala", "jellyfish", "penguins",
             "left_mask"));
@@ -84,7 +90,9 @@ public class ImageModelViewImpl extends JFrame implements ImageModelView, Action
     JButton blurFilter = createButton("Blur Filter", "blur");
     JButton sharpenFilter = createButton("Sharpen Filter", "sharpen");
     JButton saveImage = createButton("Save Image", "save");
-    JButton confirmAction = createButton("Confirm", "confirm");
+    this.confirmAction = createButton("Confirm", "confirm");
+    this.cancelAction = createButton("Cancel", "cancel");
+    this.cancelAction.setEnabled(false);
 
     // Allows the user to choose an image to edit
     this.searchPanel = createViewPanel("box-vertical");
@@ -126,7 +134,8 @@ public class ImageModelViewImpl extends JFrame implements ImageModelView, Action
     this.userInput.setPreferredSize(new Dimension(180, 30));
     userInputPanel.add(userInput);
     JPanel confirmActionPanel = createViewPanel("flow");
-    confirmActionPanel.add(confirmAction);
+    confirmActionPanel.add(this.confirmAction);
+    confirmActionPanel.add(this.cancelAction);
     this.parametersPanel.add(userPromptPanel);
     this.parametersPanel.add(Box.createVerticalGlue());
     this.parametersPanel.add(userInputPanel);
@@ -208,9 +217,13 @@ public class ImageModelViewImpl extends JFrame implements ImageModelView, Action
   @Override
   public void actionPerformed(ActionEvent e) {
     if (e.getActionCommand().equals("confirm")) {
-      if (this.parameterList.size() > 0) {
+      if (this.parameterList.size() > 0 && !this.operationRunning) {
         emitConfirmAction();
       }
+    } else if (e.getActionCommand().equals("cancel")) {
+      for (ViewListener listener : this.listenerList) {
+        listener.cancelOperations();
+      }
     } else if (e.getActionCommand().equals("load")) {
       fileChooserInteraction(e, new String[]{},
               "<html>Enter the name to load the<br/>new image to.</html>");
@@ -256,32 +269,66 @@ public class ImageModelViewImpl extends JFrame implements ImageModelView, Action
   }
 
   /**
-   * Executes a command specified by the parameters entered by the user and resets the GUI view
-   * so that it can take in new user input.
-   *
-   * @throws IllegalArgumentException if the command has any erroneous parameters
+   * Submits a command specified by the parameters entered by the user to run in the background,
+   * and resets the GUI view so that it can take in new user input once the command completes.
+   * While it runs, the prompt shows how far it has got and the user can cancel it.
    */
   protected void executeAndReset() {
+    StringBuilder parameters = new StringBuilder();
+    for (String parameter : this.parameterList) {
+      parameters.append(parameter + " ");
+    }
+    String newImageModel = this.parameterList.get(this.parameterList.size() - 1);
     for (ViewListener listener : this.listenerList) {
-      StringBuilder parameters = new StringBuilder();
-      for (String parameter : this.parameterList) {
-        parameters.append(parameter + " ");
-      }
-      try {
-        listener.viewActionPerformed(parameters.toString());
-        String newImageModel = this.parameterList.get(this.parameterList.size() - 1);
-        if (!this.displayModelList.contains(newImageModel)) {
-          this.searchBox.addItem(newImageModel);
-          this.displayModelList.add(newImageModel);
+      setOperationRunning(true);
+      listener.viewActionSubmitted(parameters.toString(), new OperationListener() {
+        @Override
+        public void operationProgressed(long completedRows, long totalRows) {
+          userPrompt.setText("<html>Working... " + (100 * completedRows / Math.max(1, totalRows))
+                  + "%<br/>Press Cancel to stop.</html>");
         }
-        refresh(newImageModel);
-        this.parameterList.clear();
-      } catch (IllegalArgumentException e) {
-        throw new IllegalArgumentException(e.getMessage());
-      }
+
+        @Override
+        public void operationCompleted() {
+          setOperationRunning(false);
+          if (!displayModelList.contains(newImageModel)) {
+            searchBox.addItem(newImageModel);
+            displayModelList.add(newImageModel);
+          }
+          refresh(newImageModel);
+          parameterList.clear();
+          userPrompt.setText("<html>Enter relevant operation<br/>parameters below.</html>");
+          userInput.setText("");
+        }
+
+        @Override
+        public void operationFailed(String message) {
+          setOperationRunning(false);
+          userPrompt.setText(message);
+          userInput.setText("");
+        }
+
+        @Override
+        public void operationCancelled() {
+          setOperationRunning(false);
+          parameterList.clear();
+          userPrompt.setText("<html>Operation cancelled.<br/>Choose an operation.</html>");
+          userInput.setText("");
+        }
+      });
     }
-    this.userPrompt.setText("<html>Enter relevant operation<br/>parameters below.</html>");
-    this.userInput.setText("");
+  }
+
+  /**
+   * Marks whether an operation is running in the background, allowing it to be cancelled and
+   * preventing another from being confirmed until it ends.
+   *
+   * @param running true if an operation is running, false otherwise
+   */
+  private void setOperationRunning(boolean running) {
+    this.operationRunning = running;
+    this.confirmAction.setEnabled(!running);
+    this.cancelAction.setEnabled(running);
   }
 
   /**
@@ -424,15 +471,16 @@ public class ImageModelViewImpl extends JFrame implements ImageModelView, Action
 
   /**
    * Creates an ImagePanel for the image currently being displayed to visualize the components
-   * of the pixel's respective red, green, blue, and intensity values.
+   * of the pixel's respective red, green, blue, and intensity values. Every histogram panel
+   * takes its counts from the view's shared HistogramService.
    *
    * @param imageModelMap the ImageModelMap in which the image being displayed is contained
    * @param greyscaleType the component of the pixel's values that is being visualized
    * @return an ImagePanel displaying the histogram
    */
   protected ImagePanel createHistogramPanel(ImageModelMap imageModelMap, String greyscaleType) {
-    ImagePanel histogramPanel = new HistogramPanel(imageModelMap,
-            this.displayModelName, greyscaleType);
+    ImagePanel histogramPanel = new HistogramPanel(this.displayModelName, greyscaleType,
+            this.histogramService);
     setSizeBehavior((Component) histogramPanel, new int[]{266, 136, 266, 165, 266, 136});
     return histogramPanel;
   }
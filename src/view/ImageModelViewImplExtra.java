@@ -32,6 +32,7 @@ import model.Pixel;
  * interact with to use the image manipulator program with extra features.
  */
 public class ImageModelViewImplExtra extends ImageModelViewImpl implements ChangeListener {
+  private static final int PREVIEW_SIZE = 200;
   private String previewName;
   private final ImagePanel previewDisplay;
   private final JScrollPane previewScrollPane;
@@ -98,7 +99,7 @@ public class ImageModelViewImplExtra extends ImageModelViewImpl implements Chang
     IPixel[][] emptyPreviewPixels = new IPixel[200][200];
     for (int i = 0; i < 200; i++) {
       for (int j = 0; j < 200; j++) {
-        emptyPreviewPixels[i][j] = new Pixel(255, 255, 255);
+        emptyPreviewPixels[i][j] = Pixel.of(255, 255, 255);
       }
     }
     ImageModel emptyPreviewModel = new ImageModelImpl(emptyPreviewPixels, 200, 200);
@@ -171,9 +172,6 @@ public class ImageModelViewImplExtra extends ImageModelViewImpl implements Chang
     }
     if (!e.getActionCommand().equals("preview")) {
       this.previewName = "empty";
-      if (this.displayMaskName.equals("newMask")) {
-        this.displayMaskName = "none";
-      }
       this.previewParameterList.clear();
       this.previewDisplay.setImageToPaint(this.previewName);
       this.previewScrollPane.repaint();
@@ -189,12 +187,8 @@ public class ImageModelViewImplExtra extends ImageModelViewImpl implements Chang
   @Override
   public void stateChanged(ChangeEvent e) {
     if (!this.previewName.equals("empty")) {
-      int height = this.imageModelMap.find(this.previewName).getImageHeight();
-      int width = this.imageModelMap.find(this.previewName).getImageWidth();
       int row = this.previewScrollPane.getVerticalScrollBar().getValue();
       int col = this.previewScrollPane.getHorizontalScrollBar().getValue();
-
-      createNewMask(height, width, row, col);
       this.displayPreview(row, col);
     }
   }
@@ -235,10 +229,6 @@ public class ImageModelViewImplExtra extends ImageModelViewImpl implements Chang
    */
   private void emitPreviewAction() {
     this.previewName = this.displayModelName;
-    int height = this.imageModelMap.find(this.previewName).getImageHeight();
-    int width = this.imageModelMap.find(this.previewName).getImageWidth();
-    createNewMask(height, width, 0, 0);
-    this.displayMaskName = "newMask";
 
     try {
       if (this.parameterList.contains("downscale")) {
@@ -263,40 +253,18 @@ public class ImageModelViewImplExtra extends ImageModelViewImpl implements Chang
     }
   }
 
-  /**
-   * Creates a new mask to use in creating the preview display.
-   *
-   * @param height the height of the mask image
-   * @param width  the width of the mask image
-   * @param row    the row to start the black section at
-   * @param col    the column to start the black section at
-   */
-  private void createNewMask(int height, int width, int row, int col) {
-    IPixel[][] newMaskPixels = new IPixel[height][width];
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        if (i > row && i < row + 200 && j > col && j < col + 200) {
-          newMaskPixels[i][j] = new Pixel(0, 0, 0);
-        } else {
-          newMaskPixels[i][j] = new Pixel(255, 255, 255);
-        }
-      }
-    }
-    ImageModel newMask = new ImageModelImpl(newMaskPixels, height, width);
-    Appendable maskDummyOutput = new StringBuilder();
-    this.imageModelMap.add("newMask", newMask, maskDummyOutput);
-  }
-
   /**
    * Performs the designated operation to a small portion of the chosen image and displays
-   * it in the preview window.
+   * it in the preview window. Only the part of the image visible in the preview window is
+   * computed.
    *
    * @param initialRow the starting row of the image to display
    * @param initialCol the starting column of the image to display
    */
   private void displayPreview(int initialRow, int initialCol) {
     for (ViewListener listener : this.listenerList) {
-      StringBuilder parameters = new StringBuilder();
+      StringBuilder parameters = new StringBuilder("region " + initialRow + " " + initialCol
+              + " " + PREVIEW_SIZE + " " + PREVIEW_SIZE + " ");
       for (String parameter : this.previewParameterList) {
         parameters.append(parameter + " ");
       }
@@ -312,7 +280,6 @@ public class ImageModelViewImplExtra extends ImageModelViewImpl implements Chang
         throw new IllegalArgumentException(e.getMessage());
       }
     }
-    this.displayMaskName = "none";
   }
 
   /**
@@ -377,7 +344,8 @@ public class ImageModelViewImplExtra extends ImageModelViewImpl implements Chang
 
   /**
    * Creates an ImagePanel for the image currently being displayed to visualize the components
-   * of the pixel's respective red, green, blue, and intensity values.
+   * of the pixel's respective red, green, blue, and intensity values. Every histogram panel
+   * takes its counts from the view's shared HistogramService.
    *
    * @param imageModelMap the ImageModelMap in which the image being displayed is contained
    * @param greyscaleType the component of the pixel's values that is being visualized
@@ -385,8 +353,8 @@ public class ImageModelViewImplExtra extends ImageModelViewImpl implements Chang
    */
   @Override
   protected ImagePanel createHistogramPanel(ImageModelMap imageModelMap, String greyscaleType) {
-    ImagePanel histogramPanel = new HistogramPanel(imageModelMap,
-            this.displayModelName, greyscaleType);
+    ImagePanel histogramPanel = new HistogramPanel(this.displayModelName, greyscaleType,
+            this.histogramService);
     setSizeBehavior((Component) histogramPanel, new int[]{266, 130, 266, 185, 266, 130});
     return histogramPanel;
   }
@@ -551,4 +551,79 @@ public class FilterCommandTest {
                     Math.max(Math.min(sharpenKernelBlue, 255), 0)),
             allModels.find("image-sharpenFilter").getPixelAt(2, 2));
   }
+
+  // Tests that the kernel command sums every weighted pixel before truncating the result
+  @Test
+  public void testKernelEdit() {
+    ImageCommand kernelFilter = new KernelFilter(new StringBuilder(), allModels,
+            new Scanner(new StringReader("test/kernel.txt image image-kernel")));
+    kernelFilter.edit();
+    double[] weights = new double[]{0.0625, 0.125, 0.0625, 0.125, 0.25, 0.125,
+        0.0625, 0.125, 0.0625};
+    double red = 0;
+    double green = 0;
+    double blue = 0;
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        red += weights[i * 3 + j] * testModel.getPixelAt(i, j).getRed();
+        green += weights[i * 3 + j] * testModel.getPixelAt(i, j).getGreen();
+        blue += weights[i * 3 + j] * testModel.getPixelAt(i, j).getBlue();
+      }
+    }
+    assertEquals(new Pixel((int) red, (int) green, (int) blue),
+            allModels.find("image-kernel").getPixelAt(1, 1));
+  }
+
+  // Tests that the kernel command will throw an exception when the kernel file is invalid
+  @Test(expected = IllegalArgumentException.class)
+  public void testKernelInvalidFile() {
+    new KernelFilter(new StringBuilder(), allModels,
+            new Scanner(new StringReader("test/image.ppm image image-kernel"))).edit();
+  }
+
+  // Tests that a box blur with a radius of 0 leaves the image unchanged, and that a large
+  // radius averages the whole image
+  @Test
+  public void testBoxBlurEdit() {
+    new BoxBlur(new StringBuilder(), allModels,
+            new Scanner(new StringReader("0 image image-box0"))).edit();
+    new BoxBlur(new StringBuilder(), allModels,
+            new Scanner(new StringReader("50 image image-box50"))).edit();
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        assertEquals(testModel.getPixelAt(i, j), allModels.find("image-box0").getPixelAt(i, j));
+        assertEquals(allModels.find("image-box50").getPixelAt(0, 0),
+                allModels.find("image-box50").getPixelAt(i, j));
+      }
+    }
+  }
+
+  // Tests that the largest radius blurs like any radius that covers the image, both for the
+  // whole image and for a region of it
+  @Test
+  public void testBoxBlurLargestRadius() {
+    new BoxBlur(new StringBuilder(), allModels,
+            new Scanner(new StringReader("50 image image-box50"))).edit();
+    new BoxBlur(new StringBuilder(), allModels,
+            new Scanner(new StringReader("2147483647 image image-boxmax"))).edit();
+    BoxBlur region = new BoxBlur(new StringBuilder(), allModels,
+            new Scanner(new StringReader("2147483647 image image-boxregion")));
+    region.setRegion(1, 1, 2, 2);
+    region.edit();
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        assertEquals(allModels.find("image-box50").getPixelAt(i, j),
+                allModels.find("image-boxmax").getPixelAt(i, j));
+      }
+    }
+    assertEquals(allModels.find("image-box50").getPixelAt(2, 2),
+            allModels.find("image-boxregion").getPixelAt(2, 2));
+  }
+
+  // Tests that the box blur command will throw an exception when the radius is negative
+  @Test(expected = IllegalArgumentException.class)
+  public void testBoxBlurNegativeRadius() {
+    new BoxBlur(new StringBuilder(), allModels,
+            new Scanner(new StringReader("-1 image image-box"))).edit();
+  }
 }
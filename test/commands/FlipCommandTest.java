@@ -5,11 +5,14 @@ import org.junit.Test;
 
 import java.io.StringReader;
 import java.util.HashMap;
+import java.util.Random;
 import java.util.Scanner;
 
 import model.ImageModel;
 import model.ImageModelMapImpl;
+import model.PackedImageModel;
 import model.Pixel;
+import model.RowExecutor;
 
 import static org.junit.Assert.assertEquals;
 
@@ -100,4 +103,52 @@ public class FlipCommandTest {
     assertEquals(allModels.find("image-verticalFlip").getPixelAt(2, 2),
             new Pixel(122, 123, 122));
   }
+
+  // Tests that masked flips match moving each masked pixel to its mirrored position in
+  // row-major order, including when the work is split across several threads
+  @Test
+  public void testMaskedFlipMatchesRowMajorOrder() {
+    int height = 7;
+    int width = 6;
+    Random random = new Random(3);
+    int[] pixels = new int[height * width];
+    int[] mask = new int[height * width];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = random.nextInt(1 << 24);
+      mask[i] = random.nextBoolean() ? 0 : 0xFFFFFF;
+    }
+    allModels.add("random", new PackedImageModel(pixels, height, width), new StringBuilder());
+    allModels.add("mask", new PackedImageModel(mask, height, width), new StringBuilder());
+
+    RowExecutor.configure(4, 1);
+    try {
+      new HorizontalFlip(new StringBuilder(), allModels,
+              new Scanner(new StringReader(" random mask horizontal"))).edit();
+      new VerticalFlip(new StringBuilder(), allModels,
+              new Scanner(new StringReader(" random mask vertical"))).edit();
+    } finally {
+      RowExecutor.configure(Runtime.getRuntime().availableProcessors(), 16384);
+    }
+
+    int[] horizontal = new int[height * width];
+    int[] vertical = new int[height * width];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        int index = i * width + j;
+        if (mask[index] == 0) {
+          horizontal[i * width + width - 1 - j] = pixels[index];
+          vertical[(height - 1 - i) * width + j] = pixels[index];
+        } else {
+          horizontal[index] = pixels[index];
+          vertical[index] = pixels[index];
+        }
+      }
+    }
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        assertEquals(horizontal[i * width + j], allModels.find("horizontal").getRGBAt(i, j));
+        assertEquals(vertical[i * width + j], allModels.find("vertical").getRGBAt(i, j));
+      }
+    }
+  }
 }
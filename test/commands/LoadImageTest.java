@@ -9,9 +9,11 @@ import java.util.Scanner;
 
 import model.ImageModel;
 import model.ImageModelMapImpl;
+import model.MappedImageModel;
 import model.Pixel;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -30,6 +32,34 @@ public class LoadImageTest {
     allModels.add("image", testModel, output);
   }
 
+  // Tests that raw files at least as large as the mapping threshold are mapped into memory
+  // and can be edited like any other image
+  @Test
+  public void testLoadMapped() {
+    LoadImage.setMappingThreshold(0);
+    try {
+      new LoadImage(new StringBuilder(), allModels,
+              new Scanner(new StringReader("test/image-raw.ppm mapped"))).edit();
+      new LoadImage(new StringBuilder(), allModels,
+              new Scanner(new StringReader("test/image.ppm plain"))).edit();
+    } finally {
+      LoadImage.setMappingThreshold(256L << 20);
+    }
+    assertTrue(allModels.find("mapped") instanceof MappedImageModel);
+    assertFalse(allModels.find("plain") instanceof MappedImageModel);
+
+    new BlurFilter(new StringBuilder(), allModels,
+            new Scanner(new StringReader(" mapped mapped-blur"))).edit();
+    new BlurFilter(new StringBuilder(), allModels,
+            new Scanner(new StringReader(" plain plain-blur"))).edit();
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        assertEquals(allModels.find("plain-blur").getPixelAt(i, j),
+                allModels.find("mapped-blur").getPixelAt(i, j));
+      }
+    }
+  }
+
   // Tests that loadImage works as expected
   @Test
   public void testLoadImage() {
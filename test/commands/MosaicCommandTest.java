@@ -11,6 +11,7 @@ import java.util.Scanner;
 
 import model.ImageModel;
 import model.ImageModelMapImpl;
+import model.PackedImageModel;
 
 import static org.junit.Assert.assertEquals;
 
@@ -212,4 +213,83 @@ public class MosaicCommandTest {
             newImage.getPixelAt(2, 2).getGreen(),
             newImage.getPixelAt(2, 2).getBlue()));
   }
+
+  // Tests that every pixel of a larger image takes the color of a seed at the shortest
+  // distance from it, where each pixel has a unique color so that its seed can be identified
+  @Test
+  public void testNearestSeed() {
+    int height = 40;
+    int width = 50;
+    int[] pixels = new int[height * width];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = i;
+    }
+    ImageModel model = new PackedImageModel(pixels, height, width);
+    allModels.add("large", model, new StringBuilder());
+    new Mosaic(new StringBuilder(), allModels,
+            new Scanner(new StringReader("60 large large-mosaic")), 7).edit();
+    ImageModel newImage = allModels.find("large-mosaic");
+
+    ArrayList<Integer> seeds = new ArrayList<>();
+    for (int i = 0; i < pixels.length; i++) {
+      if (newImage.getRGBAt(i / width, i % width) == i) {
+        seeds.add(i);
+      }
+    }
+    assertEquals(60, seeds.size());
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        int seed = newImage.getRGBAt(i, j);
+        int shortest = Integer.MAX_VALUE;
+        for (int other : seeds) {
+          shortest = Math.min(shortest, squaredDistance(i, j, other, width));
+        }
+        assertEquals(shortest, squaredDistance(i, j, seed, width));
+      }
+    }
+  }
+
+  // Tests that a seed count above half of the pixel count places exactly that many distinct
+  // seeds, and that the same Random seed always produces the same mosaic
+  @Test
+  public void testHighSeedDensity() {
+    int height = 40;
+    int width = 50;
+    int[] pixels = new int[height * width];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = i;
+    }
+    allModels.add("large", new PackedImageModel(pixels, height, width), new StringBuilder());
+    new Mosaic(new StringBuilder(), allModels,
+            new Scanner(new StringReader("1500 large first")), 11).edit();
+    new Mosaic(new StringBuilder(), allModels,
+            new Scanner(new StringReader("1500 large second")), 11).edit();
+
+    int seeds = 0;
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        assertEquals(allModels.find("first").getRGBAt(i, j),
+                allModels.find("second").getRGBAt(i, j));
+        if (allModels.find("first").getRGBAt(i, j) == i * width + j) {
+          seeds++;
+        }
+      }
+    }
+    assertEquals(1500, seeds);
+  }
+
+  /**
+   * Computes the squared distance from a pixel to the pixel at a given row-major index.
+   *
+   * @param row   the row of the pixel
+   * @param col   the column of the pixel
+   * @param index the row-major index of the other pixel
+   * @param width the width of the image
+   * @return the squared distance between the pixels
+   */
+  private int squaredDistance(int row, int col, int index, int width) {
+    int dr = row - index / width;
+    int dc = col - index % width;
+    return dr * dr + dc * dc;
+  }
 }
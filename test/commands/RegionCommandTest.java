@@ -0,0 +1,146 @@
+package commands;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.function.Function;
+
+import model.ImageModel;
+import model.ImageModelMapImpl;
+import model.PackedImageModel;
+import model.RegionImageModel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link RegionCommand}.
+ */
+public class RegionCommandTest {
+  private ImageModelMapImpl allModels;
+  private ImageModel source;
+
+  // Create a noisy image and a mask covering part of it
+  @Before
+  public void init() {
+    allModels = new ImageModelMapImpl(new HashMap<>());
+    Random random = new Random(11);
+    int[] pixels = new int[40 * 30];
+    int[] mask = new int[40 * 30];
+    for (int k = 0; k < pixels.length; k++) {
+      pixels[k] = random.nextInt(0x1000000);
+      mask[k] = (k % 30) < 18 ? 0 : 0xFFFFFF;
+    }
+    source = new PackedImageModel(pixels, 40, 30);
+    allModels.add("image", source, new StringBuilder());
+    allModels.add("mask", new PackedImageModel(mask, 40, 30), new StringBuilder());
+  }
+
+  // Tests that a region matches the same part of the whole result for every kind of command,
+  // with and without a mask, and that the rest of the result is the source image
+  @Test
+  public void testRegionMatchesWholeResult() {
+    String[] names = new String[]{"blur", "sharpen", "box-blur", "kernel", "horizontal-flip",
+        "vertical-flip", "mosaic", "brighten", "sepia-tone"};
+    for (String name : names) {
+      for (String images : new String[]{" image ", " image mask "}) {
+        ImageModel whole = run(name, images + "whole", null);
+        ImageModel region = run(name, images + "region", new int[]{7, 5, 12, 15});
+        assertTrue(region instanceof RegionImageModel);
+        for (int i = 0; i < 40; i++) {
+          for (int j = 0; j < 30; j++) {
+            boolean inside = i >= 7 && i < 19 && j >= 5 && j < 20;
+            assertEquals(name + images + i + "," + j,
+                    inside ? whole.getRGBAt(i, j) : source.getRGBAt(i, j),
+                    region.getRGBAt(i, j));
+          }
+        }
+      }
+    }
+  }
+
+  // Tests that a region reaching past the image is clipped to the image
+  @Test
+  public void testRegionClipped() {
+    ImageModel region = run("blur", " image clipped", new int[]{30, 25, 50, 50});
+    assertArrayEquals(new int[]{30, 25, 10, 5}, ((RegionImageModel) region).getRegionBounds());
+    assertEquals(run("blur", " image whole", null).getRGBAt(39, 29), region.getRGBAt(39, 29));
+  }
+
+  // Tests that commands changing the size of the image compute the whole result
+  @Test
+  public void testDownscaleIgnoresRegion() {
+    ImageModel region = run("downscale", " image small", new int[]{0, 0, 5, 5});
+    assertEquals(20, region.getImageHeight());
+    assertEquals(15, region.getImageWidth());
+  }
+
+  // Tests that a region with a negative size is rejected
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeRegion() {
+    new BlurFilter(new StringBuilder(), allModels, new Scanner(new StringReader("")))
+            .setRegion(0, 0, -1, 5);
+  }
+
+  /**
+   * Runs a command, optionally on a region, and returns the image it creates.
+   *
+   * @param name       the name of the command
+   * @param parameters the images the command reads and the name of the image it creates
+   * @param region     the region to compute, or null to compute the whole result
+   * @return the image created by the command
+   */
+  private ImageModel run(String name, String parameters, int[] region) {
+    Appendable output = new StringBuilder();
+    Function<Scanner, AbstractImageCommand> factory;
+    switch (name) {
+      case "blur":
+        factory = s -> new BlurFilter(output, allModels, s);
+        break;
+      case "sharpen":
+        factory = s -> new SharpenFilter(output, allModels, s);
+        break;
+      case "box-blur":
+        factory = s -> new BoxBlur(output, allModels, s);
+        parameters = " 2" + parameters;
+        break;
+      case "kernel":
+        factory = s -> new KernelFilter(output, allModels, s);
+        parameters = " test/kernel.txt" + parameters;
+        break;
+      case "horizontal-flip":
+        factory = s -> new HorizontalFlip(output, allModels, s);
+        break;
+      case "vertical-flip":
+        factory = s -> new VerticalFlip(output, allModels, s);
+        break;
+      case "mosaic":
+        factory = s -> new Mosaic(output, allModels, s, 5);
+        parameters = " 40" + parameters;
+        break;
+      case "brighten":
+        factory = s -> new Brighten(output, allModels, s);
+        parameters = " 20" + parameters;
+        break;
+      case "downscale":
+        factory = s -> new Downscale(output, allModels, s);
+        parameters = " 50 50" + parameters;
+        break;
+      default:
+        factory = s -> new SepiaTone(output, allModels, s);
+        break;
+    }
+    AbstractImageCommand command = factory.apply(new Scanner(new StringReader(parameters)));
+    if (region != null) {
+      command.setRegion(region[0], region[1], region[2], region[3]);
+    }
+    command.edit();
+    String[] words = parameters.trim().split(" ");
+    return allModels.find(words[words.length - 1]);
+  }
+}
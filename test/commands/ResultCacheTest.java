@@ -0,0 +1,167 @@
+package commands;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import model.ColorOperator;
+import model.ColorPipelineModel;
+import model.ImageModel;
+import model.PackedImageModel;
+import model.RegionImageModel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ResultCache}.
+ */
+public class ResultCacheTest {
+  private final ImageModel image = new PackedImageModel(new int[]{1, 2, 3, 4}, 2, 2);
+  private final AtomicInteger computed = new AtomicInteger();
+
+  // Tests that an identical command on the same image shares the first result
+  @Test
+  public void testSameImageHit() {
+    ResultCache cache = new ResultCache(1 << 20);
+    ImageModel first = find(cache, "blur", "", null, image);
+    assertFalse(cache.wasHit());
+    assertSame(first, find(cache, "blur", "", null, image));
+    assertTrue(cache.wasHit());
+    assertEquals(1, computed.get());
+  }
+
+  // Tests that an equal image loaded separately still finds the cached result
+  @Test
+  public void testEqualContentHit() {
+    ResultCache cache = new ResultCache(1 << 20);
+    ImageModel first = find(cache, "blur", "", null, image);
+    ImageModel copy = new PackedImageModel(new int[]{1, 2, 3, 4}, 2, 2);
+    assertSame(first, find(cache, "blur", "", null, copy));
+    assertEquals(1, computed.get());
+  }
+
+  // Tests that different commands, parameters, regions and images are computed separately
+  @Test
+  public void testDifferentKeysMiss() {
+    ResultCache cache = new ResultCache(1 << 20);
+    find(cache, "brighten", "10", null, image);
+    find(cache, "brighten", "20", null, image);
+    find(cache, "sharpen", "10", null, image);
+    find(cache, "brighten", "10", new int[]{0, 0, 1, 1}, image);
+    find(cache, "brighten", "10", null, new PackedImageModel(new int[]{1, 2, 3, 5}, 2, 2));
+    assertEquals(5, computed.get());
+  }
+
+  // Tests that a command whose result must not be reused is always computed
+  @Test
+  public void testUncachedCommand() {
+    ResultCache cache = new ResultCache(1 << 20);
+    assertNotSame(find(cache, "blur", null, null, image),
+            find(cache, "blur", null, null, image));
+    assertEquals(2, computed.get());
+  }
+
+  // Tests that the least recently used result is dropped once the budget is exceeded
+  @Test
+  public void testEviction() {
+    ResultCache cache = new ResultCache(32);
+    find(cache, "a", "", null, image);
+    find(cache, "b", "", null, image);
+    find(cache, "a", "", null, image);
+    find(cache, "c", "", null, image);
+    find(cache, "a", "", null, image);
+    assertTrue(cache.wasHit());
+    find(cache, "b", "", null, image);
+    assertFalse(cache.wasHit());
+    assertEquals(4, computed.get());
+  }
+
+  // Tests that a result larger than the whole budget is never kept
+  @Test
+  public void testResultLargerThanBudget() {
+    ResultCache cache = new ResultCache(8);
+    find(cache, "blur", "", null, image);
+    find(cache, "blur", "", null, image);
+    assertFalse(cache.wasHit());
+    assertEquals(2, computed.get());
+  }
+
+  // Tests that a cached result does not keep the images it was made from alive
+  @Test
+  public void testInputsNotKept() throws InterruptedException {
+    ResultCache cache = new ResultCache(1 << 20);
+    ImageModel input = new PackedImageModel(new int[]{5, 6, 7, 8}, 2, 2);
+    find(cache, "blur", "", null, input);
+    WeakReference<ImageModel> reference = new WeakReference<>(input);
+    input = null;
+    for (int k = 0; k < 50 && reference.get() != null; k++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertNull(reference.get());
+  }
+
+  // Tests that pixels are only read when a cached result of the same command could be reused
+  @Test
+  public void testHashOnlyCandidates() {
+    ResultCache cache = new ResultCache(1 << 20);
+    AtomicInteger rows = new AtomicInteger();
+    ImageModel counted = new PackedImageModel(new int[]{1, 2, 3, 4}, 2, 2) {
+      @Override
+      public void getRow(int row, int[] buffer, int offset) {
+        rows.incrementAndGet();
+        super.getRow(row, buffer, offset);
+      }
+    };
+    find(cache, "blur", "", null, counted);
+    find(cache, "blur", "", null, counted);
+    find(cache, "sharpen", "", null, new PackedImageModel(new int[9], 3, 3));
+    assertEquals(0, rows.get());
+
+    find(cache, "sharpen", "", null, new PackedImageModel(new int[4], 2, 2));
+    find(cache, "blur", "", null, new PackedImageModel(new int[]{1, 2, 3, 4}, 2, 2));
+    assertTrue(cache.wasHit());
+    assertTrue(rows.get() > 0);
+  }
+
+  // Tests that lazy and region-backed results, which hold their source, are never kept
+  @Test
+  public void testResultsHoldingSourceNotKept() {
+    ResultCache cache = new ResultCache(1 << 20);
+    ImageModel[] models = new ImageModel[]{image};
+    for (int k = 0; k < 2; k++) {
+      cache.find("brighten", "", null, models,
+          () -> new ColorPipelineModel(image, ColorOperator.brighten(10)));
+      assertFalse(cache.wasHit());
+      cache.find("blur", "", new int[]{0, 0, 1, 1}, models,
+          () -> new RegionImageModel(image, new int[1], 0, 0, 1, 1));
+      assertFalse(cache.wasHit());
+      cache.find("save", "", null, models, () -> image);
+      assertFalse(cache.wasHit());
+    }
+  }
+
+  /**
+   * Finds a result in a cache, counting how many results are computed.
+   *
+   * @param cache      the cache
+   * @param command    the name of the command
+   * @param parameters the parameters of the command
+   * @param region     the region that the command computes
+   * @param model      the image the command is given
+   * @return the result
+   */
+  private ImageModel find(ResultCache cache, String command, String parameters, int[] region,
+                          ImageModel model) {
+    return cache.find(command, parameters, region, new ImageModel[]{model}, () -> {
+      computed.incrementAndGet();
+      return new PackedImageModel(new int[4], 2, 2);
+    });
+  }
+}
@@ -3,17 +3,23 @@ package commands;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.HashMap;
 import java.util.Scanner;
 
 import model.ImageModel;
 import model.ImageModelMapImpl;
+import model.MappedImageModel;
 import model.Pixel;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -35,6 +41,58 @@ public class SaveImageTest {
     allModels.add("image", testModel, output);
   }
 
+  // Tests that a raw PPM and a PGM are saved in binary and load back as the same image, with
+  // the PGM holding the luma of each pixel
+  @Test
+  public void testSaveRawImage() {
+    new SaveImage(new StringBuilder(), allModels,
+            new Scanner(new StringReader("test/testSaveRawImage.ppm image")), true).edit();
+    new SaveImage(new StringBuilder(), allModels,
+            new Scanner(new StringReader("test/testSaveRawImage.pgm image")), true).edit();
+
+    ImageModel fromRawFile = imageLoader.loadImage("test/testSaveRawImage.ppm");
+    ImageModel fromGreyFile = imageLoader.loadImage("test/testSaveRawImage.pgm");
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        assertEquals(testModel.getPixelAt(i, j), fromRawFile.getPixelAt(i, j));
+      }
+    }
+    assertEquals(new Pixel(123, 123, 123), fromGreyFile.getPixelAt(0, 2));
+    assertEquals(new Pixel(23, 23, 23), fromGreyFile.getPixelAt(2, 2));
+  }
+
+  // Tests that saving a mapped image over the file it is mapped from keeps both the file and
+  // the image whole
+  @Test
+  public void testSaveOverMappedFile() throws IOException {
+    File file = File.createTempFile("mapped", ".ppm");
+    try {
+      Files.copy(new File("test/image-raw.ppm").toPath(), file.toPath(),
+              StandardCopyOption.REPLACE_EXISTING);
+      LoadImage.setMappingThreshold(0);
+      try {
+        new LoadImage(new StringBuilder(), allModels,
+                new Scanner(new StringReader(file.getPath() + " mapped"))).edit();
+      } finally {
+        LoadImage.setMappingThreshold(256L << 20);
+      }
+      assertTrue(allModels.find("mapped") instanceof MappedImageModel);
+      new SaveImage(new StringBuilder(), allModels,
+              new Scanner(new StringReader(file.getPath() + " mapped")), true).edit();
+
+      ImageModel saved = imageLoader.loadImage(file.getPath());
+      for (int i = 0; i < 3; i++) {
+        for (int j = 0; j < 3; j++) {
+          assertEquals(testModel.getPixelAt(i, j), allModels.find("mapped").getPixelAt(i, j));
+          assertEquals(testModel.getPixelAt(i, j), saved.getPixelAt(i, j));
+        }
+      }
+      assertFalse(new File(file.getPath() + ".part").exists());
+    } finally {
+      file.delete();
+    }
+  }
+
   // Tests that saveImage works as intended when saving a PPM
   @Test
   public void testSaveImage() {
@@ -400,4 +400,28 @@ public class TransformationCommandTest {
             allModels.find("image-sepiaTone").getPixelAt(2, 2).getBlue());
 
   }
+
+  // Tests that the color matrix command transforms each pixel using a user-defined matrix
+  @Test
+  public void testColorMatrix() {
+    ImageCommand swap = new ColorMatrixTransformation(new StringBuilder(), allModels,
+            new Scanner(new StringReader("0 0 1 0 1 0 1 0 0 image image-swap")));
+    swap.edit();
+    assertEquals(new Pixel(122, 123, 122), allModels.find("image-swap").getPixelAt(0, 2));
+    assertEquals(new Pixel(5, 5, 100), allModels.find("image-swap").getPixelAt(1, 0));
+    assertEquals(new Pixel(100, 5, 5), allModels.find("image-swap").getPixelAt(1, 2));
+
+    ImageCommand half = new ColorMatrixTransformation(new StringBuilder(), allModels,
+            new Scanner(new StringReader("0.5 0 0 0 0.5 0 0 0 2 image image-half")));
+    half.edit();
+    assertEquals(new Pixel(127, 127, 255), allModels.find("image-half").getPixelAt(0, 1));
+    assertEquals(new Pixel(50, 2, 10), allModels.find("image-half").getPixelAt(1, 0));
+  }
+
+  // Tests that the color matrix command rejects matrix values that are not numbers
+  @Test(expected = IllegalArgumentException.class)
+  public void testColorMatrixInvalidValue() {
+    new ColorMatrixTransformation(new StringBuilder(), allModels,
+            new Scanner(new StringReader("0 0 1 0 x 0 1 0 0 image image-swap"))).edit();
+  }
 }
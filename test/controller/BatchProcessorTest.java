@@ -0,0 +1,117 @@
+package controller;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import commands.AbstractImageCommand;
+import model.ImageModel;
+import model.PPMFormat;
+import model.PackedImageModel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link BatchProcessor}.
+ */
+public class BatchProcessorTest {
+  // Tests that the constructor throws an exception when the input is not a directory
+  @Test(expected = IllegalArgumentException.class)
+  public void testInputNotDirectory() throws IOException {
+    File file = File.createTempFile("batch", ".txt");
+    file.deleteOnExit();
+    new BatchProcessor("", file, file.getParentFile(), 1, 1 << 20, ImageControllerImpl::new);
+  }
+
+  // Tests that the constructor throws an exception when given no threads
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoThreads() throws IOException {
+    File directory = Files.createTempDirectory("batch").toFile();
+    directory.deleteOnExit();
+    new BatchProcessor("", directory, directory, 0, 1 << 20, ImageControllerImpl::new);
+  }
+
+  // Tests that every image in the directory is processed, even under a budget smaller than any
+  // one image, and that other files are left alone
+  @Test
+  public void testProcessesDirectory() throws IOException {
+    File input = Files.createTempDirectory("batch-in").toFile();
+    File output = new File(Files.createTempDirectory("batch-out").toFile(), "results");
+    try {
+      write(new File(input, "a.ppm"), 0x102030, 4, 3);
+      write(new File(input, "b.ppm"), 0x405060, 2, 5);
+      Files.write(new File(input, "notes.txt").toPath(), "not an image".getBytes());
+      StringBuilder messages = new StringBuilder();
+      int processed = new BatchProcessor("load {in} image\nhorizontal-flip image flipped\n"
+              + "save-raw {out}/{name}-flipped.{ext} flipped", input, output, 2, 1,
+              ImageControllerImpl::new).run(messages);
+
+      assertEquals(2, processed);
+      assertTrue(messages.toString().contains("== a.ppm ==\n"));
+      assertTrue(messages.toString().contains("== b.ppm ==\n"));
+      ImageModel a = read(new File(output, "a-flipped.ppm"));
+      ImageModel b = read(new File(output, "b-flipped.ppm"));
+      assertEquals(4, a.getImageHeight());
+      assertEquals(3, a.getImageWidth());
+      assertEquals(0x102030, a.getRGBAt(3, 2));
+      assertEquals(2, b.getImageHeight());
+      assertEquals(0x405060, b.getRGBAt(1, 4));
+      assertEquals(2, output.list().length);
+    } finally {
+      for (File directory : new File[]{input, output}) {
+        for (File file : directory.listFiles()) {
+          file.delete();
+        }
+        directory.delete();
+      }
+      output.getParentFile().delete();
+    }
+  }
+
+  // Tests that the shared result cache is held within the batch budget while the batch runs
+  @Test
+  public void testResultCacheWithinBudget() throws IOException {
+    File input = Files.createTempDirectory("batch").toFile();
+    File output = new File(input.getParentFile(), input.getName() + "-out");
+    long[] cacheBudget = new long[1];
+    try {
+      write(new File(input, "a.ppm"), 0x102030, 2, 2);
+      AbstractImageCommand.setResultCacheBudget(64L << 20);
+      new BatchProcessor("load {in} image\n", input, output, 1, 1 << 20, (out, map) -> {
+        cacheBudget[0] = AbstractImageCommand.getResultCacheBudget();
+        return new ImageControllerImpl(out, map);
+      }).run(new StringBuilder());
+      assertEquals(512 << 10, cacheBudget[0]);
+      assertEquals(64L << 20, AbstractImageCommand.getResultCacheBudget());
+    } finally {
+      for (File directory : new File[]{input, output}) {
+        for (File file : directory.listFiles()) {
+          file.delete();
+        }
+        directory.delete();
+      }
+    }
+  }
+
+  private static void write(File file, int color, int height, int width) throws IOException {
+    int[] pixels = new int[height * width];
+    Arrays.fill(pixels, color);
+    try (OutputStream out = new FileOutputStream(file)) {
+      PPMFormat.write(new PackedImageModel(pixels, height, width), out, "P6");
+    }
+  }
+
+  private static ImageModel read(File file) throws IOException {
+    try (InputStream in = new FileInputStream(file)) {
+      return PPMFormat.read(in);
+    }
+  }
+}
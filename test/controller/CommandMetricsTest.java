@@ -0,0 +1,109 @@
+package controller;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import model.ImageModelMap;
+import model.ImageModelMapImpl;
+import model.PackedImageModel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link CommandMetrics}.
+ */
+public class CommandMetricsTest {
+  // Tests that percentiles are within the precision of the buckets and never above the maximum
+  @Test
+  public void testPercentiles() {
+    CommandMetrics metrics = new CommandMetrics(new ImageModelMapImpl(new HashMap<>()));
+    for (int k = 1; k <= 100; k++) {
+      metrics.record("blur", k * 1_000_000L, 0, 0);
+    }
+
+    assertEquals(100, metrics.getCommandCount());
+    assertEquals(50, metrics.latencyMillis("blur", 50), 50 * 0.04);
+    assertEquals(99, metrics.latencyMillis("blur", 99), 99 * 0.04);
+    assertEquals(100, metrics.latencyMillis("blur", 100), 0.0);
+    assertEquals(0, metrics.latencyMillis("sharpen", 50), 0.0);
+  }
+
+  // Tests that latencies below the first doubling are kept exactly
+  @Test
+  public void testSmallLatencies() {
+    CommandMetrics metrics = new CommandMetrics(new ImageModelMapImpl(new HashMap<>()));
+    metrics.record("blur", 7, 0, 0);
+    metrics.record("blur", 31, 0, 0);
+
+    assertEquals(7e-6, metrics.latencyMillis("blur", 50), 0.0);
+    assertEquals(31e-6, metrics.latencyMillis("blur", 100), 0.0);
+  }
+
+  // Tests that the controller counts every command it runs and reports them with stats
+  @Test
+  public void testControllerStats() {
+    int[] pixels = new int[400];
+    Arrays.fill(pixels, 0x123456);
+    ImageModelMap map = new ImageModelMapImpl(new HashMap<>());
+    map.add("image", new PackedImageModel(pixels, 20, 20), new StringBuilder());
+    StringBuilder output = new StringBuilder();
+    ImageControllerImpl controller = new ImageControllerImpl(output, map);
+    controller.run(new StringReader("blur image a\nblur a b\nsharpen b c\nstats"), false);
+
+    CommandMetrics metrics = controller.getMetrics();
+    assertEquals(3, metrics.getCommandCount());
+    assertEquals(4, metrics.getImageCount());
+    assertTrue(metrics.latencyMillis("blur", 100) > 0);
+    assertTrue(output.toString().contains("\nblur "));
+    assertTrue(output.toString().contains("\nsharpen "));
+    assertTrue(output.toString().endsWith("images: 4\n"));
+  }
+
+  // Tests that metrics of several controllers register at once and closing releases them
+  @Test
+  public void testRegisterAndClose() throws IOException {
+    CommandMetrics first = new CommandMetrics(new ImageModelMapImpl(new HashMap<>()));
+    CommandMetrics second = new CommandMetrics(new ImageModelMapImpl(new HashMap<>()));
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName firstName = first.register();
+    ObjectName secondName = second.register();
+    assertTrue(server.isRegistered(firstName));
+    assertTrue(server.isRegistered(secondName));
+
+    File file = File.createTempFile("stats", ".txt");
+    file.deleteOnExit();
+    first.dumpEvery(file, 3600);
+    first.record("blur", 1000, 400, 0);
+    first.close();
+    second.close();
+    assertFalse(server.isRegistered(firstName));
+    assertFalse(server.isRegistered(secondName));
+    String report = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    assertTrue(report.contains("\nblur "));
+  }
+
+  // Tests that resetting forgets every command
+  @Test
+  public void testReset() {
+    CommandMetrics metrics = new CommandMetrics(new ImageModelMapImpl(new HashMap<>()));
+    metrics.record("blur", 1000, 400, 0);
+    metrics.reset();
+
+    assertEquals(0, metrics.getCommandCount());
+    assertEquals("images: 0\n", metrics.getReport().substring(metrics.getReport().indexOf('\n')
+            + 1));
+  }
+}
@@ -0,0 +1,73 @@
+package controller;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import commands.CommandRecord;
+import model.ImageModelMap;
+import model.ImageModelMapImpl;
+import model.PackedImageModel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link CommandTrace}.
+ */
+public class CommandTraceTest {
+  // Tests that a trace without events is an empty list
+  @Test
+  public void testEmptyTrace() throws IOException {
+    StringWriter writer = new StringWriter();
+    new CommandTrace(writer).close();
+
+    assertEquals("[\n]\n", writer.toString());
+  }
+
+  // Tests that a command's event holds its names, size and cache outcome, with names escaped
+  @Test
+  public void testEvent() throws IOException {
+    StringWriter writer = new StringWriter();
+    CommandTrace trace = new CommandTrace(writer);
+    long now = System.nanoTime();
+    trace.record("save", now, now + 5000,
+            new CommandRecord(new String[]{"image"}, "C:\\out \"1\".png", 3, 4, false));
+    trace.close();
+    String text = writer.toString();
+
+    assertTrue(text.contains("\"name\":\"thread_name\",\"ph\":\"M\""));
+    assertTrue(text.contains("\"name\":\"save\",\"cat\":\"command\",\"ph\":\"X\""));
+    assertTrue(text.contains("\"dur\":5,"));
+    assertTrue(text.contains("\"args\":{\"inputs\":[\"image\"],"
+            + "\"output\":\"C:\\\\out \\\"1\\\".png\",\"height\":3,\"width\":4,"
+            + "\"cache\":\"miss\"}}"));
+    assertTrue(text.endsWith("}}\n]\n"));
+  }
+
+  // Tests that the controller traces one event per command, and reused results as hits
+  @Test
+  public void testControllerTrace() throws IOException {
+    int[] pixels = new int[200];
+    Arrays.fill(pixels, 0x7E57ED);
+    ImageModelMap map = new ImageModelMapImpl(new HashMap<>());
+    map.add("image", new PackedImageModel(pixels, 20, 10), new StringBuilder());
+    ImageControllerImpl controller = new ImageControllerImpl(new StringBuilder(), map);
+    StringWriter writer = new StringWriter();
+    CommandTrace trace = new CommandTrace(writer);
+    controller.setTrace(trace);
+    controller.run(new StringReader("sepia-tone image a\nsepia-tone image b"), false);
+    trace.close();
+    String text = writer.toString();
+
+    assertEquals(2, text.split("\"ph\":\"X\"", -1).length - 1);
+    assertTrue(text.contains("\"inputs\":[\"image\"],\"output\":\"a\",\"height\":20,"
+            + "\"width\":10,\"cache\":\"miss\""));
+    assertTrue(text.contains("\"inputs\":[\"image\"],\"output\":\"b\",\"height\":20,"
+            + "\"width\":10,\"cache\":\"hit\""));
+  }
+}
@@ -140,7 +140,7 @@ public class ImageControllerImplExtraTest extends ImageControllerImplTest{
     controller.run(testInput, true);
 
     String fullOutput = testOutput.toString();
-    String partialOutput = fullOutput.split("(save to-filepath name)")[1];
+    String partialOutput = fullOutput.split("(every command run so far\\.)")[1];
     String intendedOutput = partialOutput.split("\\r?\\n", 2)[1];
 
     assertEquals(output, intendedOutput);
@@ -41,11 +41,19 @@ public class ImageControllerImplTest {
             "2. Color Transformations (operation name new-name)\n" +
             "   These operations include red-component, green-component, blue-component,\n" +
             "   maxvalue-component, luma-component, intensity-component, and sepia-tone.\n" +
+            "   Other 3x3 color matrices use (color-matrix nine-values name new-name).\n" +
             "3. Image Flipping (operation name new-name)\n" +
             "   These operations include horizontal-flip and vertical-flip.\n" +
             "4. Image Filtering (operation name new-name)\n" +
             "   These operations include blur-filter and sharpen-filter.\n" +
-            "5. Image Saving (save to-filepath name)\n",
+            "   Box blurs use (box-blur radius name new-name), and kernels read from\n" +
+            "   a file use (kernel kernel-filepath name new-name).\n" +
+            "5. Image Saving (save to-filepath name)\n" +
+            "   PPM files are written in raw binary form with (save-raw to-filepath name).\n" +
+            "6. Settings\n" +
+            "   (pipeline on) defers chains of color transformations until they are read,\n" +
+            "   (region row col height width) makes the next command compute only a region,\n" +
+            "   and (stats) prints the latency and throughput of every command run so far.\n",
             testOutput.toString());
   }
 
@@ -459,6 +467,80 @@ public class ImageControllerImplTest {
     }
   }
 
+  // Tests that chaining color commands in pipeline mode, and filtering and chaining on from a
+  // pipeline, gives the same images as running them one at a time
+  @Test
+  public void testPipelineMatchesUnpipelined() {
+    String script = "load test/image.ppm image\n" +
+            "brighten 30 image bright\n" +
+            "sepia-tone bright sepia\n" +
+            "brighten -20 sepia dark\n" +
+            "luma-component dark luma\n" +
+            "blur luma blurred\n" +
+            "brighten 5 luma after\n";
+    ImageModelMapImpl unpipelinedMap = new ImageModelMapImpl(new HashMap<>());
+    new ImageControllerImpl(new StringBuilder(), unpipelinedMap)
+            .run(new StringReader(script), false);
+    ImageModelMapImpl pipelinedMap = new ImageModelMapImpl(new HashMap<>());
+    new ImageControllerImpl(new StringBuilder(), pipelinedMap)
+            .run(new StringReader("pipeline on\n" + script), false);
+
+    for (String name : new String[]{"bright", "sepia", "dark", "luma", "blurred", "after"}) {
+      for (int i = 0; i < 3; i++) {
+        for (int j = 0; j < 3; j++) {
+          assertEquals(unpipelinedMap.find(name).getPixelAt(i, j),
+                  pipelinedMap.find(name).getPixelAt(i, j));
+        }
+      }
+    }
+  }
+
+  // Tests that scheduling a script with independent branches, overwrites, saves and errors
+  // gives the same output and images as running it in order
+  @Test
+  public void testScheduledMatchesInOrder() {
+    String script = "load test/image.ppm image red-component image red\n" +
+            "green-component image green\n" +
+            "blue-component image blue\n" +
+            "blur red red\n" +
+            "save test/scheduled.ppm red\n" +
+            "brighten ten image bright\n" +
+            "sharpen missing sharp\n" +
+            "pipeline on\n" +
+            "sepia-tone green sepia\n" +
+            "brighten 10 blue bright\n" +
+            "load test/scheduled.ppm saved\n" +
+            "region 0 0 1 1 horizontal-flip bright bright\n" +
+            "q\n" +
+            "blur image never\n";
+    StringBuilder inOrderOutput = new StringBuilder();
+    ImageModelMapImpl inOrderMap = new ImageModelMapImpl(new HashMap<>());
+    new ImageControllerImpl(inOrderOutput, inOrderMap).run(new StringReader(script), false);
+    StringBuilder scheduledOutput = new StringBuilder();
+    ImageModelMapImpl scheduledMap = new ImageModelMapImpl(new HashMap<>());
+    new ImageControllerImpl(scheduledOutput, scheduledMap)
+            .runScheduled(new StringReader(script), 4);
+    new java.io.File("test/scheduled.ppm").delete();
+
+    assertEquals(inOrderOutput.toString(), scheduledOutput.toString());
+    assertEquals(null, scheduledMap.find("never"));
+    for (String name : new String[]{"red", "green", "blue", "sepia", "bright", "saved"}) {
+      for (int i = 0; i < 3; i++) {
+        for (int j = 0; j < 3; j++) {
+          assertEquals(inOrderMap.find(name).getPixelAt(i, j),
+                  scheduledMap.find(name).getPixelAt(i, j));
+        }
+      }
+    }
+  }
+
+  // Tests that scheduling a script on no threads is rejected
+  @Test(expected = IllegalArgumentException.class)
+  public void testScheduledNoThreads() {
+    new ImageControllerImpl(new StringBuilder(), new ImageModelMapImpl(new HashMap<>()))
+            .runScheduled(new StringReader("q"), 0);
+  }
+
   /**
    * Handles an interaction with an object of an image model using a predetermined
    * input and output.
@@ -474,7 +556,7 @@ public class ImageControllerImplTest {
     controller.run(testInput, true);
 
     String fullOutput = testOutput.toString();
-    String partialOutput = fullOutput.split("(save to-filepath name)")[1];
+    String partialOutput = fullOutput.split("(every command run so far\\.)")[1];
     String intendedOutput = partialOutput.split("\\r?\\n", 2)[1];
 
     assertEquals(output, intendedOutput);
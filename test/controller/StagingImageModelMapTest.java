@@ -0,0 +1,76 @@
+package controller;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import model.ConcurrentImageModelMap;
+import model.ImageModel;
+import model.ImageModelMapImpl;
+import model.PackedImageModel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link StagingImageModelMap}.
+ */
+public class StagingImageModelMapTest {
+  private final ImageModel image = new PackedImageModel(new int[]{1}, 1, 1);
+
+  // Tests that a concurrent real map is used without taking its lock
+  @Test
+  public void testConcurrentMapNotLocked() throws InterruptedException {
+    ConcurrentImageModelMap real = new ConcurrentImageModelMap();
+    StagingImageModelMap map = new StagingImageModelMap(real);
+    Thread user = new Thread(() -> {
+      map.add("image", this.image, new StringBuilder());
+      map.find("image");
+      map.size();
+    });
+    synchronized (real) {
+      user.start();
+      user.join(10000);
+      assertFalse(user.isAlive());
+    }
+    assertSame(this.image, real.find("image"));
+  }
+
+  // Tests that any other real map is only used while holding its lock
+  @Test
+  public void testOtherMapLocked() throws InterruptedException {
+    ImageModelMapImpl real = new ImageModelMapImpl(new HashMap<>());
+    StagingImageModelMap map = new StagingImageModelMap(real);
+    Thread user = new Thread(() -> map.add("image", this.image, new StringBuilder()));
+    synchronized (real) {
+      user.start();
+      user.join(200);
+      assertTrue(user.isAlive());
+      assertNull(real.find("image"));
+    }
+    user.join();
+    assertSame(this.image, real.find("image"));
+  }
+
+  // Tests that staged images are found only on the staging thread until published
+  @Test
+  public void testStageAndPublish() {
+    ConcurrentImageModelMap real = new ConcurrentImageModelMap();
+    StagingImageModelMap map = new StagingImageModelMap(real);
+    Map<String, ImageModel> staged = new LinkedHashMap<>();
+    map.stage(staged, () -> {
+      map.add("image", this.image, new StringBuilder());
+      assertSame(this.image, map.find("image"));
+    });
+    assertNull(map.find("image"));
+    assertEquals(0, map.size());
+    map.publish(staged);
+    assertSame(this.image, map.find("image"));
+    assertEquals(1, map.size());
+  }
+}
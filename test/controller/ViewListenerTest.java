@@ -2,9 +2,21 @@ package controller;
 
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import model.ImageModelMap;
 import model.ImageModelMapImpl;
+import model.PackedImageModel;
+import model.RegionImageModel;
+import model.RowExecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * This class represents tests for our view listener function located in the controller.
@@ -16,4 +28,113 @@ public class ViewListenerTest {
     new ImageControllerImpl(new ImageModelMapImpl(new HashMap<>())).viewActionPerformed(null);
   }
 
+  @Test(expected = NullPointerException.class)
+  public void testNullSubmittedParameters() {
+    new ImageControllerImpl(new ImageModelMapImpl(new HashMap<>()))
+            .viewActionSubmitted(null, new RecordingListener());
+  }
+
+  // Tests that a submitted operation adds its image only once it completes
+  @Test
+  public void testSubmittedOperationCompletes() throws InterruptedException {
+    // Pixels no other test blurs, so every row is blurred rather than reused
+    int[] pixels = new int[400];
+    Arrays.fill(pixels, 0x0C0DE5);
+    ImageModelMap map = new ImageModelMapImpl(new HashMap<>());
+    map.add("image", new PackedImageModel(pixels, 20, 20), new StringBuilder());
+    ImageControllerImpl controller = new ImageControllerImpl(new StringBuilder(), map);
+    RecordingListener listener = new RecordingListener();
+    controller.viewActionSubmitted("blur image blurred", listener);
+
+    assertTrue(listener.ended.await(10, TimeUnit.SECONDS));
+    assertEquals("completed", listener.outcome);
+    assertEquals(20L, listener.completedRows);
+    assertNotNull(map.find("blurred"));
+  }
+
+  // Tests that a failing operation reports its message and adds nothing
+  @Test
+  public void testSubmittedOperationFails() throws InterruptedException {
+    ImageModelMap map = new ImageModelMapImpl(new HashMap<>());
+    map.add("image", new PackedImageModel(new int[400], 20, 20), new StringBuilder());
+    ImageControllerImpl controller = new ImageControllerImpl(new StringBuilder(), map);
+    RecordingListener listener = new RecordingListener();
+    controller.viewActionSubmitted("brighten ten image brighter", listener);
+
+    assertTrue(listener.ended.await(10, TimeUnit.SECONDS));
+    assertEquals("<html>First parameter must be<br/>an integer.</html>", listener.outcome);
+    assertNull(map.find("brighter"));
+  }
+
+  // Tests that an operation cancelled while it runs adds nothing
+  @Test
+  public void testSubmittedOperationCancelled() throws InterruptedException {
+    RowExecutor.configure(1, 20);
+    try {
+      // Pixels no other test blurs, so the blur cannot be reused from an earlier result
+      int[] pixels = new int[400];
+      Arrays.fill(pixels, 0x5A1E55);
+      ImageModelMap map = new ImageModelMapImpl(new HashMap<>());
+      map.add("image", new PackedImageModel(pixels, 20, 20), new StringBuilder());
+      ImageControllerImpl controller = new ImageControllerImpl(new StringBuilder(), map);
+      RecordingListener listener = new RecordingListener() {
+        @Override
+        public void operationProgressed(long completedRows, long totalRows) {
+          controller.cancelOperations();
+        }
+      };
+      controller.viewActionSubmitted("blur image blurred", listener);
+
+      assertTrue(listener.ended.await(10, TimeUnit.SECONDS));
+      assertEquals("cancelled", listener.outcome);
+      assertNull(map.find("blurred"));
+    } finally {
+      RowExecutor.configure(Runtime.getRuntime().availableProcessors(), 16384);
+    }
+  }
+
+  // Tests that a region command makes only the next command compute a region of its result
+  @Test
+  public void testRegionCommand() {
+    ImageModelMap map = new ImageModelMapImpl(new HashMap<>());
+    map.add("image", new PackedImageModel(new int[400], 20, 20), new StringBuilder());
+    ImageControllerImpl controller = new ImageControllerImpl(new StringBuilder(), map);
+    controller.viewActionPerformed("region 2 3 4 5 blur image part");
+    controller.viewActionPerformed("blur image whole");
+
+    assertTrue(map.find("part") instanceof RegionImageModel);
+    assertTrue(map.find("whole") instanceof PackedImageModel);
+  }
+
+  /**
+   * This class represents a listener that records how an operation ended.
+   */
+  private static class RecordingListener implements OperationListener {
+    private final CountDownLatch ended = new CountDownLatch(1);
+    private volatile String outcome;
+    private volatile long completedRows;
+
+    @Override
+    public void operationProgressed(long completedRows, long totalRows) {
+      this.completedRows = completedRows;
+    }
+
+    @Override
+    public void operationCompleted() {
+      this.outcome = "completed";
+      this.ended.countDown();
+    }
+
+    @Override
+    public void operationFailed(String message) {
+      this.outcome = message;
+      this.ended.countDown();
+    }
+
+    @Override
+    public void operationCancelled() {
+      this.outcome = "cancelled";
+      this.ended.countDown();
+    }
+  }
 }
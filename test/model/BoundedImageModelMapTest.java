@@ -0,0 +1,143 @@
+package model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link BoundedImageModelMap}.
+ */
+public class BoundedImageModelMapTest {
+  private File spillDirectory;
+  private StringBuilder output;
+
+  // Use the temporary directory for spill files
+  @Before
+  public void init() {
+    spillDirectory = new File(System.getProperty("java.io.tmpdir"));
+    output = new StringBuilder();
+  }
+
+  // Tests that a negative budget is rejected
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeBudget() {
+    new BoundedImageModelMap(-1, spillDirectory);
+  }
+
+  // Tests that a null spill directory is rejected
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullSpillDirectory() {
+    new BoundedImageModelMap(0, null);
+  }
+
+  // Tests that images within the budget stay on the heap as the same model
+  @Test
+  public void testWithinBudget() {
+    BoundedImageModelMap map = new BoundedImageModelMap(16, spillDirectory);
+    ImageModel first = image(0x010203, 0x040506);
+    ImageModel second = image(0x070809, 0x0A0B0C);
+    map.add("first", first, output);
+    map.add("second", second, output);
+    assertSame(first, map.find("first"));
+    assertSame(second, map.find("second"));
+    assertEquals(16, map.getResidentBytes());
+    assertNull(map.find("third"));
+  }
+
+  // Tests that the least recently used image is spilled and read back unchanged
+  @Test
+  public void testSpillLeastRecentlyUsed() {
+    BoundedImageModelMap map = new BoundedImageModelMap(16, spillDirectory);
+    map.add("first", image(0x010203, 0x040506), output);
+    map.add("second", image(0x070809, 0x0A0B0C), output);
+    map.find("first");
+    map.add("third", image(0x0D0E0F, 0x101112), output);
+    assertTrue(map.isSpilled("second"));
+    assertFalse(map.isSpilled("first"));
+    assertEquals(16, map.getResidentBytes());
+
+    ImageModel second = map.find("second");
+    assertEquals(0x070809, second.getRGBAt(0, 0));
+    assertEquals(0x0A0B0C, second.getRGBAt(0, 1));
+    assertTrue(map.isSpilled("first"));
+    assertEquals(16, map.getResidentBytes());
+  }
+
+  // Tests that an image larger than the budget is still kept while it is the newest
+  @Test
+  public void testImageLargerThanBudget() {
+    BoundedImageModelMap map = new BoundedImageModelMap(4, spillDirectory);
+    ImageModel model = image(0x010203, 0x040506);
+    map.add("image", model, output);
+    assertSame(model, map.find("image"));
+    assertFalse(map.isSpilled("image"));
+  }
+
+  // Tests that overwriting a spilled image replaces it and reports the overwrite
+  @Test
+  public void testOverwriteSpilled() {
+    BoundedImageModelMap map = new BoundedImageModelMap(8, spillDirectory);
+    map.add("first", image(0x010203, 0x040506), output);
+    map.add("second", image(0x070809, 0x0A0B0C), output);
+    assertTrue(map.isSpilled("first"));
+    ImageModel replaced = image(0x111111, 0x222222);
+    map.add("first", replaced, output);
+    assertEquals("Overwriting image.\n", output.toString());
+    assertSame(replaced, map.find("first"));
+    assertEquals(8, map.getResidentBytes());
+  }
+
+  // Tests that an image of pixels is spilled too and read back as it would be saved
+  @Test
+  public void testSpillPixelImage() {
+    BoundedImageModelMap map = new BoundedImageModelMap(8, spillDirectory);
+    Pixel[][] pixels = new Pixel[][]{{new Pixel(800, 20, 30, 1000), new Pixel(1, 2, 3)}};
+    map.add("pixels", new ImageModelImpl(pixels, 1, 2), output);
+    map.add("packed", image(0x070809, 0x0A0B0C), output);
+    assertTrue(map.isSpilled("pixels"));
+
+    ImageModel model = map.find("pixels");
+    assertEquals(0xFF141E, model.getRGBAt(0, 0));
+    assertEquals(0x010203, model.getRGBAt(0, 1));
+  }
+
+  // Tests that an image computed from another is stored as its own pixels and charged for them
+  @Test
+  public void testLazyImageCopied() {
+    BoundedImageModelMap map = new BoundedImageModelMap(8, spillDirectory);
+    ImageModel source = image(0x010203, 0x040506);
+    map.add("source", source, output);
+    map.add("brighter", new ColorPipelineModel(source, ColorOperator.brighten(1)), output);
+    map.add("region", new RegionImageModel(source, new int[]{0x0A0B0C}, 0, 1, 1, 1), output);
+    assertTrue(map.isSpilled("source"));
+    assertTrue(map.isSpilled("brighter"));
+
+    ImageModel brighter = map.find("brighter");
+    assertTrue(brighter instanceof PackedImageModel);
+    assertEquals(0x020304, brighter.getRGBAt(0, 0));
+    assertEquals(0x050607, brighter.getRGBAt(0, 1));
+    ImageModel region = map.find("region");
+    assertTrue(region instanceof PackedImageModel);
+    assertEquals(0x010203, region.getRGBAt(0, 0));
+    assertEquals(0x0A0B0C, region.getRGBAt(0, 1));
+    assertEquals(8, map.getResidentBytes());
+  }
+
+  /**
+   * Creates a one-row image of two pixels.
+   *
+   * @param left  the packed color of the left pixel
+   * @param right the packed color of the right pixel
+   * @return the image
+   */
+  private ImageModel image(int left, int right) {
+    return new PackedImageModel(new int[]{left, right}, 1, 2);
+  }
+}
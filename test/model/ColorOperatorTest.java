@@ -0,0 +1,167 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for {@link ColorOperator} and {@link ColorPipelineModel}.
+ */
+public class ColorOperatorTest {
+  private final double[][] sepia = new double[][]{
+      {0.393, 0.769, 0.189}, {0.349, 0.686, 0.168}, {0.272, 0.534, 0.131}};
+  private final double[][] luma = new double[][]{
+      {0.2126, 0.7152, 0.0722}, {0.2126, 0.7152, 0.0722}, {0.2126, 0.7152, 0.0722}};
+
+  // Tests that the matrix operation truncates and clamps each channel
+  @Test
+  public void testMatrix() {
+    ColorOperator operator = ColorOperator.matrix(this.sepia);
+    assertEquals(PackedImageModel.pack(255, 255, 238),
+            operator.apply(PackedImageModel.pack(255, 255, 255)));
+    assertEquals(PackedImageModel.pack(39, 34, 27),
+            operator.apply(PackedImageModel.pack(100, 0, 0)));
+  }
+
+  // Tests that the brighten operation clamps each channel
+  @Test
+  public void testBrighten() {
+    assertEquals(PackedImageModel.pack(255, 110, 60),
+            ColorOperator.brighten(50).apply(PackedImageModel.pack(250, 60, 10)));
+    assertEquals(PackedImageModel.pack(200, 10, 0),
+            ColorOperator.brighten(-50).apply(PackedImageModel.pack(250, 60, 10)));
+  }
+
+  // Tests that the max-value operation uses the largest channel
+  @Test
+  public void testMaxValue() {
+    assertEquals(PackedImageModel.pack(90, 90, 90),
+            ColorOperator.maxValue().apply(PackedImageModel.pack(12, 90, 45)));
+  }
+
+  // Tests that a composed operation matches applying each operation one after another
+  @Test
+  public void testAndThenMatchesSequentialApplication() {
+    ColorOperator[] steps = new ColorOperator[]{ColorOperator.brighten(30),
+        ColorOperator.matrix(this.sepia), ColorOperator.brighten(-50),
+        ColorOperator.brighten(10), ColorOperator.matrix(this.luma),
+        ColorOperator.maxValue(), ColorOperator.brighten(7)};
+    ColorOperator composed = steps[0];
+    for (int i = 1; i < steps.length; i++) {
+      composed = composed.andThen(steps[i]);
+    }
+
+    for (int rgb = 0; rgb < (1 << 24); rgb += 4099) {
+      int expected = rgb;
+      for (ColorOperator step : steps) {
+        expected = step.apply(expected);
+      }
+      assertEquals(expected, composed.apply(rgb));
+    }
+  }
+
+  // Tests that the matrix operation rejects a matrix that is not 3x3
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidMatrix() {
+    ColorOperator.matrix(new double[2][3]);
+  }
+
+  // Tests that a pipeline over a pipeline reads the same pixels as applying each step in turn
+  @Test
+  public void testPipelineModel() {
+    int[] pixels = new int[]{PackedImageModel.pack(0, 0, 0),
+        PackedImageModel.pack(255, 255, 255), PackedImageModel.pack(122, 123, 122),
+        PackedImageModel.pack(100, 5, 5)};
+    ImageModel source = new PackedImageModel(pixels, 2, 2);
+    ColorPipelineModel first = new ColorPipelineModel(source, ColorOperator.brighten(40));
+    ColorPipelineModel second = new ColorPipelineModel(first,
+            ColorOperator.matrix(this.sepia));
+
+    int[] row = new int[2];
+    for (int i = 0; i < 2; i++) {
+      second.getRow(i, row, 0);
+      for (int j = 0; j < 2; j++) {
+        int expected = ColorOperator.matrix(this.sepia)
+                .apply(ColorOperator.brighten(40).apply(pixels[i * 2 + j]));
+        assertEquals(expected, row[j]);
+        assertEquals(expected, second.getRGBAt(i, j));
+        assertEquals(Pixel.of(PackedImageModel.red(expected), PackedImageModel.green(expected),
+                PackedImageModel.blue(expected)), second.getPixelAt(i, j));
+      }
+    }
+  }
+
+  // Tests that a pipeline is materialized once and then read without applying its chain
+  @Test
+  public void testMaterializeOnce() {
+    AtomicInteger rows = new AtomicInteger();
+    ImageModel source = new PackedImageModel(new int[]{PackedImageModel.pack(1, 2, 3),
+        PackedImageModel.pack(4, 5, 6)}, 2, 1) {
+      @Override
+      public void getRow(int row, int[] buffer, int offset) {
+        rows.incrementAndGet();
+        super.getRow(row, buffer, offset);
+      }
+    };
+    ColorPipelineModel pipeline = new ColorPipelineModel(source, ColorOperator.brighten(10));
+    PackedImageModel materialized = pipeline.materialize();
+    assertSame(materialized, pipeline.materialize());
+    assertEquals(2, rows.get());
+
+    int[] row = new int[1];
+    pipeline.getRow(1, row, 0);
+    assertEquals(PackedImageModel.pack(14, 15, 16), row[0]);
+    assertEquals(PackedImageModel.pack(11, 12, 13), pipeline.getRGBAt(0, 0));
+    ColorPipelineModel next = new ColorPipelineModel(pipeline, ColorOperator.brighten(1));
+    assertEquals(PackedImageModel.pack(12, 13, 14), next.getRGBAt(0, 0));
+    assertEquals(2, rows.get());
+  }
+
+  // Tests that the precomputed transformation kernels match multiplying in floating point
+  @Test
+  public void testRegistryMatchesFloatingPoint() {
+    double[][][] matrices = new double[][][]{this.luma, this.sepia,
+        {{1.0 / 3, 1.0 / 3, 1.0 / 3}, {1.0 / 3, 1.0 / 3, 1.0 / 3}, {1.0 / 3, 1.0 / 3, 1.0 / 3}},
+        {{-0.5, 1.7, 0.3}, {0.1, 0.1, 0.1}, {2, -1, 0.25}}};
+    ColorOperator[] operators = new ColorOperator[]{ColorMatrices.get(Transformation.LUMA),
+        ColorMatrices.get(Transformation.SEPIA), ColorMatrices.get(Transformation.INTENSITY),
+        ColorMatrices.get(matrices[3])};
+    for (int k = 0; k < matrices.length; k++) {
+      double[][] m = matrices[k];
+      for (int rgb = 0; rgb < (1 << 24); rgb += 257) {
+        int r = PackedImageModel.red(rgb);
+        int g = PackedImageModel.green(rgb);
+        int b = PackedImageModel.blue(rgb);
+        int[] expected = new int[3];
+        for (int i = 0; i < 3; i++) {
+          expected[i] = Math.max(Math.min(255,
+                  (int) ((r * m[i][0]) + ((g * m[i][1])) + ((b * m[i][2])))), 0);
+        }
+        assertEquals(PackedImageModel.pack(expected[0], expected[1], expected[2]),
+                operators[k].apply(rgb));
+      }
+    }
+  }
+
+  // Tests that equal user-defined matrices share one precomputed operation
+  @Test
+  public void testRegistrySharesUserMatrices() {
+    assertSame(ColorMatrices.get(new double[][]{{1, 2, 3}, {4, 5, 6}, {7, 8, 9}}),
+            ColorMatrices.get(new double[][]{{1, 2, 3}, {4, 5, 6}, {7, 8, 9}}));
+  }
+
+  // Tests that a pipeline applies its operation to every pixel of a copied region
+  @Test
+  public void testPipelineRegion() {
+    ImageModel source = new PackedImageModel(new int[]{
+        PackedImageModel.pack(10, 20, 30), PackedImageModel.pack(200, 100, 0)}, 1, 2);
+    ImageModel pipeline = new ColorPipelineModel(source, ColorOperator.brighten(60));
+    int[] buffer = new int[2];
+    pipeline.getRegion(0, 0, 1, 2, buffer, 0, 2);
+    assertEquals(0xFF000000 | PackedImageModel.pack(70, 80, 90), buffer[0]);
+    assertEquals(0xFF000000 | PackedImageModel.pack(255, 160, 60), buffer[1]);
+  }
+}
@@ -0,0 +1,98 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ConcurrentImageModelMap}.
+ */
+public class ConcurrentImageModelMapTest {
+  private final ImageModel first = new PackedImageModel(new int[]{1}, 1, 1);
+  private final ImageModel second = new PackedImageModel(new int[]{2}, 1, 1);
+
+  // Tests that adding a name starts its version at one and overwriting increases it
+  @Test
+  public void testAddVersions() {
+    ConcurrentImageModelMap map = new ConcurrentImageModelMap();
+    StringBuilder output = new StringBuilder();
+    assertNull(map.find("image"));
+    assertEquals(0, map.getVersion("image"));
+    map.add("image", first, output);
+    assertEquals(1, map.getVersion("image"));
+    assertEquals("", output.toString());
+    map.add("image", second, output);
+    assertEquals(2, map.getVersion("image"));
+    assertEquals("Overwriting image.\n", output.toString());
+    assertSame(second, map.find("image"));
+  }
+
+  // Tests that adding if absent never replaces an existing image
+  @Test
+  public void testAddIfAbsent() {
+    ConcurrentImageModelMap map = new ConcurrentImageModelMap();
+    assertTrue(map.addIfAbsent("image", first));
+    assertFalse(map.addIfAbsent("image", second));
+    assertSame(first, map.find("image"));
+    assertEquals(1, map.getVersion("image"));
+  }
+
+  // Tests that replacing succeeds only at the current version of the name
+  @Test
+  public void testReplace() {
+    ConcurrentImageModelMap map = new ConcurrentImageModelMap();
+    assertFalse(map.replace("image", 0, first));
+    map.addIfAbsent("image", first);
+    assertFalse(map.replace("image", 2, second));
+    assertSame(first, map.find("image"));
+    assertTrue(map.replace("image", 1, second));
+    assertSame(second, map.find("image"));
+    assertEquals(2, map.getVersion("image"));
+  }
+
+  // Tests that an image and its version are found together
+  @Test
+  public void testFindVersioned() {
+    ConcurrentImageModelMap map = new ConcurrentImageModelMap();
+    assertNull(map.findVersioned("image"));
+    map.addIfAbsent("image", first);
+    map.replace("image", 1, second);
+    ConcurrentImageModelMap.Versioned versioned = map.findVersioned("image");
+    assertSame(second, versioned.getModel());
+    assertEquals(2, versioned.getVersion());
+  }
+
+  // Tests that concurrent updates derived from the image they replace are never lost
+  @Test
+  public void testConcurrentReplace() throws InterruptedException {
+    ConcurrentImageModelMap map = new ConcurrentImageModelMap();
+    map.addIfAbsent("image", first);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      Thread thread = new Thread(() -> {
+        for (int k = 0; k < 1000; k++) {
+          ConcurrentImageModelMap.Versioned read;
+          ImageModel next;
+          do {
+            read = map.findVersioned("image");
+            next = new PackedImageModel(new int[]{read.getModel().getRGBAt(0, 0) + 1}, 1, 1);
+          } while (!map.replace("image", read.getVersion(), next));
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(4001, map.getVersion("image"));
+    assertEquals(4001, map.find("image").getRGBAt(0, 0));
+  }
+}
@@ -0,0 +1,163 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for {@link Convolution} and {@link Kernel}.
+ */
+public class ConvolutionTest {
+  private final int height = 7;
+  private final int width = 9;
+  private final int[] pixels = randomPixels(this.height * this.width);
+
+  // Tests that the blur convolution matches truncating each weighted value of every tap inside
+  // the image, at both the border and the interior
+  @Test
+  public void testBlurMatchesPerTapDivision() {
+    int[] divisors = new int[]{16, 8, 16, 8, 4, 8, 16, 8, 16};
+    int[] out = new int[this.width];
+    Convolution blur = new Convolution(Kernel.blur());
+    for (int i = 0; i < this.height; i++) {
+      blur.convolve(this.pixels, this.height, this.width, i, 0, this.width, out, 0);
+      for (int j = 0; j < this.width; j++) {
+        int red = 0;
+        int green = 0;
+        int blue = 0;
+        for (int a = -1; a <= 1; a++) {
+          for (int b = -1; b <= 1; b++) {
+            if (i + a >= 0 && i + a < this.height && j + b >= 0 && j + b < this.width) {
+              int rgb = this.pixels[(i + a) * this.width + j + b];
+              int div = divisors[(a + 1) * 3 + b + 1];
+              red += PackedImageModel.red(rgb) / div;
+              green += PackedImageModel.green(rgb) / div;
+              blue += PackedImageModel.blue(rgb) / div;
+            }
+          }
+        }
+        assertEquals(PackedImageModel.pack(red, green, blue), out[j]);
+      }
+    }
+  }
+
+  // Tests that a kernel that can be split gives the same result as summing every tap directly
+  @Test
+  public void testSeparableMatchesDirectSum() {
+    Kernel separable = Kernel.of(new double[][]{
+        {0.0625, 0.125, 0.0625}, {0.125, 0.25, 0.125}, {0.0625, 0.125, 0.0625}});
+    Kernel full = Kernel.of(new double[][]{
+        {0.0625, 0.125, 0.0625}, {0.125, 0.25, 0.125}, {0.0625, 0.125, 0.0}});
+    assertNotNull(separable.separate());
+    assertNull(full.separate());
+
+    int[] expected = new int[this.width];
+    int[] actual = new int[this.width];
+    Convolution split = new Convolution(separable);
+    for (int i = 0; i < this.height; i++) {
+      split.convolve(this.pixels, this.height, this.width, i, 0, this.width, actual, 0);
+      for (int j = 0; j < this.width; j++) {
+        double red = 0;
+        double green = 0;
+        double blue = 0;
+        for (int a = -1; a <= 1; a++) {
+          for (int b = -1; b <= 1; b++) {
+            if (i + a >= 0 && i + a < this.height && j + b >= 0 && j + b < this.width) {
+              int rgb = this.pixels[(i + a) * this.width + j + b];
+              double weight = separable.getWeight(a + 1, b + 1);
+              red += weight * PackedImageModel.red(rgb);
+              green += weight * PackedImageModel.green(rgb);
+              blue += weight * PackedImageModel.blue(rgb);
+            }
+          }
+        }
+        expected[j] = PackedImageModel.pack((int) red, (int) green, (int) blue);
+      }
+      assertArrayEquals(expected, actual);
+    }
+  }
+
+  // Tests that convolving only part of a row gives the same pixels as convolving all of it
+  @Test
+  public void testPartialRow() {
+    Convolution sharpen = new Convolution(Kernel.sharpen());
+    int[] row = new int[this.width];
+    int[] part = new int[5];
+    for (int i = 0; i < this.height; i++) {
+      sharpen.convolve(this.pixels, this.height, this.width, i, 0, this.width, row, 0);
+      sharpen.convolve(this.pixels, this.height, this.width, i, 3, 8, part, 0);
+      for (int j = 0; j < 5; j++) {
+        assertEquals(row[j + 3], part[j]);
+      }
+    }
+  }
+
+  // Tests that a box blur keeps a single-color image unchanged at any radius, and that a radius
+  // of 0 keeps any image unchanged
+  @Test
+  public void testBoxBlur() {
+    int[] uniform = new int[this.height * this.width];
+    Arrays.fill(uniform, PackedImageModel.pack(40, 150, 220));
+    assertArrayEquals(uniform, Convolution.boxBlur(uniform, this.height, this.width, 1000, 3));
+    assertArrayEquals(this.pixels,
+            Convolution.boxBlur(this.pixels, this.height, this.width, 0, 3));
+  }
+
+  // Tests that a box blur averages each pixel with the pixels inside the image around it
+  @Test
+  public void testBoxBlurAverages() {
+    int[] line = new int[]{PackedImageModel.pack(0, 0, 0), PackedImageModel.pack(30, 60, 90),
+        PackedImageModel.pack(90, 0, 9)};
+    assertArrayEquals(new int[]{PackedImageModel.pack(15, 30, 45),
+        PackedImageModel.pack(40, 20, 33), PackedImageModel.pack(60, 30, 50)},
+            Convolution.boxBlur(line, 1, 3, 1, 1));
+  }
+
+  // Tests that a kernel with an even side length cannot be created
+  @Test(expected = IllegalArgumentException.class)
+  public void testEvenKernel() {
+    Kernel.of(new double[][]{{1, 0}, {0, 1}});
+  }
+
+  // Tests that a kernel file with missing weights cannot be loaded
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidKernelFile() {
+    Kernel.load("test/image.ppm");
+  }
+
+  // Tests that a radius too large to index the image blurs like one that just covers it
+  @Test
+  public void testBoxBlurLargestRadius() {
+    assertArrayEquals(Convolution.boxBlur(this.pixels, this.height, this.width, this.width, 3),
+            Convolution.boxBlur(this.pixels, this.height, this.width, Integer.MAX_VALUE, 3));
+  }
+
+  // Tests that a kernel can be loaded from a file
+  @Test
+  public void testLoadKernel() {
+    assertEquals(Kernel.of(new double[][]{
+        {0.0625, 0.125, 0.0625}, {0.125, 0.25, 0.125}, {0.0625, 0.125, 0.0625}}),
+            Kernel.load("test/kernel.txt"));
+  }
+
+  /**
+   * Creates an array of random packed pixels with a fixed seed.
+   *
+   * @param count the number of pixels
+   * @return the packed pixels
+   */
+  private static int[] randomPixels(int count) {
+    Random random = new Random(7);
+    int[] pixels = new int[count];
+    for (int i = 0; i < count; i++) {
+      pixels[i] = random.nextInt(0x1000000);
+    }
+    return pixels;
+  }
+}
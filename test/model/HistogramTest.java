@@ -0,0 +1,74 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link Histogram}.
+ */
+public class HistogramTest {
+
+  // Tests that the constructor throws an exception when given a null image model
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullModel() {
+    new Histogram(null);
+  }
+
+  // Tests that an unknown component is rejected
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidComponent() {
+    new Histogram(new PackedImageModel(new int[]{0}, 1, 1)).getCounts("luma");
+  }
+
+  // Tests that each component counts the pixels having each of its values
+  @Test
+  public void testCounts() {
+    Histogram histogram = new Histogram(new PackedImageModel(new int[]{
+        PackedImageModel.pack(10, 20, 31), PackedImageModel.pack(10, 255, 0),
+        PackedImageModel.pack(0, 0, 0)}, 1, 3));
+    int[] red = histogram.getCounts("red");
+    assertEquals(2, red[10]);
+    assertEquals(1, red[0]);
+    assertEquals(2, histogram.getCounts("blue")[0]);
+    assertEquals(1, histogram.getCounts("green")[255]);
+    int[] intensity = histogram.getCounts("intensity");
+    assertEquals(1, intensity[20]);
+    assertEquals(1, intensity[88]);
+    assertEquals(1, intensity[0]);
+  }
+
+  // Tests that counting bands of rows in parallel gives the same counts as a plain scan
+  @Test
+  public void testParallelCounts() {
+    int height = 300;
+    int width = 200;
+    int[] pixels = new int[height * width];
+    Random random = new Random(7);
+    int[][] expected = new int[4][256];
+    for (int k = 0; k < pixels.length; k++) {
+      int r = random.nextInt(256);
+      int g = random.nextInt(256);
+      int b = random.nextInt(256);
+      pixels[k] = PackedImageModel.pack(r, g, b);
+      expected[0][r]++;
+      expected[1][g]++;
+      expected[2][b]++;
+      expected[3][(r + g + b) / 3]++;
+    }
+    int threads = RowExecutor.getThreadCount();
+    RowExecutor.configure(4, 1000);
+    try {
+      Histogram histogram = new Histogram(new PackedImageModel(pixels, height, width));
+      assertArrayEquals(expected[0], histogram.getCounts("red"));
+      assertArrayEquals(expected[1], histogram.getCounts("green"));
+      assertArrayEquals(expected[2], histogram.getCounts("blue"));
+      assertArrayEquals(expected[3], histogram.getCounts("intensity"));
+    } finally {
+      RowExecutor.configure(threads, 16384);
+    }
+  }
+}
@@ -62,6 +62,21 @@ public class ImageModelImplTest {
     assertEquals(new Pixel(5, 255, 5), testModel.getPixelAt(2, 1));
     assertEquals(new Pixel(5, 5, 255), testModel.getPixelAt(2, 2));
   }
+
+  // Tests that packed values clamp channels above 255 while getPixelAt keeps them
+  @Test
+  public void testGetRGBAtClampsLargeValues() {
+    Pixel[][] deep = new Pixel[1][2];
+    deep[0][0] = new Pixel(800, 255, 0, 1000);
+    deep[0][1] = new Pixel(1000, 300, 12, 1000);
+    ImageModel model = new ImageModelImpl(deep, 1, 2);
+    assertEquals(0xFFFF00, model.getRGBAt(0, 0));
+    int[] row = new int[2];
+    model.getRow(0, row, 0);
+    assertEquals(0xFFFF00, row[0]);
+    assertEquals(0xFFFF0C, row[1]);
+    assertEquals(new Pixel(800, 255, 0, 1000), model.getPixelAt(0, 0));
+  }
 }
 
 
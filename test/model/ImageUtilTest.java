@@ -0,0 +1,58 @@
+package model;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link ImageUtil}.
+ */
+public class ImageUtilTest {
+
+  // Tests that decoding an image of any type gives the same colors as reading each pixel with
+  // getRGB, including the converted values of greyscale and indexed images
+  @Test
+  public void testReadBufferedImage() {
+    int[] types = new int[]{BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+        BufferedImage.TYPE_INT_BGR, BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR,
+        BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_USHORT_GRAY,
+        BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_BYTE_INDEXED,
+        BufferedImage.TYPE_USHORT_565_RGB};
+    Random random = new Random(5);
+    for (int type : types) {
+      BufferedImage image = new BufferedImage(7, 5, type);
+      WritableRaster raster = image.getRaster();
+      for (int i = 0; i < 5; i++) {
+        for (int j = 0; j < 7; j++) {
+          for (int b = 0; b < raster.getNumBands(); b++) {
+            raster.setSample(j, i, b,
+                    random.nextInt(1 << raster.getSampleModel().getSampleSize(b)));
+          }
+        }
+      }
+      int[] pixels = ImageUtil.readBufferedImage(image);
+      for (int i = 0; i < 5; i++) {
+        for (int j = 0; j < 7; j++) {
+          assertEquals(image.getRGB(j, i) & 0xFFFFFF, pixels[i * 7 + j]);
+        }
+      }
+    }
+  }
+
+  // Tests that rendering an image model and decoding it again gives the same colors
+  @Test
+  public void testRenderAndRead() {
+    ImageModel model = new PackedImageModel(new int[]{0x102030, 0xFFFFFF, 0x000000, 0x7B7C7B},
+            2, 2);
+    BufferedImage image = new BufferedImage(2, 2, BufferedImage.TYPE_INT_RGB);
+    ImageUtil.renderBufferedImage(image, model, 2, 2);
+    int[] pixels = ImageUtil.readBufferedImage(image);
+    for (int k = 0; k < 4; k++) {
+      assertEquals(model.getRGBAt(k / 2, k % 2), pixels[k]);
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package model;
+
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link MappedImageModel}.
+ */
+public class MappedImageModelTest {
+
+  // Tests that a mapped raw color file has the same pixels and rows as the plain file it was
+  // written from
+  @Test
+  public void testMappedColor() throws IOException {
+    ImageModel expected;
+    try (InputStream in = new FileInputStream("test/image.ppm")) {
+      expected = PPMFormat.read(in);
+    }
+    ImageModel mapped = new MappedImageModel("test/image-raw.ppm");
+    assertEquals(3, mapped.getImageHeight());
+    assertEquals(3, mapped.getImageWidth());
+    int[] expectedRow = new int[3];
+    int[] mappedRow = new int[4];
+    for (int i = 0; i < 3; i++) {
+      expected.getRow(i, expectedRow, 0);
+      mapped.getRow(i, mappedRow, 1);
+      for (int j = 0; j < 3; j++) {
+        assertEquals(expected.getPixelAt(i, j), mapped.getPixelAt(i, j));
+        assertEquals(expectedRow[j], mappedRow[j + 1]);
+      }
+    }
+    int[] region = new int[4];
+    mapped.getRegion(1, 1, 2, 2, region, 0, 2);
+    assertEquals(0xFF000000 | expected.getRGBAt(1, 1), region[0]);
+    assertEquals(0xFF000000 | expected.getRGBAt(2, 2), region[3]);
+  }
+
+  // Tests that a mapped raw greyscale file gives every channel the same value
+  @Test
+  public void testMappedGreyscale() {
+    ImageModel mapped = new MappedImageModel("test/image-raw.pgm");
+    assertEquals(new Pixel(123, 123, 123), mapped.getPixelAt(0, 2));
+    assertEquals(PackedImageModel.pack(255, 255, 255), mapped.getRGBAt(0, 1));
+  }
+
+  // Tests that only raw files can be mapped
+  @Test
+  public void testCanMap() {
+    assertTrue(MappedImageModel.canMap("test/image-raw.ppm"));
+    assertTrue(MappedImageModel.canMap("test/image-raw.pgm"));
+    assertFalse(MappedImageModel.canMap("test/image.ppm"));
+    assertFalse(MappedImageModel.canMap("test/missing.ppm"));
+  }
+
+  // Tests that a plain file cannot be mapped
+  @Test(expected = IllegalArgumentException.class)
+  public void testMapPlainFile() {
+    new MappedImageModel("test/image.ppm");
+  }
+
+  // Tests that reading a pixel beyond the image throws an exception
+  @Test(expected = IllegalArgumentException.class)
+  public void testOutOfBounds() {
+    new MappedImageModel("test/image-raw.ppm").getRGBAt(3, 0);
+  }
+}
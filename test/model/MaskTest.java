@@ -0,0 +1,89 @@
+package model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link Mask}.
+ */
+public class MaskTest {
+
+  // Tests that a null mask image is rejected
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullMaskImage() {
+    Mask.of(null);
+  }
+
+  // Tests that black pixels are masked and every other color is not
+  @Test
+  public void testIsMasked() {
+    Mask mask = Mask.of(new PackedImageModel(new int[]{0, 0xFFFFFF, 0x000001, 0}, 2, 2));
+    assertEquals(2, mask.getHeight());
+    assertEquals(2, mask.getWidth());
+    assertTrue(mask.isMasked(0, 0));
+    assertFalse(mask.isMasked(0, 1));
+    assertFalse(mask.isMasked(1, 0));
+    assertTrue(mask.isMasked(1, 1));
+    assertEquals(2, mask.countMasked());
+  }
+
+  // Tests that a position beyond the mask is rejected
+  @Test(expected = IllegalArgumentException.class)
+  public void testIsMaskedOutOfBounds() {
+    Mask.of(new PackedImageModel(new int[]{0}, 1, 1)).isMasked(0, 1);
+  }
+
+  // Tests that simple rows are reported as runs of masked columns
+  @Test
+  public void testRuns() {
+    int w = 0xFFFFFF;
+    Mask mask = Mask.of(new PackedImageModel(new int[]{
+        w, 0, 0, w, 0,
+        0, 0, 0, 0, 0,
+        w, w, w, w, w}, 3, 5));
+    assertArrayEquals(new int[]{1, 3, 4, 5}, mask.getRuns(0));
+    assertArrayEquals(new int[]{0, 5}, mask.getRuns(1));
+    assertArrayEquals(new int[0], mask.getRuns(2));
+    assertEquals(8, mask.countMasked());
+  }
+
+  // Tests that a noisy row stored as bits still reports the same runs and positions
+  @Test
+  public void testNoisyRow() {
+    int width = 130;
+    int[] pixels = new int[width];
+    for (int j = 0; j < width; j++) {
+      pixels[j] = j % 2 == 0 ? 0 : 0xFFFFFF;
+    }
+    Mask mask = Mask.of(new PackedImageModel(pixels, 1, width));
+    int[] runs = mask.getRuns(0);
+    assertEquals(width, runs.length);
+    for (int k = 0; k < runs.length; k += 2) {
+      assertEquals(k, runs[k]);
+      assertEquals(k + 1, runs[k + 1]);
+    }
+    assertTrue(mask.isMasked(0, 128));
+    assertFalse(mask.isMasked(0, 129));
+    assertEquals(65, mask.countMasked());
+  }
+
+  // Tests that the runs returned are a copy that cannot change the mask
+  @Test
+  public void testRunsCopied() {
+    Mask mask = Mask.of(new PackedImageModel(new int[]{0, 0}, 1, 2));
+    mask.getRuns(0)[1] = 1;
+    assertArrayEquals(new int[]{0, 2}, mask.getRuns(0));
+  }
+
+  // Tests that the same mask image derives the same mask only once
+  @Test
+  public void testDerivedOnce() {
+    ImageModel image = new PackedImageModel(new int[]{0, 1}, 1, 2);
+    assertSame(Mask.of(image), Mask.of(image));
+  }
+}
@@ -0,0 +1,134 @@
+package model;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link PPMFormat}.
+ */
+public class PPMFormatTest {
+  private final ImageModel model = new PackedImageModel(new int[]{
+      PackedImageModel.pack(0, 0, 0), PackedImageModel.pack(255, 255, 255),
+      PackedImageModel.pack(122, 123, 122), PackedImageModel.pack(100, 5, 5),
+      PackedImageModel.pack(5, 100, 5), PackedImageModel.pack(5, 5, 100)}, 2, 3);
+
+  // Tests that an image written in plain and raw color form reads back unchanged
+  @Test
+  public void testRoundTrip() throws IOException {
+    for (String magic : new String[]{"P3", "P6"}) {
+      ImageModel copy = PPMFormat.read(new ByteArrayInputStream(write(this.model, magic)));
+      assertEquals(2, copy.getImageHeight());
+      assertEquals(3, copy.getImageWidth());
+      for (int i = 0; i < 2; i++) {
+        for (int j = 0; j < 3; j++) {
+          assertEquals(this.model.getRGBAt(i, j), copy.getRGBAt(i, j));
+        }
+      }
+    }
+  }
+
+  // Tests that only the dimensions are read from the header of an image
+  @Test
+  public void testReadDimensions() throws IOException {
+    int[] dimensions = PPMFormat.readDimensions(
+            new ByteArrayInputStream(write(this.model, "P6")));
+    assertEquals(2, dimensions[0]);
+    assertEquals(3, dimensions[1]);
+  }
+
+  // Tests that an image written in greyscale form holds the rounded luma of each pixel
+  @Test
+  public void testGreyscale() throws IOException {
+    ImageModel copy = PPMFormat.read(new ByteArrayInputStream(write(this.model, "P5")));
+    assertEquals(PackedImageModel.pack(0, 0, 0), copy.getRGBAt(0, 0));
+    assertEquals(PackedImageModel.pack(255, 255, 255), copy.getRGBAt(0, 1));
+    assertEquals(PackedImageModel.pack(123, 123, 123), copy.getRGBAt(0, 2));
+    assertEquals(PackedImageModel.pack(25, 25, 25), copy.getRGBAt(1, 0));
+  }
+
+  // Tests that plain files are written with one value per line
+  @Test
+  public void testPlainLayout() throws IOException {
+    String separator = System.lineSeparator();
+    String text = new String(write(this.model, "P3"), StandardCharsets.US_ASCII);
+    assertEquals("P3" + separator + "# PPM Image Output" + separator + "3 2" + separator
+            + "255" + separator + "0" + separator + "0" + separator + "0" + separator,
+            text.substring(0, 29 + 7 * separator.length()));
+  }
+
+  // Tests that comments and irregular whitespace are skipped anywhere in the header and data
+  @Test
+  public void testComments() throws IOException {
+    ImageModel copy = read("# leading comment\nP3 2 1 # size\n255\n1 2 3\t# first\n"
+            + "  4\n5\n6");
+    assertEquals(PackedImageModel.pack(1, 2, 3), copy.getRGBAt(0, 0));
+    assertEquals(PackedImageModel.pack(4, 5, 6), copy.getRGBAt(0, 1));
+  }
+
+  // Tests that raw samples wider than one byte are read when the maximum value is above 255
+  @Test
+  public void testSixteenBit() throws IOException {
+    byte[] header = "P5\n1 1\n1000\n".getBytes(StandardCharsets.US_ASCII);
+    byte[] data = new byte[header.length + 2];
+    System.arraycopy(header, 0, data, 0, header.length);
+    data[header.length] = 0x01;
+    data[header.length + 1] = (byte) 0xF4;
+    assertEquals(500, PPMFormat.read(new ByteArrayInputStream(data)).getPixelAt(0, 0)
+            .getRed());
+  }
+
+  // Tests that a file with an unsupported magic number cannot be read
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidMagic() throws IOException {
+    read("P4 1 1 255 0 0 0");
+  }
+
+  // Tests that a value above the maximum value cannot be read
+  @Test(expected = IllegalArgumentException.class)
+  public void testValueAboveMax() throws IOException {
+    read("P3 1 1 100 101 0 0");
+  }
+
+  // Tests that a file with too few values cannot be read
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingValues() throws IOException {
+    read("P3 2 1 255 0 0 0 1 1");
+  }
+
+  // Tests that a raw file with too little pixel data cannot be read
+  @Test(expected = IllegalArgumentException.class)
+  public void testTruncatedRaw() throws IOException {
+    read("P6 2 1 255\nabcde");
+  }
+
+  /**
+   * Writes an image model to a byte array in a given PPM form.
+   *
+   * @param model the image model to write
+   * @param magic the magic number of the form
+   * @return the bytes of the file
+   * @throws IOException if writing fails
+   */
+  private static byte[] write(ImageModel model, String magic) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    PPMFormat.write(model, out, magic);
+    return out.toByteArray();
+  }
+
+  /**
+   * Reads an image model from the text of a PPM file.
+   *
+   * @param text the text of the file
+   * @return the image model read from the text
+   * @throws IOException if reading fails
+   */
+  private static ImageModel read(String text) throws IOException {
+    return PPMFormat.read(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII)));
+  }
+}
@@ -0,0 +1,139 @@
+package model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link PackedImageModel}.
+ */
+public class PackedImageModelTest {
+  ImageModel testModel;
+  int[] pixels;
+
+  // Initialize pixels for testing
+  @Before
+  public void init() {
+    pixels = new int[]{
+        PackedImageModel.pack(0, 0, 0),
+        PackedImageModel.pack(255, 255, 255),
+        PackedImageModel.pack(122, 123, 122),
+        PackedImageModel.pack(100, 5, 5),
+        PackedImageModel.pack(5, 100, 5),
+        PackedImageModel.pack(5, 5, 100)};
+
+    testModel = new PackedImageModel(pixels, 2, 3);
+  }
+
+  // Tests that the constructor throws an exception when given null pixels
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullPixels() {
+    new PackedImageModel(null, 1, 1);
+  }
+
+  // Tests that the constructor throws an exception when the pixels do not match the dimensions
+  @Test(expected = IllegalArgumentException.class)
+  public void testMismatchedDimensions() {
+    new PackedImageModel(new int[5], 2, 3);
+  }
+
+  // Tests that pack and the component getters are inverses of each other
+  @Test
+  public void testPackAndUnpack() {
+    int rgb = PackedImageModel.pack(12, 34, 56);
+    assertEquals(0x0C2238, rgb);
+    assertEquals(12, PackedImageModel.red(rgb));
+    assertEquals(34, PackedImageModel.green(rgb));
+    assertEquals(56, PackedImageModel.blue(rgb));
+  }
+
+  // Tests that getImageHeight and getImageWidth work as intended
+  @Test
+  public void testDimensions() {
+    assertEquals(2, testModel.getImageHeight());
+    assertEquals(3, testModel.getImageWidth());
+  }
+
+  // Tests that getPixelAt works as intended
+  @Test
+  public void testGetPixelAt() {
+    assertEquals(new Pixel(0, 0, 0), testModel.getPixelAt(0, 0));
+    assertEquals(new Pixel(255, 255, 255), testModel.getPixelAt(0, 1));
+    assertEquals(new Pixel(122, 123, 122), testModel.getPixelAt(0, 2));
+    assertEquals(new Pixel(100, 5, 5), testModel.getPixelAt(1, 0));
+    assertEquals(new Pixel(5, 100, 5), testModel.getPixelAt(1, 1));
+    assertEquals(new Pixel(5, 5, 100), testModel.getPixelAt(1, 2));
+  }
+
+  // Tests that getPixelAt throws an exception for a position beyond the image
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetPixelAtOutOfBounds() {
+    testModel.getPixelAt(2, 0);
+  }
+
+  // Tests that getRow copies a full row into the buffer at the given offset
+  @Test
+  public void testGetRow() {
+    int[] buffer = new int[4];
+    testModel.getRow(1, buffer, 1);
+    assertArrayEquals(new int[]{0, pixels[3], pixels[4], pixels[5]}, buffer);
+  }
+
+  // Tests that getRow matches between the packed and pixel array implementations
+  @Test
+  public void testGetRowMatchesImageModelImpl() {
+    IPixel[][] grid = new IPixel[2][3];
+    for (int i = 0; i < 2; i++) {
+      for (int j = 0; j < 3; j++) {
+        grid[i][j] = testModel.getPixelAt(i, j);
+      }
+    }
+    ImageModel other = new ImageModelImpl(grid, 2, 3);
+    int[] expected = new int[3];
+    int[] actual = new int[3];
+    for (int i = 0; i < 2; i++) {
+      testModel.getRow(i, expected, 0);
+      other.getRow(i, actual, 0);
+      assertArrayEquals(expected, actual);
+    }
+  }
+
+  // Tests that getRow throws an exception when the buffer is too small
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetRowSmallBuffer() {
+    testModel.getRow(0, new int[3], 1);
+  }
+
+  // Tests that getRegion copies a rectangle of opaque colors into a buffer with a given
+  // offset and scan size, the same way for both image model implementations
+  @Test
+  public void testGetRegion() {
+    IPixel[][] grid = new IPixel[2][3];
+    for (int i = 0; i < 2; i++) {
+      for (int j = 0; j < 3; j++) {
+        grid[i][j] = testModel.getPixelAt(i, j);
+      }
+    }
+    for (ImageModel model : new ImageModel[]{testModel, new ImageModelImpl(grid, 2, 3)}) {
+      int[] buffer = new int[7];
+      model.getRegion(0, 1, 2, 2, buffer, 1, 3);
+      assertArrayEquals(new int[]{0, 0xFF000000 | testModel.getRGBAt(0, 1),
+          0xFF000000 | testModel.getRGBAt(0, 2), 0, 0xFF000000 | testModel.getRGBAt(1, 1),
+          0xFF000000 | testModel.getRGBAt(1, 2), 0}, buffer);
+    }
+  }
+
+  // Tests that getRegion throws an exception when the region is beyond the image
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetRegionOutOfBounds() {
+    testModel.getRegion(1, 1, 2, 2, new int[16], 0, 4);
+  }
+
+  // Tests that getRegion throws an exception when the buffer is too small
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetRegionSmallBuffer() {
+    testModel.getRegion(0, 0, 2, 3, new int[5], 0, 3);
+  }
+}
@@ -4,6 +4,7 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 
 /**
  * Tests for {@link Pixel}.
@@ -123,4 +124,20 @@ public class PixelTest {
     assertEquals(red.hashCode(), red.hashCode());
     assertEquals(red.hashCode(), new Pixel(255, 0, 0).hashCode());
   }
+
+  // Tests that the pixel factory throws an exception when given an invalid color value
+  @Test(expected = IllegalArgumentException.class)
+  public void testOfOverMaxValue() {
+    Pixel.of(0, 256, 0);
+  }
+
+  // Tests that the pixel factory shares one instance per grey and per cached color
+  @Test
+  public void testOfSharesInstances() {
+    assertEquals(new Pixel(12, 12, 12), Pixel.of(12, 12, 12));
+    assertSame(Pixel.of(12, 12, 12), Pixel.of(12, 12, 12));
+    assertEquals(new Pixel(1, 2, 3), Pixel.of(1, 2, 3));
+    assertSame(Pixel.of(1, 2, 3), Pixel.of(1, 2, 3));
+    assertNotEquals(Pixel.of(1, 2, 3), Pixel.of(3, 2, 1));
+  }
 }
@@ -0,0 +1,62 @@
+package model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link RegionImageModel}.
+ */
+public class RegionImageModelTest {
+  private ImageModel source;
+  private ImageModel region;
+
+  // Replace the middle two pixels of the second row of a 3x4 image
+  @Before
+  public void init() {
+    int[] pixels = new int[12];
+    for (int k = 0; k < pixels.length; k++) {
+      pixels[k] = k;
+    }
+    source = new PackedImageModel(pixels, 3, 4);
+    region = new RegionImageModel(source, new int[]{100, 101}, 1, 1, 1, 2);
+  }
+
+  // Tests that the constructor rejects a region beyond the source image
+  @Test(expected = IllegalArgumentException.class)
+  public void testRegionOutOfBounds() {
+    new RegionImageModel(source, new int[]{1, 2}, 2, 3, 1, 2);
+  }
+
+  // Tests that the constructor rejects pixels that do not match the region
+  @Test(expected = IllegalArgumentException.class)
+  public void testPixelCountMismatch() {
+    new RegionImageModel(source, new int[]{1, 2, 3}, 1, 1, 1, 2);
+  }
+
+  // Tests that pixels inside the region come from the region and the rest from the source
+  @Test
+  public void testGetRGBAt() {
+    assertEquals(3, region.getImageHeight());
+    assertEquals(4, region.getImageWidth());
+    assertEquals(4, region.getRGBAt(1, 0));
+    assertEquals(100, region.getRGBAt(1, 1));
+    assertEquals(101, region.getRGBAt(1, 2));
+    assertEquals(7, region.getRGBAt(1, 3));
+    assertEquals(2, region.getRGBAt(0, 2));
+  }
+
+  // Tests that rows and regions copied from the model include the replaced pixels
+  @Test
+  public void testGetRowAndRegion() {
+    int[] row = new int[5];
+    region.getRow(1, row, 1);
+    assertArrayEquals(new int[]{0, 4, 100, 101, 7}, row);
+
+    int[] buffer = new int[4];
+    region.getRegion(0, 1, 2, 2, buffer, 0, 2);
+    assertArrayEquals(new int[]{0xFF000001, 0xFF000002, 0xFF000064, 0xFF000065}, buffer);
+  }
+}
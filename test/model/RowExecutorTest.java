@@ -0,0 +1,157 @@
+package model;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link RowExecutor}.
+ */
+public class RowExecutorTest {
+  // Restore the default configuration after each test
+  @After
+  public void reset() {
+    RowExecutor.configure(Runtime.getRuntime().availableProcessors(), 16384);
+  }
+
+  // Tests that configure rejects values that are not positive
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidConfiguration() {
+    RowExecutor.configure(0, 100);
+  }
+
+  // Tests that every row is processed exactly once whether or not the rows are split
+  @Test
+  public void testEveryRowProcessedOnce() {
+    int[][] configurations = new int[][]{{1, 16384}, {4, 1}, {3, 50}};
+    for (int[] configuration : configurations) {
+      RowExecutor.configure(configuration[0], configuration[1]);
+      AtomicIntegerArray counts = new AtomicIntegerArray(101);
+      RowExecutor.forEachRow(101, 7, (startRow, endRow) -> {
+        for (int i = startRow; i < endRow; i++) {
+          counts.incrementAndGet(i);
+        }
+      });
+      for (int i = 0; i < 101; i++) {
+        assertEquals(1, counts.get(i));
+      }
+    }
+  }
+
+  // Tests that changing the thread count while rows are processed loses no rows
+  @Test
+  public void testConfigureWhileRunning() throws InterruptedException {
+    RowExecutor.configure(2, 1);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread worker = new Thread(() -> {
+      try {
+        for (int run = 0; run < 500; run++) {
+          AtomicInteger rows = new AtomicInteger();
+          RowExecutor.forEachRow(64, 1, (startRow, endRow) -> rows.addAndGet(endRow - startRow));
+          assertEquals(64, rows.get());
+        }
+      } catch (Throwable e) {
+        failure.set(e);
+      }
+    });
+    worker.start();
+    for (int k = 0; worker.isAlive(); k++) {
+      RowExecutor.configure(2 + k % 2, 1);
+    }
+    worker.join();
+    assertNull(failure.get());
+  }
+
+  // Tests that allocation is measured on worker threads but not charged for other work
+  @Test
+  public void testAllocatedBytes() {
+    RowExecutor.configure(4, 1);
+    byte[][] kept = new byte[64][];
+    long allocated = RowExecutor.allocatedBytes(() ->
+        RowExecutor.forEachRow(64, 1, (startRow, endRow) -> {
+          for (int i = startRow; i < endRow; i++) {
+            kept[i] = new byte[1 << 16];
+          }
+        }));
+    assertTrue(allocated >= 64L << 16);
+
+    Thread other = new Thread(() -> {
+      byte[][] garbage = new byte[64][];
+      for (int k = 0; k < 4096; k++) {
+        garbage[k % 64] = new byte[1 << 16];
+      }
+    });
+    long small = RowExecutor.allocatedBytes(() -> {
+      other.start();
+      try {
+        other.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    assertTrue(small < 64L << 16);
+  }
+
+  // Tests that an exception thrown while processing a band reaches the caller unchanged
+  @Test
+  public void testExceptionPropagates() {
+    RowExecutor.configure(4, 1);
+    try {
+      RowExecutor.forEachRow(64, 1, (startRow, endRow) -> {
+        if (startRow <= 40 && 40 < endRow) {
+          throw new IllegalArgumentException("Band failed.");
+        }
+      });
+      fail("Did not throw exception.");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Band failed.", e.getMessage());
+    }
+  }
+
+  // Tests that tracked work counts every row it processes, even on a single thread
+  @Test
+  public void testProgressCountsRows() {
+    for (int threads : new int[]{1, 4}) {
+      RowExecutor.configure(threads, 10);
+      AtomicInteger reports = new AtomicInteger();
+      Progress progress = new Progress((completedRows, totalRows) -> reports.incrementAndGet());
+      progress.run(() -> {
+        RowExecutor.forEachRow(50, 1, (startRow, endRow) -> { });
+        RowExecutor.forEachRow(30, 1, (startRow, endRow) -> { });
+      });
+      assertEquals(80, progress.getCompletedRows());
+      assertEquals(80, progress.getTotalRows());
+      if (threads == 1) {
+        assertEquals(8, reports.get());
+      }
+    }
+  }
+
+  // Tests that cancelling tracked work stops it before its next band of rows
+  @Test
+  public void testProgressCancelled() {
+    RowExecutor.configure(1, 10);
+    AtomicInteger bands = new AtomicInteger();
+    Progress progress = new Progress();
+    try {
+      progress.run(() -> RowExecutor.forEachRow(50, 1, (startRow, endRow) -> {
+        if (bands.incrementAndGet() == 2) {
+          progress.cancel();
+        }
+      }));
+      fail("Did not throw exception.");
+    } catch (CancellationException e) {
+      assertEquals(2, bands.get());
+      assertEquals(20, progress.getCompletedRows());
+    }
+  }
+}
@@ -2,9 +2,17 @@ package view;
 
 import org.junit.Test;
 
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
 import java.util.HashMap;
 
+import model.ImageModelMap;
 import model.ImageModelMapImpl;
+import model.ImageModel;
+import model.PackedImageModel;
+import model.RegionImageModel;
+
+import static org.junit.Assert.assertEquals;
 
 /**
  * This class represents tests for the display panel.
@@ -25,4 +33,71 @@ public class DisplayPanelTest {
   public void testNullStringMethod() {
     new DisplayPanel(new ImageModelMapImpl(new HashMap<>()), "name").setImageToPaint(null);
   }
+
+  // Tests that a cached rendering is replaced once its name maps to a different image model
+  @Test
+  public void testRenderCacheInvalidated() {
+    ImageModelMap map = new ImageModelMapImpl(new HashMap<>());
+    map.add("image", new PackedImageModel(new int[]{0x102030, 0x405060}, 1, 2),
+            new StringBuilder());
+    DisplayPanel panel = new DisplayPanel(map, "image");
+    assertEquals(0x102030, paint(panel, 2, 1).getRGB(0, 0) & 0xFFFFFF);
+
+    map.add("image", new PackedImageModel(new int[]{0x708090, 0x405060}, 1, 2),
+            new StringBuilder());
+    BufferedImage painted = paint(panel, 2, 1);
+    assertEquals(0x708090, painted.getRGB(0, 0) & 0xFFFFFF);
+    assertEquals(0x405060, painted.getRGB(1, 0) & 0xFFFFFF);
+  }
+
+  // Tests that painting with a clip copies only the part of the image inside the clip
+  @Test
+  public void testPaintClip() {
+    ImageModelMap map = new ImageModelMapImpl(new HashMap<>());
+    map.add("image", new PackedImageModel(new int[]{0x102030, 0x405060}, 1, 2),
+            new StringBuilder());
+    DisplayPanel panel = new DisplayPanel(map, "image");
+    panel.setOpaque(false);
+    BufferedImage target = new BufferedImage(2, 1, BufferedImage.TYPE_INT_RGB);
+    Graphics g = target.createGraphics();
+    g.setClip(1, 0, 1, 1);
+    panel.paintComponent(g);
+    g.dispose();
+    assertEquals(0, target.getRGB(0, 0) & 0xFFFFFF);
+    assertEquals(0x405060, target.getRGB(1, 0) & 0xFFFFFF);
+  }
+
+  // Tests that moving a region over the same source renders the old and new regions again
+  @Test
+  public void testRegionMoved() {
+    ImageModelMap map = new ImageModelMapImpl(new HashMap<>());
+    ImageModel source = new PackedImageModel(new int[]{0x010101, 0x020202, 0x030303}, 1, 3);
+    map.add("preview", new RegionImageModel(source, new int[]{0xFF0000}, 0, 0, 1, 1),
+            new StringBuilder());
+    DisplayPanel panel = new DisplayPanel(map, "preview");
+    assertEquals(0xFF0000, paint(panel, 3, 1).getRGB(0, 0) & 0xFFFFFF);
+
+    map.add("preview", new RegionImageModel(source, new int[]{0x00FF00}, 0, 2, 1, 1),
+            new StringBuilder());
+    BufferedImage painted = paint(panel, 3, 1);
+    assertEquals(0x010101, painted.getRGB(0, 0) & 0xFFFFFF);
+    assertEquals(0x020202, painted.getRGB(1, 0) & 0xFFFFFF);
+    assertEquals(0x00FF00, painted.getRGB(2, 0) & 0xFFFFFF);
+  }
+
+  /**
+   * Paints a display panel onto a new image of a given size.
+   *
+   * @param panel  the panel to paint
+   * @param width  the width of the image
+   * @param height the height of the image
+   * @return the image the panel was painted onto
+   */
+  private BufferedImage paint(DisplayPanel panel, int width, int height) {
+    BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    Graphics g = target.createGraphics();
+    panel.paintComponent(g);
+    g.dispose();
+    return target;
+  }
 }
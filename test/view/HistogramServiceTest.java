@@ -0,0 +1,41 @@
+package view;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+
+import model.Histogram;
+import model.ImageModelMap;
+import model.ImageModelMapImpl;
+import model.PackedImageModel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * This class represents tests for the histogram service.
+ */
+public class HistogramServiceTest {
+
+  @Test(expected = NullPointerException.class)
+  public void testNullImageModelMap() {
+    new HistogramService(null);
+  }
+
+  // Tests that histograms are counted once and then reused until the image is replaced
+  @Test
+  public void testCachedUntilReplaced() {
+    ImageModelMap map = new ImageModelMapImpl(new HashMap<>());
+    map.add("image", new PackedImageModel(new int[]{0x102030}, 1, 1), new StringBuilder());
+    HistogramService service = new HistogramService(map);
+    Histogram first = service.find("image");
+    assertSame(first, service.find("image"));
+    assertEquals(1, first.getCounts("red")[0x10]);
+
+    map.add("image", new PackedImageModel(new int[]{0x405060}, 1, 1), new StringBuilder());
+    Histogram second = service.find("image");
+    assertNotSame(first, second);
+    assertEquals(1, second.getCounts("red")[0x40]);
+  }
+}